@@ -0,0 +1,83 @@
+package com.fact_checker.FactChecker.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Configuration properties for the artifact cache.
+ * Every cache gets its own in-memory eviction policy under {@code artifact.cache.policies.<cache-name>},
+ * and the disk tier shared by all caches is bounded under {@code artifact.cache.disk}.
+ */
+@ConfigurationProperties(prefix = "artifact.cache")
+@Getter
+@Setter
+public class ArtifactCacheProperties {
+
+    /**
+     * Root directory of the disk tier.
+     */
+    private String directory = "artifact-cache";
+
+    /**
+     * The in-memory policy of each cache, keyed by cache name.
+     */
+    private Map<String, Policy> policies = new HashMap<>();
+
+    /**
+     * The bounds of the disk tier.
+     */
+    private Disk disk = new Disk();
+
+    /**
+     * Eviction policy of the disk tier, which is swept for expired and least recently used entries.
+     */
+    @Getter
+    @Setter
+    public static class Disk {
+
+        /**
+         * Maximum total size of the artifacts on disk.
+         */
+        private DataSize maxSize = DataSize.ofGigabytes(10);
+
+        /**
+         * How long an artifact may stay unused before it is deleted from disk.
+         */
+        private Duration expireAfterAccess = Duration.ofDays(7);
+
+        /**
+         * Time between two sweeps of the disk tier.
+         */
+        private Duration sweepInterval = Duration.ofMinutes(10);
+    }
+
+    /**
+     * Eviction policy of a single in-memory cache.
+     * A cache is bounded either by the total size of its values or by the number of entries.
+     */
+    @Getter
+    @Setter
+    public static class Policy {
+
+        /**
+         * Maximum total size of the cached values. Suited to large artifacts of varying size.
+         */
+        private DataSize maxWeight;
+
+        /**
+         * Maximum number of entries. Suited to small values such as strings and scores.
+         */
+        private Long maxEntries;
+
+        /**
+         * How long an entry may stay unused before it is dropped from memory.
+         */
+        private Duration expireAfterAccess = Duration.ofHours(5);
+    }
+}
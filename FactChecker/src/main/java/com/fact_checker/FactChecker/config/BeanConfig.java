@@ -5,10 +5,15 @@ import com.knuddels.jtokkit.api.Encoding;
 import com.knuddels.jtokkit.api.EncodingRegistry;
 import com.knuddels.jtokkit.api.ModelType;
 import okhttp3.OkHttpClient;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
+
 /**
  * Configuration class for defining beans in the FactChecker application.
  * This class is responsible for creating and configuring beans that can be used
@@ -21,24 +26,40 @@ public class BeanConfig {
      * Creates and configures a RestTemplate bean.
      * RestTemplate is a synchronous client to perform HTTP requests, exposing a
      * simple, template method API over underlying HTTP client libraries.
+     * It runs on the JDK HTTP client, which aborts a request when the calling thread is interrupted,
+     * so cancelled jobs do not keep waiting for their uploads to finish.
      *
+     * @param connectTimeoutSeconds How long connecting to a server may take.
+     * @param readTimeoutSeconds How long a server may take to answer a request.
      * @return A new instance of RestTemplate.
      */
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(@Value("${http.client.connect-timeout-seconds:10}") long connectTimeoutSeconds,
+                                     @Value("${http.client.read-timeout-seconds:300}") long readTimeoutSeconds) {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(connectTimeoutSeconds))
+                .build();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(Duration.ofSeconds(readTimeoutSeconds));
+        return new RestTemplate(requestFactory);
     }
 
     /**
      * Creates and configures an OkHttpClient bean.
      * OkHttpClient is a client to perform HTTP requests.
      *
+     * @param connectTimeoutSeconds How long connecting to a server may take.
+     * @param readTimeoutSeconds How long a whole call may take.
      * @return OkHttpClient object.
      */
 
     @Bean
-    public OkHttpClient okHttpClient() {
-        return new OkHttpClient();
+    public OkHttpClient okHttpClient(@Value("${http.client.connect-timeout-seconds:10}") long connectTimeoutSeconds,
+                                     @Value("${http.client.read-timeout-seconds:300}") long readTimeoutSeconds) {
+        return new OkHttpClient.Builder()
+                .connectTimeout(Duration.ofSeconds(connectTimeoutSeconds))
+                .callTimeout(Duration.ofSeconds(readTimeoutSeconds))
+                .build();
     }
 
     /**
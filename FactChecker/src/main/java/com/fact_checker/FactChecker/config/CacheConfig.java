@@ -1,53 +1,104 @@
 package com.fact_checker.FactChecker.config;
 
+import com.fact_checker.FactChecker.service.ArtifactCache;
+import com.fact_checker.FactChecker.service.ArtifactCache.ArtifactType;
+import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
-import org.springframework.cache.CacheManager;
-import org.springframework.cache.caffeine.CaffeineCacheManager;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
-import java.util.concurrent.TimeUnit;
+import java.nio.file.Paths;
+import java.util.EnumMap;
+import java.util.Map;
 
 /**
  * Configuration class for caching in the FactChecker application.
- * This class sets up a Caffeine-based cache manager for efficient data storage and retrieval.
+ * This class sets up the content-addressed artifact cache, backed by Caffeine in memory and by a directory on disk.
+ * Each in-memory tier gets its own policy from {@link ArtifactCacheProperties} and publishes its statistics
+ * through the actuator metrics endpoint. Artifact types that are only stored as files, such as audio,
+ * have no in-memory tier and need no policy.
  */
 @Configuration
+@EnableConfigurationProperties(ArtifactCacheProperties.class)
 public class CacheConfig {
-    /** Maximum number of entries in the cache. */
-    
-    private static final int MAX_SIZE = 1000;
-
-    /** Maximum number of entries in the cache. */
-    private static final int TIME_TO_LIVE = 5;
 
     /**
-     * Creates and configures a CacheManager bean.
+     * Creates the artifact cache shared by the pipeline stages.
      *
-     * @return A configured CaffeineCacheManager instance.
+     * @param properties    Directory, per-cache policies and the bounds of the disk tier
+     * @param meterRegistry Registry the cache metrics are published to
+     * @return A configured ArtifactCache instance.
      */
     @Bean
-    public CacheManager cacheManager() {
-        // Initialize CaffeineCacheManager with specific cache names
-        CaffeineCacheManager cacheManager = new CaffeineCacheManager("videos", "audioExtractions", "transcriptions", "thumbnails");
-
-        // Set the Caffeine cache specifications
-        cacheManager.setCaffeine(caffeineCacheBuilder());
+    public ArtifactCache artifactCache(ArtifactCacheProperties properties, MeterRegistry meterRegistry) {
+        Map<ArtifactType, Cache<String, byte[]>> memoryTiers = new EnumMap<>(ArtifactType.class);
+        for (ArtifactType type : ArtifactType.values()) {
+            if (type.isFileOnly()) {
+                continue;
+            }
+            String cacheName = type.getCacheName();
+            ArtifactCacheProperties.Policy policy = properties.getPolicies().get(cacheName);
+            if (policy == null) {
+                throw new IllegalArgumentException("No policy configured for cache " + cacheName);
+            }
+            Cache<String, byte[]> cache = buildMemoryTier(cacheName, policy);
+            monitor(meterRegistry, cache, cacheName);
+            memoryTiers.put(type, cache);
+        }
+        ArtifactCacheProperties.Disk disk = properties.getDisk();
+        return new ArtifactCache(Paths.get(properties.getDirectory()), memoryTiers, meterRegistry,
+                disk.getMaxSize().toBytes(), disk.getExpireAfterAccess());
+    }
 
-        // Enable asynchronous cache mode for improved performance
-        cacheManager.setAsyncCacheMode(true);
+    /**
+     * Builds one in-memory tier from its policy.
+     * Byte-bounded caches weigh entries by their size, so a few large embeddings cannot take over the heap.
+     *
+     * @param cacheName Name of the cache, used in error messages
+     * @param policy    The policy of the cache
+     * @return A Caffeine cache with the defined properties.
+     */
+    Cache<String, byte[]> buildMemoryTier(String cacheName, ArtifactCacheProperties.Policy policy) {
+        if ((policy.getMaxWeight() == null) == (policy.getMaxEntries() == null)) {
+            throw new IllegalArgumentException(
+                    "Cache " + cacheName + " must be bounded by exactly one of max-weight and max-entries");
+        }
 
-        return cacheManager;
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                .expireAfterAccess(policy.getExpireAfterAccess())
+                .recordStats();
+        if (policy.getMaxEntries() != null) {
+            return builder.maximumSize(policy.getMaxEntries()).build();
+        }
+        return builder
+                .maximumWeight(policy.getMaxWeight().toBytes())
+                .weigher((String key, byte[] value) -> value.length)
+                .build();
     }
 
     /**
-     * Defines the Caffeine cache specifications.
+     * Publishes the size, weight, hit rate and evictions of a cache.
+     * Caffeine's binder covers size, gets and evictions; weight and hit rate are added as gauges.
      *
-     * @return A Caffeine instance with defined cache properties.
+     * @param meterRegistry Registry the metrics are published to
+     * @param cache         The cache to monitor
+     * @param cacheName     Name of the cache, used as the "cache" tag
      */
-    Caffeine<Object, Object> caffeineCacheBuilder() {
-        return Caffeine.newBuilder()
-                .maximumSize(MAX_SIZE)  // Set maximum number of entries the cache may contain
-                .expireAfterWrite(TIME_TO_LIVE, TimeUnit.HOURS);  // Set the duration after which entries should be automatically removed
+    private void monitor(MeterRegistry meterRegistry, Cache<String, byte[]> cache, String cacheName) {
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, cacheName);
+        Gauge.builder("cache.weight", cache, c -> c.policy().eviction()
+                        .map(eviction -> eviction.weightedSize().orElse(c.estimatedSize()))
+                        .orElse(c.estimatedSize()))
+                .description("Total weight of the entries, in bytes for byte-bounded caches and entries otherwise")
+                .tag("cache", cacheName)
+                .register(meterRegistry);
+        Gauge.builder("cache.hit.ratio", cache, c -> c.stats().hitRate())
+                .description("Share of in-memory lookups that were hits")
+                .tag("cache", cacheName)
+                .register(meterRegistry);
     }
 }
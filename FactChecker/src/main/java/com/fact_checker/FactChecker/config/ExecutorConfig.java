@@ -0,0 +1,193 @@
+package com.fact_checker.FactChecker.config;
+
+import io.micrometer.core.instrument.Counter;
+import jakarta.annotation.PreDestroy;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Configuration class for the executors the fact-check pipeline runs on.
+ * Every pool is named, has a bounded queue and is instrumented, so that the queue depth, the number of
+ * active threads, the time tasks wait in the queue ("executor.idle") and the number of rejected tasks
+ * can be read from the actuator metrics endpoint.
+ *
+ * <ul>
+ *   <li>The job pool runs the fact-check jobs this instance has claimed from the durable job queue.</li>
+ *   <li>The media pool runs CPU-bound FFmpeg work and is sized to the number of processors.</li>
+ *   <li>The I/O pool runs blocking calls to the transcription and embedding APIs, which mostly wait.</li>
+ *   <li>The HTTP client pool runs the callbacks of the non-blocking Groq client. They are short, so a few
+ *       threads of their own keep them from queueing behind blocking uploads in the I/O pool.</li>
+ * </ul>
+ * Every pool rejects tasks once its queue is full. A rejected task fails the stage of the job that
+ * submitted it, and the job is retried later, instead of the submitting thread running the task outside
+ * the pool and outside the time limit the job waits for it.
+ * With {@code spring.threads.virtual.enabled} the web tier and the I/O pool switch to virtual threads.
+ */
+@Configuration
+@EnableConfigurationProperties(SchedulerProperties.class)
+public class ExecutorConfig {
+
+    public static final String JOB_EXECUTOR = "jobExecutor";
+    public static final String MEDIA_EXECUTOR = "mediaExecutor";
+    public static final String IO_EXECUTOR = "ioExecutor";
+    public static final String HTTP_CLIENT_EXECUTOR = "httpClientExecutor";
+
+    /** Seconds an idle thread is kept before it is released. */
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    /** Seconds running tasks are given to finish on shutdown. */
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 60;
+
+    private final List<ExecutorService> executors = new CopyOnWriteArrayList<>();
+
+    /**
+     * Creates the pool fact-check jobs are admitted to.
+     *
+     * @param threads       Number of jobs that may run at the same time
+     * @param queueCapacity Number of jobs that may wait before new ones are rejected
+     * @param meterRegistry Registry the executor metrics are published to
+     * @return The instrumented executor
+     */
+    @Bean(name = JOB_EXECUTOR, destroyMethod = "")
+    public ExecutorService jobExecutor(@Value("${fact-check.jobs.worker-threads:4}") int threads,
+                                       @Value("${fact-check.jobs.queue-capacity:50}") int queueCapacity,
+                                       MeterRegistry meterRegistry) {
+        return register(boundedExecutor("fact-check-job", threads, queueCapacity,
+                new ThreadPoolExecutor.AbortPolicy(), meterRegistry));
+    }
+
+    /**
+     * Creates the pool for CPU-bound FFmpeg work.
+     *
+     * @param threads       Number of threads, or 0 to use one per processor
+     * @param queueCapacity Number of tasks that may wait before new ones are rejected
+     * @param meterRegistry Registry the executor metrics are published to
+     * @return The instrumented executor
+     */
+    @Bean(name = MEDIA_EXECUTOR, destroyMethod = "")
+    public ExecutorService mediaExecutor(@Value("${executors.media.threads:0}") int threads,
+                                         @Value("${executors.media.queue-capacity:100}") int queueCapacity,
+                                         MeterRegistry meterRegistry) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        return register(boundedExecutor("media", poolSize, queueCapacity,
+                new ThreadPoolExecutor.AbortPolicy(), meterRegistry));
+    }
+
+    /**
+     * Creates the pool for blocking calls to external APIs.
+     *
+     * With virtual threads enabled, every call gets its own virtual thread instead of waiting for one of
+     * the pooled platform threads, and only the number of calls in flight is bounded.
+     *
+     * @param virtualThreads Whether to run the calls on virtual threads
+     * @param threads        Number of platform threads
+     * @param queueCapacity  Number of tasks that may wait before new ones are rejected
+     * @param maxConcurrency Number of calls in flight on virtual threads before new ones are rejected
+     * @param meterRegistry  Registry the executor metrics are published to
+     * @return The instrumented executor
+     */
+    @Bean(name = IO_EXECUTOR, destroyMethod = "")
+    public ExecutorService ioExecutor(@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                                      @Value("${executors.io.threads:32}") int threads,
+                                      @Value("${executors.io.queue-capacity:500}") int queueCapacity,
+                                      @Value("${executors.io.virtual-max-concurrency:1000}") int maxConcurrency,
+                                      MeterRegistry meterRegistry) {
+        if (virtualThreads) {
+            return register(virtualThreadExecutor("io", maxConcurrency, meterRegistry));
+        }
+        return register(boundedExecutor("io", threads, queueCapacity,
+                new ThreadPoolExecutor.AbortPolicy(), meterRegistry));
+    }
+
+    /**
+     * Creates the pool the Groq HTTP client runs its callbacks on, such as handing the chunks of a
+     * streamed completion to the subscriber.
+     *
+     * @param threads       Number of threads
+     * @param queueCapacity Number of callbacks that may wait before new ones are rejected
+     * @param meterRegistry Registry the executor metrics are published to
+     * @return The instrumented executor
+     */
+    @Bean(name = HTTP_CLIENT_EXECUTOR, destroyMethod = "")
+    public ExecutorService httpClientExecutor(@Value("${executors.http-client.threads:4}") int threads,
+                                              @Value("${executors.http-client.queue-capacity:1000}") int queueCapacity,
+                                              MeterRegistry meterRegistry) {
+        return register(boundedExecutor("http-client", threads, queueCapacity,
+                new ThreadPoolExecutor.AbortPolicy(), meterRegistry));
+    }
+
+    /**
+     * Creates an executor that runs every task on its own virtual thread and registers its metrics.
+     *
+     * @param name           Name of the executor, used for its threads and as the "name" tag of its metrics
+     * @param maxConcurrency Number of tasks in flight before new ones are rejected
+     * @param meterRegistry  Registry the executor metrics are published to
+     * @return The instrumented executor
+     */
+    public static ExecutorService virtualThreadExecutor(String name, int maxConcurrency, MeterRegistry meterRegistry) {
+        return ExecutorServiceMetrics.monitor(meterRegistry,
+                new VirtualThreadExecutor(name, maxConcurrency, meterRegistry), name);
+    }
+
+    /**
+     * Creates a fixed-size pool with a bounded queue and registers its metrics.
+     *
+     * @param name            Name of the pool, used for its threads and as the "name" tag of its metrics
+     * @param threads         Number of threads
+     * @param queueCapacity   Number of tasks that may wait for a thread
+     * @param rejectionPolicy What happens to tasks submitted while the queue is full
+     * @param meterRegistry   Registry the executor metrics are published to
+     * @return The instrumented executor
+     */
+    public static ExecutorService boundedExecutor(String name, int threads, int queueCapacity,
+                                           RejectedExecutionHandler rejectionPolicy, MeterRegistry meterRegistry) {
+        Counter rejected = Counter.builder("executor.rejected")
+                .description("Tasks that did not fit into the queue of the executor")
+                .tag("name", name)
+                .register(meterRegistry);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory(name + "-"),
+                (task, pool) -> {
+                    rejected.increment();
+                    rejectionPolicy.rejectedExecution(task, pool);
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return ExecutorServiceMetrics.monitor(meterRegistry, executor, name);
+    }
+
+    private ExecutorService register(ExecutorService executor) {
+        executors.add(executor);
+        return executor;
+    }
+
+    /**
+     * Shuts down the executors, giving running tasks time to finish.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executors.forEach(ExecutorService::shutdown);
+        try {
+            for (ExecutorService executor : executors) {
+                if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    executor.shutdownNow();
+                }
+            }
+        } catch (InterruptedException e) {
+            executors.forEach(ExecutorService::shutdownNow);
+            Thread.currentThread().interrupt();
+        }
+    }
+}
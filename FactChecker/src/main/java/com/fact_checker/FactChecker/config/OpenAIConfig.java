@@ -27,5 +27,12 @@ public class OpenAIConfig {
      */
     @Value("${openai.api.url}")
     private String apiUrl;
+
+    /**
+     * The maximum number of audio chunks transcribed concurrently for a single video.
+     * This value is injected from the application's configuration properties.
+     */
+    @Value("${openai.transcription.parallelism:4}")
+    private int transcriptionParallelism;
 }
 
@@ -0,0 +1,49 @@
+package com.fact_checker.FactChecker.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Configuration properties for the order and the per-user limits of queued fact-check jobs.
+ */
+@ConfigurationProperties(prefix = "fact-check.scheduler")
+@Getter
+@Setter
+public class SchedulerProperties {
+
+    /**
+     * Milliseconds of virtual deadline per millisecond of estimated cost. 0 runs jobs in submission order.
+     */
+    private double agingFactor = 1.0;
+
+    /**
+     * Estimated cost in seconds above which a job counts as long.
+     */
+    private double longJobSeconds = 600;
+
+    /**
+     * Number of long jobs that may run at the same time. Keep it below the number of job workers.
+     */
+    private int longJobSlots = 3;
+
+    /**
+     * Number of jobs of a single user that may run at the same time. Enforced on every instance and,
+     * through the leases in the job queue, across all instances together.
+     */
+    private int maxRunningJobsPerUser = 2;
+
+    /**
+     * Number of jobs a single user may have waiting before further uploads are refused.
+     */
+    private int maxQueuedJobsPerUser = 10;
+
+    /**
+     * Share of the workers per role, relative to the default weight of 1. A user gets the highest
+     * weight of their roles.
+     */
+    private Map<String, Double> roleWeights = new HashMap<>();
+}
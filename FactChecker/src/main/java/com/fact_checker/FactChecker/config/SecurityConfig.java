@@ -70,7 +70,7 @@ public class SecurityConfig {
         http
                 .authorizeHttpRequests((requests) -> requests
                         .requestMatchers("/", "/css/**").permitAll()
-                        .requestMatchers("/home", "/fact-check-video", "/videos/**", "/videos-storage/**", "/thumbnails/**").hasAuthority("ROLE_USER")
+                        .requestMatchers("/home", "/fact-check-video", "/jobs/**", "/uploads/**", "/videos/**", "/videos-storage/**", "/thumbnails/**").hasAuthority("ROLE_USER")
                         .requestMatchers("/", "/css/**", "/images/**", "/signup", "/login").permitAll()
                         .anyRequest().authenticated()
                 )
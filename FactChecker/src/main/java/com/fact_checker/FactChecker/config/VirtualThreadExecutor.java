@@ -0,0 +1,103 @@
+package com.fact_checker.FactChecker.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executor that starts a new virtual thread for every task, with a limit on the number of tasks in flight.
+ * Virtual threads are cheap to block, so blocking HTTP and JDBC calls do not tie up scarce platform threads,
+ * but the downstream APIs still cannot take unlimited concurrency. Tasks submitted while the limit is
+ * reached are rejected, the same way the bounded platform pools reject tasks once their queue is full.
+ */
+public class VirtualThreadExecutor extends AbstractExecutorService {
+
+    private final ExecutorService delegate;
+    private final Semaphore permits;
+    private final int maxConcurrency;
+    private final Counter rejected;
+
+    /**
+     * Constructor for VirtualThreadExecutor.
+     *
+     * @param name           Name of the executor, used for its threads and as the "name" tag of its metrics
+     * @param maxConcurrency Maximum number of tasks running on virtual threads at the same time
+     * @param meterRegistry  Registry the executor metrics are published to
+     */
+    public VirtualThreadExecutor(String name, int maxConcurrency, MeterRegistry meterRegistry) {
+        this.delegate = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 0).factory());
+        this.permits = new Semaphore(maxConcurrency);
+        this.maxConcurrency = maxConcurrency;
+        this.rejected = Counter.builder("executor.rejected")
+                .description("Tasks that did not fit into the queue of the executor")
+                .tag("name", name)
+                .register(meterRegistry);
+        Gauge.builder("executor.active", this, VirtualThreadExecutor::getActiveCount)
+                .description("The approximate number of threads that are actively executing tasks")
+                .tag("name", name)
+                .baseUnit("threads")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the number of tasks currently running on virtual threads.
+     *
+     * @return the number of tasks in flight
+     */
+    public int getActiveCount() {
+        return maxConcurrency - permits.availablePermits();
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (!permits.tryAcquire()) {
+            rejected.increment();
+            throw new RejectedExecutionException("Executor has " + maxConcurrency + " tasks in flight");
+        }
+        try {
+            delegate.execute(() -> {
+                try {
+                    command.run();
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return delegate.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+}
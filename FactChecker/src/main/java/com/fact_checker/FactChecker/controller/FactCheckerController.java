@@ -1,9 +1,11 @@
 package com.fact_checker.FactChecker.controller;
 
 import com.fact_checker.FactChecker.exceptions.EmbeddingException;
+import com.fact_checker.FactChecker.exceptions.QuotaExceededException;
+import com.fact_checker.FactChecker.model.FactCheckJob;
 import com.fact_checker.FactChecker.model.User;
 import com.fact_checker.FactChecker.model.Video;
-import com.fact_checker.FactChecker.service.TextAnalysisService;
+import com.fact_checker.FactChecker.service.FactCheckJobService;
 import com.fact_checker.FactChecker.service.UserService;
 import com.fact_checker.FactChecker.service.VectorizationService;
 import com.fact_checker.FactChecker.service.VideoService;
@@ -23,6 +25,7 @@ import java.util.Random;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 
 @Controller
 @RequestMapping("/")
@@ -30,18 +33,18 @@ public class FactCheckerController implements ErrorController {
 
   private final VideoService videoService;
   private final UserService userService;
-  private final TextAnalysisService textAnalysisService;
+  private final FactCheckJobService factCheckJobService;
   private static final Logger logger = LoggerFactory.getLogger(FactCheckerController.class);
   private final VectorizationService vectorizationService;
 
   public FactCheckerController(
       VideoService videoService,
       UserService userService,
-      TextAnalysisService textAnalysisService,
+      FactCheckJobService factCheckJobService,
       VectorizationService vectorizationService) {
     this.videoService = videoService;
     this.userService = userService;
-    this.textAnalysisService = textAnalysisService;
+    this.factCheckJobService = factCheckJobService;
     this.vectorizationService = vectorizationService;
   }
 
@@ -191,25 +194,17 @@ public class FactCheckerController implements ErrorController {
     }
 
     try {
-      redirectAttributes.addFlashAttribute("message", "Processing video, please wait! ⌛");
-
-      Video video = videoService.processAndSaveVideo(videoFile, user).join();
-      String extractedText = video.getTranscriptionText();
-
-      if (extractedText == null || extractedText.isEmpty()) {
-        redirectAttributes.addFlashAttribute("message", "Could not extract text from video.");
-        return "redirect:/fact-check-video";
-      }
-
-      double factCheckPercentage = textAnalysisService.analyzeText(video);
+      FactCheckJob job = factCheckJobService.submit(videoFile, user);
 
+      redirectAttributes.addFlashAttribute("message", "Processing video, please wait! ⌛");
+      redirectAttributes.addFlashAttribute("jobId", job.getId());
+    } catch (QuotaExceededException e) {
+      redirectAttributes.addFlashAttribute("message", e.getMessage());
+      return "redirect:/fact-check-video";
+    } catch (RejectedExecutionException e) {
       redirectAttributes.addFlashAttribute(
-          "message",
-          "Successfully uploaded file. "
-              + extractedText
-              + " Fact Check Percentage: "
-              + factCheckPercentage
-              + "%");
+          "message", "Too many videos are being checked right now, please try again in a few minutes.");
+      return "redirect:/fact-check-video";
     } catch (Exception e) {
       redirectAttributes.addFlashAttribute("message", "Could not upload file." + e.getMessage());
       return "redirect:/fact-check-video";
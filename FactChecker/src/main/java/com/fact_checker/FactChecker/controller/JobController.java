@@ -0,0 +1,61 @@
+package com.fact_checker.FactChecker.controller;
+
+import com.fact_checker.FactChecker.model.JobStage;
+import com.fact_checker.FactChecker.model.JobStatus;
+import com.fact_checker.FactChecker.model.User;
+import com.fact_checker.FactChecker.service.FactCheckJobService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * REST controller exposing the status of background fact-check jobs and cancelling them.
+ */
+@RestController
+@RequestMapping("/jobs")
+public class JobController {
+
+  private final FactCheckJobService factCheckJobService;
+
+  public JobController(FactCheckJobService factCheckJobService) {
+    this.factCheckJobService = factCheckJobService;
+  }
+
+  /**
+   * Returns the current stage of a job. Completed jobs carry the id and URL of the persisted video.
+   *
+   * @param jobId The id returned when the video was submitted
+   * @param user  The authenticated user
+   * @return The job status, or 404 if the job is unknown to this user
+   */
+  @GetMapping("/{jobId}")
+  public ResponseEntity<JobStatus> getJobStatus(
+      @PathVariable String jobId, @AuthenticationPrincipal User user) {
+    return factCheckJobService.getJob(jobId, user)
+        .map(JobStatus::of)
+        .map(ResponseEntity::ok)
+        .orElse(ResponseEntity.notFound().build());
+  }
+
+  /**
+   * Cancels a job. A job that is still queued never starts, and a running one is aborted.
+   *
+   * @param jobId The id returned when the video was submitted
+   * @param user  The authenticated user
+   * @return The status of the cancelled job, 404 if the job is unknown to this user,
+   *         or 409 with its status if the job had already finished
+   */
+  @DeleteMapping("/{jobId}")
+  public ResponseEntity<JobStatus> cancelJob(
+      @PathVariable String jobId, @AuthenticationPrincipal User user) {
+    return factCheckJobService.cancel(jobId, user)
+        .map(job -> ResponseEntity.status(job.getStage() == JobStage.CANCELLED ? HttpStatus.OK : HttpStatus.CONFLICT)
+            .body(JobStatus.of(job)))
+        .orElse(ResponseEntity.notFound().build());
+  }
+}
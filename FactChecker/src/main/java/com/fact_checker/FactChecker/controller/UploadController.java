@@ -0,0 +1,192 @@
+package com.fact_checker.FactChecker.controller;
+
+import com.fact_checker.FactChecker.exceptions.InvalidFileException;
+import com.fact_checker.FactChecker.exceptions.QuotaExceededException;
+import com.fact_checker.FactChecker.model.FactCheckJob;
+import com.fact_checker.FactChecker.model.JobStatus;
+import com.fact_checker.FactChecker.model.UploadSession;
+import com.fact_checker.FactChecker.model.UploadStatus;
+import com.fact_checker.FactChecker.model.User;
+import com.fact_checker.FactChecker.service.ChunkedUploadService;
+import com.fact_checker.FactChecker.service.FactCheckJobService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * REST controller for resumable uploads.
+ * A client creates an upload, PUTs the file in chunks at their offsets, asks for the status to find
+ * the offset to resume from after a dropped connection, and finalizes the upload to queue the
+ * fact-check job. Clients with a reliable connection can instead stream the whole file in one request,
+ * in which case processing starts while the file is still arriving.
+ */
+@RestController
+@RequestMapping("/uploads")
+public class UploadController {
+
+  private final ChunkedUploadService chunkedUploadService;
+  private final FactCheckJobService factCheckJobService;
+
+  public UploadController(ChunkedUploadService chunkedUploadService, FactCheckJobService factCheckJobService) {
+    this.chunkedUploadService = chunkedUploadService;
+    this.factCheckJobService = factCheckJobService;
+  }
+
+  /**
+   * Creates a new upload.
+   *
+   * @param filename The name of the file on the client
+   * @param size     The size of the complete file in bytes
+   * @param user     The authenticated user
+   * @return The status of the new upload, or 429 if the user has too many jobs queued
+   */
+  @PostMapping
+  public ResponseEntity<UploadStatus> createUpload(
+      @RequestParam String filename, @RequestParam long size, @AuthenticationPrincipal User user) {
+    try {
+      UploadSession session = chunkedUploadService.create(filename, size, user);
+      return ResponseEntity.created(URI.create("/uploads/" + session.getId()))
+          .body(UploadStatus.of(session));
+    } catch (QuotaExceededException e) {
+      return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
+    }
+  }
+
+  /**
+   * Receives a whole file as the raw request body and queues the fact-check job.
+   * Audio extraction and transcription overlap with the transfer for containers that can be read
+   * front to back.
+   *
+   * @param filename The name of the file on the client
+   * @param request  The request carrying the file
+   * @param user     The authenticated user
+   * @return The status of the queued job, 429 if the user has too many jobs queued,
+   *         or 503 if the job queue is full
+   * @throws IOException if the request body cannot be read
+   */
+  @PostMapping("/stream")
+  public ResponseEntity<JobStatus> streamUpload(
+      @RequestParam String filename, HttpServletRequest request, @AuthenticationPrincipal User user)
+      throws IOException {
+    try (InputStream inputStream = request.getInputStream()) {
+      FactCheckJob job = factCheckJobService.submit(inputStream, filename, user);
+      return ResponseEntity.accepted()
+          .location(URI.create("/jobs/" + job.getId()))
+          .body(JobStatus.of(job));
+    } catch (QuotaExceededException e) {
+      return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
+    } catch (RejectedExecutionException e) {
+      return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+    }
+  }
+
+  /**
+   * Writes a chunk of the file. The request body is the raw content of the chunk.
+   *
+   * @param uploadId The id of the upload
+   * @param offset   The offset of the chunk in the file
+   * @param request  The request carrying the chunk
+   * @param user     The authenticated user
+   * @return The status of the upload after the chunk, or 404 if the upload is unknown to this user
+   * @throws IOException if the request body cannot be read
+   */
+  @PutMapping("/{uploadId}")
+  public ResponseEntity<UploadStatus> uploadChunk(
+      @PathVariable String uploadId, @RequestParam long offset, HttpServletRequest request,
+      @AuthenticationPrincipal User user) throws IOException {
+    UploadSession session = chunkedUploadService.getSession(uploadId, user).orElse(null);
+    if (session == null) {
+      return ResponseEntity.notFound().build();
+    }
+    long length = request.getContentLengthLong();
+    if (length <= 0) {
+      throw new InvalidFileException("Content-Length is required");
+    }
+    try (InputStream inputStream = request.getInputStream()) {
+      chunkedUploadService.writeChunk(session, offset, length, inputStream);
+    }
+    return ResponseEntity.ok(UploadStatus.of(session));
+  }
+
+  /**
+   * Returns how much of the file has been received and where to resume.
+   *
+   * @param uploadId The id of the upload
+   * @param user     The authenticated user
+   * @return The upload status, or 404 if the upload is unknown to this user
+   */
+  @GetMapping("/{uploadId}")
+  public ResponseEntity<UploadStatus> getUploadStatus(
+      @PathVariable String uploadId, @AuthenticationPrincipal User user) {
+    return chunkedUploadService.getSession(uploadId, user)
+        .map(UploadStatus::of)
+        .map(ResponseEntity::ok)
+        .orElse(ResponseEntity.notFound().build());
+  }
+
+  /**
+   * Completes an upload and queues the fact-check job.
+   *
+   * @param uploadId The id of the upload
+   * @param user     The authenticated user
+   * @return The status of the queued job, 404 if the upload is unknown to this user,
+   *         429 if the user has too many jobs queued, or 503 if the job queue is full
+   */
+  @PostMapping("/{uploadId}/finalize")
+  public ResponseEntity<JobStatus> finalizeUpload(
+      @PathVariable String uploadId, @AuthenticationPrincipal User user) {
+    UploadSession session = chunkedUploadService.getSession(uploadId, user).orElse(null);
+    if (session == null) {
+      return ResponseEntity.notFound().build();
+    }
+    try {
+      FactCheckJob job = chunkedUploadService.finalizeUpload(session, user);
+      return ResponseEntity.accepted()
+          .location(URI.create("/jobs/" + job.getId()))
+          .body(JobStatus.of(job));
+    } catch (QuotaExceededException e) {
+      return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
+    } catch (RejectedExecutionException e) {
+      return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+    }
+  }
+
+  /**
+   * Aborts an upload.
+   *
+   * @param uploadId The id of the upload
+   * @param user     The authenticated user
+   * @return 204, or 404 if the upload is unknown to this user
+   */
+  @DeleteMapping("/{uploadId}")
+  public ResponseEntity<Void> cancelUpload(
+      @PathVariable String uploadId, @AuthenticationPrincipal User user) {
+    UploadSession session = chunkedUploadService.getSession(uploadId, user).orElse(null);
+    if (session == null) {
+      return ResponseEntity.notFound().build();
+    }
+    chunkedUploadService.cancel(session);
+    return ResponseEntity.noContent().build();
+  }
+
+  @ExceptionHandler(InvalidFileException.class)
+  public ResponseEntity<Map<String, String>> handleInvalidFile(InvalidFileException e) {
+    return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+  }
+}
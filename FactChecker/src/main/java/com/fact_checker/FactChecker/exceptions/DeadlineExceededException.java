@@ -0,0 +1,11 @@
+package com.fact_checker.FactChecker.exceptions;
+
+/**
+ * Thrown when a job has not finished within the time it was given.
+ */
+public class DeadlineExceededException extends RuntimeException {
+
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+}
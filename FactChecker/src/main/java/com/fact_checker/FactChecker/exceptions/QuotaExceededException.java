@@ -0,0 +1,13 @@
+package com.fact_checker.FactChecker.exceptions;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Thrown when a user has as many jobs queued as they are allowed to.
+ */
+public class QuotaExceededException extends RejectedExecutionException {
+
+    public QuotaExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,56 @@
+package com.fact_checker.FactChecker.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Represents a claim scored by the fact-checking system, shared by every video that makes it.
+ * Claims are identified by the digest of their normalized text, so the same statement is scored once
+ * no matter how many videos repeat it.
+ * This class is mapped to the "claims" table in the database.
+ */
+@Entity
+@Table(name = "claims", indexes = @Index(name = "idx_claims_hash", columnList = "hash", unique = true))
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class Claim {
+
+    /**
+     * The unique identifier for the claim.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * The hex encoded SHA-256 digest of the normalized text.
+     */
+    @Column(name = "hash", nullable = false, unique = true, length = 64)
+    private String hash;
+
+    /**
+     * The claim text, trimmed, lower-cased and with runs of whitespace collapsed.
+     */
+    @Lob
+    @Column(name = "normalized_text", nullable = false, columnDefinition = "TEXT")
+    private String normalizedText;
+
+    /**
+     * The factual accuracy of the claim, from 0 to 100.
+     */
+    @Column(name = "score", nullable = false)
+    private Double score;
+
+    /**
+     * The date and time when the claim was scored.
+     */
+    @Column(name = "scored_at", nullable = false)
+    private LocalDateTime scoredAt;
+}
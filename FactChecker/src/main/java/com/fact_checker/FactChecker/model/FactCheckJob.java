@@ -0,0 +1,150 @@
+package com.fact_checker.FactChecker.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embedded;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Represents a fact-check job running in the background.
+ * A job tracks a stored upload through the processing pipeline until it resolves to a persisted Video.
+ * Jobs are stored in the "fact_check_jobs" table, which is the queue shared by all instances of the
+ * application: an instance works on a job while it holds the lease on it.
+ */
+@Entity
+@Table(name = "fact_check_jobs", indexes = {
+        @Index(name = "idx_fact_check_jobs_claim", columnList = "stage, lease_expires_at, virtual_deadline_millis"),
+        @Index(name = "idx_fact_check_jobs_user", columnList = "user_id, stage")})
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Getter
+@Setter
+public class FactCheckJob {
+
+    /**
+     * The unique identifier handed back to the client.
+     */
+    @Id
+    @Column(name = "id", length = 36)
+    private String id;
+
+    /**
+     * The id of the user who submitted the job.
+     */
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    /**
+     * The original name of the uploaded file.
+     */
+    @Column(name = "original_filename")
+    private String originalFilename;
+
+    /**
+     * The stored upload the job processes.
+     */
+    @Embedded
+    private StoredUpload upload;
+
+    /**
+     * The date and time when the job was submitted.
+     */
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    /**
+     * The current stage of the job.
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "stage", nullable = false, length = 32)
+    private volatile JobStage stage;
+
+    /**
+     * The id of the persisted video once the job has completed.
+     */
+    @Column(name = "video_id")
+    private volatile Long videoId;
+
+    /**
+     * The reason the job failed, if it did.
+     */
+    @Column(name = "error_message", length = 1000)
+    private volatile String errorMessage;
+
+    /**
+     * The date and time of the last stage change.
+     */
+    @Column(name = "updated_at", nullable = false)
+    private volatile LocalDateTime updatedAt;
+
+    /**
+     * The number of times a worker has started the job.
+     */
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    /**
+     * The instance holding the lease on the job, or null if no instance works on it.
+     */
+    @Column(name = "lease_owner")
+    private String leaseOwner;
+
+    /**
+     * The date and time after which other instances may claim the job, unless the owner renews the lease.
+     */
+    @Column(name = "lease_expires_at")
+    private LocalDateTime leaseExpiresAt;
+
+    /**
+     * The deadline the job is ordered by, in epoch milliseconds, assigned when it is first queued.
+     */
+    @Column(name = "virtual_deadline_millis")
+    private Long virtualDeadlineMillis;
+
+    /**
+     * Incremented on every update, so that an instance whose lease was taken over cannot overwrite
+     * the progress of the new owner.
+     */
+    @Version
+    @Column(name = "version")
+    private Long version;
+
+    public FactCheckJob(String id, Long userId, String originalFilename, StoredUpload upload) {
+        this.id = id;
+        this.userId = userId;
+        this.originalFilename = originalFilename;
+        this.upload = upload;
+        this.createdAt = LocalDateTime.now();
+        this.updatedAt = createdAt;
+        this.stage = JobStage.QUEUED;
+    }
+
+    /**
+     * Moves the job to the given stage and records the time of the change.
+     *
+     * @param stage The new stage
+     */
+    public void advanceTo(JobStage stage) {
+        this.stage = stage;
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    /**
+     * Records that a worker starts the job and moves a new job to the first processing stage.
+     * A job that is retried stays in the stage it stopped in, so that it resumes there.
+     */
+    public void start() {
+        attempts++;
+        advanceTo(stage == JobStage.QUEUED ? JobStage.PROCESSING_VIDEO : stage);
+    }
+}
@@ -0,0 +1,46 @@
+package com.fact_checker.FactChecker.model;
+
+/**
+ * Enumeration of the stages a fact-check job moves through.
+ * A job starts as QUEUED once its upload is stored and ends as COMPLETED, FAILED or CANCELLED.
+ */
+public enum JobStage {
+    /**
+     * The upload has been stored and the job is waiting for a worker.
+     */
+    QUEUED,
+
+    /**
+     * Audio extraction, transcription, thumbnail and embedding generation are running.
+     */
+    PROCESSING_VIDEO,
+
+    /**
+     * Claims are being extracted from the transcription and scored.
+     */
+    ANALYZING_CLAIMS,
+
+    /**
+     * The job finished and the resulting video has been persisted.
+     */
+    COMPLETED,
+
+    /**
+     * The job stopped because one of its stages failed.
+     */
+    FAILED,
+
+    /**
+     * The user cancelled the job before it finished.
+     */
+    CANCELLED;
+
+    /**
+     * Returns whether the job can no longer change stage.
+     *
+     * @return true if the stage is COMPLETED, FAILED or CANCELLED
+     */
+    public boolean isTerminal() {
+        return this == COMPLETED || this == FAILED || this == CANCELLED;
+    }
+}
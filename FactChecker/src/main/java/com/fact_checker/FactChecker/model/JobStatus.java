@@ -0,0 +1,37 @@
+package com.fact_checker.FactChecker.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Snapshot of a fact-check job returned by the job status endpoint.
+ */
+@Getter
+@AllArgsConstructor
+public class JobStatus {
+    private String jobId;
+    private JobStage stage;
+    private Long videoId;
+    private String videoUrl;
+    private String errorMessage;
+    private LocalDateTime updatedAt;
+
+    /**
+     * Creates a status snapshot from a job.
+     *
+     * @param job The job to describe
+     * @return The status of the job
+     */
+    public static JobStatus of(FactCheckJob job) {
+        Long videoId = job.getVideoId();
+        return new JobStatus(
+                job.getId(),
+                job.getStage(),
+                videoId,
+                videoId == null ? null : "/videos/" + videoId,
+                job.getErrorMessage(),
+                job.getUpdatedAt());
+    }
+}
@@ -0,0 +1,62 @@
+package com.fact_checker.FactChecker.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Container metadata of an upload, read from its header before any decoding happens.
+ * The duration is what the cost of processing a video mostly depends on.
+ */
+@Embeddable
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class MediaMetadata {
+
+    /**
+     * The container format as reported by FFmpeg, e.g. "mov,mp4,m4a,3gp,3g2,mj2".
+     */
+    @Column(name = "container_format")
+    private String containerFormat;
+
+    /**
+     * The duration of the video in seconds.
+     */
+    @Column(name = "duration_seconds")
+    private Double durationSeconds;
+
+    /**
+     * The name of the video codec, or null if the file has no video track.
+     */
+    @Column(name = "video_codec")
+    private String videoCodec;
+
+    /**
+     * The name of the audio codec.
+     */
+    @Column(name = "audio_codec")
+    private String audioCodec;
+
+    /**
+     * The number of audio channels.
+     */
+    @Column(name = "audio_channels")
+    private Integer audioChannels;
+
+    /**
+     * The width of the video in pixels.
+     */
+    @Column(name = "width")
+    private Integer width;
+
+    /**
+     * The height of the video in pixels.
+     */
+    @Column(name = "height")
+    private Integer height;
+}
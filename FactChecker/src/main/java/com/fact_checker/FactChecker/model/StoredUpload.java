@@ -0,0 +1,46 @@
+package com.fact_checker.FactChecker.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.Embedded;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * An upload that has been validated and written to the upload directory.
+ */
+@Embeddable
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoredUpload {
+
+    /**
+     * The name under which the upload was stored.
+     */
+    @Column(name = "stored_filename")
+    private String filename;
+
+    /**
+     * The hex encoded SHA-256 digest of the upload's content.
+     */
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    /**
+     * The size of the upload in bytes, or 0 if it is unknown.
+     */
+    @Column(name = "size_bytes")
+    private long sizeBytes;
+
+    /**
+     * The container metadata read from the upload, or null if it has not been probed.
+     */
+    @Embedded
+    private MediaMetadata metadata;
+
+    public StoredUpload(String filename, String contentHash) {
+        this(filename, contentHash, 0, null);
+    }
+}
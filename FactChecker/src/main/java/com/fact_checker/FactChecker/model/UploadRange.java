@@ -0,0 +1,50 @@
+package com.fact_checker.FactChecker.model;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Represents a byte range of a resumable upload that has been written to its partial file.
+ * Every chunk adds a row instead of updating the session, so chunks written in parallel never
+ * overwrite each other's progress; the ranges are merged when the session is loaded.
+ * This class is mapped to the "upload_ranges" table in the database.
+ */
+@Entity
+@Table(name = "upload_ranges", indexes = @Index(name = "idx_upload_ranges_upload", columnList = "upload_id"))
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Getter
+public class UploadRange {
+
+    /**
+     * The unique identifier for the range.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * The id of the upload session the range belongs to.
+     */
+    @Column(name = "upload_id", nullable = false, length = 36)
+    private String uploadId;
+
+    /**
+     * The offset of the first byte of the range.
+     */
+    @Column(name = "start_offset", nullable = false)
+    private long startOffset;
+
+    /**
+     * The offset after the last byte of the range.
+     */
+    @Column(name = "end_offset", nullable = false)
+    private long endOffset;
+
+    public UploadRange(String uploadId, long startOffset, long endOffset) {
+        this.uploadId = uploadId;
+        this.startOffset = startOffset;
+        this.endOffset = endOffset;
+    }
+}
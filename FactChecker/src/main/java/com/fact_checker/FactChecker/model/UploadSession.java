@@ -0,0 +1,201 @@
+package com.fact_checker.FactChecker.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Represents a resumable upload that is sent in chunks.
+ * The session keeps track of which byte ranges of the file have arrived, so that a client whose
+ * connection dropped can continue from the first missing byte instead of starting over.
+ * Sessions are stored in the "upload_sessions" table, so an upload survives a restart of the application.
+ * The received ranges are stored as rows of their own, see {@link UploadRange}, and merged here once loaded.
+ */
+@Entity
+@Table(name = "upload_sessions", indexes = @Index(name = "idx_upload_sessions_updated", columnList = "updated_at"))
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Getter
+public class UploadSession {
+
+    /**
+     * The unique identifier handed back to the client.
+     */
+    @Id
+    @Column(name = "id", length = 36)
+    private String id;
+
+    /**
+     * The id of the user who created the upload.
+     */
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    /**
+     * The original name of the uploaded file.
+     */
+    @Column(name = "original_filename")
+    private String originalFilename;
+
+    /**
+     * The size of the complete file in bytes, as announced by the client.
+     */
+    @Column(name = "total_bytes", nullable = false)
+    private long totalBytes;
+
+    /**
+     * The path of the file the chunks are written into.
+     */
+    @Getter(AccessLevel.NONE)
+    @Column(name = "partial_file", nullable = false, length = 1024)
+    private String partialFile;
+
+    /**
+     * The date and time when the upload was created.
+     */
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    /**
+     * The date and time the last chunk was received.
+     */
+    @Column(name = "updated_at", nullable = false)
+    private volatile LocalDateTime updatedAt;
+
+    /**
+     * The received byte ranges, as start offset mapped to end offset (exclusive). Ranges never overlap or touch.
+     */
+    @Transient
+    @Getter(AccessLevel.NONE)
+    private final TreeMap<Long, Long> receivedRanges = new TreeMap<>();
+
+    /**
+     * Whether the upload is being finalized or was cancelled, and takes no more chunks.
+     */
+    @Getter(AccessLevel.NONE)
+    @Column(name = "closed", nullable = false)
+    private boolean closed;
+
+    public UploadSession(String id, Long userId, String originalFilename, long totalBytes, Path partialFile) {
+        this.id = id;
+        this.userId = userId;
+        this.originalFilename = originalFilename;
+        this.totalBytes = totalBytes;
+        this.partialFile = partialFile.toString();
+        this.createdAt = LocalDateTime.now();
+        this.updatedAt = createdAt;
+    }
+
+    /**
+     * Returns the file the chunks are written into.
+     *
+     * @return the partial file
+     */
+    public Path getPartialFile() {
+        return Path.of(partialFile);
+    }
+
+    /**
+     * Records that a byte range has been written, merging it with adjacent and overlapping ranges.
+     *
+     * @param start First offset of the range
+     * @param end   Offset after the last byte of the range
+     */
+    public synchronized void markReceived(long start, long end) {
+        restoreReceived(start, end);
+        updatedAt = LocalDateTime.now();
+    }
+
+    /**
+     * Merges a byte range that was received earlier, as loaded from the database, without touching the session.
+     *
+     * @param start First offset of the range
+     * @param end   Offset after the last byte of the range
+     */
+    public synchronized void restoreReceived(long start, long end) {
+        if (end <= start) {
+            return;
+        }
+        Map.Entry<Long, Long> before = receivedRanges.floorEntry(start);
+        if (before != null && before.getValue() >= start) {
+            start = before.getKey();
+            end = Math.max(end, before.getValue());
+        }
+        Map.Entry<Long, Long> next = receivedRanges.ceilingEntry(start);
+        while (next != null && next.getKey() <= end) {
+            end = Math.max(end, next.getValue());
+            receivedRanges.remove(next.getKey());
+            next = receivedRanges.ceilingEntry(start);
+        }
+        receivedRanges.put(start, end);
+    }
+
+    /**
+     * Returns the number of distinct bytes received so far.
+     *
+     * @return the received byte count
+     */
+    public synchronized long getReceivedBytes() {
+        return receivedRanges.entrySet().stream()
+                .mapToLong(range -> range.getValue() - range.getKey())
+                .sum();
+    }
+
+    /**
+     * Returns the first offset that has not been received yet.
+     *
+     * @return the offset to resume from, or the total size if the upload is complete
+     */
+    public synchronized long getNextOffset() {
+        Map.Entry<Long, Long> first = receivedRanges.firstEntry();
+        return first == null || first.getKey() > 0 ? 0 : first.getValue();
+    }
+
+    /**
+     * Checks whether every byte of the file has been received.
+     *
+     * @return true if the upload is complete
+     */
+    public synchronized boolean isComplete() {
+        return getNextOffset() >= totalBytes;
+    }
+
+    /**
+     * Closes the session for further chunks.
+     *
+     * @return false if the session was closed already
+     */
+    public synchronized boolean close() {
+        if (closed) {
+            return false;
+        }
+        closed = true;
+        return true;
+    }
+
+    /**
+     * Opens the session for chunks again, after finalizing it failed.
+     */
+    public synchronized void reopen() {
+        closed = false;
+    }
+
+    /**
+     * Checks whether the session still accepts chunks.
+     *
+     * @return true if the session has been finalized or cancelled
+     */
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+}
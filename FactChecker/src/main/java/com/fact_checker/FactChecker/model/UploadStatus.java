@@ -0,0 +1,29 @@
+package com.fact_checker.FactChecker.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Snapshot of a resumable upload returned to the client.
+ */
+@Getter
+@AllArgsConstructor
+public class UploadStatus {
+
+    private final String uploadId;
+    private final long totalBytes;
+    private final long receivedBytes;
+    private final long nextOffset;
+    private final boolean complete;
+
+    /**
+     * Creates a status snapshot of an upload session.
+     *
+     * @param session The upload session
+     * @return The status of the upload
+     */
+    public static UploadStatus of(UploadSession session) {
+        return new UploadStatus(session.getId(), session.getTotalBytes(), session.getReceivedBytes(),
+                session.getNextOffset(), session.isComplete());
+    }
+}
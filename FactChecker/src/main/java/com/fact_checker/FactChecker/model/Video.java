@@ -9,13 +9,14 @@ import lombok.Setter;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Represents a video entity in the fact-checking system.
  * This class is mapped to the "videos" table in the database.
  */
 @Entity
-@Table(name = "videos")
+@Table(name = "videos", indexes = @Index(name = "idx_videos_content_hash", columnList = "content_hash"))
 @NoArgsConstructor
 @AllArgsConstructor
 @Getter
@@ -35,6 +36,13 @@ public class Video {
     @Column(name = "file_name", nullable = false)
     private String fileName;
 
+    /**
+     * The hex encoded SHA-256 digest of the uploaded file.
+     * Uploads with the same digest share their processing results.
+     */
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
     /**
      * The path where the video file is stored.
      */
@@ -86,6 +94,16 @@ public class Video {
     @ElementCollection(fetch = FetchType.EAGER)
     private List<String> falseStatements;
 
+    /**
+     * The claims made in the video content, shared with the other videos that make them.
+     * Loaded lazily, since listing videos only needs the false statements.
+     */
+    @ManyToMany(fetch = FetchType.LAZY)
+    @JoinTable(name = "video_claims",
+            joinColumns = @JoinColumn(name = "video_id"),
+            inverseJoinColumns = @JoinColumn(name = "claim_id"))
+    private Set<Claim> claims;
+
     /**
      * The embeddings of the video content.
      */
@@ -93,5 +111,11 @@ public class Video {
     @Convert(converter = VectorConverter.class)
     private double[] transcriptionsEmbeddings;
 
+    /**
+     * The container metadata read when the video was uploaded.
+     */
+    @Embedded
+    private MediaMetadata metadata;
+
 
 }
@@ -0,0 +1,33 @@
+package com.fact_checker.FactChecker.repository;
+
+import com.fact_checker.FactChecker.model.Claim;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Repository interface for Claim entity operations.
+ * Extends JpaRepository to inherit basic CRUD operations.
+ */
+public interface ClaimRepository extends JpaRepository<Claim, Long> {
+
+    /**
+     * Finds the claims with any of the given digests.
+     *
+     * @param hashes the digests of the normalized claim texts
+     * @return a List of the Claims already known, in no particular order
+     */
+    List<Claim> findByHashIn(Collection<String> hashes);
+
+    /**
+     * Streams the digests of all known claims.
+     * Must be consumed inside a transaction and closed afterwards.
+     *
+     * @return a Stream of the digests of all claims
+     */
+    @Query("SELECT c.hash FROM Claim c")
+    Stream<String> streamAllHashes();
+}
@@ -0,0 +1,106 @@
+package com.fact_checker.FactChecker.repository;
+
+import com.fact_checker.FactChecker.model.FactCheckJob;
+import com.fact_checker.FactChecker.model.JobStage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository interface for FactCheckJob entity operations.
+ * The fact_check_jobs table is the queue shared by all instances of the application.
+ */
+public interface FactCheckJobRepository extends JpaRepository<FactCheckJob, String> {
+
+    /**
+     * Locks the unfinished jobs no instance holds a valid lease on, earliest virtual deadline first.
+     * Jobs of users who already hold the given number of valid leases on any instance are left out.
+     * Rows locked by a concurrent claim are skipped instead of waited for, so instances claiming at the
+     * same time get different jobs. Must run inside a transaction that also records the new leases.
+     *
+     * @param now              the current date and time; leases that expired before it are free
+     * @param maxLeasedPerUser the number of leased jobs at which the jobs of a user are left out
+     * @param limit            the maximum number of jobs to lock
+     * @return a List of claimable jobs, locked until the transaction ends
+     */
+    @Query(value = "SELECT * FROM fact_check_jobs j " +
+            "WHERE j.stage NOT IN ('COMPLETED', 'FAILED', 'CANCELLED') " +
+            "AND (j.lease_expires_at IS NULL OR j.lease_expires_at < :now) " +
+            "AND (SELECT COUNT(*) FROM fact_check_jobs l " +
+            "     WHERE l.user_id = j.user_id AND l.stage NOT IN ('COMPLETED', 'FAILED', 'CANCELLED') " +
+            "     AND l.lease_owner IS NOT NULL AND l.lease_expires_at >= :now) < :maxLeasedPerUser " +
+            "ORDER BY j.virtual_deadline_millis, j.created_at " +
+            "LIMIT :limit " +
+            "FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<FactCheckJob> lockClaimable(@Param("now") LocalDateTime now,
+                                     @Param("maxLeasedPerUser") int maxLeasedPerUser,
+                                     @Param("limit") int limit);
+
+    /**
+     * Counts the unfinished jobs of a user that some instance holds a valid lease on.
+     *
+     * @param userId the id of the user
+     * @param now    the current date and time; leases that expired before it are not counted
+     * @return the number of leased jobs of the user
+     */
+    @Query(value = "SELECT COUNT(*) FROM fact_check_jobs " +
+            "WHERE user_id = :userId AND stage NOT IN ('COMPLETED', 'FAILED', 'CANCELLED') " +
+            "AND lease_owner IS NOT NULL AND lease_expires_at >= :now", nativeQuery = true)
+    long countLeased(@Param("userId") Long userId, @Param("now") LocalDateTime now);
+
+    /**
+     * Extends the leases an instance holds on the given jobs. Does not change the version of the jobs.
+     *
+     * @param owner     the instance holding the leases
+     * @param ids       the ids of the jobs
+     * @param expiresAt the new expiry of the leases
+     * @return the number of leases extended
+     */
+    @Modifying
+    @Query("UPDATE FactCheckJob j SET j.leaseExpiresAt = :expiresAt WHERE j.leaseOwner = :owner AND j.id IN :ids")
+    int renewLeases(@Param("owner") String owner, @Param("ids") Collection<String> ids,
+                    @Param("expiresAt") LocalDateTime expiresAt);
+
+    /**
+     * Finds those of the given jobs that are in the given stage.
+     *
+     * @param ids   the ids of the jobs
+     * @param stage the stage to look for
+     * @return a List of the jobs in the stage
+     */
+    List<FactCheckJob> findByIdInAndStage(Collection<String> ids, JobStage stage);
+
+    /**
+     * Counts the jobs in the given stage.
+     *
+     * @param stage the stage to count
+     * @return the number of jobs in the stage
+     */
+    long countByStage(JobStage stage);
+
+    /**
+     * Counts the jobs of a user in the given stage.
+     *
+     * @param userId the id of the user
+     * @param stage  the stage to count
+     * @return the number of jobs of the user in the stage
+     */
+    long countByUserIdAndStage(Long userId, JobStage stage);
+
+    /**
+     * Deletes the jobs in the given stages that have not changed since a given date.
+     *
+     * @param stages the stages of the jobs to delete
+     * @param cutoff the cut-off date; jobs last updated before this date will be deleted
+     * @return the number of jobs deleted
+     */
+    @Modifying
+    @Query("DELETE FROM FactCheckJob j WHERE j.stage IN :stages AND j.updatedAt < :cutoff")
+    int deleteByStageInAndUpdatedAtBefore(@Param("stages") Collection<JobStage> stages,
+                                          @Param("cutoff") LocalDateTime cutoff);
+}
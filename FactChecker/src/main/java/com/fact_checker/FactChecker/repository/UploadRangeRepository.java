@@ -0,0 +1,36 @@
+package com.fact_checker.FactChecker.repository;
+
+import com.fact_checker.FactChecker.model.UploadRange;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Repository interface for UploadRange entity operations.
+ * Extends JpaRepository to inherit basic CRUD operations.
+ */
+public interface UploadRangeRepository extends JpaRepository<UploadRange, Long> {
+
+    /**
+     * Finds the ranges received for an upload.
+     *
+     * @param uploadId the id of the upload
+     * @return a List of the ranges, in no particular order and possibly overlapping
+     */
+    List<UploadRange> findByUploadId(String uploadId);
+
+    /**
+     * Deletes the ranges of an upload.
+     *
+     * @param uploadId the id of the upload
+     * @return the number of ranges deleted
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM UploadRange r WHERE r.uploadId = :uploadId")
+    int deleteByUploadId(@Param("uploadId") String uploadId);
+}
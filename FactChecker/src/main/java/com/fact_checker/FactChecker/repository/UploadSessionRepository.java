@@ -0,0 +1,61 @@
+package com.fact_checker.FactChecker.repository;
+
+import com.fact_checker.FactChecker.model.UploadSession;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repository interface for UploadSession entity operations.
+ * Sessions are closed and touched with conditional updates, so concurrent requests for the same
+ * upload, on any instance, never overwrite each other.
+ */
+public interface UploadSessionRepository extends JpaRepository<UploadSession, String> {
+
+    /**
+     * Closes an upload for further chunks, unless it is closed already.
+     *
+     * @param id the id of the upload
+     * @return 1 if this call closed the upload, 0 otherwise
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE UploadSession s SET s.closed = true WHERE s.id = :id AND s.closed = false")
+    int close(@Param("id") String id);
+
+    /**
+     * Opens a closed upload for chunks again.
+     *
+     * @param id the id of the upload
+     * @return the number of uploads reopened
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE UploadSession s SET s.closed = false WHERE s.id = :id")
+    int reopen(@Param("id") String id);
+
+    /**
+     * Records the time the last chunk of an upload was received.
+     *
+     * @param id        the id of the upload
+     * @param updatedAt the time of the chunk
+     * @return the number of uploads updated
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE UploadSession s SET s.updatedAt = :updatedAt WHERE s.id = :id")
+    int touch(@Param("id") String id, @Param("updatedAt") LocalDateTime updatedAt);
+
+    /**
+     * Finds the uploads that have not received a chunk since the given date.
+     *
+     * @param cutoff the cut-off date
+     * @return a List of the abandoned uploads
+     */
+    List<UploadSession> findByUpdatedAtBefore(LocalDateTime cutoff);
+}
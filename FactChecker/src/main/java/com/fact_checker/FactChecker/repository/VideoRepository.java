@@ -1,5 +1,6 @@
 package com.fact_checker.FactChecker.repository;
 
+import com.fact_checker.FactChecker.model.Claim;
 import com.fact_checker.FactChecker.model.Video;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -10,6 +11,7 @@ import org.springframework.data.repository.query.Param;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Repository interface for Video entity operations.
@@ -25,6 +27,14 @@ public interface VideoRepository extends JpaRepository<Video, Long> {
      */
     Optional<Video> findByFileName(String fileName);
 
+    /**
+     * Finds the most recently processed video with the given content digest.
+     *
+     * @param contentHash the hex encoded SHA-256 digest of the uploaded file
+     * @return an Optional containing the Video if the content is already known, or empty if not
+     */
+    Optional<Video> findFirstByContentHashOrderByProcessedAtDesc(String contentHash);
+
     /**
      * Finds all videos processed between two given dates.
      *
@@ -34,6 +44,15 @@ public interface VideoRepository extends JpaRepository<Video, Long> {
      */
     List<Video> findByProcessedAtBetween(LocalDateTime start, LocalDateTime end);
 
+    /**
+     * Finds the claims made in a video without loading them through the video.
+     *
+     * @param videoId the id of the video
+     * @return a Set of the Claims linked to the video
+     */
+    @Query("SELECT c FROM Video v JOIN v.claims c WHERE v.id = :videoId")
+    Set<Claim> findClaimsByVideoId(@Param("videoId") Long videoId);
+
     /**
      * Searches for videos whose transcription text contains the given text, ignoring case.
      *
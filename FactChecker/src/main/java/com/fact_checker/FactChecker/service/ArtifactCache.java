@@ -0,0 +1,538 @@
+package com.fact_checker.FactChecker.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Two-tier cache for the artifacts produced by the fact-check pipeline.
+ * Entries are keyed by a digest of the content they were derived from, so identical uploads, audio tracks,
+ * transcripts and claims resolve to the same entry no matter what the files were called.
+ * This also makes the cache the checkpoint of every stage: a job that is retried finds the output of
+ * the stages that succeeded before and only repeats the stage that failed.
+ * A bounded in-memory tier sits in front of a directory on disk, which keeps the artifacts across restarts.
+ * The disk tier is bounded as well: entries unused for longer than the expiry are deleted, and when the tier
+ * grows beyond its budget the least recently used entries go first. Every read touches the modification time
+ * of an entry, which serves as its access time since file systems are often mounted without access times.
+ * Failures of the disk tier are logged and treated as misses, so the cache never fails the pipeline.
+ */
+public class ArtifactCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArtifactCache.class);
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    /** Share of the disk budget a sweep triggered by the budget frees the tier down to, so it does not run on every write. */
+    private static final double DISK_SWEEP_TARGET = 0.9;
+    /** Age after which a temporary file is considered left behind by a crashed write. */
+    private static final Duration ORPHAN_AGE = Duration.ofHours(1);
+
+    private final Path directory;
+    private final Map<ArtifactType, Cache<String, byte[]>> memoryTiers;
+    private final MeterRegistry meterRegistry;
+    private final long maxDiskBytes;
+    private final Duration diskExpireAfterAccess;
+    private final Map<ArtifactType, LongAdder> requests = new EnumMap<>(ArtifactType.class);
+    private final Map<ArtifactType, LongAdder> hits = new EnumMap<>(ArtifactType.class);
+    private final AtomicLong diskBytes = new AtomicLong();
+    private final ReentrantLock sweepLock = new ReentrantLock();
+
+    /**
+     * Constructor for an ArtifactCache whose disk tier is never swept.
+     *
+     * @param directory     Root directory of the disk tier
+     * @param memoryTiers   The in-memory tier of every artifact type that is not stored as files
+     * @param meterRegistry Registry the hit counters and ratios are published to
+     */
+    public ArtifactCache(Path directory, Map<ArtifactType, Cache<String, byte[]>> memoryTiers,
+                         MeterRegistry meterRegistry) {
+        this(directory, memoryTiers, meterRegistry, Long.MAX_VALUE, null);
+    }
+
+    /**
+     * Constructor for ArtifactCache.
+     *
+     * @param directory             Root directory of the disk tier
+     * @param memoryTiers           The in-memory tier of every artifact type that is not stored as files
+     * @param meterRegistry         Registry the hit counters, ratios and disk usage are published to
+     * @param maxDiskBytes          Budget of the disk tier in bytes
+     * @param diskExpireAfterAccess How long an entry may stay unused on disk, or null to keep it until the
+     *                              budget runs out
+     */
+    public ArtifactCache(Path directory, Map<ArtifactType, Cache<String, byte[]>> memoryTiers,
+                         MeterRegistry meterRegistry, long maxDiskBytes, Duration diskExpireAfterAccess) {
+        this.directory = directory;
+        this.memoryTiers = new EnumMap<>(memoryTiers);
+        this.meterRegistry = meterRegistry;
+        this.maxDiskBytes = maxDiskBytes;
+        this.diskExpireAfterAccess = diskExpireAfterAccess;
+        Gauge.builder("artifact.cache.disk.size", diskBytes, AtomicLong::get)
+                .description("Total size of the disk tier as of the last write or sweep")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        for (ArtifactType type : ArtifactType.values()) {
+            if (!type.isFileOnly() && !this.memoryTiers.containsKey(type)) {
+                throw new IllegalArgumentException("No memory tier configured for " + type);
+            }
+            requests.put(type, new LongAdder());
+            hits.put(type, new LongAdder());
+            Gauge.builder("artifact.cache.hit.ratio", this, cache -> cache.hitRatio(type))
+                    .description("Share of lookups answered by either tier")
+                    .tag("cache", type.getCacheName())
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Looks up an artifact, first in memory and then on disk.
+     * Entries found on disk are promoted to the memory tier.
+     *
+     * @param type The type of the artifact
+     * @param key  The content digest the artifact was derived from
+     * @return The cached bytes, or empty if neither tier holds the artifact
+     */
+    public Optional<byte[]> get(ArtifactType type, String key) {
+        Cache<String, byte[]> memoryTier = memoryTier(type);
+        requests.get(type).increment();
+
+        byte[] value = memoryTier.getIfPresent(key);
+        if (value != null) {
+            recordLookup(type, "memory", true);
+            return Optional.of(value);
+        }
+        recordLookup(type, "memory", false);
+
+        value = readFromDisk(type, key);
+        recordLookup(type, "disk", value != null);
+        if (value == null) {
+            return Optional.empty();
+        }
+        memoryTier.put(key, value);
+        return Optional.of(value);
+    }
+
+    /**
+     * Stores an artifact in both tiers.
+     *
+     * @param type  The type of the artifact
+     * @param key   The content digest the artifact was derived from
+     * @param value The bytes of the artifact
+     */
+    public void put(ArtifactType type, String key, byte[] value) {
+        memoryTier(type).put(key, value);
+        writeToDisk(type, key, value);
+    }
+
+    private Cache<String, byte[]> memoryTier(ArtifactType type) {
+        if (type.isFileOnly()) {
+            throw new IllegalArgumentException(type + " artifacts are stored as files, use getFile and putFile");
+        }
+        return memoryTiers.get(type);
+    }
+
+    /**
+     * Looks up a large artifact on disk and copies it into a temporary file owned by the caller.
+     * The artifact is streamed and never loaded onto the heap, and the copy outlives the eviction of the entry.
+     * Only the disk tier is consulted, see {@link #putFile(ArtifactType, String, Path)}.
+     *
+     * @param type The type of the artifact
+     * @param key  The content digest the artifact was derived from
+     * @return A temporary file holding the artifact, which the caller deletes, or empty on a miss
+     */
+    public Optional<Path> getFile(ArtifactType type, String key) {
+        requests.get(type).increment();
+        Path entry = entryPath(type, key);
+        Path copy = null;
+        try {
+            copy = Files.createTempFile(type.getCacheName(), TEMPORARY_SUFFIX);
+            Files.copy(entry, copy, StandardCopyOption.REPLACE_EXISTING);
+            touch(entry);
+            recordLookup(type, "disk", true);
+            return Optional.of(copy);
+        } catch (IOException e) {
+            if (!(e instanceof NoSuchFileException)) {
+                logger.warn("Failed to read {} artifact {} from disk", type.getCacheName(), key, e);
+            }
+            deleteQuietly(copy);
+            recordLookup(type, "disk", false);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Stores a large artifact in the disk tier only, streaming it from a file.
+     * The file is copied, so it stays with the caller.
+     *
+     * @param type The type of the artifact
+     * @param key  The content digest the artifact was derived from
+     * @param file The file holding the artifact
+     */
+    public void putFile(ArtifactType type, String key, Path file) {
+        writeToDisk(type, key, temporary -> Files.copy(file, temporary, StandardCopyOption.REPLACE_EXISTING));
+    }
+
+    /**
+     * Looks up a text artifact.
+     *
+     * @param type The type of the artifact
+     * @param key  The content digest the artifact was derived from
+     * @return The cached text, or empty on a miss
+     */
+    public Optional<String> getString(ArtifactType type, String key) {
+        return get(type, key).map(bytes -> new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Stores a text artifact.
+     *
+     * @param type  The type of the artifact
+     * @param key   The content digest the artifact was derived from
+     * @param value The text to store
+     */
+    public void putString(ArtifactType type, String key, String value) {
+        put(type, key, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Looks up a vector artifact.
+     *
+     * @param type The type of the artifact
+     * @param key  The content digest the artifact was derived from
+     * @return The cached vector, or empty on a miss
+     */
+    public Optional<double[]> getDoubles(ArtifactType type, String key) {
+        return get(type, key).map(bytes -> {
+            double[] values = new double[bytes.length / Double.BYTES];
+            ByteBuffer.wrap(bytes).asDoubleBuffer().get(values);
+            return values;
+        });
+    }
+
+    /**
+     * Stores a vector artifact.
+     *
+     * @param type   The type of the artifact
+     * @param key    The content digest the artifact was derived from
+     * @param values The vector to store
+     */
+    public void putDoubles(ArtifactType type, String key, double[] values) {
+        ByteBuffer buffer = ByteBuffer.allocate(values.length * Double.BYTES);
+        buffer.asDoubleBuffer().put(values);
+        put(type, key, buffer.array());
+    }
+
+    /**
+     * Computes the hex encoded SHA-256 digest of a sequence of strings.
+     * The parts are separated by a NUL character so that different splits of the same text
+     * do not collide.
+     *
+     * @param parts The strings to digest
+     * @return The digest, usable as a cache key
+     */
+    public static String digest(String... parts) {
+        MessageDigest messageDigest = newDigest();
+        for (String part : parts) {
+            messageDigest.update(part.getBytes(StandardCharsets.UTF_8));
+            messageDigest.update((byte) 0);
+        }
+        return HexFormat.of().formatHex(messageDigest.digest());
+    }
+
+    /**
+     * Computes the hex encoded SHA-256 digest of a byte array.
+     *
+     * @param content The bytes to digest
+     * @return The digest, usable as a cache key
+     */
+    public static String digest(byte[] content) {
+        return HexFormat.of().formatHex(newDigest().digest(content));
+    }
+
+    /**
+     * Computes the hex encoded SHA-256 digest of a file, streaming its content.
+     *
+     * @param file The file to digest
+     * @return The digest, usable as a cache key
+     * @throws IOException if the file cannot be read
+     */
+    public static String digest(Path file) throws IOException {
+        MessageDigest messageDigest = newDigest();
+        byte[] buffer = new byte[8192];
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                messageDigest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(messageDigest.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(DIGEST_ALGORITHM + " is not available", e);
+        }
+    }
+
+    /**
+     * Deletes the disk entries that expired, and the least recently used ones while the tier exceeds its budget.
+     * Runs periodically and whenever a write takes the tier over its budget; a sweep that is already running
+     * is not waited for. Only the directories of the artifact types are visited.
+     */
+    @Scheduled(fixedDelayString = "${artifact.cache.disk.sweep-interval:PT10M}")
+    public void sweepDisk() {
+        if (!sweepLock.tryLock()) {
+            return;
+        }
+        try {
+            List<DiskEntry> entries = listDiskEntries();
+            long total = entries.stream().mapToLong(DiskEntry::getSize).sum();
+            long target = total > maxDiskBytes ? (long) (maxDiskBytes * DISK_SWEEP_TARGET) : Long.MAX_VALUE;
+            Instant now = Instant.now();
+            Instant expiredBefore = diskExpireAfterAccess == null ? Instant.MIN : now.minus(diskExpireAfterAccess);
+
+            entries.sort(Comparator.comparing(DiskEntry::getLastAccess));
+            for (DiskEntry entry : entries) {
+                String cause;
+                if (entry.isTemporary()) {
+                    if (!entry.getLastAccess().isBefore(now.minus(ORPHAN_AGE))) {
+                        continue;
+                    }
+                    cause = "orphaned";
+                } else if (entry.getLastAccess().isBefore(expiredBefore)) {
+                    cause = "expired";
+                } else if (total > target) {
+                    cause = "size";
+                } else {
+                    continue;
+                }
+                if (deleteQuietly(entry.getFile())) {
+                    total -= entry.getSize();
+                    meterRegistry.counter("artifact.cache.disk.evictions", "cache", entry.getCacheName(), "cause", cause)
+                            .increment();
+                }
+            }
+            diskBytes.set(total);
+        } finally {
+            sweepLock.unlock();
+        }
+    }
+
+    private List<DiskEntry> listDiskEntries() {
+        List<DiskEntry> entries = new ArrayList<>();
+        for (ArtifactType type : ArtifactType.values()) {
+            Path typeDirectory = directory.resolve(type.getCacheName());
+            if (!Files.isDirectory(typeDirectory)) {
+                continue;
+            }
+            try (Stream<Path> files = Files.walk(typeDirectory)) {
+                files.forEach(file -> {
+                    try {
+                        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                        if (attributes.isRegularFile()) {
+                            entries.add(new DiskEntry(file, type.getCacheName(), attributes.size(),
+                                    attributes.lastModifiedTime().toInstant(),
+                                    file.getFileName().toString().endsWith(TEMPORARY_SUFFIX)));
+                        }
+                    } catch (IOException e) {
+                        // Deleted while walking the directory
+                    }
+                });
+            } catch (IOException | UncheckedIOException e) {
+                logger.warn("Failed to list {} artifacts on disk", type.getCacheName(), e);
+            }
+        }
+        return entries;
+    }
+
+    private double hitRatio(ArtifactType type) {
+        long total = requests.get(type).sum();
+        return total == 0 ? 0 : (double) hits.get(type).sum() / total;
+    }
+
+    private void recordLookup(ArtifactType type, String tier, boolean hit) {
+        if (hit) {
+            hits.get(type).increment();
+        }
+        meterRegistry.counter("artifact.cache.requests",
+                "cache", type.getCacheName(), "tier", tier, "result", hit ? "hit" : "miss").increment();
+    }
+
+    /**
+     * Resolves the file of an entry. Entries are spread over subdirectories named after the first
+     * two characters of the key to keep directories small.
+     */
+    private Path entryPath(ArtifactType type, String key) {
+        return directory.resolve(type.getCacheName()).resolve(key.substring(0, 2)).resolve(key);
+    }
+
+    private byte[] readFromDisk(ArtifactType type, String key) {
+        Path entry = entryPath(type, key);
+        try {
+            byte[] value = Files.readAllBytes(entry);
+            touch(entry);
+            return value;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            logger.warn("Failed to read {} artifact {} from disk", type.getCacheName(), key, e);
+            return null;
+        }
+    }
+
+    private void writeToDisk(ArtifactType type, String key, byte[] value) {
+        writeToDisk(type, key, temporary -> Files.write(temporary, value));
+    }
+
+    /**
+     * Writes an entry to a temporary file first and moves it into place, so that a crash or a
+     * concurrent reader never observes a partially written artifact. A write that takes the tier
+     * over its budget sweeps it right away.
+     */
+    private void writeToDisk(ArtifactType type, String key, EntryWriter writer) {
+        Path entry = entryPath(type, key);
+        Path temporary = null;
+        try {
+            Files.createDirectories(entry.getParent());
+            temporary = Files.createTempFile(entry.getParent(), key, TEMPORARY_SUFFIX);
+            writer.writeTo(temporary);
+            long size = Files.size(temporary);
+            try {
+                Files.move(temporary, entry, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, entry, StandardCopyOption.REPLACE_EXISTING);
+            }
+            if (diskBytes.addAndGet(size) > maxDiskBytes) {
+                sweepDisk();
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to write {} artifact {} to disk", type.getCacheName(), key, e);
+            deleteQuietly(temporary);
+        }
+    }
+
+    /**
+     * Marks an entry as used, for the least recently used order of the sweep.
+     */
+    private void touch(Path entry) {
+        try {
+            Files.setLastModifiedTime(entry, FileTime.from(Instant.now()));
+        } catch (IOException e) {
+            logger.debug("Failed to touch artifact {}: {}", entry, e.getMessage());
+        }
+    }
+
+    private boolean deleteQuietly(Path file) {
+        if (file == null) {
+            return false;
+        }
+        try {
+            return Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Failed to delete artifact file: {}", file.toAbsolutePath());
+            return false;
+        }
+    }
+
+    /**
+     * Writes the content of an entry into a file.
+     */
+    @FunctionalInterface
+    private interface EntryWriter {
+        void writeTo(Path file) throws IOException;
+    }
+
+    /**
+     * A file of the disk tier as seen by a sweep.
+     */
+    @Getter
+    @AllArgsConstructor
+    private static class DiskEntry {
+        private final Path file;
+        private final String cacheName;
+        private final long size;
+        private final Instant lastAccess;
+        private final boolean temporary;
+    }
+
+    /**
+     * The kinds of artifact kept in the cache, each with its own memory tier and disk directory.
+     */
+    public enum ArtifactType {
+        /**
+         * Audio extracted for transcription, keyed by the upload digest and the audio profile.
+         * Audio is streamed to and from the disk tier as files and does not pass through memory,
+         * so it has no in-memory tier.
+         */
+        AUDIO("audio", true),
+
+        /**
+         * Transcription text, keyed by the digest of the audio it was transcribed from.
+         */
+        TRANSCRIPT("transcripts", false),
+
+        /**
+         * Embedding vectors, keyed by the digest of the embedded text and the dimensions.
+         */
+        EMBEDDING("embeddings", false),
+
+        /**
+         * Claims extracted from a transcription, keyed by the digest of the transcription text.
+         */
+        CLAIMS("claims", false);
+
+        private final String cacheName;
+        private final boolean fileOnly;
+
+        ArtifactType(String cacheName, boolean fileOnly) {
+            this.cacheName = cacheName;
+            this.fileOnly = fileOnly;
+        }
+
+        public String getCacheName() {
+            return cacheName;
+        }
+
+        /**
+         * Whether artifacts of this type are only stored on disk, through getFile and putFile.
+         *
+         * @return true if the type has no in-memory tier
+         */
+        public boolean isFileOnly() {
+            return fileOnly;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.fact_checker.FactChecker.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.bytedeco.ffmpeg.global.avcodec;
+import org.bytedeco.ffmpeg.global.avutil;
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+import org.bytedeco.javacv.FFmpegFrameRecorder;
+import org.bytedeco.javacv.Frame;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ShortBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Service class for splitting long audio files into chunks that can be transcribed independently.
+ * Cuts are placed at silences so that no word is split between two chunks, and every chunk is
+ * bounded in duration so that it stays well below the upload limit of the transcription API.
+ */
+@Service
+public class AudioSegmenter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AudioSegmenter.class);
+
+    /** Sample rate the audio is analysed and re-encoded at. */
+    private static final int SAMPLE_RATE = 16000;
+
+    /** Bit rate of the Opus encoded chunks. */
+    private static final int CHUNK_BIT_RATE = 24000;
+
+    /** Length of the window the loudness is measured over. */
+    private static final int WINDOW_MILLIS = 50;
+
+    private final double minChunkSeconds;
+    private final double maxChunkSeconds;
+    private final double silenceThreshold;
+
+    /**
+     * Constructor for AudioSegmenter.
+     *
+     * @param minChunkSeconds     Duration after which a chunk may be cut at the next silence
+     * @param maxChunkSeconds     Duration after which a chunk is cut even if no silence was found
+     * @param silenceThresholdDb  Loudness in dBFS below which a window counts as silence
+     */
+    public AudioSegmenter(@Value("${transcription.chunk.min-seconds:120}") double minChunkSeconds,
+                          @Value("${transcription.chunk.max-seconds:300}") double maxChunkSeconds,
+                          @Value("${transcription.chunk.silence-threshold-db:-40}") double silenceThresholdDb) {
+        if (minChunkSeconds <= 0 || maxChunkSeconds < minChunkSeconds) {
+            throw new IllegalArgumentException("Chunk durations must satisfy 0 < min <= max");
+        }
+        this.minChunkSeconds = minChunkSeconds;
+        this.maxChunkSeconds = maxChunkSeconds;
+        this.silenceThreshold = Short.MAX_VALUE * Math.pow(10, silenceThresholdDb / 20);
+    }
+
+    /**
+     * Splits an audio file into chunks at silence boundaries.
+     * Audio that is not longer than the maximum chunk duration is returned as a single chunk
+     * referring to the original file.
+     *
+     * @param audioFile Path to the audio file
+     * @return The chunks in playback order
+     * @throws IOException if the audio cannot be decoded or a chunk cannot be written
+     */
+    public List<AudioChunk> split(Path audioFile) throws IOException {
+        try (FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(audioFile.toFile())) {
+            grabber.setSampleFormat(avutil.AV_SAMPLE_FMT_S16);
+            grabber.setSampleRate(SAMPLE_RATE);
+            grabber.setAudioChannels(1);
+            grabber.start();
+
+            long durationInMicroseconds = grabber.getLengthInTime();
+            if (durationInMicroseconds > 0 && durationInMicroseconds <= maxChunkSeconds * 1_000_000) {
+                grabber.stop();
+                return List.of(new AudioChunk(audioFile, 0, false));
+            }
+
+            List<AudioChunk> chunks = splitAtSilence(grabber);
+            grabber.stop();
+            logger.info("Split {} into {} chunks", audioFile.getFileName(), chunks.size());
+            return chunks;
+        }
+    }
+
+    /**
+     * Deletes the chunk files that were created by {@link #split(Path)}.
+     * Chunks referring to the original audio file are left in place.
+     *
+     * @param chunks The chunks to clean up
+     */
+    public void deleteTemporaryChunks(List<AudioChunk> chunks) {
+        for (AudioChunk chunk : chunks) {
+            if (chunk.isTemporary()) {
+                try {
+                    Files.deleteIfExists(chunk.getFile());
+                } catch (IOException e) {
+                    logger.warn("Failed to delete audio chunk: {}", chunk.getFile().toAbsolutePath());
+                }
+            }
+        }
+    }
+
+    /**
+     * Decodes the audio window by window and starts a new chunk at the first silent window after
+     * the minimum chunk duration, or at the maximum chunk duration if the speaker never pauses.
+     *
+     * @param grabber Started grabber producing 16 kHz mono samples
+     * @return The chunks in playback order
+     * @throws IOException if the audio cannot be decoded or a chunk cannot be written
+     */
+    private List<AudioChunk> splitAtSilence(FFmpegFrameGrabber grabber) throws IOException {
+        int windowSamples = SAMPLE_RATE * WINDOW_MILLIS / 1000;
+        long minChunkSamples = (long) (minChunkSeconds * SAMPLE_RATE);
+        long maxChunkSamples = (long) (maxChunkSeconds * SAMPLE_RATE);
+
+        List<AudioChunk> chunks = new ArrayList<>();
+        short[] window = new short[windowSamples];
+        int windowFill = 0;
+        long totalSamples = 0;
+        long chunkStart = 0;
+        FFmpegFrameRecorder recorder = null;
+
+        try {
+            Frame frame;
+            while ((frame = grabber.grabSamples()) != null) {
+                ShortBuffer samples = (ShortBuffer) frame.samples[0];
+                while (samples.hasRemaining()) {
+                    int count = Math.min(samples.remaining(), windowSamples - windowFill);
+                    samples.get(window, windowFill, count);
+                    windowFill += count;
+                    if (windowFill < windowSamples) {
+                        continue;
+                    }
+
+                    long chunkLength = totalSamples - chunkStart;
+                    if (recorder != null && (chunkLength >= maxChunkSamples
+                            || (chunkLength >= minChunkSamples && isSilent(window, windowSamples)))) {
+                        recorder.stop();
+                        recorder.release();
+                        recorder = null;
+                    }
+                    if (recorder == null) {
+                        chunkStart = totalSamples;
+                        Path chunkFile = Files.createTempFile("chunk", ".ogg");
+                        chunks.add(new AudioChunk(chunkFile, (double) chunkStart / SAMPLE_RATE, true));
+                        recorder = startChunkRecorder(chunkFile);
+                    }
+                    recorder.recordSamples(SAMPLE_RATE, 1, ShortBuffer.wrap(window, 0, windowSamples));
+                    totalSamples += windowSamples;
+                    windowFill = 0;
+                }
+            }
+
+            if (windowFill > 0) {
+                if (recorder == null) {
+                    Path chunkFile = Files.createTempFile("chunk", ".ogg");
+                    chunks.add(new AudioChunk(chunkFile, (double) totalSamples / SAMPLE_RATE, true));
+                    recorder = startChunkRecorder(chunkFile);
+                }
+                recorder.recordSamples(SAMPLE_RATE, 1, ShortBuffer.wrap(window, 0, windowFill));
+            }
+            if (recorder != null) {
+                recorder.stop();
+                recorder.release();
+            }
+            return chunks;
+        } catch (IOException | RuntimeException e) {
+            if (recorder != null) {
+                recorder.release();
+            }
+            deleteTemporaryChunks(chunks);
+            throw e;
+        }
+    }
+
+    /**
+     * Checks whether the RMS level of a window is below the silence threshold.
+     *
+     * @param window The samples of the window
+     * @param length Number of valid samples in the window
+     * @return true if the window is silent
+     */
+    boolean isSilent(short[] window, int length) {
+        double sumOfSquares = 0;
+        for (int i = 0; i < length; i++) {
+            sumOfSquares += (double) window[i] * window[i];
+        }
+        return Math.sqrt(sumOfSquares / length) < silenceThreshold;
+    }
+
+    private FFmpegFrameRecorder startChunkRecorder(Path chunkFile) throws IOException {
+        FFmpegFrameRecorder recorder = new FFmpegFrameRecorder(chunkFile.toFile(), 1);
+        recorder.setFormat("ogg");
+        recorder.setAudioCodec(avcodec.AV_CODEC_ID_OPUS);
+        recorder.setSampleRate(SAMPLE_RATE);
+        recorder.setAudioBitrate(CHUNK_BIT_RATE);
+        recorder.start();
+        return recorder;
+    }
+
+    /**
+     * A chunk of audio together with its position in the original recording.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class AudioChunk {
+        private final Path file;
+        private final double offsetSeconds;
+        private final boolean temporary;
+    }
+}
@@ -0,0 +1,321 @@
+package com.fact_checker.FactChecker.service;
+
+import com.fact_checker.FactChecker.exceptions.FileProcessingException;
+import com.fact_checker.FactChecker.exceptions.InvalidFileException;
+import com.fact_checker.FactChecker.exceptions.QuotaExceededException;
+import com.fact_checker.FactChecker.model.FactCheckJob;
+import com.fact_checker.FactChecker.model.StoredUpload;
+import com.fact_checker.FactChecker.model.UploadRange;
+import com.fact_checker.FactChecker.model.UploadSession;
+import com.fact_checker.FactChecker.model.User;
+import com.fact_checker.FactChecker.repository.UploadRangeRepository;
+import com.fact_checker.FactChecker.repository.UploadSessionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Service for resumable uploads sent in chunks.
+ * Each chunk is written at its offset into a preallocated partial file with positional writes,
+ * so chunks may arrive in any order and in parallel, and an interrupted upload resumes at the
+ * first missing byte. Once every byte has arrived the file is handed to the regular upload
+ * validation and queued for fact-checking.
+ * Sessions and their received ranges are stored in the database, so uploads survive a restart; the partial
+ * files live in the upload directory, which instances serving the same uploads must share.
+ * Sessions that stopped receiving chunks and partial files without a session are purged periodically.
+ */
+@Service
+public class ChunkedUploadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChunkedUploadService.class);
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    private static final Duration SESSION_TTL = Duration.ofHours(24);
+    private static final String PARTIAL_SUFFIX = ".part";
+
+    private final VideoService videoService;
+    private final FactCheckJobService factCheckJobService;
+    private final UploadSessionRepository uploadSessionRepository;
+    private final UploadRangeRepository uploadRangeRepository;
+    private final Path partialDirectory;
+    private final long maxUploadBytes;
+    private final long maxChunkBytes;
+
+    /**
+     * Constructor for ChunkedUploadService.
+     *
+     * @param videoService            Service that validates and stores the assembled files
+     * @param factCheckJobService     Service the completed uploads are queued with
+     * @param uploadSessionRepository Repository the upload sessions are stored in
+     * @param uploadRangeRepository   Repository the received byte ranges are stored in
+     * @param uploadPath              Path where uploaded files are stored
+     * @param maxUploadBytes          Largest file accepted, in bytes
+     * @param maxChunkBytes           Largest chunk accepted in a single request, in bytes
+     */
+    public ChunkedUploadService(VideoService videoService, FactCheckJobService factCheckJobService,
+                                UploadSessionRepository uploadSessionRepository,
+                                UploadRangeRepository uploadRangeRepository,
+                                @Value("${video.upload.path}") String uploadPath,
+                                @Value("${uploads.max-size-bytes:1048576000}") long maxUploadBytes,
+                                @Value("${uploads.max-chunk-bytes:16777216}") long maxChunkBytes) {
+        this.videoService = videoService;
+        this.factCheckJobService = factCheckJobService;
+        this.uploadSessionRepository = uploadSessionRepository;
+        this.uploadRangeRepository = uploadRangeRepository;
+        this.partialDirectory = Paths.get(uploadPath, "partial");
+        this.maxUploadBytes = maxUploadBytes;
+        this.maxChunkBytes = maxChunkBytes;
+    }
+
+    /**
+     * Starts a new upload and reserves the space for the complete file.
+     * The user's quota is checked up front, so a user with a full queue does not transfer a whole file
+     * only to have it rejected. The session is stored before the partial file is created, so any partial
+     * file without a session is left over from an upload that failed and can be swept.
+     *
+     * @param originalFilename The name of the file on the client
+     * @param totalBytes       The size of the complete file in bytes
+     * @param user             The user uploading the file
+     * @return The new upload session
+     * @throws InvalidFileException    if the file name or size is not acceptable
+     * @throws QuotaExceededException  if the user has too many jobs queued
+     * @throws FileProcessingException if the partial file cannot be created
+     */
+    public UploadSession create(String originalFilename, long totalBytes, User user) {
+        videoService.validateFilename(originalFilename);
+        if (totalBytes <= 0) {
+            throw new InvalidFileException("File is empty");
+        }
+        if (totalBytes > maxUploadBytes) {
+            throw new InvalidFileException("File is too large");
+        }
+        factCheckJobService.checkQuota(user);
+
+        String id = UUID.randomUUID().toString();
+        Path partialFile = partialDirectory.resolve(id + PARTIAL_SUFFIX);
+        UploadSession session = new UploadSession(id, user.getId(), originalFilename, totalBytes, partialFile);
+        uploadSessionRepository.save(session);
+        try {
+            Files.createDirectories(partialDirectory);
+            try (FileChannel channel = FileChannel.open(partialFile,
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                // Extend the file to its final size, so chunks can be written at any offset
+                channel.write(ByteBuffer.allocate(1), totalBytes - 1);
+            }
+        } catch (IOException e) {
+            logger.error("Failed to create partial file {}: {}", partialFile, e.getMessage());
+            discard(session);
+            throw new FileProcessingException("Failed to create upload", e);
+        }
+
+        logger.info("Upload {} of {} ({} bytes) created", id, originalFilename, totalBytes);
+        return session;
+    }
+
+    /**
+     * Looks up an upload of a user, together with the byte ranges received so far.
+     *
+     * @param uploadId The id of the upload
+     * @param user     The user requesting the upload
+     * @return The session, or empty if it does not exist or belongs to another user
+     */
+    public Optional<UploadSession> getSession(String uploadId, User user) {
+        return uploadSessionRepository.findById(uploadId)
+                .filter(session -> Objects.equals(session.getUserId(), user.getId()))
+                .map(session -> {
+                    uploadRangeRepository.findByUploadId(uploadId)
+                            .forEach(range -> session.restoreReceived(range.getStartOffset(), range.getEndOffset()));
+                    return session;
+                });
+    }
+
+    /**
+     * Writes a chunk of the file at its offset.
+     * The bytes written are recorded even if the stream breaks off, so that the client can resume
+     * from whatever actually reached the disk.
+     *
+     * @param session     The upload session
+     * @param offset      The offset of the first byte of the chunk in the file
+     * @param length      The number of bytes in the chunk
+     * @param inputStream The content of the chunk
+     * @throws InvalidFileException    if the chunk does not fit into the file or the upload is closed
+     * @throws FileProcessingException if the chunk cannot be written
+     */
+    public void writeChunk(UploadSession session, long offset, long length, InputStream inputStream) {
+        if (session.isClosed()) {
+            throw new InvalidFileException("Upload is already closed");
+        }
+        if (offset < 0 || length <= 0 || length > maxChunkBytes || offset + length > session.getTotalBytes()) {
+            throw new InvalidFileException("Chunk does not fit into the file");
+        }
+
+        long position = offset;
+        try (FileChannel channel = FileChannel.open(session.getPartialFile(), StandardOpenOption.WRITE)) {
+            byte[] buffer = new byte[(int) Math.min(COPY_BUFFER_SIZE, length)];
+            long end = offset + length;
+            while (position < end) {
+                int read = inputStream.read(buffer, 0, (int) Math.min(buffer.length, end - position));
+                if (read == -1) {
+                    break;
+                }
+                ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, read);
+                while (byteBuffer.hasRemaining()) {
+                    position += channel.write(byteBuffer, position);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Chunk of upload {} at offset {} interrupted after {} bytes: {}",
+                    session.getId(), offset, position - offset, e.getMessage());
+            throw new FileProcessingException("Failed to write chunk", e);
+        } finally {
+            recordReceived(session, offset, position);
+        }
+
+        if (position < offset + length) {
+            throw new InvalidFileException("Chunk is shorter than announced");
+        }
+    }
+
+    /**
+     * Completes an upload and queues the assembled file for fact-checking.
+     * The session and its partial file are kept until the job has been queued: if the file cannot be
+     * stored or the job is rejected, the session is opened again and finalizing can be retried.
+     * Only a file that turns out not to be a usable video ends the upload.
+     *
+     * @param session The upload session
+     * @param user    The user who created the upload
+     * @return The queued job
+     * @throws InvalidFileException    if bytes are still missing, the upload was finalized already
+     *                                 or the file is not a supported video
+     * @throws QuotaExceededException  if the user has too many jobs queued
+     * @throws java.util.concurrent.RejectedExecutionException if too many jobs are queued already
+     * @throws FileProcessingException if the file cannot be stored
+     */
+    public FactCheckJob finalizeUpload(UploadSession session, User user) {
+        if (!session.isComplete()) {
+            throw new InvalidFileException("Upload is incomplete, next offset is " + session.getNextOffset());
+        }
+        factCheckJobService.checkQuota(user);
+        if (uploadSessionRepository.close(session.getId()) == 0) {
+            throw new InvalidFileException("Upload is already closed");
+        }
+        session.close();
+
+        StoredUpload upload;
+        FactCheckJob job;
+        try {
+            upload = videoService.storeAssembledUpload(session.getPartialFile(), session.getOriginalFilename());
+            logger.info("Upload {} assembled as {}", session.getId(), upload.getFilename());
+        } catch (InvalidFileException e) {
+            discard(session);
+            throw e;
+        } catch (RuntimeException e) {
+            reopen(session);
+            throw e;
+        }
+        try {
+            // A rejected job deletes the stored upload, the partial file stays for another attempt
+            job = factCheckJobService.submit(upload, session.getOriginalFilename(), user);
+        } catch (RuntimeException e) {
+            reopen(session);
+            throw e;
+        }
+        discard(session);
+        return job;
+    }
+
+    /**
+     * Aborts an upload and deletes the bytes received so far.
+     *
+     * @param session The upload session
+     */
+    public void cancel(UploadSession session) {
+        if (uploadSessionRepository.close(session.getId()) == 1) {
+            session.close();
+            discard(session);
+        }
+    }
+
+    /**
+     * Deletes the uploads that have not received a chunk for a day, and the partial files no session refers to,
+     * such as those of uploads whose session was deleted while the file was still being written.
+     */
+    @Scheduled(fixedDelayString = "${uploads.purge-interval-ms:3600000}")
+    public void purgeExpiredSessions() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(SESSION_TTL);
+        for (UploadSession session : uploadSessionRepository.findByUpdatedAtBefore(cutoff)) {
+            logger.info("Upload {} expired after {} bytes", session.getId(), session.getReceivedBytes());
+            discard(session);
+        }
+
+        if (!Files.isDirectory(partialDirectory)) {
+            return;
+        }
+        try (Stream<Path> partialFiles = Files.list(partialDirectory)) {
+            partialFiles
+                    .filter(file -> file.getFileName().toString().endsWith(PARTIAL_SUFFIX))
+                    .filter(file -> !uploadSessionRepository.existsById(uploadId(file)))
+                    .forEach(file -> {
+                        logger.info("Deleting orphaned partial file {}", file);
+                        deleteQuietly(file);
+                    });
+        } catch (IOException e) {
+            logger.warn("Failed to list partial files in {}: {}", partialDirectory, e.getMessage());
+        }
+    }
+
+    /**
+     * Records a byte range that reached the partial file, in the session and in the database.
+     */
+    private void recordReceived(UploadSession session, long start, long end) {
+        if (end <= start) {
+            return;
+        }
+        session.markReceived(start, end);
+        uploadRangeRepository.save(new UploadRange(session.getId(), start, end));
+        uploadSessionRepository.touch(session.getId(), session.getUpdatedAt());
+    }
+
+    private void reopen(UploadSession session) {
+        session.reopen();
+        uploadSessionRepository.reopen(session.getId());
+    }
+
+    /**
+     * Deletes an upload: its ranges, its session and its partial file.
+     */
+    private void discard(UploadSession session) {
+        uploadRangeRepository.deleteByUploadId(session.getId());
+        uploadSessionRepository.deleteById(session.getId());
+        deleteQuietly(session.getPartialFile());
+    }
+
+    private static String uploadId(Path partialFile) {
+        String name = partialFile.getFileName().toString();
+        return name.substring(0, name.length() - PARTIAL_SUFFIX.length());
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Failed to delete partial file: {}", file);
+        }
+    }
+}
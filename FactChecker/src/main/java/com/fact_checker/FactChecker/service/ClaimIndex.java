@@ -0,0 +1,230 @@
+package com.fact_checker.FactChecker.service;
+
+import com.fact_checker.FactChecker.model.Claim;
+import com.fact_checker.FactChecker.repository.ClaimRepository;
+import com.fact_checker.FactChecker.utils.BloomFilter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Global index of the claims scored so far, so a claim repeated by another video is not sent to the LLM again.
+ * The claims table is the durable store. In front of it sit a Bloom filter of every known claim digest,
+ * which answers most lookups of new claims without a query, and a bounded hot set of recently used scores,
+ * which answers repeated claims without one.
+ * The Bloom filter is filled from the table once the application is ready; until then every claim may be known
+ * and is looked up in the table. Claims stored by other instances after that are not in the local filter and
+ * may be scored again, which costs an API call but never a wrong score.
+ */
+@Service
+public class ClaimIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClaimIndex.class);
+    private static final String HOT_SET_NAME = "claim-scores";
+
+    private final ClaimRepository claimRepository;
+    private final BloomFilter knownHashes;
+    private final Cache<String, Double> hotScores;
+    private final Counter hotHits;
+    private final Counter storedHits;
+    private final Counter bloomMisses;
+    private final Counter falsePositives;
+    private volatile boolean loaded;
+
+    /**
+     * Constructor for ClaimIndex.
+     *
+     * @param claimRepository         Repository of the scored claims
+     * @param expectedClaims          Number of claims the Bloom filter is sized for
+     * @param falsePositiveRate       Share of new claims the Bloom filter may send to the table anyway
+     * @param hotSetMaxEntries        Number of scores kept in memory
+     * @param hotSetExpireAfterAccess Time after which an unused score is dropped from memory
+     * @param meterRegistry           Registry the lookup metrics are published to
+     */
+    public ClaimIndex(ClaimRepository claimRepository,
+                      @Value("${claims.index.expected-claims:1000000}") long expectedClaims,
+                      @Value("${claims.index.false-positive-rate:0.01}") double falsePositiveRate,
+                      @Value("${claims.index.hot-set.max-entries:100000}") long hotSetMaxEntries,
+                      @Value("${claims.index.hot-set.expire-after-access:24h}") Duration hotSetExpireAfterAccess,
+                      MeterRegistry meterRegistry) {
+        this.claimRepository = claimRepository;
+        this.knownHashes = new BloomFilter(expectedClaims, falsePositiveRate);
+        this.hotScores = Caffeine.newBuilder()
+                .maximumSize(hotSetMaxEntries)
+                .expireAfterAccess(hotSetExpireAfterAccess)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, hotScores, HOT_SET_NAME);
+        this.hotHits = lookups(meterRegistry, "hot");
+        this.storedHits = lookups(meterRegistry, "stored");
+        this.bloomMisses = lookups(meterRegistry, "new");
+        this.falsePositives = Counter.builder("claims.index.false-positives")
+                .description("Claims the Bloom filter reported as known that were not in the table")
+                .register(meterRegistry);
+    }
+
+    private static Counter lookups(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("claims.index.lookups")
+                .description("Claim lookups, by where they were answered")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Fills the Bloom filter with the digests of all stored claims.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void loadKnownHashes() {
+        AtomicLong count = new AtomicLong();
+        try (Stream<String> hashes = claimRepository.streamAllHashes()) {
+            hashes.forEach(hash -> {
+                knownHashes.put(hash);
+                count.incrementAndGet();
+            });
+        }
+        loaded = true;
+        logger.info("Loaded {} claim digests into the claim index", count.get());
+    }
+
+    /**
+     * Normalizes a claim, so that the same statement written with other case or spacing is the same claim.
+     *
+     * @param claim The claim as extracted
+     * @return The claim trimmed, lower-cased and with runs of whitespace collapsed
+     */
+    public static String normalize(String claim) {
+        return claim.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Computes the digest a claim is identified by.
+     *
+     * @param claim The claim as extracted
+     * @return The hex encoded SHA-256 digest of the normalized claim
+     */
+    public static String hash(String claim) {
+        return ArtifactCache.digest(normalize(claim));
+    }
+
+    /**
+     * Looks up the score of a claim in memory only, so it can be called on any thread.
+     *
+     * @param claim The claim as extracted
+     * @return The score, or empty if the claim was not used recently
+     */
+    public Optional<Double> hotScore(String claim) {
+        Optional<Double> score = Optional.ofNullable(hotScores.getIfPresent(hash(claim)));
+        score.ifPresent(ignored -> hotHits.increment());
+        return score;
+    }
+
+    /**
+     * Looks up the scores of claims that are already known.
+     * Claims the Bloom filter rules out are skipped; the remaining ones are fetched in a single query.
+     *
+     * @param claims The claims as extracted
+     * @return The scores of the known claims, keyed by the trimmed claim
+     */
+    public Map<String, Double> knownScores(Collection<String> claims) {
+        Map<String, Double> scores = new HashMap<>();
+        Map<String, List<String>> candidates = new HashMap<>();
+        for (String claim : claims) {
+            String hash = hash(claim);
+            Double score = hotScores.getIfPresent(hash);
+            if (score != null) {
+                hotHits.increment();
+                scores.put(claim.trim(), score);
+            } else if (!loaded || knownHashes.mightContain(hash)) {
+                candidates.computeIfAbsent(hash, ignored -> new ArrayList<>()).add(claim);
+            } else {
+                bloomMisses.increment();
+            }
+        }
+        if (candidates.isEmpty()) {
+            return scores;
+        }
+
+        List<Claim> stored = claimRepository.findByHashIn(candidates.keySet());
+        for (Claim claim : stored) {
+            hotScores.put(claim.getHash(), claim.getScore());
+            knownHashes.put(claim.getHash());
+            for (String text : candidates.get(claim.getHash())) {
+                scores.put(text.trim(), claim.getScore());
+            }
+        }
+        storedHits.increment(stored.size());
+        if (loaded) {
+            falsePositives.increment(candidates.size() - stored.size());
+        }
+        return scores;
+    }
+
+    /**
+     * Stores freshly scored claims.
+     * Every claim is inserted in a transaction of its own, so a claim that another job stored in the
+     * meantime only fails its own insert; it keeps the score it was stored with.
+     *
+     * @param scores The scores, keyed by the claim as extracted
+     */
+    public void record(Map<String, Double> scores) {
+        Map<String, Claim> fresh = new LinkedHashMap<>();
+        LocalDateTime now = LocalDateTime.now();
+        scores.forEach((text, score) -> {
+            String normalized = normalize(text);
+            String hash = ArtifactCache.digest(normalized);
+            fresh.putIfAbsent(hash, new Claim(null, hash, normalized, score, now));
+        });
+        for (Claim existing : claimRepository.findByHashIn(fresh.keySet())) {
+            fresh.remove(existing.getHash());
+        }
+
+        for (Claim claim : fresh.values()) {
+            knownHashes.put(claim.getHash());
+            try {
+                claimRepository.save(claim);
+            } catch (DataIntegrityViolationException e) {
+                logger.debug("Claim {} was stored by another job in the meantime", claim.getHash());
+                continue;
+            }
+            hotScores.put(claim.getHash(), claim.getScore());
+        }
+    }
+
+    /**
+     * Finds the stored claims, so they can be linked to the video that makes them.
+     *
+     * @param claims The claims as extracted
+     * @return The stored claims; claims that were never stored are left out
+     */
+    public Set<Claim> find(Collection<String> claims) {
+        Set<String> hashes = claims.stream().map(ClaimIndex::hash).collect(Collectors.toSet());
+        return hashes.isEmpty() ? new HashSet<>() : new HashSet<>(claimRepository.findByHashIn(hashes));
+    }
+}
@@ -0,0 +1,142 @@
+package com.fact_checker.FactChecker.service;
+
+import com.fact_checker.FactChecker.exceptions.DeadlineExceededException;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The time a job has left, and whether it has been cancelled.
+ * A deadline is created when a job starts and handed down through the stages of the pipeline. Each stage
+ * checks it before it starts and waits for other threads no longer than the time that is left.
+ * Threads blocking on behalf of the job register a callback that aborts them, such as interrupting the
+ * thread or cancelling an HTTP call, and cancelling the deadline runs these callbacks.
+ */
+public final class Deadline {
+
+    private final long expiresAtNanos;
+    private final boolean bounded;
+    private final Set<Runnable> cancelCallbacks = ConcurrentHashMap.newKeySet();
+    private volatile boolean cancelled;
+
+    private Deadline(long expiresAtNanos, boolean bounded) {
+        this.expiresAtNanos = expiresAtNanos;
+        this.bounded = bounded;
+    }
+
+    /**
+     * Creates a deadline that expires after the given time.
+     *
+     * @param timeout The time from now until the deadline
+     * @return The deadline
+     */
+    public static Deadline after(Duration timeout) {
+        return new Deadline(System.nanoTime() + timeout.toNanos(), true);
+    }
+
+    /**
+     * Creates a deadline that never expires, but can still be cancelled.
+     *
+     * @return The deadline
+     */
+    public static Deadline none() {
+        return new Deadline(0, false);
+    }
+
+    /**
+     * Returns whether the deadline expires at all.
+     *
+     * @return false if the deadline was created with {@link #none()}
+     */
+    public boolean isBounded() {
+        return bounded;
+    }
+
+    /**
+     * Returns the time left until the deadline.
+     *
+     * @return The remaining time, zero once the deadline has passed, or the longest representable
+     *         duration in nanoseconds if the deadline is not bounded
+     */
+    public Duration remaining() {
+        if (!bounded) {
+            return Duration.ofNanos(Long.MAX_VALUE);
+        }
+        return Duration.ofNanos(Math.max(0, expiresAtNanos - System.nanoTime()));
+    }
+
+    /**
+     * Returns whether the deadline has passed.
+     *
+     * @return true if the deadline is bounded and has passed
+     */
+    public boolean isExpired() {
+        return bounded && expiresAtNanos - System.nanoTime() <= 0;
+    }
+
+    /**
+     * Returns whether the deadline has been cancelled.
+     *
+     * @return true if {@link #cancel()} has been called
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Fails if the job should not go on.
+     *
+     * @throws CancellationException     if the deadline has been cancelled
+     * @throws DeadlineExceededException if the deadline has passed
+     */
+    public void check() {
+        if (cancelled) {
+            throw new CancellationException("The job was cancelled");
+        }
+        if (isExpired()) {
+            throw new DeadlineExceededException("The job ran out of time");
+        }
+    }
+
+    /**
+     * Cancels the deadline and aborts the work registered with {@link #onCancel(Runnable)}.
+     */
+    public void cancel() {
+        cancelled = true;
+        for (Runnable callback : cancelCallbacks) {
+            // Each callback runs once, even if it is registered while the deadline is being cancelled
+            if (cancelCallbacks.remove(callback)) {
+                callback.run();
+            }
+        }
+    }
+
+    /**
+     * Registers a callback that aborts blocking work when the deadline is cancelled.
+     * The callback runs right away if the deadline has been cancelled already.
+     *
+     * @param callback The callback, run on the thread that cancels the deadline
+     * @return A registration that removes the callback once the work is done
+     */
+    public Registration onCancel(Runnable callback) {
+        cancelCallbacks.add(callback);
+        if (cancelled && cancelCallbacks.remove(callback)) {
+            callback.run();
+        }
+        return () -> cancelCallbacks.remove(callback);
+    }
+
+    /**
+     * Registration of a cancel callback.
+     */
+    public interface Registration extends AutoCloseable {
+
+        /**
+         * Removes the callback.
+         */
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,434 @@
+package com.fact_checker.FactChecker.service;
+
+import com.fact_checker.FactChecker.config.ExecutorConfig;
+import com.fact_checker.FactChecker.exceptions.InvalidFileException;
+import com.fact_checker.FactChecker.exceptions.QuotaExceededException;
+import com.fact_checker.FactChecker.model.FactCheckJob;
+import com.fact_checker.FactChecker.model.JobStage;
+import com.fact_checker.FactChecker.model.StoredUpload;
+import com.fact_checker.FactChecker.model.User;
+import com.fact_checker.FactChecker.model.Video;
+import com.fact_checker.FactChecker.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Service class for running fact-check jobs in the background.
+ * The upload is stored on the request thread and the job is written to the durable job queue, after which
+ * the video processing and claim analysis run on the bounded job pool of whichever instance claims it.
+ * Each instance claims no more jobs than its workers can take plus a small prefetch, renews the leases
+ * on the jobs it holds, and claims again whenever a worker becomes free, so jobs survive restarts and
+ * any number of instances share the work. Uploads must be stored on a directory all instances can read.
+ * When too many jobs are queued, new jobs are rejected instead of piling up.
+ * Which of its claimed jobs an instance runs next is decided by the {@link JobScheduler}, so short videos
+ * do not wait behind long ones and no single user takes all workers.
+ * Every attempt of a job runs under a {@link Deadline} that all stages check. A job that runs out of time,
+ * or that its user cancels, is aborted: its FFmpeg work and API calls are interrupted and its threads freed.
+ */
+@Service
+public class FactCheckJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FactCheckJobService.class);
+
+    /** How long finished jobs stay queryable before they are dropped. */
+    private static final long FINISHED_JOB_RETENTION_HOURS = 1;
+
+    /** Delay before the first retry of a failed job, doubled for every further attempt. */
+    private static final Duration RETRY_DELAY = Duration.ofSeconds(30);
+
+    /** How often cancelling a job is tried again when the job changes at the same time. */
+    private static final int CANCEL_ATTEMPTS = 3;
+
+    private final VideoService videoService;
+    private final TextAnalysisService textAnalysisService;
+    private final ExecutorService executorService;
+    private final JobScheduler jobScheduler;
+    private final JobQueueService jobQueue;
+    private final UserRepository userRepository;
+    private final int claimCapacity;
+    private final int queueCapacity;
+    private final Duration jobTimeout;
+    private final Map<String, FactCheckJob> heldJobs = new ConcurrentHashMap<>();
+    private final Map<String, Deadline> runningJobs = new ConcurrentHashMap<>();
+    private final Object claimLock = new Object();
+
+    /**
+     * Constructor for FactCheckJobService.
+     *
+     * @param videoService        Service for storing and processing videos
+     * @param textAnalysisService Service for analyzing the transcription
+     * @param executorService     Bounded pool the jobs run on
+     * @param jobScheduler        Decides the order in which claimed jobs run
+     * @param jobQueue            Durable queue shared by all instances
+     * @param userRepository      Repository for loading the users of claimed jobs
+     * @param workerThreads       Number of jobs that may run on this instance at the same time
+     * @param prefetch            Number of jobs claimed ahead of free workers
+     * @param queueCapacity       Number of jobs that may wait before new ones are rejected
+     * @param jobTimeoutSeconds   Time an attempt of a job may take before it is aborted
+     */
+    public FactCheckJobService(VideoService videoService, TextAnalysisService textAnalysisService,
+                               @Qualifier(ExecutorConfig.JOB_EXECUTOR) ExecutorService executorService,
+                               JobScheduler jobScheduler, JobQueueService jobQueue, UserRepository userRepository,
+                               @Value("${fact-check.jobs.worker-threads:4}") int workerThreads,
+                               @Value("${fact-check.jobs.prefetch:2}") int prefetch,
+                               @Value("${fact-check.jobs.queue-capacity:50}") int queueCapacity,
+                               @Value("${fact-check.jobs.timeout-seconds:1800}") long jobTimeoutSeconds) {
+        this.videoService = videoService;
+        this.textAnalysisService = textAnalysisService;
+        this.executorService = executorService;
+        this.jobScheduler = jobScheduler;
+        this.jobQueue = jobQueue;
+        this.userRepository = userRepository;
+        this.claimCapacity = workerThreads + prefetch;
+        this.queueCapacity = queueCapacity;
+        this.jobTimeout = Duration.ofSeconds(jobTimeoutSeconds);
+    }
+
+    /**
+     * Stores the upload and schedules the fact-check pipeline for it.
+     *
+     * @param file The uploaded video
+     * @param user The user submitting the video
+     * @return The queued job
+     * @throws com.fact_checker.FactChecker.exceptions.InvalidFileException    if the file is not a supported video
+     * @throws com.fact_checker.FactChecker.exceptions.FileProcessingException if the file cannot be stored
+     * @throws QuotaExceededException                                           if the user has too many jobs queued
+     * @throws RejectedExecutionException                                       if too many jobs are queued already
+     */
+    public FactCheckJob submit(MultipartFile file, User user) {
+        checkQuota(user);
+        StoredUpload upload = videoService.storeUpload(file);
+        return submit(upload, file.getOriginalFilename(), user);
+    }
+
+    /**
+     * Stores an upload that is sent as a raw stream and schedules the fact-check pipeline for it.
+     * The audio extraction starts while the stream is still being received.
+     *
+     * @param inputStream      The content of the upload
+     * @param originalFilename The name of the file on the client
+     * @param user             The user submitting the video
+     * @return The queued job
+     * @throws com.fact_checker.FactChecker.exceptions.InvalidFileException    if the file is not a supported video
+     * @throws com.fact_checker.FactChecker.exceptions.FileProcessingException if the file cannot be stored
+     * @throws QuotaExceededException                                           if the user has too many jobs queued
+     * @throws RejectedExecutionException                                       if too many jobs are queued already
+     */
+    public FactCheckJob submit(InputStream inputStream, String originalFilename, User user) {
+        checkQuota(user);
+        StoredUpload upload = videoService.ingest(inputStream, originalFilename);
+        return submit(upload, originalFilename, user);
+    }
+
+    /**
+     * Schedules the fact-check pipeline for an upload that has already been stored.
+     *
+     * @param upload           The stored upload
+     * @param originalFilename The name of the file on the client
+     * @param user             The user submitting the video
+     * @return The queued job
+     * @throws QuotaExceededException    if the user has too many jobs queued
+     * @throws RejectedExecutionException if too many jobs are queued already
+     */
+    public FactCheckJob submit(StoredUpload upload, String originalFilename, User user) {
+        purgeFinishedJobs();
+
+        try {
+            checkCapacity(user);
+        } catch (RejectedExecutionException e) {
+            videoService.deleteUpload(upload);
+            logger.warn("Rejected job for user {}: {}", user.getUsername(), e.getMessage());
+            throw e;
+        }
+
+        FactCheckJob job = new FactCheckJob(UUID.randomUUID().toString(), user.getId(), originalFilename, upload);
+        jobScheduler.assignDeadline(job);
+        jobQueue.add(job);
+        logger.info("Queued job {} for user {} ({}, estimated cost {} s)", job.getId(), user.getUsername(),
+                upload.getFilename(), Math.round(JobScheduler.estimateCost(upload)));
+
+        claimJobs();
+        return job;
+    }
+
+    /**
+     * Checks that the user may queue another job, before an upload is stored for it.
+     *
+     * @param user The user about to submit a video
+     * @throws QuotaExceededException if the user has too many jobs queued
+     */
+    public void checkQuota(User user) {
+        jobScheduler.checkQuota(user, jobQueue.countQueued(user.getId()));
+    }
+
+    /**
+     * Checks that the queue and the user's quota have room for another job.
+     */
+    private void checkCapacity(User user) {
+        if (jobQueue.countQueued() >= queueCapacity) {
+            throw new RejectedExecutionException("Job queue is full");
+        }
+        checkQuota(user);
+    }
+
+    /**
+     * Looks up a job owned by the given user.
+     *
+     * @param jobId The id of the job
+     * @param user  The user requesting the job
+     * @return The job, or empty if it does not exist or belongs to someone else
+     */
+    public Optional<FactCheckJob> getJob(String jobId, User user) {
+        return jobQueue.find(jobId)
+                .filter(job -> Objects.equals(job.getUserId(), user.getId()));
+    }
+
+    /**
+     * Cancels a job owned by the given user.
+     * The job is marked as cancelled in the queue, so no instance starts it anymore. If this instance holds
+     * the job, it is dropped from the scheduler or, if it is running, aborted right away; an instance holding
+     * it otherwise aborts it at its next lease renewal.
+     *
+     * @param jobId The id of the job
+     * @param user  The user cancelling the job
+     * @return The job, or empty if it does not exist or belongs to someone else.
+     *         A job that had finished before is returned unchanged.
+     */
+    public Optional<FactCheckJob> cancel(String jobId, User user) {
+        for (int attempt = 1; ; attempt++) {
+            Optional<FactCheckJob> job = getJob(jobId, user);
+            if (job.isEmpty() || job.get().getStage().isTerminal()) {
+                return job;
+            }
+            job.get().setErrorMessage("The job was cancelled.");
+            job.get().advanceTo(JobStage.CANCELLED);
+            try {
+                jobQueue.update(job.get());
+            } catch (OptimisticLockingFailureException e) {
+                // The job moved on meanwhile, look at it again
+                if (attempt == CANCEL_ATTEMPTS) {
+                    throw e;
+                }
+                continue;
+            }
+            logger.info("Job {} was cancelled by user {}", jobId, user.getUsername());
+            abort(jobId);
+            return job;
+        }
+    }
+
+    /**
+     * Stops working on a cancelled job this instance holds.
+     */
+    private void abort(String jobId) {
+        FactCheckJob held = heldJobs.get(jobId);
+        if (held != null && jobScheduler.remove(held)) {
+            heldJobs.remove(jobId);
+        }
+        Deadline deadline = runningJobs.get(jobId);
+        if (deadline != null) {
+            deadline.cancel();
+        }
+    }
+
+    /**
+     * Claims as many queued jobs as this instance has room for and hands them to the scheduler.
+     * Runs periodically to pick up jobs submitted on other instances and jobs whose lease has expired,
+     * and right after a job is submitted or finished on this instance. A failure leaves the jobs in the
+     * queue for the next attempt.
+     */
+    @Scheduled(fixedDelayString = "${fact-check.jobs.poll-interval-ms:5000}")
+    public void claimJobs() {
+        synchronized (claimLock) {
+            try {
+                for (FactCheckJob job : jobQueue.claim(claimCapacity - heldJobs.size())) {
+                    hold(job);
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Failed to claim jobs, retrying on the next poll", e);
+            }
+        }
+    }
+
+    /**
+     * Renews the leases on the jobs this instance holds, so that other instances do not take them over,
+     * and aborts those of them that were cancelled on another instance.
+     * Runs well within the lease duration.
+     */
+    @Scheduled(fixedDelayString = "${fact-check.jobs.lease-renewal-ms:30000}")
+    public void renewLeases() {
+        try {
+            jobQueue.renewLeases(heldJobs.keySet());
+            jobQueue.findCancelled(heldJobs.keySet()).forEach(this::abort);
+        } catch (RuntimeException e) {
+            logger.warn("Failed to renew the leases of {} jobs", heldJobs.size(), e);
+        }
+    }
+
+    /**
+     * Queues a claimed job on this instance and wakes up a worker for it.
+     * A job that cannot be queued is released for other instances.
+     */
+    private void hold(FactCheckJob job) {
+        Optional<User> user = userRepository.findById(job.getUserId());
+        if (user.isEmpty()) {
+            fail(job, "The user who submitted the job no longer exists.");
+            return;
+        }
+        heldJobs.put(job.getId(), job);
+        jobScheduler.enqueue(job, user.get());
+        try {
+            executorService.execute(this::runQueuedJobs);
+        } catch (RejectedExecutionException e) {
+            // A worker that just finished may already have picked the job up, then it runs anyway
+            if (jobScheduler.remove(job)) {
+                heldJobs.remove(job.getId());
+                jobQueue.release(job);
+                logger.warn("Released job {}: job pool is full", job.getId());
+            }
+        }
+    }
+
+    /**
+     * Runs queued jobs in the order chosen by the scheduler until none is left, claiming a new job
+     * from the queue whenever one finishes.
+     * A wake-up may find no job to start when another worker has taken its job already, or when only
+     * long jobs are waiting and their slots are taken; those are picked up by the workers running them.
+     */
+    private void runQueuedJobs() {
+        Optional<JobScheduler.ScheduledJob> next;
+        while ((next = jobScheduler.poll()).isPresent()) {
+            try {
+                run(next.get().getJob(), next.get().getUser());
+            } finally {
+                jobScheduler.complete(next.get());
+                heldJobs.remove(next.get().getJob().getId());
+            }
+            claimJobs();
+        }
+    }
+
+    /**
+     * Runs the pipeline for a job and records its progress.
+     * The persisted video is the checkpoint of the processing stage: a retried job continues with it
+     * instead of processing the upload again. Within the stages, the audio, transcript, embeddings,
+     * claims and claim scores of earlier attempts come from the artifact cache.
+     * A failed attempt is retried with a growing delay until the job runs out of attempts. An attempt that
+     * does not finish in time is aborted and counts as failed, and a cancelled job is simply left behind.
+     *
+     * @param job  The job to run
+     * @param user The user who submitted the job
+     */
+    void run(FactCheckJob job, User user) {
+        Deadline deadline = Deadline.after(jobTimeout);
+        runningJobs.put(job.getId(), deadline);
+        try {
+            job.start();
+            jobQueue.update(job);
+
+            Video video = job.getVideoId() == null ? null : videoService.getVideo(job.getVideoId());
+            if (video == null) {
+                video = videoService.processStoredVideo(job.getUpload(), user, deadline);
+                job.setVideoId(video.getId());
+                jobQueue.update(job);
+            } else {
+                logger.info("Job {} resumes in stage {} with video {}", job.getId(), job.getStage(), video.getId());
+            }
+
+            String transcriptionText = video.getTranscriptionText();
+            if (transcriptionText == null || transcriptionText.isEmpty()) {
+                fail(job, "Could not extract text from video.");
+                return;
+            }
+
+            // The pipeline rates the claims while it embeds the transcript, and videos with already known
+            // content come back with their analysis attached. Only a failed rating is repeated here.
+            if (video.getFactPercentage() == null) {
+                deadline.check();
+                job.advanceTo(JobStage.ANALYZING_CLAIMS);
+                jobQueue.update(job);
+                textAnalysisService.analyzeText(video, deadline);
+                if (video.getFactPercentage() == null) {
+                    retryOrFail(job, "Could not rate the claims of the video.");
+                    return;
+                }
+            }
+
+            job.setErrorMessage(null);
+            job.advanceTo(JobStage.COMPLETED);
+            jobQueue.update(job);
+            logger.info("Job {} completed with video {}", job.getId(), video.getId());
+        } catch (OptimisticLockingFailureException e) {
+            logger.warn("Job {} was cancelled or taken over by another instance after its lease expired", job.getId());
+        } catch (InvalidFileException e) {
+            logger.error("Job {} failed", job.getId(), e);
+            fail(job, e.getMessage());
+        } catch (Exception e) {
+            if (deadline.isCancelled()) {
+                logger.info("Job {} was aborted in stage {}", job.getId(), job.getStage());
+            } else if (deadline.isExpired()) {
+                logger.warn("Job {} ran out of time in stage {}", job.getId(), job.getStage());
+                retryOrFail(job, "The job did not finish within " + jobTimeout.toMinutes() + " minutes.");
+            } else {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                logger.error("Job {} failed in stage {}", job.getId(), job.getStage(), cause);
+                retryOrFail(job, cause.getMessage());
+            }
+        } finally {
+            runningJobs.remove(job.getId());
+        }
+    }
+
+    /**
+     * Schedules another attempt of a job that failed, or fails it for good once it has used up its attempts.
+     */
+    private void retryOrFail(FactCheckJob job, String message) {
+        if (job.getAttempts() >= jobQueue.getMaxAttempts()) {
+            fail(job, message);
+            return;
+        }
+        Duration delay = RETRY_DELAY.multipliedBy(1L << (job.getAttempts() - 1));
+        logger.warn("Retrying job {} from stage {} in {} s", job.getId(), job.getStage(), delay.toSeconds());
+        job.setErrorMessage(message);
+        try {
+            jobQueue.retryLater(job, delay);
+        } catch (OptimisticLockingFailureException e) {
+            logger.warn("Job {} was taken over by another instance after its lease expired", job.getId());
+        }
+    }
+
+    private void fail(FactCheckJob job, String message) {
+        job.setErrorMessage(message);
+        job.advanceTo(JobStage.FAILED);
+        try {
+            jobQueue.update(job);
+        } catch (OptimisticLockingFailureException e) {
+            logger.warn("Job {} was taken over by another instance after its lease expired", job.getId());
+        }
+    }
+
+    /**
+     * Drops finished jobs that are older than the retention period.
+     */
+    private void purgeFinishedJobs() {
+        jobQueue.purgeFinished(LocalDateTime.now().minusHours(FINISHED_JOB_RETENTION_HOURS));
+    }
+}
@@ -1,45 +1,70 @@
 package com.fact_checker.FactChecker.service;
 
-import io.reactivex.rxjava3.core.Observable;
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.core.Maybe;
 import io.reactivex.rxjava3.core.Single;
+import org.reactivestreams.FlowAdapters;
 import org.springframework.stereotype.Service;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.StringReader;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.net.URI;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import javax.json.Json;
 import javax.json.JsonObject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import com.fact_checker.FactChecker.config.ExecutorConfig;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 
 /**
  * Implementation of the IGroqApiClient interface for interacting with the Groq API.
  * This class handles the creation of chat completions using both asynchronous and streaming approaches.
+ * Streamed completions are read from the response body as it arrives, and the body is only read as fast
+ * as the subscriber consumes the chunks.
  */
 @Service
 public class GroqApiClientImpl implements IGroqApiClient {
 
+    /** Batches of body buffers requested ahead of the subscriber while a stream is read. */
+    private static final int BODY_PREFETCH = 4;
+
     private final String apiKey;
     private final HttpClient client;
+    private final Duration requestTimeout;
 
     /**
      * Constructor for GroqApiClientImpl.
      * @param apiKey The API key for authenticating with the Groq API.
+     * @param executor The pool of its own the HTTP client runs its callbacks on.
+     * @param connectTimeoutSeconds How long connecting to the API may take.
+     * @param requestTimeoutSeconds How long the API may take to answer a request.
      */
-    public GroqApiClientImpl(@Value("${groq.api.key}") String apiKey) {
+    public GroqApiClientImpl(@Value("${groq.api.key}") String apiKey,
+                             @Qualifier(ExecutorConfig.HTTP_CLIENT_EXECUTOR) ExecutorService executor,
+                             @Value("${http.client.connect-timeout-seconds:10}") long connectTimeoutSeconds,
+                             @Value("${http.client.read-timeout-seconds:300}") long requestTimeoutSeconds) {
         this.apiKey = apiKey;
-        ExecutorService executor = Executors.newCachedThreadPool();
+        this.requestTimeout = Duration.ofSeconds(requestTimeoutSeconds);
         this.client = HttpClient.newBuilder()
                 .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofSeconds(connectTimeoutSeconds))
                 .executor(executor)
                 .build();
     }
 
     /**
      * Creates a chat completion asynchronously.
+     * Disposing the subscription aborts the HTTP request.
      * @param request The JSON object containing the chat completion request.
      * @return A Single emitting a JsonObject with the chat completion response.
      */
@@ -49,14 +74,17 @@ public class GroqApiClientImpl implements IGroqApiClient {
                 .uri(URI.create("https://api.groq.com/openai/v1/chat/completions"))
                 .header("Content-Type", "application/json")
                 .header("Authorization", "Bearer " + apiKey)
+                .timeout(requestTimeout)
                 .POST(HttpRequest.BodyPublishers.ofString(request.toString(), StandardCharsets.UTF_8))
                 .build();
 
         return Single.<HttpResponse<String>>create(emitter -> {
-                    client.sendAsync(httpRequest, HttpResponse.BodyHandlers.ofString())
-                            .thenAccept(emitter::onSuccess)
+                    CompletableFuture<HttpResponse<String>> response =
+                            client.sendAsync(httpRequest, HttpResponse.BodyHandlers.ofString());
+                    emitter.setCancellable(() -> response.cancel(true));
+                    response.thenAccept(emitter::onSuccess)
                             .exceptionally(throwable -> {
-                                emitter.onError(throwable);
+                                emitter.tryOnError(throwable);
                                 return null;
                             });
                 }).map(HttpResponse::body)
@@ -64,50 +92,104 @@ public class GroqApiClientImpl implements IGroqApiClient {
     }
 
     /**
-     * Creates a chat completion asynchronously and returns the result as a StringBuilder.
+     * Creates a chat completion and returns the result as a StringBuilder.
+     * The completion is streamed and its content is appended as it arrives; the calling thread blocks
+     * until the completion is complete.
      * @param request The JSON object containing the chat completion request.
      * @return A StringBuilder containing the chat completion result.
      */
     @Override
     public StringBuilder createChatCompletionAsyncWithResult(JsonObject request) {
-        return null;
+        JsonObject streamingRequest = Json.createObjectBuilder(request).add("stream", true).build();
+        return createChatCompletionStreamAsync(streamingRequest)
+                .map(IGroqApiClient::deltaContent)
+                .collect(StringBuilder::new, StringBuilder::append)
+                .blockingGet();
     }
 
     /**
      * Creates a streaming chat completion asynchronously.
+     * Every server-sent event is parsed and emitted as soon as its line has arrived. The body is read
+     * with backpressure, so a slow subscriber slows down reading instead of buffering the whole response.
+     * Cancelling the subscription aborts the HTTP request.
      * @param request The JSON object containing the chat completion request.
-     * @return An Observable emitting JsonObjects with the streaming chat completion responses.
+     * @return A Flowable emitting JsonObjects with the streaming chat completion responses.
      */
     @Override
-    public Observable<JsonObject> createChatCompletionStreamAsync(JsonObject request) {
+    public Flowable<JsonObject> createChatCompletionStreamAsync(JsonObject request) {
         HttpRequest httpRequest = HttpRequest.newBuilder()
                 .uri(URI.create("https://api.groq.com/openai/v1/chat/completions"))
                 .header("Content-Type", "application/json")
+                .header("Accept", "text/event-stream")
                 .header("Authorization", "Bearer " + apiKey)
+                .timeout(requestTimeout)
                 .POST(HttpRequest.BodyPublishers.ofString(request.toString(), StandardCharsets.UTF_8))
                 .build();
 
-        return Observable.<String>create(emitter -> {
-                    client.sendAsync(httpRequest, HttpResponse.BodyHandlers.ofString()).thenAccept(httpResponse -> {
-                        try {
-                            String[] lines = httpResponse.body().split("\n");
-                            for (String line : lines) {
-                                if (emitter.isDisposed()) {
-                                    break;
+        return Single.<HttpResponse<Flow.Publisher<List<ByteBuffer>>>>create(emitter -> {
+                    CompletableFuture<HttpResponse<Flow.Publisher<List<ByteBuffer>>>> response =
+                            client.sendAsync(httpRequest, HttpResponse.BodyHandlers.ofPublisher());
+                    emitter.setCancellable(() -> response.cancel(true));
+                    response.thenAccept(emitter::onSuccess)
+                            .exceptionally(throwable -> {
+                                emitter.tryOnError(throwable);
+                                return null;
+                            });
+                }).flatMapPublisher(response -> {
+                    Flowable<String> lines = lines(Flowable.fromPublisher(FlowAdapters.toPublisher(response.body())));
+                    if (response.statusCode() / 100 != 2) {
+                        return lines.toList().flatMapPublisher(body -> Flowable.<String>error(new IOException(
+                                "Groq API answered with status " + response.statusCode() + ": " + String.join("\n", body))));
+                    }
+                    return lines;
+                })
+                .compose(GroqApiClientImpl::events);
+    }
+
+    /**
+     * Parses the data lines of a stream of server-sent events into JSON objects, up to the [DONE] event.
+     *
+     * @param lines The lines of the response body
+     * @return A Flowable emitting the parsed events
+     */
+    static Flowable<JsonObject> events(Flowable<String> lines) {
+        return lines.filter(line -> line.startsWith("data:"))
+                .map(line -> line.substring(5).trim())
+                .takeWhile(jsonData -> !jsonData.equals("[DONE]"))
+                .map(jsonData -> Json.createReader(new StringReader(jsonData)).readObject());
+    }
+
+    /**
+     * Cuts a response body into lines as its buffers arrive. Lines are split on the raw newline bytes
+     * before they are decoded, so characters whose bytes span two buffers are decoded correctly.
+     *
+     * @param body The buffers of the response body
+     * @return A Flowable emitting the lines without their line terminators
+     */
+    static Flowable<String> lines(Flowable<List<ByteBuffer>> body) {
+        return Flowable.defer(() -> {
+            ByteArrayOutputStream pending = new ByteArrayOutputStream();
+            return body.concatMapIterable(buffers -> {
+                        List<String> lines = new ArrayList<>();
+                        for (ByteBuffer buffer : buffers) {
+                            while (buffer.hasRemaining()) {
+                                byte next = buffer.get();
+                                if (next == '\n') {
+                                    lines.add(takeLine(pending));
+                                } else {
+                                    pending.write(next);
                                 }
-                                emitter.onNext(line);
                             }
-                            emitter.onComplete();
-                        } catch (Exception e) {
-                            emitter.onError(e);
                         }
-                    }).exceptionally(throwable -> {
-                        emitter.onError(throwable);
-                        return null;
-                    });
-                }).filter(line -> line.startsWith("data: "))
-                .map(line -> line.substring(6))
-                .filter(jsonData -> !jsonData.equals("[DONE]"))
-                .map(jsonData -> Json.createReader(new StringReader(jsonData)).readObject());
+                        return lines;
+                    }, BODY_PREFETCH)
+                    .concatWith(Maybe.fromCallable(() -> pending.size() == 0 ? null : takeLine(pending)));
+        });
+    }
+
+    private static String takeLine(ByteArrayOutputStream pending) {
+        String line = pending.toString(StandardCharsets.UTF_8);
+        pending.reset();
+        return line.endsWith("\r") ? line.substring(0, line.length() - 1) : line;
     }
 }
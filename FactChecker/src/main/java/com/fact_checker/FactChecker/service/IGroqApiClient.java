@@ -1,8 +1,9 @@
 package com.fact_checker.FactChecker.service;
 
-import io.reactivex.rxjava3.core.Observable;
+import io.reactivex.rxjava3.core.Flowable;
 import io.reactivex.rxjava3.core.Single;
 
+import javax.json.JsonArray;
 import javax.json.JsonObject;
 
 /**
@@ -21,18 +22,34 @@ public interface IGroqApiClient {
     Single<JsonObject> createChatCompletionAsync(JsonObject request);
 
     /**
-     * Creates a chat completion asynchronously and returns the result as a StringBuilder.
+     * Creates a chat completion and waits for its result.
      *
      * @param request The JSON object containing the chat completion request.
-     * @return A StringBuilder containing the chat completion result.
+     * @return A StringBuilder containing the content of the chat completion.
      */
     StringBuilder createChatCompletionAsyncWithResult(JsonObject request);
 
     /**
      * Creates a streaming chat completion asynchronously.
+     * The request must ask for a stream. Chunks are emitted as they arrive, no faster than they are requested.
      *
      * @param request The JSON object containing the chat completion request.
-     * @return An Observable emitting JsonObjects with the streaming chat completion responses.
+     * @return A Flowable emitting JsonObjects with the streaming chat completion responses.
      */
-    Observable<JsonObject> createChatCompletionStreamAsync(JsonObject request);
+    Flowable<JsonObject> createChatCompletionStreamAsync(JsonObject request);
+
+    /**
+     * Extracts the text a chunk of a streaming chat completion adds.
+     *
+     * @param chunk A chunk of the stream
+     * @return The content of its delta, or an empty string if it carries none
+     */
+    static String deltaContent(JsonObject chunk) {
+        JsonArray choices = chunk.getJsonArray("choices");
+        if (choices == null || choices.isEmpty()) {
+            return "";
+        }
+        JsonObject delta = choices.getJsonObject(0).getJsonObject("delta");
+        return delta == null ? "" : delta.getString("content", "");
+    }
 }
@@ -0,0 +1,280 @@
+package com.fact_checker.FactChecker.service;
+
+import com.fact_checker.FactChecker.config.SchedulerProperties;
+import com.fact_checker.FactChecker.model.FactCheckJob;
+import com.fact_checker.FactChecker.model.JobStage;
+import com.fact_checker.FactChecker.repository.FactCheckJobRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Service class for the durable queue of fact-check jobs shared by all instances of the application.
+ * An instance claims a job by taking a lease on it: the row is locked with FOR UPDATE SKIP LOCKED, so
+ * concurrent instances never claim the same job and never wait for each other, and the lease is written
+ * in the same transaction. The owner renews the leases of the jobs it holds while they wait and run.
+ * When an instance dies its leases expire and the jobs are claimed again by another instance; a job
+ * that has been started too often without finishing is failed instead of being retried forever.
+ * A user may hold only as many leases across all instances as they may run jobs at the same time, so
+ * adding instances does not raise the per-user limit. Two instances that claim at the same moment
+ * may each take the last free slot of a user, so the limit can briefly be exceeded by one job per
+ * concurrently claiming instance.
+ * Lease times are compared in UTC, so instances in different time zones agree on them.
+ */
+@Service
+public class JobQueueService {
+
+    private static final Logger logger = LoggerFactory.getLogger(JobQueueService.class);
+
+    private final FactCheckJobRepository jobRepository;
+    private final String nodeId;
+    private final Duration leaseDuration;
+    private final int maxAttempts;
+    private final int maxLeasedJobsPerUser;
+    private final Clock clock;
+
+    /**
+     * Constructor for JobQueueService.
+     *
+     * @param jobRepository Repository of the jobs table
+     * @param nodeId        Name of this instance in the lease columns, generated from the host name if blank
+     * @param leaseSeconds  Seconds a claimed job stays reserved for this instance without renewal
+     * @param maxAttempts   Number of times a job may be started before it is failed
+     * @param properties    Per-user limits; the running limit caps the leases of a user
+     */
+    @Autowired
+    public JobQueueService(FactCheckJobRepository jobRepository,
+                           @Value("${fact-check.jobs.node-id:}") String nodeId,
+                           @Value("${fact-check.jobs.lease-seconds:120}") long leaseSeconds,
+                           @Value("${fact-check.jobs.max-attempts:3}") int maxAttempts,
+                           SchedulerProperties properties) {
+        this(jobRepository, nodeId.isBlank() ? defaultNodeId() : nodeId, Duration.ofSeconds(leaseSeconds),
+                maxAttempts, properties.getMaxRunningJobsPerUser(), Clock.systemUTC());
+    }
+
+    JobQueueService(FactCheckJobRepository jobRepository, String nodeId, Duration leaseDuration, int maxAttempts,
+                    int maxLeasedJobsPerUser, Clock clock) {
+        this.jobRepository = jobRepository;
+        this.nodeId = nodeId;
+        this.leaseDuration = leaseDuration;
+        this.maxAttempts = maxAttempts;
+        this.maxLeasedJobsPerUser = maxLeasedJobsPerUser;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the name under which this instance holds leases.
+     *
+     * @return the node id
+     */
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Returns the number of times a job may be started before it is failed.
+     *
+     * @return the maximum number of attempts
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Adds a job to the queue without a lease, so that any instance may claim it.
+     *
+     * @param job The job to add
+     * @return The stored job
+     */
+    @Transactional
+    public FactCheckJob add(FactCheckJob job) {
+        return jobRepository.save(job);
+    }
+
+    /**
+     * Claims up to the given number of unfinished jobs whose lease is free or has expired, earliest
+     * virtual deadline first. Jobs that were started the maximum number of times without finishing
+     * are failed instead of claimed, and jobs of users who hold as many leases as they may run jobs
+     * are left for later.
+     *
+     * @param limit The maximum number of jobs to claim
+     * @return The claimed jobs, leased to this instance
+     */
+    @Transactional
+    public List<FactCheckJob> claim(int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        LocalDateTime now = LocalDateTime.now(clock);
+        List<FactCheckJob> claimed = new ArrayList<>();
+        // The query only checks the leases held before this claim, so count the ones taken in it as well
+        Map<Long, Long> leasedJobs = new HashMap<>();
+        for (FactCheckJob job : jobRepository.lockClaimable(now, maxLeasedJobsPerUser, limit)) {
+            if (job.getLeaseOwner() != null) {
+                logger.warn("Lease of {} on job {} expired, claiming it again", job.getLeaseOwner(), job.getId());
+            }
+            if (job.getAttempts() >= maxAttempts) {
+                job.setErrorMessage("The job was interrupted too many times.");
+                job.setLeaseOwner(null);
+                job.setLeaseExpiresAt(null);
+                job.advanceTo(JobStage.FAILED);
+                continue;
+            }
+            long leased = leasedJobs.computeIfAbsent(job.getUserId(), userId -> jobRepository.countLeased(userId, now));
+            if (leased >= maxLeasedJobsPerUser) {
+                continue;
+            }
+            leasedJobs.put(job.getUserId(), leased + 1);
+            job.setLeaseOwner(nodeId);
+            job.setLeaseExpiresAt(now.plus(leaseDuration));
+            claimed.add(job);
+        }
+        return claimed;
+    }
+
+    /**
+     * Saves the progress of a job this instance holds. The lease is extended while the job is unfinished
+     * and dropped once it is finished.
+     *
+     * @param job The job to save
+     * @throws org.springframework.orm.ObjectOptimisticLockingFailureException if another instance took
+     *                                                                         the job over meanwhile
+     */
+    @Transactional
+    public void update(FactCheckJob job) {
+        if (job.getStage().isTerminal()) {
+            job.setLeaseOwner(null);
+            job.setLeaseExpiresAt(null);
+        } else {
+            job.setLeaseExpiresAt(LocalDateTime.now(clock).plus(leaseDuration));
+        }
+        save(job);
+    }
+
+    /**
+     * Gives up the lease on a job whose current attempt failed, so that any instance may retry it once
+     * the delay has passed. The job keeps its stage and checkpoints and resumes where it stopped.
+     *
+     * @param job   The job to retry
+     * @param delay The time to wait before the job may be claimed again
+     */
+    @Transactional
+    public void retryLater(FactCheckJob job, Duration delay) {
+        job.setLeaseOwner(null);
+        job.setLeaseExpiresAt(LocalDateTime.now(clock).plus(delay));
+        save(job);
+    }
+
+    /**
+     * Gives up the lease on a job that has not been started, so that any instance may claim it again.
+     *
+     * @param job The job to release
+     */
+    @Transactional
+    public void release(FactCheckJob job) {
+        job.setLeaseOwner(null);
+        job.setLeaseExpiresAt(null);
+        save(job);
+    }
+
+    /**
+     * Extends the leases this instance holds on the given jobs.
+     *
+     * @param jobIds The ids of the jobs held by this instance
+     */
+    @Transactional
+    public void renewLeases(Collection<String> jobIds) {
+        if (!jobIds.isEmpty()) {
+            jobRepository.renewLeases(nodeId, jobIds, LocalDateTime.now(clock).plus(leaseDuration));
+        }
+    }
+
+    /**
+     * Finds the jobs among the given ones that have been cancelled, so that the instance holding them
+     * can stop working on them.
+     *
+     * @param jobIds The ids of the jobs held by this instance
+     * @return The ids of the cancelled jobs
+     */
+    public List<String> findCancelled(Collection<String> jobIds) {
+        if (jobIds.isEmpty()) {
+            return List.of();
+        }
+        return jobRepository.findByIdInAndStage(jobIds, JobStage.CANCELLED).stream()
+                .map(FactCheckJob::getId)
+                .toList();
+    }
+
+    /**
+     * Looks up a job.
+     *
+     * @param jobId The id of the job
+     * @return The job, or empty if it does not exist
+     */
+    public Optional<FactCheckJob> find(String jobId) {
+        return jobRepository.findById(jobId);
+    }
+
+    /**
+     * Counts the jobs waiting for a worker on any instance.
+     *
+     * @return the number of queued jobs
+     */
+    public long countQueued() {
+        return jobRepository.countByStage(JobStage.QUEUED);
+    }
+
+    /**
+     * Counts the jobs of a user waiting for a worker on any instance.
+     *
+     * @param userId The id of the user
+     * @return the number of queued jobs of the user
+     */
+    public long countQueued(Long userId) {
+        return jobRepository.countByUserIdAndStage(userId, JobStage.QUEUED);
+    }
+
+    /**
+     * Deletes finished jobs that have not changed since the given date.
+     *
+     * @param cutoff The cut-off date
+     */
+    @Transactional
+    public void purgeFinished(LocalDateTime cutoff) {
+        jobRepository.deleteByStageInAndUpdatedAtBefore(EnumSet.of(JobStage.COMPLETED, JobStage.FAILED, JobStage.CANCELLED), cutoff);
+    }
+
+    /**
+     * Saves a job and carries the new version over to the given instance, which the caller keeps using.
+     */
+    private void save(FactCheckJob job) {
+        job.setVersion(jobRepository.saveAndFlush(job).getVersion());
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "node";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
@@ -0,0 +1,336 @@
+package com.fact_checker.FactChecker.service;
+
+import com.fact_checker.FactChecker.config.SchedulerProperties;
+import com.fact_checker.FactChecker.exceptions.QuotaExceededException;
+import com.fact_checker.FactChecker.model.FactCheckJob;
+import com.fact_checker.FactChecker.model.StoredUpload;
+import com.fact_checker.FactChecker.model.User;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.TreeSet;
+
+/**
+ * Orders the fact-check jobs waiting for a worker: fairly between users, and shortest job first with aging
+ * within the jobs of a user.
+ * Workers go to the user who has received the least service so far, counted in estimated seconds of video
+ * divided by the weight of the user, so a user who uploads many videos at once only gets their share of the
+ * workers and a user with a single clip does not wait behind all of them. A user who becomes active again
+ * starts at the service of the least served waiting user, so idle time cannot be saved up for a burst.
+ * Among the jobs of a user, every job gets a virtual deadline when it is queued, its submission time plus
+ * its estimated cost scaled by the aging factor, and the job with the earliest deadline runs first: short
+ * clips overtake long videos, and a long video cannot starve because later jobs eventually get later
+ * deadlines. Between users with the same service the earliest deadline wins as well. An aging factor of 0
+ * degrades to FIFO.
+ * Aged long videos tend to become due together and could then occupy every worker for an hour, so long
+ * jobs may only take a limited number of workers at a time and the remaining ones keep serving short clips.
+ * Each user may also only have a limited number of jobs running and waiting, so a single account cannot
+ * take all workers and the API quota behind them.
+ * The scheduler orders the jobs an instance has claimed from the durable queue; the queue hands out jobs
+ * by the same virtual deadline, so the order holds across instances as well.
+ * The cost of a job is the probed duration of its video, falling back to an estimate from the file size.
+ */
+@Component
+public class JobScheduler {
+
+    /** Seconds every job costs regardless of its length, for the API round trips of the pipeline. */
+    static final double FIXED_COST_SECONDS = 30;
+
+    /** Bit rate assumed for uploads without a probed duration, about 2 Mbit/s. */
+    static final double ASSUMED_BYTES_PER_SECOND = 250_000;
+
+    /** Cost assumed for uploads of which neither the duration nor the size is known. */
+    static final double DEFAULT_COST_SECONDS = 600;
+
+    private static final Comparator<ScheduledJob> DEADLINE_ORDER =
+            Comparator.comparingLong(ScheduledJob::getVirtualDeadlineMillis).thenComparingLong(ScheduledJob::getSequence);
+
+    private final SchedulerProperties properties;
+    private final Clock clock;
+    private final MeterRegistry meterRegistry;
+    private final Timer waitTimer;
+    private final Map<Long, UserShare> shares = new HashMap<>();
+    private long sequence;
+    private int queuedJobs;
+    private int runningLongJobs;
+
+    /**
+     * Constructor for JobScheduler.
+     *
+     * @param properties    Ordering and per-user limits
+     * @param meterRegistry Registry the queue metrics are published to
+     */
+    @Autowired
+    public JobScheduler(SchedulerProperties properties, MeterRegistry meterRegistry) {
+        this(properties, Clock.systemUTC(), meterRegistry);
+    }
+
+    JobScheduler(SchedulerProperties properties, Clock clock, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.clock = clock;
+        this.meterRegistry = meterRegistry;
+        this.waitTimer = Timer.builder("fact-check.jobs.wait")
+                .description("Time jobs spend queued before a worker picks them up")
+                .publishPercentiles(0.5, 0.95)
+                .register(meterRegistry);
+        Gauge.builder("fact-check.jobs.queued", this, JobScheduler::size)
+                .description("Jobs waiting for a worker")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Checks whether a user may queue another job, so that an upload over quota can be refused
+     * before it is stored.
+     *
+     * @param user       The user about to submit a job
+     * @param queuedJobs The number of jobs of the user waiting on any instance
+     * @throws QuotaExceededException if the user has as many jobs queued as allowed
+     */
+    public void checkQuota(User user, long queuedJobs) {
+        if (queuedJobs >= properties.getMaxQueuedJobsPerUser()) {
+            meterRegistry.counter("fact-check.jobs.user.rejected", "user", String.valueOf(user.getId())).increment();
+            throw new QuotaExceededException("You already have " + queuedJobs
+                    + " videos waiting, please wait until some of them are done.");
+        }
+    }
+
+    /**
+     * Gives a job its virtual deadline: the current time plus its estimated cost scaled by the aging factor.
+     * Jobs that already have one keep it, so a job claimed again after its instance died is not sent
+     * to the back of the queue.
+     *
+     * @param job The job about to be queued
+     */
+    public void assignDeadline(FactCheckJob job) {
+        if (job.getVirtualDeadlineMillis() == null) {
+            double cost = estimateCost(job.getUpload());
+            job.setVirtualDeadlineMillis(clock.millis() + Math.round(properties.getAgingFactor() * cost * 1000));
+        }
+    }
+
+    /**
+     * Queues a job on this instance.
+     *
+     * @param job  The job to queue
+     * @param user The user who submitted the job
+     * @return The queued entry
+     */
+    public synchronized ScheduledJob enqueue(FactCheckJob job, User user) {
+        UserShare share = shares.computeIfAbsent(user.getId(), this::newShare);
+        if (share.queue.isEmpty()) {
+            share.service = Math.max(share.service, leastWaitingService());
+        }
+        assignDeadline(job);
+        ScheduledJob scheduledJob = new ScheduledJob(job, user, estimateCost(job.getUpload()), clock.millis(),
+                job.getVirtualDeadlineMillis(), sequence++);
+        share.queue.add(scheduledJob);
+        share.weight = weight(user);
+        queuedJobs++;
+        return scheduledJob;
+    }
+
+    /**
+     * Takes the next job off the queue: the earliest deadline of the least served user, skipping users who
+     * have as many jobs running as allowed and long jobs while all slots for long jobs are taken.
+     * Every job taken must be handed back to {@link #complete(ScheduledJob)}.
+     *
+     * @return The next job to run, or empty if no job is waiting or may start now
+     */
+    public synchronized Optional<ScheduledJob> poll() {
+        UserShare bestShare = null;
+        ScheduledJob best = null;
+        for (UserShare share : shares.values()) {
+            if (share.running >= properties.getMaxRunningJobsPerUser()) {
+                continue;
+            }
+            ScheduledJob candidate = share.queue.stream()
+                    .filter(job -> !isLong(job) || runningLongJobs < properties.getLongJobSlots())
+                    .findFirst()
+                    .orElse(null);
+            if (candidate != null && (best == null || share.service < bestShare.service
+                    || (share.service == bestShare.service && DEADLINE_ORDER.compare(candidate, best) < 0))) {
+                bestShare = share;
+                best = candidate;
+            }
+        }
+        if (best == null) {
+            return Optional.empty();
+        }
+        bestShare.queue.remove(best);
+        bestShare.running++;
+        bestShare.service += best.getEstimatedCostSeconds() / bestShare.weight;
+        queuedJobs--;
+        if (isLong(best)) {
+            runningLongJobs++;
+        }
+        waitTimer.record(Duration.ofMillis(clock.millis() - best.getSubmittedAtMillis()));
+        return Optional.of(best);
+    }
+
+    /**
+     * Records that a job taken with {@link #poll()} has finished, successfully or not.
+     *
+     * @param scheduledJob The finished job
+     */
+    public synchronized void complete(ScheduledJob scheduledJob) {
+        UserShare share = shares.get(scheduledJob.getUser().getId());
+        share.running--;
+        if (isLong(scheduledJob)) {
+            runningLongJobs--;
+        }
+        releaseIfIdle(share);
+    }
+
+    /**
+     * Removes a job that has not been picked up yet.
+     *
+     * @param job The job to remove
+     * @return true if the job was still queued
+     */
+    public synchronized boolean remove(FactCheckJob job) {
+        for (UserShare share : shares.values()) {
+            if (share.queue.removeIf(scheduledJob -> scheduledJob.getJob() == job)) {
+                queuedJobs--;
+                releaseIfIdle(share);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the number of jobs waiting for a worker.
+     *
+     * @return the queue length
+     */
+    public synchronized int size() {
+        return queuedJobs;
+    }
+
+    private synchronized int queuedJobs(Long userId) {
+        UserShare share = shares.get(userId);
+        return share == null ? 0 : share.queue.size();
+    }
+
+    private synchronized int runningJobs(Long userId) {
+        UserShare share = shares.get(userId);
+        return share == null ? 0 : share.running;
+    }
+
+    /**
+     * Creates the share of a user who becomes active, together with the gauges of their jobs.
+     * The gauges live as long as the share, so only active users are published.
+     */
+    private UserShare newShare(Long userId) {
+        String user = String.valueOf(userId);
+        Gauge queued = Gauge.builder("fact-check.jobs.user.queued", this, scheduler -> scheduler.queuedJobs(userId))
+                .description("Jobs of the user waiting for a worker")
+                .tag("user", user)
+                .register(meterRegistry);
+        Gauge running = Gauge.builder("fact-check.jobs.user.running", this, scheduler -> scheduler.runningJobs(userId))
+                .description("Jobs of the user being processed")
+                .tag("user", user)
+                .register(meterRegistry);
+        return new UserShare(userId, List.of(queued.getId(), running.getId()));
+    }
+
+    /**
+     * Forgets users without queued or running jobs and removes their gauges, so the scheduler and the
+     * meter registry only keep state for active users.
+     */
+    private void releaseIfIdle(UserShare share) {
+        if (share.queue.isEmpty() && share.running == 0) {
+            shares.remove(share.userId);
+            share.meterIds.forEach(meterRegistry::remove);
+        }
+    }
+
+    private double leastWaitingService() {
+        return shares.values().stream()
+                .filter(share -> !share.queue.isEmpty())
+                .mapToDouble(share -> share.service)
+                .min()
+                .orElse(0);
+    }
+
+    private boolean isLong(ScheduledJob scheduledJob) {
+        return scheduledJob.getEstimatedCostSeconds() > properties.getLongJobSeconds();
+    }
+
+    private double weight(User user) {
+        return user.getRoles().stream()
+                .map(properties.getRoleWeights()::get)
+                .filter(weight -> weight != null && weight > 0)
+                .max(Double::compare)
+                .orElse(1.0);
+    }
+
+    /**
+     * Estimates the processing cost of an upload in seconds of video.
+     *
+     * @param upload The stored upload
+     * @return The estimated cost
+     */
+    public static double estimateCost(StoredUpload upload) {
+        if (upload.getMetadata() != null && upload.getMetadata().getDurationSeconds() != null) {
+            return FIXED_COST_SECONDS + upload.getMetadata().getDurationSeconds();
+        }
+        if (upload.getSizeBytes() > 0) {
+            return FIXED_COST_SECONDS + upload.getSizeBytes() / ASSUMED_BYTES_PER_SECOND;
+        }
+        return DEFAULT_COST_SECONDS;
+    }
+
+    /**
+     * The jobs of a single user and the service they have received while active.
+     */
+    private static class UserShare {
+        private final Long userId;
+        private final List<Meter.Id> meterIds;
+        private final NavigableSet<ScheduledJob> queue = new TreeSet<>(DEADLINE_ORDER);
+        private int running;
+        private double service;
+        private double weight = 1.0;
+
+        UserShare(Long userId, List<Meter.Id> meterIds) {
+            this.userId = userId;
+            this.meterIds = meterIds;
+        }
+    }
+
+    /**
+     * A queued job together with its scheduling keys.
+     */
+    @Getter
+    public static class ScheduledJob {
+        private final FactCheckJob job;
+        private final User user;
+        private final double estimatedCostSeconds;
+        private final long submittedAtMillis;
+        private final long virtualDeadlineMillis;
+        private final long sequence;
+
+        ScheduledJob(FactCheckJob job, User user, double estimatedCostSeconds, long submittedAtMillis,
+                     long virtualDeadlineMillis, long sequence) {
+            this.job = job;
+            this.user = user;
+            this.estimatedCostSeconds = estimatedCostSeconds;
+            this.submittedAtMillis = submittedAtMillis;
+            this.virtualDeadlineMillis = virtualDeadlineMillis;
+            this.sequence = sequence;
+        }
+    }
+}
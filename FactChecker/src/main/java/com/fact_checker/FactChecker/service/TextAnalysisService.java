@@ -1,16 +1,31 @@
 package com.fact_checker.FactChecker.service;
 import com.fact_checker.FactChecker.model.Video;
 import com.fact_checker.FactChecker.repository.VideoRepository;
+import com.fact_checker.FactChecker.service.ArtifactCache.ArtifactType;
+import com.knuddels.jtokkit.api.Encoding;
+import com.fact_checker.FactChecker.exceptions.DeadlineExceededException;
+import io.reactivex.rxjava3.core.Flowable;
 import io.reactivex.rxjava3.core.Single;
+import io.reactivex.rxjava3.functions.Function;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+import org.reactivestreams.Publisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
 
 import javax.json.*;
 import java.io.StringReader;
 import java.util.*;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -28,9 +43,24 @@ import java.util.regex.Pattern;
  * - Calculates an overall fact percentage for the video
  * - Identifies false statements within the video content
  *
+ * The Groq calls, the retries of failed calls and the delays between them are composed as one RxJava
+ * chain that runs on the threads of the HTTP client and the RxJava schedulers. No thread waits for an
+ * analysis that is in flight unless the caller blocks on it, so many analyses can run at the same time.
+ * Claims are scored in batches of a bounded number of tokens, several batches at a time, so a long
+ * transcript does not turn into one oversized request, and a failed batch is retried on its own.
+ * Claim extraction is streamed: every claim is passed on as soon as the asterisk that ends it arrives,
+ * and a batch is scored as soon as it is full, so scoring overlaps with the generation of later claims.
+ * Long transcripts are cut into overlapping windows whose claims are extracted in parallel.
+ * Scores are kept per claim in a global index shared by all videos, and only claims the index has not
+ * seen are sent to the Groq API.
+ *
  * Dependencies:
  * - IGroqApiClient: Interface for interacting with the Groq API
  * - VideoRepository: Repository for persisting Video entities
+ * - ArtifactCache: Cache for the claims extracted from a transcription
+ * - ClaimIndex: Global index of the claims that have been rated before
+ * - Encoding: Tokenizer used to estimate the size of the scoring batches
+ * - TranscriptWindower: Splits long transcripts into windows for claim extraction
  * - Groq API key: Configured via application properties
  *
  * Usage:
@@ -43,7 +73,16 @@ public class TextAnalysisService {
     private final String apiKey;
     private static final Logger logger = LoggerFactory.getLogger(TextAnalysisService.class);
     private static final double LOW_PERCENTAGE_THRESHOLD = 0.5;
+    /** Tokens a claim takes in a batch besides its text, for the quotes and separators around it. */
+    private static final int CLAIM_OVERHEAD_TOKENS = 4;
     private final VideoRepository videoRepository;
+    private final ArtifactCache artifactCache;
+    private final ClaimIndex claimIndex;
+    private final Encoding encoding;
+    private final TranscriptWindower transcriptWindower;
+    private final int batchTokens;
+    private final int maxConcurrentBatches;
+    private final int maxConcurrentWindows;
 
     /**
      * Constructor for TextAnalysisService.
@@ -51,11 +90,30 @@ public class TextAnalysisService {
      * @param apiClient The Groq API client
      * @param apiKey The API key for Groq, injected from application properties
      * @param videoRepository The repository for Video entities
+     * @param artifactCache The cache holding extracted claims
+     * @param claimIndex The index of previously rated claims
+     * @param encoding The tokenizer used to size the scoring batches
+     * @param transcriptWindower Splits long transcripts into windows for claim extraction
+     * @param batchTokens Tokens of claim text sent in one scoring request
+     * @param maxConcurrentBatches Scoring requests of one analysis that may be in flight at the same time
+     * @param maxConcurrentWindows Extraction requests of one analysis that may be in flight at the same time
      */
-    public TextAnalysisService(IGroqApiClient apiClient, @Value("${groq.api.key}") String apiKey, VideoRepository videoRepository) {
+    public TextAnalysisService(IGroqApiClient apiClient, @Value("${groq.api.key}") String apiKey, VideoRepository videoRepository,
+                               ArtifactCache artifactCache, ClaimIndex claimIndex, Encoding encoding,
+                               TranscriptWindower transcriptWindower,
+                               @Value("${claims.scoring.batch-tokens:1000}") int batchTokens,
+                               @Value("${claims.scoring.max-concurrent-batches:4}") int maxConcurrentBatches,
+                               @Value("${claims.extraction.max-concurrent-windows:4}") int maxConcurrentWindows) {
         this.apiClient = apiClient;
         this.apiKey = apiKey;
         this.videoRepository = videoRepository;
+        this.artifactCache = artifactCache;
+        this.claimIndex = claimIndex;
+        this.encoding = encoding;
+        this.transcriptWindower = transcriptWindower;
+        this.batchTokens = batchTokens;
+        this.maxConcurrentBatches = maxConcurrentBatches;
+        this.maxConcurrentWindows = maxConcurrentWindows;
     }
 
     /**
@@ -73,14 +131,107 @@ public class TextAnalysisService {
      * @return The average fact score as a percentage (0-100)
      */
     public double analyzeText(Video video) {
-        String transcriptionText = video.getTranscriptionText();
-        List<String> claims = generateClaimsSeparatedByAsterisks(transcriptionText);
-        Map<String, Double> scoredClaims = rateClaimsByFacts(claims);
+        return analyzeText(video, Deadline.none());
+    }
+
+    /**
+     * Analyzes the transcription text of a video for factual accuracy within the time a job has left,
+     * see {@link #analyzeText(Video)}.
+     *
+     * @param video The Video entity to analyze
+     * @param deadline Deadline of the job the video belongs to
+     * @return The average fact score as a percentage (0-100)
+     * @throws java.util.concurrent.CancellationException if the job is cancelled
+     * @throws com.fact_checker.FactChecker.exceptions.DeadlineExceededException if the job runs out of time
+     */
+    public double analyzeText(Video video, Deadline deadline) {
+        Map<String, Double> scoredClaims = scoreClaims(video.getTranscriptionText(), deadline);
 
         if (scoredClaims == null) {
             return 0;
         }
 
+        double averageScore = applyScores(video, scoredClaims);
+
+        videoRepository.save(video);
+
+        return averageScore;
+    }
+
+    /**
+     * Extracts the claims of a transcription and rates them, without touching any video.
+     * This lets the claims be rated while the rest of the video is still being processed.
+     *
+     * @param transcriptionText The transcription to analyze
+     * @param deadline Deadline of the job the transcription belongs to
+     * @return A map of claims and their corresponding fact scores, empty if the transcription makes no
+     *         factual claims, or null if the claims could not be rated
+     * @throws java.util.concurrent.CancellationException if the job is cancelled
+     * @throws com.fact_checker.FactChecker.exceptions.DeadlineExceededException if the job runs out of time
+     */
+    public Map<String, Double> scoreClaims(String transcriptionText, Deadline deadline) {
+        CompletableFuture<Map<String, Double>> scores = scoreClaimsAsync(transcriptionText, deadline);
+        try {
+            return scores.get();
+        } catch (InterruptedException e) {
+            scores.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Claim analysis was interrupted");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : new CompletionException(e.getCause());
+        }
+    }
+
+    /**
+     * Extracts the claims of a transcription and rates them without blocking the calling thread.
+     * The analysis gives up once the deadline passes, and cancelling the deadline or the returned future
+     * aborts the Groq call in flight and any pending retry.
+     *
+     * @param transcriptionText The transcription to analyze
+     * @param deadline Deadline of the job the transcription belongs to
+     * @return A future of the claims and their fact scores, completed with an empty map if there are no
+     *         claims, with null if the claims could not be rated, or failed with a {@link CancellationException} or {@link DeadlineExceededException}
+     *         if the job is cancelled or runs out of time
+     */
+    public CompletableFuture<Map<String, Double>> scoreClaimsAsync(String transcriptionText, Deadline deadline) {
+        Single<Optional<Map<String, Double>>> analysis = rateClaimsByFacts(extractClaims(transcriptionText, deadline), deadline)
+                .map(Optional::of)
+                .onErrorResumeNext(error -> {
+                    if (isJobOver(error)) {
+                        return Single.error(error);
+                    }
+                    logger.error("Failed to rate claims after {} attempts", MAX_RETRIES);
+                    return Single.just(Optional.empty());
+                });
+        if (deadline.isBounded()) {
+            analysis = analysis.timeout(deadline.remaining().toNanos(), TimeUnit.NANOSECONDS,
+                    Single.error(() -> new DeadlineExceededException("The job ran out of time")));
+        }
+        CompletableFuture<Optional<Map<String, Double>>> scoring = analysis.toCompletionStage().toCompletableFuture();
+        CompletableFuture<Map<String, Double>> scores = scoring.thenApply(scoredClaims -> scoredClaims.orElse(null));
+
+        // Cancelling the future disposes the chain, which aborts the HTTP request in flight
+        Deadline.Registration registration = deadline.onCancel(() -> scores.cancel(true));
+        scores.whenComplete((scoredClaims, error) -> {
+            registration.close();
+            if (scores.isCancelled()) {
+                scoring.cancel(true);
+            }
+        });
+        return scores;
+    }
+
+    /**
+     * Sets the fact percentage and the false statements of a video from the scores of its claims,
+     * and links the video to its claims in the claim index.
+     * A video without factual claims gets a fact percentage of 0 and no false statements, which marks
+     * its analysis as done. The video is not persisted.
+     *
+     * @param video The video the claims were extracted from
+     * @param scoredClaims A map of claims and their corresponding fact scores
+     * @return The average fact score as a percentage (0-100)
+     */
+    public double applyScores(Video video, Map<String, Double> scoredClaims) {
         double averageScore = getAverageScore(scoredClaims);
 
         video.setFactPercentage(averageScore);
@@ -88,12 +239,54 @@ public class TextAnalysisService {
         List<String> falseClaims = getFalseClaims(scoredClaims);
 
         video.setFalseStatements(falseClaims);
-
-        videoRepository.save(video);
+        video.setClaims(claimIndex.find(scoredClaims.keySet()));
 
         return averageScore;
     }
 
+    /**
+     * Extracts the claims of a transcription, reusing the claims extracted from the same text before.
+     * Only complete extractions are cached, so a retry after a failed scoring request does not pay
+     * for the extraction again.
+     *
+     * @param transcriptionText The transcription to divide into claims
+     * @param deadline Deadline of the job
+     * @return A flowable emitting distinct factual claims as they are extracted from the windows of the
+     *         transcription, which fails if the extraction of a window fails
+     */
+    private Flowable<String> extractClaims(String transcriptionText, Deadline deadline) {
+        return Flowable.defer(() -> {
+            String claimsKey = ArtifactCache.digest(transcriptionText);
+            Optional<String> cachedClaims = artifactCache.getString(ArtifactType.CLAIMS, claimsKey);
+            if (cachedClaims.isPresent()) {
+                try (JsonReader jsonReader = Json.createReader(new StringReader(cachedClaims.get()))) {
+                    List<String> claims = jsonReader.readArray().getValuesAs(JsonString::getString);
+                    logger.info("Reusing {} claims extracted before", claims.size());
+                    return Flowable.fromIterable(claims);
+                }
+            }
+
+            List<String> windows = transcriptWindower.split(transcriptionText);
+            if (windows.size() > 1) {
+                logger.info("Extracting claims from {} windows of the transcription", windows.size());
+            }
+            List<String> claims = new ArrayList<>();
+            return Flowable.fromIterable(windows)
+                    .flatMap(window -> generateClaimsSeparatedByAsterisks(window, deadline), false, maxConcurrentWindows)
+                    // Claims from the overlap of two windows, or repeated by a retried call, come twice
+                    .distinct(ClaimIndex::hash)
+                    .doOnNext(claims::add)
+                    .doOnComplete(() -> {
+                        logger.info("Extracted {} claims", claims.size());
+                        if (!claims.isEmpty()) {
+                            JsonArrayBuilder claimsArray = Json.createArrayBuilder();
+                            claims.forEach(claimsArray::add);
+                            artifactCache.putString(ArtifactType.CLAIMS, claimsKey, claimsArray.build().toString());
+                        }
+                    });
+        });
+    }
+
     /**
      * Identifies claims that are considered false based on their fact score.
      *
@@ -125,88 +318,249 @@ public class TextAnalysisService {
     private static final long RETRY_DELAY_MS = 1000; // 1 second
 
     /**
-     * Rates the factual accuracy of a list of claims using the Groq API.
+     * Rates the factual accuracy of claims while they are being extracted.
      *
-     * This method includes retry logic to handle potential API failures.
+     * Claims used recently are answered from the hot set of the claim index as they arrive. The
+     * remaining claims are packed into token-bounded batches, of which up to maxConcurrentBatches are
+     * looked up and scored at once. A batch is looked up as soon as it is full, and the last one once all
+     * claims are known. Only the claims of a batch that the index has not seen are sent to the Groq API,
+     * and their scores are recorded for later videos as soon as they arrive. A batch that fails for good
+     * fails the analysis, since a score over part of the claims would be wrong; the other batches still
+     * finish and are recorded first, so the retried job only sends the claims that are missing.
      *
-     * @param claims A list of factual claims to be evaluated
-     * @return A map of claims and their corresponding fact scores, or null if all attempts fail
+     * @param claims The factual claims to be evaluated, as they are extracted
+     * @param deadline Deadline of the job
+     * @return A single emitting a map of claims and their corresponding fact scores, which is empty if
+     *         there were no claims to score
      */
-    private Map<String, Double> rateClaimsByFacts(List<String> claims) {
-        int retries = 0;
-        while (retries < MAX_RETRIES) {
-            try {
-                System.out.println("api key" + apiKey);
-                JsonObject request = Json.createObjectBuilder()
-                        .add("model", "Llama-3.1-8b-Instant")
-                        .add("messages", Json.createArrayBuilder()
-                                .add(Json.createObjectBuilder()
-                                        .add("role", "user")
-                                        .add("content", """
-                                            Analyze the following text and evaluate the factual accuracy of each statement, assigning a score between 1 and 100. Return the results in a JSON object where each statement is represented as a key (e.g., "statement1", "statement2", etc.), and its corresponding factual score as the value.
-                                            The output should strictly follow this format:
-                                            {
-                                              "<statement>": 11.01,
-                                              "<statement>": 98,
-                                              "<statement>": 54.4
-                                            }
-                                            Example Response:
-                                            {
-                                                "The moon is made of cheese": 80.05,
-                                                "The cheese is made of flour": 100,
-                                                "The flour is made of water": 100,
-                                            }
-                                            Important notes:
-                                            - Each key should be labeled as its own statement.
-                                            - The value for each key should be a float or integer representing the factual score.
-                                            - No additional text or explanations should be included in the output; only the JSON object.
-                                            Text to analyse:                                      
-                                            """
-                                        ))
-                                .add(Json.createObjectBuilder()
-                                        .add("role", "user")
-                                        .add("content", claims.toString())))
-                        .build();
-
-                JsonObject result = fetchSingleResponse(request);
-                if (result == null) {
-                    throw new RuntimeException("Null response from Groq API");
-                }
+    private Single<Map<String, Double>> rateClaimsByFacts(Flowable<String> claims, Deadline deadline) {
+        return Single.defer(() -> {
+            // Hot scores are added while claims arrive and the other scores as batches finish
+            Map<String, Double> scoredClaims = new ConcurrentHashMap<>();
+            ClaimBatcher batcher = new ClaimBatcher(encoding, batchTokens);
+            return claims
+                    .concatMapIterable(claim -> {
+                        Optional<Double> hotScore = claimIndex.hotScore(claim);
+                        if (hotScore.isPresent()) {
+                            scoredClaims.put(claim.trim(), hotScore.get());
+                            return List.<List<String>>of();
+                        }
+                        return batcher.add(claim);
+                    })
+                    .concatWith(Flowable.defer(() -> Flowable.fromIterable(batcher.flush())))
+                    .flatMapSingle(batch -> scoreBatch(batch, deadline), true, maxConcurrentBatches)
+                    .doOnNext(scoredClaims::putAll)
+                    .ignoreElements()
+                    .toSingle(() -> scoredClaims);
+        });
+    }
 
-                JsonArray choices = result.getJsonArray("choices");
-                if (choices == null || choices.isEmpty()) {
-                    throw new RuntimeException("No choices in Groq API response");
-                }
+    /**
+     * Packs claims into batches whose text stays within a token budget, keeping their order.
+     * A batch is handed out as soon as it is full, so claims that arrive one at a time can be scored
+     * while later claims are still being generated. A claim that is larger than a batch on its own is
+     * sent in a batch of its own. Not thread-safe; each analysis uses its own batcher.
+     */
+    static final class ClaimBatcher {
 
-                JsonObject firstChoice = choices.getJsonObject(0);
-                JsonObject message = firstChoice.getJsonObject("message");
-                String content = message.getString("content");
+        private final Encoding encoding;
+        private final int batchTokens;
+        private List<String> batch = new ArrayList<>();
+        private int tokens;
 
-                logger.info("Response from Groq API: {}", content);
+        ClaimBatcher(Encoding encoding, int batchTokens) {
+            this.encoding = encoding;
+            this.batchTokens = batchTokens;
+        }
 
-                Map<String, Double> scoredClaims = convertJsonToMap(content);
-                if (scoredClaims == null || scoredClaims.isEmpty()) {
-                    throw new RuntimeException("Failed to parse claims from API response");
-                }
+        /**
+         * Adds a claim to the current batch.
+         *
+         * @param claim The claim
+         * @return The batches that are full now, usually none
+         */
+        List<List<String>> add(String claim) {
+            List<List<String>> full = new ArrayList<>(2);
+            int claimTokens = encoding.countTokens(claim) + CLAIM_OVERHEAD_TOKENS;
+            if (!batch.isEmpty() && tokens + claimTokens > batchTokens) {
+                full.add(takeBatch());
+            }
+            batch.add(claim);
+            tokens += claimTokens;
+            if (tokens >= batchTokens) {
+                full.add(takeBatch());
+            }
+            return full;
+        }
+
+        /**
+         * Hands out the last batch once no more claims follow.
+         *
+         * @return The partly filled batch, or nothing if there is none
+         */
+        List<List<String>> flush() {
+            return batch.isEmpty() ? List.of() : List.of(takeBatch());
+        }
+
+        private List<String> takeBatch() {
+            List<String> full = batch;
+            batch = new ArrayList<>();
+            tokens = 0;
+            return full;
+        }
+    }
 
-                return scoredClaims;
-
-            } catch (Exception e) {
-                logger.error("Error while fetching response from Groq API (Attempt {} of {})", retries + 1, MAX_RETRIES, e);
-                retries++;
-                if (retries < MAX_RETRIES) {
-                    try {
-                        Thread.sleep(RETRY_DELAY_MS);
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        logger.error("Retry delay interrupted", ie);
+    /**
+     * Scores a batch of claims, asking the Groq API only for the claims the claim index does not know.
+     * The index is queried and updated on the io scheduler, so the database is never called on the
+     * threads of the HTTP client.
+     *
+     * @param batch The claims of the batch
+     * @param deadline Deadline of the job
+     * @return A single emitting the scores of the batch
+     */
+    private Single<Map<String, Double>> scoreBatch(List<String> batch, Deadline deadline) {
+        return Single.fromCallable(() -> claimIndex.knownScores(batch))
+                .subscribeOn(Schedulers.io())
+                .onErrorResumeNext(error -> {
+                    if (!(error instanceof DataAccessException)) {
+                        return Single.error(error);
                     }
-                }
+                    logger.warn("Failed to look up claims in the claim index, scoring them all", error);
+                    return Single.just(Map.<String, Double>of());
+                })
+                .flatMap(knownScores -> {
+                    List<String> unseen = batch.stream()
+                            .filter(claim -> !knownScores.containsKey(claim.trim()))
+                            .toList();
+                    if (unseen.isEmpty()) {
+                        return Single.just(knownScores);
+                    }
+                    return fetchClaimScores(unseen, deadline)
+                            .observeOn(Schedulers.io())
+                            .map(fetchedScores -> {
+                                recordScores(fetchedScores);
+                                Map<String, Double> batchScores = new HashMap<>(knownScores);
+                                batchScores.putAll(fetchedScores);
+                                return batchScores;
+                            });
+                });
+    }
+
+    /**
+     * Records fresh scores in the claim index. A failure to store them is logged and otherwise ignored,
+     * since the scores are still valid for the video at hand.
+     *
+     * @param scores The fresh scores, keyed by claim
+     */
+    private void recordScores(Map<String, Double> scores) {
+        try {
+            claimIndex.record(scores);
+        } catch (DataAccessException e) {
+            logger.warn("Failed to record {} claim scores in the claim index", scores.size(), e);
+        }
+    }
+
+    /**
+     * Rates the factual accuracy of a list of claims using the Groq API.
+     *
+     * A failed call, or a response that cannot be parsed, is tried again after a delay.
+     * No further attempt is made once the job is over.
+     *
+     * @param claims A list of factual claims to be evaluated
+     * @param deadline Deadline of the job
+     * @return A single emitting a map of claims and their corresponding fact scores, or failing once all
+     *         attempts have failed
+     */
+    private Single<Map<String, Double>> fetchClaimScores(List<String> claims, Deadline deadline) {
+        JsonObject request = Json.createObjectBuilder()
+                .add("model", "Llama-3.1-8b-Instant")
+                .add("messages", Json.createArrayBuilder()
+                        .add(Json.createObjectBuilder()
+                                .add("role", "user")
+                                .add("content", """
+                                    Analyze the following text and evaluate the factual accuracy of each statement, assigning a score between 1 and 100. Return the results in a JSON object where each statement is represented as a key (e.g., "statement1", "statement2", etc.), and its corresponding factual score as the value.
+                                    The output should strictly follow this format:
+                                    {
+                                      "<statement>": 11.01,
+                                      "<statement>": 98,
+                                      "<statement>": 54.4
+                                    }
+                                    Example Response:
+                                    {
+                                        "The moon is made of cheese": 80.05,
+                                        "The cheese is made of flour": 100,
+                                        "The flour is made of water": 100,
+                                    }
+                                    Important notes:
+                                    - Each key should be labeled as its own statement.
+                                    - The value for each key should be a float or integer representing the factual score.
+                                    - No additional text or explanations should be included in the output; only the JSON object.
+                                    Text to analyse:                                      
+                                    """
+                                ))
+                        .add(Json.createObjectBuilder()
+                                .add("role", "user")
+                                .add("content", claims.toString())))
+                .build();
+
+        return withRetries(() -> this.apiClient.createChatCompletionAsync(request).map(result -> {
+                    String content = content(result);
+                    logger.info("Response from Groq API: {}", content);
+
+                    Map<String, Double> scoredClaims = convertJsonToMap(content);
+                    if (scoredClaims == null || scoredClaims.isEmpty()) {
+                        throw new RuntimeException("Failed to parse claims from API response");
+                    }
+                    return matchScores(claims, scoredClaims);
+                }), deadline, "fetching response from Groq API");
+    }
+
+    /**
+     * Keys the scores of a response by the claims that were sent, since the model may repeat a claim
+     * with other wording, case or punctuation.
+     * Statements are matched to claims by their normalized text first. If the rest of the statements
+     * and claims are equally many, they are paired in order, which is how the model answers.
+     *
+     * @param claims The claims sent for scoring
+     * @param response The scores of the response, keyed by the statements as the model wrote them,
+     *                 in the order of the response
+     * @return The scores keyed by the trimmed claims that were sent
+     * @throws RuntimeException if a claim cannot be matched to a statement, so the call is tried again
+     */
+    static Map<String, Double> matchScores(List<String> claims, Map<String, Double> response) {
+        Map<String, Double> byHash = new HashMap<>();
+        response.forEach((statement, score) -> byHash.putIfAbsent(ClaimIndex.hash(statement), score));
+
+        Map<String, Double> scores = new HashMap<>();
+        List<String> unmatchedClaims = new ArrayList<>();
+        Set<String> matchedHashes = new HashSet<>();
+        for (String claim : claims) {
+            String hash = ClaimIndex.hash(claim);
+            Double score = byHash.get(hash);
+            if (score != null) {
+                scores.put(claim.trim(), score);
+                matchedHashes.add(hash);
+            } else {
+                unmatchedClaims.add(claim);
             }
         }
+        if (unmatchedClaims.isEmpty()) {
+            return scores;
+        }
 
-        logger.error("Failed to fetch response from Groq API after {} attempts", MAX_RETRIES);
-        return null;
+        List<Double> unmatchedScores = response.entrySet().stream()
+                .filter(entry -> !matchedHashes.contains(ClaimIndex.hash(entry.getKey())))
+                .map(Map.Entry::getValue)
+                .toList();
+        if (unmatchedScores.size() != unmatchedClaims.size()) {
+            throw new RuntimeException("Response rated " + unmatchedScores.size() + " statements for "
+                    + unmatchedClaims.size() + " unmatched claims");
+        }
+        for (int i = 0; i < unmatchedClaims.size(); i++) {
+            scores.put(unmatchedClaims.get(i).trim(), unmatchedScores.get(i));
+        }
+        return scores;
     }
 
     /**
@@ -218,7 +572,7 @@ public class TextAnalysisService {
     Map<String, Double> convertJsonToMap(String content) {
         try (JsonReader jsonReader = Json.createReader(new StringReader(content))) {
             JsonObject jsonObject = jsonReader.readObject();
-            Map<String, Double> resultMap = new HashMap<>();
+            Map<String, Double> resultMap = new LinkedHashMap<>();
             for (Map.Entry<String, JsonValue> entry : jsonObject.entrySet()) {
                 resultMap.put(entry.getKey(), ((JsonNumber) entry.getValue()).doubleValue());
             }
@@ -230,105 +584,158 @@ public class TextAnalysisService {
     }
 
     /**
-     * Generates a list of distinct factual claims from the given text.
+     * Generates distinct factual claims from the given text.
      *
-     * This method uses the Groq API to divide the text into separate claims.
-     * This includes retry logic in case the API is not available.
+     * This method uses the streaming Groq API to divide the text into separate claims, and emits every
+     * claim as soon as the asterisk that ends it arrives.
+     * A failed call is tried again after a delay, until the job is over. The next attempt emits the
+     * claims again that were emitted before the call failed.
      *
      * @param text The input text to analyze
-     * @return A list of distinct factual claims, or an empty list if generation fails
+     * @param deadline Deadline of the job
+     * @return A flowable emitting the claims as they are generated, which fails once all attempts fail
      */
-
-    private List<String> generateClaimsSeparatedByAsterisks(String text) {
-        int retries = 0;
-        while (retries < MAX_RETRIES) {
-            try {
-                JsonObject request = Json.createObjectBuilder()
-                        .add("model", "Llama-3.1-8b-Instant")
-                        .add("messages", Json.createArrayBuilder()
-                                .add(Json.createObjectBuilder()
-                                        .add("role", "user")
-                                        .add("content", """
-                Divide the following text into distinct factual claims.
-                Guidelines:
-                1. Each claim should be a single, standalone fact.
-                2. Separate each claim with an asterisk (*).
-                3. Preserve the original wording as much as possible.
-                4. Do not add any additional commentary or explanations.
-                5. Ensure all information from the original text is included in the claims.
-
-                Examples:
-                Input: "The Eiffel Tower, built in 1889, is 324 meters tall and located in Paris, France."
-                Output: The Eiffel Tower was built in 1889.*The Eiffel Tower is 324 meters tall.*The Eiffel Tower is located in Paris, France.
-
-                Input: "COVID-19, first identified in Wuhan, China in December 2019, quickly spread globally, causing a pandemic."
-                Output: COVID-19 was first identified in Wuhan, China.*COVID-19 was first identified in December 2019.*COVID-19 spread globally.*COVID-19 caused a pandemic.
-
-                Additional notes:
-                - If a sentence contains multiple facts, split it into separate claims.
-                - Maintain the original context of the claims.
-                - Avoid redundancy in the claims.
-                - For complex sentences, it's acceptable to simplify while preserving the core facts.
-
-                Text to analyze:
-                %s
-                """
-                                                .formatted(text))))
-                        .build();
-
-                JsonObject result = fetchSingleResponse(request);
-                String content = result.getJsonArray("choices").getJsonObject(0).getJsonObject("message").getString("content");
-                logger.info("Claims: {}", content);
-                return Arrays.asList(content.split("\\*"));
-            } catch (Exception e) {
-                logger.error("Error while generating claims (Attempt {} of {}): {}", retries + 1, MAX_RETRIES, e.getMessage());
-                retries++;
-                if (retries < MAX_RETRIES) {
-                    try {
-                        Thread.sleep(RETRY_DELAY_MS);
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        logger.error("Retry delay interrupted", ie);
-                    }
-                }
-            }
-        }
-        logger.error("Failed to generate claims after {} attempts", MAX_RETRIES);
-        return Collections.emptyList();
+    private Flowable<String> generateClaimsSeparatedByAsterisks(String text, Deadline deadline) {
+        JsonObject request = Json.createObjectBuilder()
+                .add("model", "Llama-3.1-8b-Instant")
+                .add("stream", true)
+                .add("messages", Json.createArrayBuilder()
+                        .add(Json.createObjectBuilder()
+                                .add("role", "user")
+                                .add("content", """
+        Divide the following text into distinct factual claims.
+        Guidelines:
+        1. Each claim should be a single, standalone fact.
+        2. Separate each claim with an asterisk (*).
+        3. Preserve the original wording as much as possible.
+        4. Do not add any additional commentary or explanations.
+        5. Ensure all information from the original text is included in the claims.
+
+        Examples:
+        Input: "The Eiffel Tower, built in 1889, is 324 meters tall and located in Paris, France."
+        Output: The Eiffel Tower was built in 1889.*The Eiffel Tower is 324 meters tall.*The Eiffel Tower is located in Paris, France.
+
+        Input: "COVID-19, first identified in Wuhan, China in December 2019, quickly spread globally, causing a pandemic."
+        Output: COVID-19 was first identified in Wuhan, China.*COVID-19 was first identified in December 2019.*COVID-19 spread globally.*COVID-19 caused a pandemic.
+
+        Additional notes:
+        - If a sentence contains multiple facts, split it into separate claims.
+        - Maintain the original context of the claims.
+        - Avoid redundancy in the claims.
+        - For complex sentences, it's acceptable to simplify while preserving the core facts.
+
+        Text to analyze:
+        %s
+        """
+                                        .formatted(text))))
+                .build();
+
+        return streamWithRetries(() -> splitClaims(this.apiClient.createChatCompletionStreamAsync(request)
+                        .map(IGroqApiClient::deltaContent)), deadline, "generating claims");
     }
 
+    /**
+     * Cuts streamed text into claims at every asterisk. The text after the last asterisk is a claim
+     * as well once the stream ends, and blank claims are dropped.
+     *
+     * @param deltas The text as it arrives
+     * @return A flowable emitting the claims
+     */
+    static Flowable<String> splitClaims(Flowable<String> deltas) {
+        return Flowable.defer(() -> {
+            StringBuilder pending = new StringBuilder();
+            return deltas
+                    .concatMapIterable(delta -> {
+                        pending.append(delta);
+                        List<String> claims = new ArrayList<>();
+                        int end;
+                        while ((end = pending.indexOf("*")) >= 0) {
+                            claims.add(pending.substring(0, end));
+                            pending.delete(0, end + 1);
+                        }
+                        return claims;
+                    })
+                    .concatWith(Flowable.fromCallable(pending::toString))
+                    .filter(claim -> !claim.isBlank());
+        });
+    }
 
+    /**
+     * Makes a Groq call up to MAX_RETRIES times, see {@link #retryAfterDelay(String)}.
+     *
+     * @param call Creates the call of one attempt
+     * @param deadline Deadline of the job
+     * @param action What the call does, for the log
+     * @return A single emitting the result of the first successful attempt, or the error of the last one
+     */
+    private static <T> Single<T> withRetries(Supplier<Single<T>> call, Deadline deadline, String action) {
+        return Single.defer(() -> {
+                    deadline.check();
+                    return call.get();
+                })
+                .retryWhen(retryAfterDelay(action));
+    }
 
     /**
-     * Fetches a single response from the Groq API.
+     * Makes a streaming Groq call up to MAX_RETRIES times, see {@link #retryAfterDelay(String)}.
+     * Items emitted by a failed attempt have been passed on already, and the next attempt starts over.
      *
-     * This method uses RxJava to handle the asynchronous API call.
+     * @param call Creates the call of one attempt
+     * @param deadline Deadline of the job
+     * @param action What the call does, for the log
+     * @return A flowable emitting the items of all attempts, which fails with the error of the last one
+     */
+    private static <T> Flowable<T> streamWithRetries(Supplier<Flowable<T>> call, Deadline deadline, String action) {
+        return Flowable.defer(() -> {
+                    deadline.check();
+                    return call.get();
+                })
+                .retryWhen(retryAfterDelay(action));
+    }
+
+    /**
+     * Retries a failed Groq call up to MAX_RETRIES attempts in total, waiting RETRY_DELAY_MS between them.
+     * The delay is scheduled on a timer, so no thread is held while waiting. The deadline is checked
+     * before every attempt, and an attempt that fails because the job is over is not repeated.
      *
-     * @param request The JSON request object to send to the API
-     * @return The JSON response from the API, or null if the call fails
+     * @param action What the call does, for the log
+     * @return The handler for retryWhen
      */
-    private JsonObject fetchSingleResponse(JsonObject request) {
-        final JsonObject[] result = new JsonObject[1];
-        CountDownLatch latch = new CountDownLatch(1);
-
-        Single<JsonObject> responseSingle = this.apiClient.createChatCompletionAsync(request);
-        responseSingle.subscribe(
-                response -> {
-                    result[0] = response;
-                    latch.countDown();
-                },
-                throwable -> {
-                    System.err.println("Error: " + throwable.getMessage());
-                    latch.countDown();
+    private static Function<Flowable<Throwable>, Publisher<Long>> retryAfterDelay(String action) {
+        return errors -> {
+            AtomicInteger attempts = new AtomicInteger();
+            return errors.flatMap(error -> {
+                int attempt = attempts.incrementAndGet();
+                if (isJobOver(error)) {
+                    return Flowable.<Long>error(error);
+                }
+                logger.error("Error while {} (Attempt {} of {})", action, attempt, MAX_RETRIES, error);
+                if (attempt >= MAX_RETRIES) {
+                    return Flowable.<Long>error(error);
                 }
-        );
+                return Flowable.timer(RETRY_DELAY_MS, TimeUnit.MILLISECONDS);
+            });
+        };
+    }
 
-        try {
-            latch.await();
-        } catch (InterruptedException e) {
-            System.err.println("Interrupted while waiting for response: " + e.getMessage());
-        }
+    /**
+     * Returns whether an analysis failed because its job was cancelled or ran out of time.
+     */
+    private static boolean isJobOver(Throwable error) {
+        return error instanceof CancellationException || error instanceof DeadlineExceededException;
+    }
 
-        return result[0];
+    /**
+     * Extracts the message content of the first choice of a Groq chat completion.
+     *
+     * @param result The JSON response from the API
+     * @return The content of the response
+     */
+    private static String content(JsonObject result) {
+        JsonArray choices = result.getJsonArray("choices");
+        if (choices == null || choices.isEmpty()) {
+            throw new RuntimeException("No choices in Groq API response");
+        }
+        return choices.getJsonObject(0).getJsonObject("message").getString("content");
     }
 }
@@ -0,0 +1,140 @@
+package com.fact_checker.FactChecker.service;
+
+import com.knuddels.jtokkit.api.Encoding;
+import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.text.BreakIterator;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Service class for splitting long transcripts into windows that claims can be extracted from independently.
+ * Windows are cut at sentence boundaries and bounded in tokens, so that every extraction request stays
+ * well within the context of the model and finishes in reasonable time. Consecutive windows share their
+ * last and first sentences, so a claim that depends on the sentence before it is still seen in context.
+ */
+@Service
+public class TranscriptWindower {
+
+    private final Encoding encoding;
+    private final int windowTokens;
+    private final int overlapTokens;
+
+    /**
+     * Constructor for TranscriptWindower.
+     *
+     * @param encoding      Tokenizer used to measure the windows
+     * @param windowTokens  Tokens of transcript text in one window
+     * @param overlapTokens Tokens of text at most that a window repeats from the end of the previous one
+     */
+    public TranscriptWindower(Encoding encoding,
+                              @Value("${claims.extraction.window-tokens:3000}") int windowTokens,
+                              @Value("${claims.extraction.overlap-tokens:150}") int overlapTokens) {
+        if (windowTokens <= 0 || overlapTokens < 0 || overlapTokens >= windowTokens) {
+            throw new IllegalArgumentException("Window sizes must satisfy 0 <= overlap < window");
+        }
+        this.encoding = encoding;
+        this.windowTokens = windowTokens;
+        this.overlapTokens = overlapTokens;
+    }
+
+    /**
+     * Splits a transcript into overlapping windows.
+     * A transcript that fits into one window is returned as is. A sentence that is longer than a window
+     * on its own is cut between words.
+     *
+     * @param text The transcript
+     * @return The windows in transcript order
+     */
+    public List<String> split(String text) {
+        if (encoding.countTokens(text) <= windowTokens) {
+            return List.of(text);
+        }
+
+        List<String> windows = new ArrayList<>();
+        Deque<Sentence> window = new ArrayDeque<>();
+        int tokens = 0;
+        boolean fresh = false;
+        for (Sentence sentence : sentences(text)) {
+            if (fresh && tokens + sentence.tokens > windowTokens) {
+                windows.add(join(window));
+                fresh = false;
+                // Keep the tail of the window as the start of the next one
+                while (!window.isEmpty() && (tokens > overlapTokens || tokens + sentence.tokens > windowTokens)) {
+                    tokens -= window.removeFirst().tokens;
+                }
+            }
+            window.addLast(sentence);
+            tokens += sentence.tokens;
+            fresh = true;
+        }
+        if (fresh) {
+            windows.add(join(window));
+        }
+        return windows;
+    }
+
+    /**
+     * Cuts a text into sentences, and sentences that do not fit into a window into runs of words.
+     */
+    private List<Sentence> sentences(String text) {
+        List<Sentence> sentences = new ArrayList<>();
+        BreakIterator sentenceBreaks = BreakIterator.getSentenceInstance(Locale.ROOT);
+        sentenceBreaks.setText(text);
+        for (int start = sentenceBreaks.first(), end = sentenceBreaks.next(); end != BreakIterator.DONE;
+             start = end, end = sentenceBreaks.next()) {
+            String sentence = text.substring(start, end);
+            int tokens = encoding.countTokens(sentence);
+            if (tokens <= windowTokens) {
+                sentences.add(new Sentence(sentence, tokens));
+            } else {
+                sentences.addAll(words(sentence));
+            }
+        }
+        return sentences;
+    }
+
+    private List<Sentence> words(String sentence) {
+        List<Sentence> pieces = new ArrayList<>();
+        BreakIterator wordBreaks = BreakIterator.getWordInstance(Locale.ROOT);
+        wordBreaks.setText(sentence);
+        StringBuilder piece = new StringBuilder();
+        int tokens = 0;
+        for (int start = wordBreaks.first(), end = wordBreaks.next(); end != BreakIterator.DONE;
+             start = end, end = wordBreaks.next()) {
+            String word = sentence.substring(start, end);
+            int wordTokens = encoding.countTokens(word);
+            if (!piece.isEmpty() && tokens + wordTokens > windowTokens) {
+                pieces.add(new Sentence(piece.toString(), tokens));
+                piece.setLength(0);
+                tokens = 0;
+            }
+            piece.append(word);
+            tokens += wordTokens;
+        }
+        if (!piece.isEmpty()) {
+            pieces.add(new Sentence(piece.toString(), tokens));
+        }
+        return pieces;
+    }
+
+    private static String join(Deque<Sentence> window) {
+        StringBuilder text = new StringBuilder();
+        window.forEach(sentence -> text.append(sentence.text));
+        return text.toString().strip();
+    }
+
+    /**
+     * A sentence, or a run of words of a long sentence, with its size in tokens.
+     */
+    @AllArgsConstructor
+    private static class Sentence {
+        private final String text;
+        private final int tokens;
+    }
+}
@@ -12,8 +12,10 @@ import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.IntStream;
 
 @Service
@@ -36,6 +38,23 @@ public class VectorizationService {
 
 
     public double[] getEmbedding(String text, int dim) throws EmbeddingException {
+        return getEmbedding(text, dim, Deadline.none());
+    }
+
+    /**
+     * Computes the embedding of a text on behalf of a job. The request blocks the calling thread, which
+     * should be one of the I/O pool, and it is cancelled when the deadline is cancelled. It is given no
+     * more time than the job has left.
+     *
+     * @param text The text to embed
+     * @param dim The number of dimensions to return
+     * @param deadline Deadline of the job the text belongs to
+     * @return The embedding vector
+     * @throws EmbeddingException if the embedding cannot be computed
+     * @throws java.util.concurrent.CancellationException if the job is cancelled
+     * @throws com.fact_checker.FactChecker.exceptions.DeadlineExceededException if the job runs out of time
+     */
+    public double[] getEmbedding(String text, int dim, Deadline deadline) throws EmbeddingException {
         if (text == null || text.isEmpty()) {
             throw new IllegalArgumentException("Input text cannot be null or empty");
         }
@@ -52,8 +71,9 @@ public class VectorizationService {
         try {
             String jsonPayload = createJsonPayload(decodedTokens);
             Request request = createRequest(jsonPayload);
-            return executeRequest(request, dim);
+            return executeRequest(request, dim, deadline);
         } catch (IOException e) {
+            deadline.check();
             logger.error("Error during embedding process", e);
             throw new EmbeddingException("Failed to get embedding", e);
         }
@@ -77,8 +97,10 @@ public class VectorizationService {
                 .build();
     }
 
-    private double[] executeRequest(Request request, int dim) throws IOException, EmbeddingException {
-        try (Response response = client.newCall(request).execute()) {
+    private double[] executeRequest(Request request, int dim, Deadline deadline) throws IOException, EmbeddingException {
+        Call call = client.newCall(request);
+        try (Deadline.Registration ignored = deadline.onCancel(call::cancel);
+             Response response = execute(call, deadline)) {
             if (!response.isSuccessful()) {
                 throw new EmbeddingException("API request failed with code " + response.code());
             }
@@ -101,4 +123,23 @@ public class VectorizationService {
             }
         }
     }
+
+    /**
+     * Executes a call on the calling thread, so that embeddings are only limited by the I/O pool and not
+     * by the per-host limit of the OkHttp dispatcher. Socket reads do not react to interrupts, so a call
+     * of an interrupted thread is not started at all.
+     */
+    private Response execute(Call call, Deadline deadline) throws IOException {
+        if (deadline.isBounded()) {
+            long remaining = deadline.remaining().toNanos();
+            if (call.timeout().timeoutNanos() == 0 || remaining < call.timeout().timeoutNanos()) {
+                call.timeout().timeout(remaining, TimeUnit.NANOSECONDS);
+            }
+        }
+        if (Thread.currentThread().isInterrupted()) {
+            call.cancel();
+            throw new InterruptedIOException("Embedding request was cancelled");
+        }
+        return call.execute();
+    }
 }
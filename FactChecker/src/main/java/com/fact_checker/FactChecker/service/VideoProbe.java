@@ -0,0 +1,135 @@
+package com.fact_checker.FactChecker.service;
+
+import com.fact_checker.FactChecker.exceptions.InvalidFileException;
+import com.fact_checker.FactChecker.model.MediaMetadata;
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Service for checking uploads before any heavy work is done on them.
+ * The first bytes of an upload are matched against the signatures of the supported containers,
+ * so files that are not videos at all are rejected before they are stored. Stored files are then
+ * probed by reading only the container header, which rejects corrupt files, files without an audio or
+ * video track and overly long videos before they are queued, and yields the metadata used to
+ * estimate the cost of processing them.
+ */
+@Service
+public class VideoProbe {
+
+    private static final Logger logger = LoggerFactory.getLogger(VideoProbe.class);
+
+    /**
+     * Number of leading bytes needed to recognize a container.
+     */
+    public static final int SIGNATURE_BYTES = 4096;
+
+    private static final Set<String> ISO_BASE_MEDIA_BOXES = Set.of("ftyp", "moov", "mdat", "wide", "free", "skip", "pnot");
+    private static final byte[] ASF_HEADER_GUID = {
+            0x30, 0x26, (byte) 0xB2, 0x75, (byte) 0x8E, 0x66, (byte) 0xCF, 0x11,
+            (byte) 0xA6, (byte) 0xD9, 0x00, (byte) 0xAA, 0x00, 0x62, (byte) 0xCE, 0x6C};
+
+    private final long maxDurationSeconds;
+
+    /**
+     * Constructor for VideoProbe.
+     *
+     * @param maxDurationSeconds Longest video accepted, in seconds
+     */
+    public VideoProbe(@Value("${video.probe.max-duration-seconds:14400}") long maxDurationSeconds) {
+        this.maxDurationSeconds = maxDurationSeconds;
+    }
+
+    /**
+     * Identifies the container of an upload from its first bytes.
+     *
+     * @param head   The first bytes of the file
+     * @param length The number of valid bytes in the head
+     * @return The container family: "mp4", "avi", "asf" or "flv"
+     * @throws InvalidFileException if the bytes do not start a supported container
+     */
+    public String checkSignature(byte[] head, int length) {
+        if (length >= 8 && ISO_BASE_MEDIA_BOXES.contains(ascii(head, 4, 4))) {
+            return "mp4";
+        }
+        if (length >= 12 && ascii(head, 0, 4).equals("RIFF") && ascii(head, 8, 4).equals("AVI ")) {
+            return "avi";
+        }
+        if (length >= ASF_HEADER_GUID.length
+                && Arrays.equals(head, 0, ASF_HEADER_GUID.length, ASF_HEADER_GUID, 0, ASF_HEADER_GUID.length)) {
+            return "asf";
+        }
+        if (length >= 3 && ascii(head, 0, 3).equals("FLV")) {
+            return "flv";
+        }
+        throw new InvalidFileException("File is not a supported video");
+    }
+
+    /**
+     * Identifies the container of a stored file from its first bytes.
+     *
+     * @param file The file to check
+     * @return The container family
+     * @throws InvalidFileException if the file does not start a supported container
+     * @throws IOException          if the file cannot be read
+     */
+    public String checkSignature(Path file) throws IOException {
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            byte[] head = inputStream.readNBytes(SIGNATURE_BYTES);
+            return checkSignature(head, head.length);
+        }
+    }
+
+    /**
+     * Reads the container metadata of a stored file without decoding any of its frames.
+     *
+     * @param file The file to probe
+     * @return The metadata of the video
+     * @throws InvalidFileException if the file cannot be parsed, lacks an audio or video track,
+     *                              or is longer than allowed
+     */
+    public MediaMetadata probe(Path file) {
+        try (FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(file.toFile())) {
+            grabber.start();
+            if (!grabber.hasVideo()) {
+                throw new InvalidFileException("File has no video track");
+            }
+            if (!grabber.hasAudio()) {
+                throw new InvalidFileException("Video has no audio track");
+            }
+            long durationInMicroseconds = grabber.getLengthInTime();
+            if (durationInMicroseconds <= 0) {
+                throw new InvalidFileException("Unable to determine video duration");
+            }
+            double durationSeconds = durationInMicroseconds / 1_000_000.0;
+            if (durationSeconds > maxDurationSeconds) {
+                throw new InvalidFileException("Video is longer than " + maxDurationSeconds / 60 + " minutes");
+            }
+
+            MediaMetadata metadata = new MediaMetadata(grabber.getFormat(), durationSeconds,
+                    grabber.getVideoCodecName(), grabber.getAudioCodecName(), grabber.getAudioChannels(),
+                    grabber.getImageWidth(), grabber.getImageHeight());
+            grabber.stop();
+            logger.debug("Probed {}: {} s, {} / {}", file.getFileName(), durationSeconds,
+                    metadata.getVideoCodec(), metadata.getAudioCodec());
+            return metadata;
+        } catch (FFmpegFrameGrabber.Exception e) {
+            logger.warn("Failed to probe {}: {}", file.getFileName(), e.getMessage());
+            throw new InvalidFileException("File is not a readable video");
+        }
+    }
+
+    private static String ascii(byte[] bytes, int offset, int length) {
+        return new String(bytes, offset, length, StandardCharsets.ISO_8859_1);
+    }
+}
@@ -1,17 +1,27 @@
 package com.fact_checker.FactChecker.service;
 
+import com.fact_checker.FactChecker.exceptions.DeadlineExceededException;
+import com.fact_checker.FactChecker.exceptions.EmbeddingException;
 import com.fact_checker.FactChecker.exceptions.OpenAiException;
 import com.fact_checker.FactChecker.exceptions.VideoProcessingException;
 import com.fact_checker.FactChecker.model.Video;
+import com.fact_checker.FactChecker.config.ExecutorConfig;
 import com.fact_checker.FactChecker.config.OpenAIConfig;
-import jakarta.annotation.PreDestroy;
+import com.fact_checker.FactChecker.service.ArtifactCache.ArtifactType;
+import lombok.AllArgsConstructor;
 import lombok.Getter;
+import lombok.NoArgsConstructor;
 import lombok.Setter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.bytedeco.ffmpeg.avcodec.AVPacket;
+import org.bytedeco.ffmpeg.avformat.AVFormatContext;
 import org.bytedeco.javacv.*;
 import org.bytedeco.ffmpeg.global.avcodec;
+import org.bytedeco.ffmpeg.global.avutil;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cache.annotation.Cacheable;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
@@ -24,36 +34,85 @@ import org.slf4j.LoggerFactory;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
-import java.io.*;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Instant;
 import java.time.LocalDateTime;
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.StringJoiner;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.StructuredTaskScope;
+import java.util.concurrent.StructuredTaskScope.Subtask;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 
 /**
  * Service class for processing video files.
  * This class handles video processing tasks such as extracting audio, performing speech recognition,
- * and generating thumbnails.
+ * and generating thumbnails. The claims of a transcript are rated while its embedding is computed.
  */
 @Service
 public class VideoProcessor {
 
   private static final int BIT_RATE = 19200;
   private static final int AUDIO_QUALITY = 0;
+  private static final int SPEECH_SAMPLE_RATE = 16000;
+  private static final int SPEECH_BIT_RATE = 24000;
+  private static final String SPEECH_AUDIO_FILTER = "aresample=16000,aformat=sample_fmts=s16:channel_layouts=mono";
   private static final Logger logger = LoggerFactory.getLogger(VideoProcessor.class);
   private static final String TRANSCRIPTIONS_ENDPOINT = "audio/transcriptions";
+  private static final int EMBEDDING_DIMENSIONS = 768;
+  /** How far FFmpeg may seek back in a streamed upload, which covers the probing of the container header. */
+  private static final int STREAM_SEEK_BUFFER_BYTES = 8 * 1024 * 1024;
+  /** Number of leading bytes that identify the format of an audio file, see {@link #audioExtension(byte[])}. */
+  private static final int AUDIO_MAGIC_BYTES = 16;
+  /** Runs the task graph of a video, which only waits for its branches on the pools. */
+  private static final Executor GRAPH_EXECUTOR = task -> Thread.ofVirtual().name("video-graph").start(task);
+  /** Reads streamed uploads, whose pace is set by the network rather than by the CPU. */
+  private static final Thread.Builder STREAM_INGEST_THREADS = Thread.ofPlatform().name("stream-ingest").daemon(true);
 
-  private final ExecutorService executorService;
+  /** Source codecs Whisper accepts as-is, mapped to the extension of the container they are copied into. */
+  private static final Map<Integer, String> STREAM_COPY_EXTENSIONS = Map.of(
+          avcodec.AV_CODEC_ID_AAC, ".m4a",
+          avcodec.AV_CODEC_ID_MP3, ".mp3",
+          avcodec.AV_CODEC_ID_OPUS, ".ogg",
+          avcodec.AV_CODEC_ID_VORBIS, ".ogg",
+          avcodec.AV_CODEC_ID_FLAC, ".flac");
+
+  private final ExecutorService mediaExecutor;
+  private final ExecutorService ioExecutor;
   private final RestTemplate restTemplate;
   private final OpenAIConfig openAiConfig;
   private final String thumbnailUploadPath;
   private final VectorizationService vectorizationService;
+  private final MeterRegistry meterRegistry;
+  private final AudioProfile audioProfile;
+  private final AudioSegmenter audioSegmenter;
+  private final ArtifactCache artifactCache;
+  private final TextAnalysisService textAnalysisService;
+  private final Semaphore streamIngestPermits;
+  private final Map<String, CompletableFuture<Void>> pipelinedIngests = new ConcurrentHashMap<>();
 
   /**
    * Constructor for VideoProcessor.
@@ -62,14 +121,36 @@ public class VideoProcessor {
    * @param openAiConfig Configuration for OpenAI API
    * @param thumbnailUploadPath Path for uploading thumbnails
    * @param vectorizationService Service for vectorizing text
+   * @param meterRegistry Registry for audio extraction metrics
+   * @param audioProfile Profile used when extracting audio for transcription
+   * @param audioSegmenter Splits long audio into chunks for parallel transcription
+   * @param artifactCache Cache for extracted audio, transcripts and embeddings
+   * @param textAnalysisService Service rating the claims of a transcript alongside its embedding
+   * @param mediaExecutor Pool for CPU-bound FFmpeg work
+   * @param ioExecutor Pool for calls to the transcription and embedding APIs
+   * @param maxStreamIngests Number of uploads whose audio may be extracted while they are being received
    */
   public VideoProcessor(RestTemplate restTemplate, OpenAIConfig openAiConfig,
-                        @Value("${thumbnail.upload.path}") String thumbnailUploadPath, VectorizationService vectorizationService) {
-    this.executorService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+                        @Value("${thumbnail.upload.path}") String thumbnailUploadPath, VectorizationService vectorizationService,
+                        MeterRegistry meterRegistry,
+                        @Value("${audio.extraction.profile:SPEECH_16K_MONO}") AudioProfile audioProfile,
+                        AudioSegmenter audioSegmenter, ArtifactCache artifactCache,
+                        TextAnalysisService textAnalysisService,
+                        @Qualifier(ExecutorConfig.MEDIA_EXECUTOR) ExecutorService mediaExecutor,
+                        @Qualifier(ExecutorConfig.IO_EXECUTOR) ExecutorService ioExecutor,
+                        @Value("${video.ingest.max-streams:4}") int maxStreamIngests) {
+    this.mediaExecutor = mediaExecutor;
+    this.ioExecutor = ioExecutor;
     this.restTemplate = restTemplate;
     this.openAiConfig = openAiConfig;
     this.thumbnailUploadPath = thumbnailUploadPath;
     this.vectorizationService = vectorizationService;
+    this.meterRegistry = meterRegistry;
+    this.audioProfile = audioProfile;
+    this.audioSegmenter = audioSegmenter;
+    this.artifactCache = artifactCache;
+    this.textAnalysisService = textAnalysisService;
+    this.streamIngestPermits = new Semaphore(maxStreamIngests);
     initializeThumbnailDirectory();
   }
 
@@ -94,73 +175,743 @@ public class VideoProcessor {
 
   /**
    * Extracts text from speech in a video file.
+   * The video is decoded straight from the stored file, so heap usage does not grow with the size of the upload.
+   * The extracted audio, its transcript and the transcript's embedding are looked up in the artifact cache
+   * by content digest first, so only the stages whose inputs have never been seen before do any work.
+   * Decoding runs on the media pool and the API calls on the I/O pool.
+   * The independent stages run as a task graph, see {@link #processVideo(Path, String, String, Deadline)}.
    *
    * @param filePath Path to the video file
    * @param filename Name of the video file
+   * @param contentHash Digest of the video file, or null if it is unknown
    * @return CompletableFuture<Video> containing processed video information
    */
-  @Cacheable(value = "videos", key = "#filename")
-  public CompletableFuture<Video> extractTextFromSpeech(Path filePath, String filename) {
-    return CompletableFuture.supplyAsync(() -> {
-      try {
-        byte[] fileBytes = Files.readAllBytes(filePath);
-        byte[] audioData = extractAudioFromVideo(new ByteArrayInputStream(fileBytes));
-        String transcriptionText = performSpeechRecognition(audioData);
-        String thumbnailPath = extractThumbnail(new ByteArrayInputStream(fileBytes), filename);
-        double[] transcriptionEmbeddings = vectorizationService.getEmbedding(transcriptionText, 768);
-
-        Video video = new Video();
-        video.setFileName(filename);
-        video.setTranscriptionText(transcriptionText);
-        video.setThumbnailPath(thumbnailPath);
-        video.setProcessedAt(LocalDateTime.now());
-        video.setTranscriptionsEmbeddings(transcriptionEmbeddings);
+  public CompletableFuture<Video> extractTextFromSpeech(Path filePath, String filename, String contentHash) {
+    return extractTextFromSpeech(filePath, filename, contentHash, Deadline.none());
+  }
+
+  /**
+   * Extracts text from speech in a video file within the time a job has left,
+   * see {@link #extractTextFromSpeech(Path, String, String)}.
+   * When the deadline passes or is cancelled, all stages still running are aborted.
+   *
+   * @param filePath Path to the video file
+   * @param filename Name of the video file
+   * @param contentHash Digest of the video file, or null if it is unknown
+   * @param deadline Deadline of the job the video belongs to
+   * @return CompletableFuture<Video> containing processed video information
+   */
+  public CompletableFuture<Video> extractTextFromSpeech(Path filePath, String filename, String contentHash,
+                                                        Deadline deadline) {
+    return CompletableFuture.supplyAsync(
+            () -> runStage(filename, () -> processVideo(filePath, filename, contentHash, deadline)), GRAPH_EXECUTOR);
+  }
+
+  /**
+   * Runs the stages of the pipeline as a task graph.
+   * The audio comes first, and everything but the thumbnail depends on its transcript. Once the transcript
+   * is known, the embedding and the claim analysis run side by side. The thumbnail is a by-product of
+   * extracting the audio, unless the audio came from the cache: then it is decoded while the speech is
+   * being analyzed. The branches run in a structured task scope, so a failing branch cancels its siblings
+   * and processing takes as long as the longest branch instead of the sum of all of them.
+   * Cancelling the deadline interrupts the thread running the graph, and closing the scope then
+   * cancels every branch.
+   *
+   * @param filePath Path to the video file
+   * @param filename Name of the video file
+   * @param contentHash Digest of the video file, or null if it is unknown
+   * @param deadline Deadline of the job the video belongs to
+   * @return The processed video, including its fact percentage if the claims could be rated
+   * @throws Exception if a stage fails, or the deadline passes or is cancelled
+   */
+  private Video processVideo(Path filePath, String filename, String contentHash, Deadline deadline)
+          throws Exception {
+    deadline.check();
+    Thread graphThread = Thread.currentThread();
+    try (Deadline.Registration ignored = deadline.onCancel(graphThread::interrupt)) {
+      String audioKey = contentHash == null ? null : ArtifactCache.digest(contentHash, audioProfile.name());
+      if (audioKey != null) {
+        awaitPipelinedIngest(audioKey, deadline);
+      }
+      ExtractedAudio extracted = runOn(mediaExecutor, deadline, () -> extractAudio(filePath, audioKey));
+      try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
+        Supplier<String> thumbnail = extracted.thumbnailCaptured
+                ? () -> extracted.thumbnailPath
+                : scope.fork(() -> runOn(mediaExecutor, deadline,
+                        () -> demux(filePath, false, true).getThumbnailFileName()));
+        Subtask<Video> speech = scope.fork(() -> analyzeSpeech(filename, extracted, deadline));
+        join(scope, deadline).throwIfFailed();
 
+        Video video = speech.get();
+        video.setThumbnailPath(thumbnail.get());
         logger.info("Video processed successfully: {}", filename);
         return video;
-      } catch (Exception e) {
-        logger.error("Error processing video: {}", filename, e);
-        throw new VideoProcessingException("Error processing video: " + filename, e);
+      } finally {
+        deleteTemporaryFile(extracted.audioFile);
+      }
+    }
+  }
+
+  /**
+   * Runs a branch of the task graph on one of the pools and waits for it, at most until the deadline.
+   * If the scope of the branch shuts down because a sibling failed, the waiting thread is interrupted.
+   * In both cases the work is cancelled, which interrupts the pool thread running it.
+   *
+   * @param executor The pool matching the work of the branch
+   * @param deadline Deadline of the job
+   * @param task The work of the branch
+   * @return The result of the work
+   * @throws Exception if the work fails or is cancelled
+   */
+  private static <T> T runOn(ExecutorService executor, Deadline deadline, Callable<T> task) throws Exception {
+    Future<T> future = executor.submit(task);
+    try {
+      return future.get(deadline.remaining().toNanos(), TimeUnit.NANOSECONDS);
+    } catch (InterruptedException | TimeoutException e) {
+      future.cancel(true);
+      deadline.check();
+      throw e;
+    } catch (ExecutionException e) {
+      throw e.getCause() instanceof Exception cause ? cause : e;
+    }
+  }
+
+  /**
+   * Waits for the branches of a scope, at most until the deadline. On timeout the scope is shut down,
+   * which interrupts the branches still running.
+   *
+   * @param scope The scope to join
+   * @param deadline Deadline of the job
+   * @return The scope
+   * @throws InterruptedException if the waiting thread is interrupted
+   * @throws DeadlineExceededException if the deadline passes
+   */
+  private static StructuredTaskScope.ShutdownOnFailure join(StructuredTaskScope.ShutdownOnFailure scope,
+                                                           Deadline deadline) throws InterruptedException {
+    try {
+      if (!deadline.isBounded()) {
+        return scope.join();
+      }
+      return scope.joinUntil(Instant.now().plus(deadline.remaining()));
+    } catch (InterruptedException e) {
+      deadline.check();
+      throw e;
+    } catch (TimeoutException e) {
+      throw new DeadlineExceededException("The job ran out of time");
+    }
+  }
+
+  /**
+   * Runs a pipeline stage, wrapping any failure into a VideoProcessingException for the video.
+   *
+   * @param filename Name of the video file
+   * @param stage The stage to run
+   * @return The result of the stage
+   */
+  private <T> T runStage(String filename, Callable<T> stage) {
+    try {
+      return stage.call();
+    } catch (Exception e) {
+      logger.error("Error processing video: {}", filename, e);
+      throw new VideoProcessingException("Error processing video: " + filename, e);
+    }
+  }
+
+  /**
+   * Obtains the audio of a video from the artifact cache, or extracts it together with the thumbnail.
+   * On a cache hit the video is not decoded here, its thumbnail is captured in a branch of its own.
+   *
+   * @param filePath Path to the video file
+   * @param audioKey Cache key of the audio of the video, or null if its digest is unknown
+   * @return The audio of the video, and its thumbnail if the video was decoded
+   * @throws IOException if the video cannot be decoded
+   */
+  private ExtractedAudio extractAudio(Path filePath, String audioKey) throws IOException {
+    Optional<Path> cachedAudio = audioKey == null ? Optional.empty() : artifactCache.getFile(ArtifactType.AUDIO, audioKey);
+    if (cachedAudio.isPresent()) {
+      try {
+        return new ExtractedAudio(withAudioExtension(cachedAudio.get()), null, false);
+      } catch (IOException e) {
+        deleteTemporaryFile(cachedAudio.get());
+        throw e;
+      }
+    }
+
+    DemuxResult demuxResult = demux(filePath, true, true);
+    try {
+      recordUploadSize(demuxResult);
+      if (audioKey != null) {
+        artifactCache.putFile(ArtifactType.AUDIO, audioKey, demuxResult.getAudioFile());
+      }
+      return new ExtractedAudio(demuxResult.getAudioFile(), demuxResult.getThumbnailFileName(), true);
+    } catch (IOException | RuntimeException e) {
+      deleteTemporaryFile(demuxResult.getAudioFile());
+      throw e;
+    }
+  }
+
+  /**
+   * Extracts the audio of a video while it is still being received, if a stream ingest is free right away.
+   * FFmpeg reads the container from the pipe on a thread of its own, outside the media pool, since the read is
+   * paced by the transfer of the upload rather than by the CPU. The number of these reads is capped; when all
+   * of them are taken, nothing is started and the upload is only stored, to be processed the regular way.
+   * Only the audio is extracted; the thumbnail needs a seek and is read from the stored file later.
+   * The stream must hold a container that can be read front to back, see {@link #isStreamable(byte[], int)}.
+   *
+   * @param source The end of the pipe the upload is written into; the reading end is closed once the
+   *               extraction has finished
+   * @param pipeBytes Size of the buffer between the upload and FFmpeg
+   * @return CompletableFuture with a temporary file containing the extracted audio, which the caller
+   *         hands to {@link #completePipelinedIngest(String, CompletableFuture)}, or empty if no stream
+   *         ingest is free
+   * @throws IOException if the pipe cannot be connected
+   */
+  public Optional<CompletableFuture<Path>> extractAudioFromStream(PipedOutputStream source, int pipeBytes)
+          throws IOException {
+    if (!streamIngestPermits.tryAcquire()) {
+      logger.debug("All stream ingests are taken, the upload is processed from the stored file");
+      return Optional.empty();
+    }
+    PipedInputStream videoStream;
+    try {
+      videoStream = new PipedInputStream(source, pipeBytes);
+    } catch (IOException | RuntimeException e) {
+      streamIngestPermits.release();
+      throw e;
+    }
+    CompletableFuture<Path> audio = new CompletableFuture<>();
+    Thread reader = STREAM_INGEST_THREADS.unstarted(() -> {
+      try (videoStream) {
+        Path audioFile = demux(new FFmpegFrameGrabber(videoStream, STREAM_SEEK_BUFFER_BYTES), true, false)
+                .getAudioFile();
+        if (!audio.complete(audioFile)) {
+          deleteTemporaryFile(audioFile);
+        }
+      } catch (IOException | RuntimeException e) {
+        audio.completeExceptionally(new VideoProcessingException("Error extracting audio from stream", e));
+      } finally {
+        streamIngestPermits.release();
+      }
+    });
+    // Cancelling the extraction interrupts the reader, which is blocked on the pipe most of the time
+    audio.whenComplete((ignored, throwable) -> {
+      if (audio.isCancelled()) {
+        reader.interrupt();
+      }
+    });
+    reader.start();
+    return Optional.of(audio);
+  }
+
+  /**
+   * Publishes the audio extracted during a pipelined ingest under the digest of the stored upload.
+   * Nothing is transcribed here: the upload may still be rejected, and the paid API calls only start once
+   * its job runs. Processing the upload waits for the extraction instead of repeating it, and falls back
+   * to the regular pipeline if it failed or was cancelled.
+   *
+   * @param contentHash Digest of the stored upload
+   * @param audio The extraction started with {@link #extractAudioFromStream(PipedOutputStream, int)}
+   */
+  public void completePipelinedIngest(String contentHash, CompletableFuture<Path> audio) {
+    String audioKey = ArtifactCache.digest(contentHash, audioProfile.name());
+    CompletableFuture<Void> ingest = audio
+            .thenAcceptAsync(audioFile -> {
+              try {
+                artifactCache.putFile(ArtifactType.AUDIO, audioKey, audioFile);
+              } finally {
+                deleteTemporaryFile(audioFile);
+              }
+            }, ioExecutor);
+    pipelinedIngests.put(audioKey, ingest);
+    ingest.whenComplete((ignored, throwable) -> {
+      pipelinedIngests.remove(audioKey, ingest);
+      if (ingest.isCancelled()) {
+        audio.cancel(true);
+        logger.info("Pipelined ingest of {} was cancelled", contentHash);
+      } else if (throwable != null) {
+        logger.warn("Pipelined ingest of {} failed, falling back to the stored file", contentHash, throwable);
       }
-    }, executorService);
+    });
   }
 
   /**
-   * Extracts audio from a video input stream.
+   * Waits for the pipelined ingest of an upload, if one is still running, at most until the deadline.
+   * The ingest is registered with the deadline, so cancelling the job cancels the ingest as well.
+   * Failures of the ingest are ignored, the regular pipeline then simply misses the cache.
    *
-   * @param videoInputStream InputStream of the video file
-   * @return byte array containing the extracted audio data
+   * @param audioKey Cache key of the audio of the upload
+   * @param deadline Deadline of the job the upload belongs to
+   * @throws InterruptedException if the waiting thread is interrupted
+   * @throws CancellationException if the deadline is cancelled
+   * @throws DeadlineExceededException if the deadline passes
+   */
+  private void awaitPipelinedIngest(String audioKey, Deadline deadline) throws InterruptedException {
+    CompletableFuture<Void> ingest = pipelinedIngests.get(audioKey);
+    if (ingest == null) {
+      return;
+    }
+    try (Deadline.Registration ignored = deadline.onCancel(() -> ingest.cancel(true))) {
+      ingest.get(deadline.remaining().toNanos(), TimeUnit.NANOSECONDS);
+    } catch (ExecutionException | CancellationException e) {
+      deadline.check();
+      logger.debug("Pipelined ingest {} did not complete", audioKey);
+    } catch (InterruptedException e) {
+      ingest.cancel(true);
+      deadline.check();
+      throw e;
+    } catch (TimeoutException e) {
+      ingest.cancel(true);
+      throw new DeadlineExceededException("The job ran out of time");
+    }
+  }
+
+  /**
+   * Checks whether a container can be demuxed front to back from a stream.
+   * MP4 and QuickTime files keep their index in the moov box, and FFmpeg cannot read the media data
+   * before it. Files that are not "fast start", with the mdat box first, or whose moov box is not within
+   * the given head, need the complete file. The other supported containers (AVI, ASF, FLV) can be
+   * read sequentially.
+   *
+   * @param head The first bytes of the file
+   * @param length The number of valid bytes in the head
+   * @return true if the container can be read from a stream
+   */
+  static boolean isStreamable(byte[] head, int length) {
+    if (length < 8 || !isIsoBaseMedia(head)) {
+      return length > 0;
+    }
+    ByteBuffer buffer = ByteBuffer.wrap(head, 0, length);
+    long offset = 0;
+    while (offset + 8 <= length) {
+      long size = Integer.toUnsignedLong(buffer.getInt((int) offset));
+      String type = new String(head, (int) offset + 4, 4, StandardCharsets.ISO_8859_1);
+      if (type.equals("moov")) {
+        return true;
+      }
+      if (type.equals("mdat")) {
+        return false;
+      }
+      if (size == 1) {
+        if (offset + 16 > length) {
+          return false;
+        }
+        size = buffer.getLong((int) offset + 8);
+      }
+      if (size < 8) {
+        // A size of 0 means the box extends to the end of the file
+        return false;
+      }
+      offset += size;
+    }
+    return false;
+  }
+
+  private static boolean isIsoBaseMedia(byte[] head) {
+    String type = new String(head, 4, 4, StandardCharsets.ISO_8859_1);
+    return type.equals("ftyp") || type.equals("moov") || type.equals("mdat")
+            || type.equals("wide") || type.equals("free") || type.equals("skip");
+  }
+
+  /**
+   * Transcribes extracted audio, then embeds the transcript and rates its claims in parallel,
+   * reusing cached results where possible.
+   *
+   * @param filename Name of the video file
+   * @param extracted The audio of the video
+   * @param deadline Deadline of the job
+   * @return The processed video without its thumbnail
+   * @throws Exception if the audio cannot be transcribed or the transcript cannot be embedded
+   */
+  private Video analyzeSpeech(String filename, ExtractedAudio extracted, Deadline deadline) throws Exception {
+    // The chunks of the transcription are handed to the I/O pool from this virtual thread, which waits for them
+    String transcriptionText = transcript(extracted);
+    try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
+      Subtask<double[]> embedding = scope.fork(() -> runOn(ioExecutor, deadline, () -> embed(transcriptionText, deadline)));
+      // An empty transcript fails the job anyway, and a failed rating (null) is retried by the job.
+      // The rating does not block a thread of its own, so it only waits on the virtual thread of the scope.
+      Subtask<Map<String, Double>> claimScores = transcriptionText.isBlank() ? null
+              : scope.fork(() -> textAnalysisService.scoreClaims(transcriptionText, deadline));
+      join(scope, deadline).throwIfFailed();
+
+      Video video = new Video();
+      video.setFileName(filename);
+      video.setTranscriptionText(transcriptionText);
+      video.setProcessedAt(LocalDateTime.now());
+      video.setTranscriptionsEmbeddings(embedding.get());
+      if (claimScores != null && claimScores.get() != null) {
+        textAnalysisService.applyScores(video, claimScores.get());
+      }
+      return video;
+    }
+  }
+
+  /**
+   * Returns the transcript of extracted audio, transcribing it only if it is not cached yet.
+   *
+   * @param extracted The audio of the video
+   * @return The transcription text
+   * @throws IOException if the audio cannot be transcribed
+   */
+  private String transcript(ExtractedAudio extracted) throws IOException {
+    String transcriptKey = ArtifactCache.digest(extracted.audioFile);
+    Optional<String> cached = artifactCache.getString(ArtifactType.TRANSCRIPT, transcriptKey);
+    if (cached.isPresent()) {
+      return cached.get();
+    }
+    String transcriptionText = transcribe(extracted.audioFile).getText();
+    artifactCache.putString(ArtifactType.TRANSCRIPT, transcriptKey, transcriptionText);
+    return transcriptionText;
+  }
+
+  /**
+   * Returns the embedding of a transcript, computing it only if it is not cached yet.
+   *
+   * @param text The transcription text
+   * @param deadline Deadline of the job, which cancels the request in flight
+   * @return The embedding vector
+   * @throws EmbeddingException if the embedding cannot be computed
+   */
+  private double[] embed(String text, Deadline deadline) throws EmbeddingException {
+    String embeddingKey = ArtifactCache.digest(String.valueOf(EMBEDDING_DIMENSIONS), text);
+    Optional<double[]> cached = artifactCache.getDoubles(ArtifactType.EMBEDDING, embeddingKey);
+    if (cached.isPresent()) {
+      return cached.get();
+    }
+    double[] embedding = vectorizationService.getEmbedding(text, EMBEDDING_DIMENSIONS, deadline);
+    artifactCache.putDoubles(ArtifactType.EMBEDDING, embeddingKey, embedding);
+    return embedding;
+  }
+
+  /**
+   * Renames a copy of cached audio so that it ends in the extension matching its format.
+   *
+   * @param audioFile The copy of the cached audio
+   * @return The renamed file
+   * @throws IOException if the file cannot be read or renamed
+   */
+  private static Path withAudioExtension(Path audioFile) throws IOException {
+    byte[] head;
+    try (InputStream inputStream = Files.newInputStream(audioFile)) {
+      head = inputStream.readNBytes(AUDIO_MAGIC_BYTES);
+    }
+    String name = audioFile.getFileName().toString();
+    int dot = name.lastIndexOf('.');
+    String baseName = dot < 0 ? name : name.substring(0, dot);
+    return Files.move(audioFile, audioFile.resolveSibling(baseName + audioExtension(head)));
+  }
+
+  /**
+   * Picks a file extension for cached audio from its magic bytes, since the transcription
+   * endpoint infers the format from the file name.
+   *
+   * @param audio The audio bytes
+   * @return The file extension including the dot
+   */
+  static String audioExtension(byte[] audio) {
+    if (startsWith(audio, "OggS")) {
+      return ".ogg";
+    }
+    if (startsWith(audio, "fLaC")) {
+      return ".flac";
+    }
+    if (startsWith(audio, "ID3") || (audio.length > 1 && (audio[0] & 0xFF) == 0xFF && (audio[1] & 0xE0) == 0xE0)) {
+      return ".mp3";
+    }
+    return ".m4a";
+  }
+
+  private static boolean startsWith(byte[] data, String magic) {
+    if (data.length < magic.length()) {
+      return false;
+    }
+    for (int i = 0; i < magic.length(); i++) {
+      if (data[i] != magic.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Extracts audio from a video file.
+   * FFmpeg reads the container directly from disk and only the audio stream is decoded,
+   * so the video is never loaded onto the heap.
+   *
+   * @param videoPath Path to the video file
+   * @return Path to a temporary file containing the extracted audio; the caller is responsible for deleting it
    * @throws IOException if an I/O error occurs
    */
-  @Cacheable(value = "audioExtractions", key = "#videoInputStream.hashCode()")
-  public byte[] extractAudioFromVideo(InputStream videoInputStream) throws IOException {
-    File tempFile = File.createTempFile("audio", ".mp3");
-    try (FFmpegFrameRecorder recorder = new FFmpegFrameRecorder(tempFile, 0);
-         FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(videoInputStream)) {
+  public Path extractAudioFromVideo(Path videoPath) throws IOException {
+    return demux(videoPath, true, false).getAudioFile();
+  }
+
+  /**
+   * Demultiplexes a video file in a single pass, writing its audio to a temporary file and
+   * capturing the thumbnail frame at 10% of the duration as it goes by.
+   * Opening and probing the container once instead of once per output roughly halves the FFmpeg work per upload.
+   * Video frames are only decoded until the thumbnail has been captured.
+   * When the speech profile is active and the source audio is already compact enough for Whisper,
+   * the audio packets are copied without decoding and the thumbnail is read after a seek instead.
+   *
+   * @param videoPath Path to the video file
+   * @param extractAudio Whether the audio track should be extracted
+   * @param captureThumbnail Whether a thumbnail should be captured
+   * @return DemuxResult holding the requested outputs
+   * @throws IOException if an I/O error occurs
+   */
+  DemuxResult demux(Path videoPath, boolean extractAudio, boolean captureThumbnail) throws IOException {
+    return demux(new FFmpegFrameGrabber(videoPath.toFile()), extractAudio, captureThumbnail);
+  }
+
+  /**
+   * Demultiplexes a video in a single pass, see {@link #demux(Path, boolean, boolean)}.
+   *
+   * @param grabber Grabber reading the video, which is started and closed here
+   * @param extractAudio Whether the audio track should be extracted
+   * @param captureThumbnail Whether a thumbnail should be captured
+   * @return DemuxResult holding the requested outputs
+   * @throws IOException if an I/O error occurs
+   */
+  private DemuxResult demux(FFmpegFrameGrabber grabber, boolean extractAudio, boolean captureThumbnail)
+          throws IOException {
+    Path audioFile = null;
+    try (grabber;
+         Java2DFrameConverter converter = new Java2DFrameConverter()) {
       grabber.start();
-      recorder.setAudioCodec(avcodec.AV_CODEC_ID_MP3);
-      recorder.setSampleRate(grabber.getSampleRate());
-      recorder.setAudioChannels(grabber.getAudioChannels());
-      recorder.setAudioQuality(AUDIO_QUALITY);
-      recorder.setAudioBitrate(BIT_RATE);
-      recorder.start();
 
+      long thumbnailPosition = -1;
+      if (captureThumbnail) {
+        long durationInMicroseconds = grabber.getLengthInTime();
+        if (durationInMicroseconds <= 0) {
+          throw new VideoProcessingException("Unable to determine video duration", null);
+        }
+        thumbnailPosition = durationInMicroseconds / 10;
+      }
+
+      String thumbnailFileName = null;
+      String streamCopyExtension = extractAudio ? streamCopyExtension(grabber) : null;
+      boolean streamCopied = streamCopyExtension != null;
+      if (streamCopied) {
+        audioFile = Files.createTempFile("audio", streamCopyExtension);
+        copyAudioStream(grabber, audioFile);
+      } else if (extractAudio) {
+        audioFile = Files.createTempFile("audio", audioProfile.getExtension());
+        thumbnailFileName = encodeAudioStream(grabber, audioFile, converter, thumbnailPosition);
+      }
+
+      if (captureThumbnail && thumbnailFileName == null) {
+        // Nothing was decoded on the way, so jump straight to the thumbnail
+        grabber.setTimestamp(thumbnailPosition, true);
+        Frame frame = grabber.grabImage();
+        if (frame != null && frame.image != null) {
+          thumbnailFileName = writeThumbnail(converter.getBufferedImage(frame));
+        }
+      }
+      grabber.stop();
+
+      if (captureThumbnail && thumbnailFileName == null) {
+        throw new VideoProcessingException("Could not extract a valid thumbnail from the video", null);
+      }
+      return new DemuxResult(audioFile, thumbnailFileName, streamCopied);
+    } catch (FFmpegFrameGrabber.Exception e) {
+      deleteTemporaryFile(audioFile);
+      throw new IOException("Error processing video with FFmpeg", e);
+    } catch (IOException | RuntimeException e) {
+      deleteTemporaryFile(audioFile);
+      throw e;
+    }
+  }
+
+  /**
+   * Decodes the audio track and encodes it with the configured profile.
+   * If a thumbnail position is given, video frames are decoded alongside the audio until the
+   * thumbnail has been captured.
+   *
+   * @param grabber Started grabber positioned at the beginning of the video
+   * @param audioFile Path of the file to write
+   * @param converter Converter used for the thumbnail frame
+   * @param thumbnailPosition Timestamp of the thumbnail in microseconds, or -1 if none is needed
+   * @return String containing the file name of the thumbnail, or null if none was captured
+   * @throws IOException if an I/O error occurs
+   */
+  private String encodeAudioStream(FFmpegFrameGrabber grabber, Path audioFile, Java2DFrameConverter converter,
+                                   long thumbnailPosition) throws IOException {
+    Timer.Sample sample = Timer.start(meterRegistry);
+    String thumbnailFileName = null;
+    boolean speech = audioProfile == AudioProfile.SPEECH_16K_MONO;
+    try (FFmpegFrameRecorder recorder = startAudioRecorder(audioFile, grabber);
+         FFmpegFrameFilter filter = speech ? startSpeechFilter(grabber) : null) {
       Frame frame;
-      while ((frame = grabber.grab()) != null) {
+      while ((frame = grabber.grabFrame(true, thumbnailPosition >= 0 && thumbnailFileName == null, true, false)) != null) {
+        checkInterrupted();
         if (frame.samples != null) {
-          recorder.record(frame);
+          if (filter == null) {
+            recorder.record(frame);
+          } else {
+            filter.push(frame);
+            Frame resampled;
+            while ((resampled = filter.pullSamples()) != null) {
+              recorder.record(resampled);
+            }
+          }
+        }
+        if (thumbnailPosition >= 0 && thumbnailFileName == null && frame.image != null
+                && frame.timestamp >= thumbnailPosition) {
+          thumbnailFileName = writeThumbnail(converter.getBufferedImage(frame));
         }
       }
+      recorder.stop();
+    } finally {
+      sample.stop(meterRegistry.timer("video.audio.encode", "profile", audioProfile.name(), "mode", "encode"));
+    }
+    return thumbnailFileName;
+  }
+
+  /**
+   * Copies the audio packets of the first audio stream into a new container without re-encoding.
+   *
+   * @param grabber Started grabber positioned at the beginning of the video
+   * @param audioFile Path of the file to write
+   * @throws IOException if an I/O error occurs
+   */
+  private void copyAudioStream(FFmpegFrameGrabber grabber, Path audioFile) throws IOException {
+    Timer.Sample sample = Timer.start(meterRegistry);
+    int audioStreamIndex = findAudioStreamIndex(grabber.getFormatContext());
+    try (FFmpegFrameRecorder recorder = new FFmpegFrameRecorder(audioFile.toFile(), grabber.getAudioChannels())) {
+      recorder.setAudioCodec(grabber.getAudioCodec());
+      recorder.setSampleRate(grabber.getSampleRate());
+      recorder.setAudioBitrate(grabber.getAudioBitrate());
+      recorder.start(grabber.getFormatContext());
 
+      AVPacket packet;
+      while ((packet = grabber.grabPacket()) != null) {
+        checkInterrupted();
+        if (packet.stream_index() == audioStreamIndex) {
+          recorder.recordPacket(packet);
+        }
+      }
       recorder.stop();
-      grabber.stop();
+    } finally {
+      sample.stop(meterRegistry.timer("video.audio.encode", "profile", audioProfile.name(), "mode", "copy"));
+    }
+  }
+
+  /**
+   * Stops a demux pass whose job has been cancelled or has run out of time. The pool interrupts the
+   * thread, and the grabber, filter and recorder are closed on the way out, which frees their native memory.
+   *
+   * @throws InterruptedIOException if the thread has been interrupted
+   */
+  private static void checkInterrupted() throws InterruptedIOException {
+    if (Thread.currentThread().isInterrupted()) {
+      throw new InterruptedIOException("Demuxing was cancelled");
+    }
+  }
+
+  /**
+   * Determines whether the source audio can be handed to Whisper without re-encoding.
+   *
+   * @param grabber Started grabber
+   * @return the file extension to copy the audio into, or null if it has to be re-encoded
+   */
+  private String streamCopyExtension(FFmpegFrameGrabber grabber) {
+    if (audioProfile != AudioProfile.SPEECH_16K_MONO
+            || grabber.getAudioChannels() != 1
+            || grabber.getSampleRate() > SPEECH_SAMPLE_RATE) {
+      return null;
+    }
+    return STREAM_COPY_EXTENSIONS.get(grabber.getAudioCodec());
+  }
+
+  /**
+   * Finds the index of the first audio stream in a container.
+   *
+   * @param formatContext Format context of the opened container
+   * @return the stream index
+   */
+  private int findAudioStreamIndex(AVFormatContext formatContext) {
+    for (int i = 0; i < formatContext.nb_streams(); i++) {
+      if (formatContext.streams(i).codecpar().codec_type() == avutil.AVMEDIA_TYPE_AUDIO) {
+        return i;
+      }
+    }
+    throw new VideoProcessingException("Video has no audio stream", null);
+  }
+
+  /**
+   * Creates and starts the recorder that encodes the extracted audio track.
+   *
+   * @param audioFile Path of the file to write
+   * @param grabber Grabber the audio is read from
+   * @return the started recorder
+   * @throws IOException if the recorder cannot be started
+   */
+  private FFmpegFrameRecorder startAudioRecorder(Path audioFile, FFmpegFrameGrabber grabber) throws IOException {
+    FFmpegFrameRecorder recorder;
+    if (audioProfile == AudioProfile.SPEECH_16K_MONO) {
+      recorder = new FFmpegFrameRecorder(audioFile.toFile(), 1);
+      recorder.setFormat("ogg");
+      recorder.setAudioCodec(avcodec.AV_CODEC_ID_OPUS);
+      recorder.setSampleRate(SPEECH_SAMPLE_RATE);
+      recorder.setAudioBitrate(SPEECH_BIT_RATE);
+    } else {
+      recorder = new FFmpegFrameRecorder(audioFile.toFile(), 0);
+      recorder.setAudioCodec(avcodec.AV_CODEC_ID_MP3);
+      recorder.setSampleRate(grabber.getSampleRate());
+      recorder.setAudioChannels(grabber.getAudioChannels());
+      recorder.setAudioQuality(AUDIO_QUALITY);
+      recorder.setAudioBitrate(BIT_RATE);
+    }
+    recorder.start();
+    return recorder;
+  }
 
-      byte[] audioData = Files.readAllBytes(tempFile.toPath());
-      if (!tempFile.delete()) {
-        logger.warn("Failed to delete temporary audio file: {}", tempFile.getAbsolutePath());
+  /**
+   * Creates and starts the filter that resamples the source audio to 16 kHz mono.
+   *
+   * @param grabber Grabber the audio is read from
+   * @return the started filter
+   * @throws IOException if the filter cannot be started
+   */
+  private FFmpegFrameFilter startSpeechFilter(FFmpegFrameGrabber grabber) throws IOException {
+    FFmpegFrameFilter filter = new FFmpegFrameFilter(SPEECH_AUDIO_FILTER, grabber.getAudioChannels());
+    filter.setSampleRate(grabber.getSampleRate());
+    filter.setSampleFormat(grabber.getSampleFormat());
+    filter.start();
+    return filter;
+  }
+
+  /**
+   * Writes a thumbnail image to the thumbnail directory.
+   *
+   * @param bufferedImage The image to write
+   * @return String containing the file name of the thumbnail
+   * @throws IOException if the image cannot be written
+   */
+  private String writeThumbnail(BufferedImage bufferedImage) throws IOException {
+    if (bufferedImage != null) {
+      String thumbnailFileName = UUID.randomUUID() + ".png";
+      Path thumbnailPath = Paths.get(thumbnailUploadPath, thumbnailFileName);
+      if (ImageIO.write(bufferedImage, "png", thumbnailPath.toFile())) {
+        return thumbnailFileName;
       }
-      return audioData;
     }
+    throw new VideoProcessingException("Could not extract a valid thumbnail from the video", null);
+  }
+
+  /**
+   * Records the size of the audio that is about to be uploaded for transcription.
+   *
+   * @param demuxResult Result of the demux pass
+   * @throws IOException if the size of the audio file cannot be read
+   */
+  private void recordUploadSize(DemuxResult demuxResult) throws IOException {
+    DistributionSummary.builder("video.audio.upload.size")
+            .baseUnit("bytes")
+            .tag("profile", audioProfile.name())
+            .tag("mode", demuxResult.isStreamCopied() ? "copy" : "encode")
+            .register(meterRegistry)
+            .record(Files.size(demuxResult.getAudioFile()));
   }
 
   /**
@@ -169,108 +920,221 @@ public class VideoProcessor {
    * @param audioData byte array containing audio data
    * @return String containing the transcribed text
    */
-  @Cacheable(value = "transcriptions", key = "#audioData.hashCode()")
   public String performSpeechRecognition(byte[] audioData) {
+    Path audioFile = null;
+    try {
+      audioFile = Files.createTempFile("audio", ".mp3");
+      Files.write(audioFile, audioData);
+      return performSpeechRecognition(audioFile);
+    } catch (IOException e) {
+      throw new VideoProcessingException("Error creating temporary file for audio data", e);
+    } finally {
+      deleteTemporaryFile(audioFile);
+    }
+  }
+
+  /**
+   * Transcribes an audio file of any length.
+   * Long recordings are split at silences into bounded chunks which are transcribed concurrently
+   * on the I/O pool, up to the configured parallelism per recording, and stitched back together in order
+   * with their segment timestamps shifted to the position of the chunk in the recording.
+   * The calling thread hands out the chunks and waits for them, so it must not be a thread of the I/O pool;
+   * the task graph calls this from its virtual threads.
+   * If the calling thread is interrupted or a chunk fails, the requests still running are cancelled.
+   *
+   * @param audioFile Path to the audio file
+   * @return TranscriptionResponse containing the full text and its segments
+   * @throws IOException if the audio cannot be split into chunks
+   */
+  public TranscriptionResponse transcribe(Path audioFile) throws IOException {
+    List<AudioSegmenter.AudioChunk> chunks = audioSegmenter.split(audioFile);
+    try {
+      if (chunks.size() == 1) {
+        return requestTranscription(chunks.get(0).getFile());
+      }
+
+      Semaphore permits = new Semaphore(openAiConfig.getTranscriptionParallelism());
+      List<Future<TranscriptionResponse>> requests = new ArrayList<>();
+      try {
+        for (AudioSegmenter.AudioChunk chunk : chunks) {
+          permits.acquire();
+          requests.add(ioExecutor.submit(() -> {
+            try {
+              return requestTranscription(chunk.getFile());
+            } finally {
+              permits.release();
+            }
+          }));
+        }
+        List<TranscriptionResponse> responses = new ArrayList<>();
+        for (Future<TranscriptionResponse> request : requests) {
+          responses.add(request.get());
+        }
+        return stitch(chunks, responses);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Transcription was cancelled");
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof RuntimeException cause) {
+          throw cause;
+        }
+        throw new IOException("Error transcribing audio chunk", e.getCause());
+      } finally {
+        requests.forEach(request -> request.cancel(true));
+      }
+    } finally {
+      audioSegmenter.deleteTemporaryChunks(chunks);
+    }
+  }
+
+  /**
+   * Joins the transcriptions of consecutive chunks into one transcription.
+   *
+   * @param chunks The chunks in playback order
+   * @param responses The transcription of each chunk, in the same order
+   * @return TranscriptionResponse covering the whole recording
+   */
+  static TranscriptionResponse stitch(List<AudioSegmenter.AudioChunk> chunks, List<TranscriptionResponse> responses) {
+    StringJoiner text = new StringJoiner(" ");
+    List<TranscriptionSegment> segments = new ArrayList<>();
+    for (int i = 0; i < chunks.size(); i++) {
+      TranscriptionResponse response = responses.get(i);
+      double offset = chunks.get(i).getOffsetSeconds();
+      if (response.getText() != null && !response.getText().isBlank()) {
+        text.add(response.getText().trim());
+      }
+      if (response.getSegments() != null) {
+        response.getSegments().forEach(segment -> segments.add(segment.shiftedBy(offset)));
+      }
+    }
+
+    TranscriptionResponse stitched = new TranscriptionResponse();
+    stitched.setText(text.toString());
+    stitched.setSegments(segments);
+    return stitched;
+  }
+
+  /**
+   * Performs speech recognition on an audio file.
+   * The file is streamed to the transcription endpoint rather than buffered in memory.
+   *
+   * @param audioFile Path to the audio file
+   * @return String containing the transcribed text
+   */
+  public String performSpeechRecognition(Path audioFile) {
+    return requestTranscription(audioFile).getText();
+  }
+
+  /**
+   * Sends an audio file to the transcription endpoint.
+   *
+   * @param audioFile Path to the audio file
+   * @return TranscriptionResponse containing the text and its timed segments
+   */
+  TranscriptionResponse requestTranscription(Path audioFile) {
     HttpHeaders headers = new HttpHeaders();
     headers.setContentType(MediaType.MULTIPART_FORM_DATA);
     headers.set(HttpHeaders.AUTHORIZATION, "Bearer " + openAiConfig.getApiKey());
 
     MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
-    try {
-      File tempFile = File.createTempFile("audio", ".mp3");
-      try (FileOutputStream fos = new FileOutputStream(tempFile)) {
-        fos.write(audioData);
-      }
+    body.add("file", new FileSystemResource(audioFile));
+    body.add("model", "whisper-1");
+    body.add("response_format", "verbose_json");
 
-      body.add("file", new FileSystemResource(tempFile));
-      body.add("model", "whisper-1");
-
-      HttpEntity<MultiValueMap<String, Object>> requestEntity = new HttpEntity<>(body, headers);
+    HttpEntity<MultiValueMap<String, Object>> requestEntity = new HttpEntity<>(body, headers);
 
+    try {
       ResponseEntity<TranscriptionResponse> response = restTemplate.exchange(
               openAiConfig.getApiUrl() +  TRANSCRIPTIONS_ENDPOINT,
               HttpMethod.POST,
               requestEntity,
               TranscriptionResponse.class);
 
-      if (!tempFile.delete()) {
-        logger.warn("Failed to delete temporary speech file: {}", tempFile.getAbsolutePath());
-      }
-
       if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-        return response.getBody().getText();
+        return response.getBody();
       } else {
         throw new OpenAiException("Failed to transcribe audio: " + response.getStatusCode(), null);
       }
-    } catch (IOException e) {
-      throw new VideoProcessingException("Error creating temporary file for audio data", e);
     } catch (HttpClientErrorException e) {
       throw new OpenAiException("Error performing speech recognition: " + e.getResponseBodyAsString(), e);
     }
   }
 
   /**
-   * Extracts a thumbnail from a video input stream.
+   * Extracts a thumbnail from a video file.
    *
-   * @param videoInputStream InputStream of the video file
+   * @param videoPath Path to the video file
    * @param filename Name of the video file
    * @return String containing the path to the extracted thumbnail
    * @throws IOException if an I/O error occurs
    */
-  @Cacheable(value = "thumbnails", key = "#filename")
-  public String extractThumbnail(InputStream videoInputStream, String filename) throws IOException {
-    try (FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(videoInputStream);
-         Java2DFrameConverter converter = new Java2DFrameConverter()) {
-      grabber.start();
-      long durationInMicroseconds = grabber.getLengthInTime();
-      if (durationInMicroseconds <= 0) {
-        throw new VideoProcessingException("Unable to determine video duration", null);
-      }
-
-      long targetPosition = durationInMicroseconds / 10;
-      grabber.setTimestamp(targetPosition, true);
-      Frame frame = grabber.grabImage();
-
-      if (frame != null && frame.image != null) {
-        BufferedImage bufferedImage = converter.getBufferedImage(frame);
-        if (bufferedImage != null) {
-          String thumbnailFileName = UUID.randomUUID() + ".png";
-          Path thumbnailPath = Paths.get(thumbnailUploadPath, thumbnailFileName);
-          if (ImageIO.write(bufferedImage, "png", thumbnailPath.toFile())) {
-            return thumbnailFileName;
-          }
-        }
-      }
+  public String extractThumbnail(Path videoPath, String filename) throws IOException {
+    return demux(videoPath, false, true).getThumbnailFileName();
+  }
 
-      throw new VideoProcessingException("Could not extract a valid thumbnail from the video", null);
-    } catch (FFmpegFrameGrabber.Exception e) {
-      throw new IOException("Error processing video with FFmpeg", e);
+  /**
+   * Deletes a temporary file, logging instead of failing if it cannot be removed.
+   *
+   * @param file Path to the temporary file, may be null
+   */
+  private void deleteTemporaryFile(Path file) {
+    if (file == null) {
+      return;
+    }
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      logger.warn("Failed to delete temporary file: {}", file.toAbsolutePath());
     }
   }
 
   /**
-   * Clears caches for a specific video file.
-   *
-   * @param filename Name of the video file
+   * Inner class holding the audio of a video on its way from the media stage to the API stage.
+   * The audio file is a temporary file, either extracted or copied from the cache, and is deleted once the
+   * video has been processed. The thumbnail is only captured if the audio was extracted from the video
+   * rather than taken from the cache.
    */
-  @CacheEvict(value = { "videos", "audioExtractions", "transcriptions", "thumbnails" }, key = "#filename")
-  public void clearCaches(String filename) {
-    logger.info("Cleared caches for video: {}", filename);
+  @AllArgsConstructor
+  private static class ExtractedAudio {
+    private final Path audioFile;
+    private final String thumbnailPath;
+    private final boolean thumbnailCaptured;
   }
 
   /**
-   * Shuts down the executor service.
+   * Inner class holding the outputs of a single demux pass.
    */
-  @PreDestroy
-  public void shutdown() {
-    executorService.shutdown();
-    try {
-      if (!executorService.awaitTermination(60, TimeUnit.SECONDS)) {
-        executorService.shutdownNow();
-      }
-    } catch (InterruptedException e) {
-      executorService.shutdownNow();
-      Thread.currentThread().interrupt();
+  @Getter
+  @AllArgsConstructor
+  static class DemuxResult {
+    private final Path audioFile;
+    private final String thumbnailFileName;
+    private final boolean streamCopied;
+  }
+
+  /**
+   * Profiles for the audio extracted for transcription.
+   */
+  public enum AudioProfile {
+    /**
+     * Re-encodes the source audio to MP3 at its original sample rate and channel count.
+     */
+    SOURCE_MP3(".mp3"),
+
+    /**
+     * Resamples to 16 kHz mono and encodes Opus, which is all Whisper needs for speech.
+     * Compatible source tracks are stream-copied instead.
+     */
+    SPEECH_16K_MONO(".ogg");
+
+    private final String extension;
+
+    AudioProfile(String extension) {
+      this.extension = extension;
+    }
+
+    public String getExtension() {
+      return extension;
     }
   }
 
@@ -281,5 +1145,29 @@ public class VideoProcessor {
   @Setter
   protected static class TranscriptionResponse {
     private String text;
+    private List<TranscriptionSegment> segments;
+  }
+
+  /**
+   * Inner class representing a timed segment of a transcription.
+   */
+  @Getter
+  @Setter
+  @NoArgsConstructor
+  @AllArgsConstructor
+  protected static class TranscriptionSegment {
+    private double start;
+    private double end;
+    private String text;
+
+    /**
+     * Returns a copy of this segment moved later by the given offset.
+     *
+     * @param offsetSeconds Offset in seconds
+     * @return the shifted segment
+     */
+    TranscriptionSegment shiftedBy(double offsetSeconds) {
+      return new TranscriptionSegment(start + offsetSeconds, end + offsetSeconds, text);
+    }
   }
 }
@@ -1,5 +1,7 @@
 package com.fact_checker.FactChecker.service;
 
+import com.fact_checker.FactChecker.model.MediaMetadata;
+import com.fact_checker.FactChecker.model.StoredUpload;
 import com.fact_checker.FactChecker.model.User;
 import com.fact_checker.FactChecker.model.Video;
 import com.fact_checker.FactChecker.repository.VideoRepository;
@@ -9,16 +11,22 @@ import org.apache.commons.io.FilenameUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedOutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 
@@ -30,25 +38,44 @@ import java.util.concurrent.CompletableFuture;
 public class VideoService {
   private static final Logger logger = LoggerFactory.getLogger(VideoService.class);
   private static final List<String> SUPPORTED_FILE_EXTENSIONS = Arrays.asList("mp4", "mov", "avi", "wmv", "flv");
+  private static final String CONTENT_HASH_ALGORITHM = "SHA-256";
+  /** Bytes inspected to decide whether the container of an upload can be demuxed while it streams in. */
+  private static final int STREAM_HEAD_BYTES = 64 * 1024;
+  private static final int COPY_BUFFER_SIZE = 64 * 1024;
 
   private final VideoRepository videoRepository;
   private final VideoProcessor videoProcessor;
+  private final VideoProbe videoProbe;
   private final String uploadPath;
+  private final boolean pipelinedIngest;
+  private final int ingestPipeBytes;
+  private final long maxUploadBytes;
 
   /**
    * Constructs a new VideoService.
    *
    * @param videoRepository Repository for Video entities
    * @param videoProcessor  Processor for video files
+   * @param videoProbe      Checks uploads before they are processed
    * @param uploadPath      Path where uploaded files will be stored
+   * @param pipelinedIngest Whether audio is extracted while uploads are still being stored
+   * @param ingestPipeBytes Size of the buffer between the stored file and the audio extraction
+   * @param maxUploadBytes  Largest upload accepted, in bytes
    * @throws RuntimeException if the upload directory cannot be created or is not
    *                          writable
    */
-  public VideoService(VideoRepository videoRepository, VideoProcessor videoProcessor,
-      @Value("${video.upload.path}") String uploadPath) {
+  public VideoService(VideoRepository videoRepository, VideoProcessor videoProcessor, VideoProbe videoProbe,
+      @Value("${video.upload.path}") String uploadPath,
+      @Value("${video.ingest.pipelined:true}") boolean pipelinedIngest,
+      @Value("${video.ingest.pipe-buffer-bytes:8388608}") int ingestPipeBytes,
+      @Value("${uploads.max-size-bytes:1048576000}") long maxUploadBytes) {
     this.videoRepository = videoRepository;
     this.videoProcessor = videoProcessor;
+    this.videoProbe = videoProbe;
     this.uploadPath = uploadPath;
+    this.pipelinedIngest = pipelinedIngest;
+    this.ingestPipeBytes = ingestPipeBytes;
+    this.maxUploadBytes = maxUploadBytes;
 
     // Check upload directory
     Path uploadDir = Paths.get(uploadPath);
@@ -71,53 +98,254 @@ public class VideoService {
   }
 
   /**
-   * Processes and saves a video file asynchronously.
+   * Validates the uploaded file and stores it in the upload directory.
+   * This is the only part of the pipeline that needs the request's multipart data,
+   * so it runs on the request thread while the processing can run in the background.
    *
-   * @param file The MultipartFile representing the video to be processed
-   * @return A CompletableFuture that will contain the processed Video entity
-   * @throws InvalidFileException    if the file is empty or has an unsupported
-   *                                 extension
-   * @throws FileProcessingException if there's an error during file processing
+   * @param file The MultipartFile to be stored
+   * @return The stored upload, including the digest of its content
+   * @throws InvalidFileException    if the file is empty, has an unsupported
+   *                                 extension or is not a readable video
+   * @throws FileProcessingException if the file cannot be written
    */
-  @Transactional
-  public CompletableFuture<Video> processAndSaveVideo(MultipartFile file, User user) {
-    return CompletableFuture.supplyAsync(() -> {
-      try {
-        validateFile(file);
-        String filename = saveFile(file);
-        Video video = processVideo(filename);
-        logger.info("User {} with id {} uploaded video {}", user.getUsername(), user.getId(), filename);
-        video.setUser(user);
-        return videoRepository.save(video);
-      } catch (InvalidFileException | FileProcessingException | DataIntegrityViolationException e) {
-        logger.error("File is invalid: {}", file.getOriginalFilename());
-        throw e;
+  public StoredUpload storeUpload(MultipartFile file) {
+    validateFile(file);
+    try (InputStream inputStream = file.getInputStream()) {
+      return ingest(inputStream, file.getOriginalFilename());
+    } catch (IOException e) {
+      logger.error("Error while reading uploaded file: {}", e.getMessage());
+      throw new FileProcessingException("Failed to save file", e);
+    }
+  }
+
+  /**
+   * Processes a previously stored upload and persists the resulting video.
+   * If a video with the same content has been processed before, its transcription, embeddings,
+   * fact percentage and false statements are reused instead of running the pipeline again.
+   *
+   * @param upload The stored upload, as returned by {@link #storeUpload(MultipartFile)}
+   * @param user   The user who uploaded the video
+   * @return The persisted Video entity
+   * @throws FileProcessingException if there's an error during video processing
+   */
+  public Video processStoredVideo(StoredUpload upload, User user) {
+    return processStoredVideo(upload, user, Deadline.none());
+  }
+
+  /**
+   * Processes a previously stored upload within the time its job has left and persists the resulting video,
+   * see {@link #processStoredVideo(StoredUpload, User)}.
+   *
+   * @param upload   The stored upload, as returned by {@link #storeUpload(MultipartFile)}
+   * @param user     The user who uploaded the video
+   * @param deadline The deadline of the job processing the upload
+   * @return The persisted Video entity
+   * @throws FileProcessingException if there's an error during video processing, or the job is cancelled
+   *                                 or runs out of time
+   */
+  public Video processStoredVideo(StoredUpload upload, User user, Deadline deadline) {
+    Video video = videoRepository.findFirstByContentHashOrderByProcessedAtDesc(upload.getContentHash())
+        .map(existing -> copyResults(existing, upload))
+        .orElseGet(() -> processVideo(upload, deadline));
+    video.setContentHash(upload.getContentHash());
+    video.setMetadata(upload.getMetadata());
+    logger.info("User {} with id {} uploaded video {}", user.getUsername(), user.getId(), upload.getFilename());
+    video.setUser(user);
+    return videoRepository.save(video);
+  }
+
+  /**
+   * Creates a video for a new upload of already known content from the results of an earlier upload.
+   *
+   * @param existing The previously processed video with the same content
+   * @param upload   The new upload
+   * @return A new Video entity sharing the processing results
+   */
+  private Video copyResults(Video existing, StoredUpload upload) {
+    logger.info("Content of {} matches video {}, reusing its results", upload.getFilename(), existing.getId());
+    Video video = new Video();
+    video.setFileName(upload.getFilename());
+    video.setFilePath(Paths.get(uploadPath, upload.getFilename()).toString());
+    video.setTranscriptionText(existing.getTranscriptionText());
+    video.setThumbnailPath(existing.getThumbnailPath());
+    video.setTranscriptionsEmbeddings(existing.getTranscriptionsEmbeddings());
+    video.setFactPercentage(existing.getFactPercentage());
+    if (existing.getFalseStatements() != null) {
+      video.setFalseStatements(new ArrayList<>(existing.getFalseStatements()));
+    }
+    video.setClaims(new HashSet<>(videoRepository.findClaimsByVideoId(existing.getId())));
+    video.setProcessedAt(LocalDateTime.now());
+    return video;
+  }
+
+  /**
+   * Stores an upload as it streams in, computing the SHA-256 digest of its content on the way.
+   * Uploads whose first bytes are not a supported container are rejected before anything is written,
+   * and stored files are probed for their metadata before they are accepted.
+   * When pipelined ingest is enabled, the container can be read front to back and a stream ingest is free,
+   * the stream is teed: one copy goes to the stored file, the other through a bounded pipe into FFmpeg,
+   * so the audio is extracted while the upload is still being received. The pipe applies back pressure,
+   * and if the extraction gives up the file is still written in full and processed the regular way.
+   *
+   * @param source           The content of the upload
+   * @param originalFilename The name of the file on the client
+   * @return The stored upload, including the digest of its content
+   * @throws InvalidFileException    if the file is empty, too large, has an unsupported
+   *                                 extension or is not a readable video
+   * @throws FileProcessingException if the file cannot be written
+   */
+  public StoredUpload ingest(InputStream source, String originalFilename) {
+    String fileExtension = validateFilename(originalFilename);
+    String randomFilename = UUID.randomUUID() + "." + fileExtension;
+    Path filePath = Paths.get(uploadPath, randomFilename);
+
+    CompletableFuture<Path> audio = null;
+    PipedOutputStream pipe = null;
+    try (BufferedInputStream inputStream = new BufferedInputStream(source, STREAM_HEAD_BYTES)) {
+      inputStream.mark(STREAM_HEAD_BYTES);
+      byte[] head = inputStream.readNBytes(STREAM_HEAD_BYTES);
+      inputStream.reset();
+      if (head.length == 0) {
+        throw new InvalidFileException("File is empty");
       }
-    });
+      videoProbe.checkSignature(head, head.length);
+
+      if (pipelinedIngest && VideoProcessor.isStreamable(head, head.length)) {
+        PipedOutputStream ingestPipe = new PipedOutputStream();
+        audio = videoProcessor.extractAudioFromStream(ingestPipe, ingestPipeBytes).orElse(null);
+        pipe = audio == null ? null : ingestPipe;
+      }
+
+      MessageDigest messageDigest = MessageDigest.getInstance(CONTENT_HASH_ALGORITHM);
+      try (OutputStream outputStream = Files.newOutputStream(filePath)) {
+        pipe = tee(inputStream, outputStream, messageDigest, pipe);
+      }
+      closePipe(pipe);
+      pipe = null;
+
+      MediaMetadata metadata = videoProbe.probe(filePath);
+      String contentHash = HexFormat.of().formatHex(messageDigest.digest());
+      if (audio != null) {
+        videoProcessor.completePipelinedIngest(contentHash, audio);
+      }
+      logger.info("File saved successfully: {} ({}, pipelined: {})", randomFilename, contentHash, audio != null);
+      return new StoredUpload(randomFilename, contentHash, Files.size(filePath), metadata);
+    } catch (IOException | RuntimeException e) {
+      closePipe(pipe);
+      if (audio != null) {
+        audio.thenAccept(this::deleteQuietly);
+      }
+      deleteQuietly(filePath);
+      if (e instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      logger.error("Error while saving file: {}", e.getMessage());
+      throw new FileProcessingException("Failed to save file", e);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(CONTENT_HASH_ALGORITHM + " is not available", e);
+    }
   }
 
   /**
-   * Saves the uploaded file to the file system.
+   * Copies an upload to the stored file and, while the audio extraction keeps reading, into the pipe.
    *
-   * @param file The MultipartFile to be saved
-   * @return The filename of the saved file
-   * @throws InvalidFileException    if the file has no extension
-   * @throws FileProcessingException if there's an error while saving the file
+   * @param inputStream   The content of the upload
+   * @param outputStream  The stored file
+   * @param messageDigest The digest updated with the content
+   * @param pipe          The pipe to the audio extraction, or null
+   * @return The pipe, or null if the extraction stopped reading
+   * @throws IOException if the upload cannot be read or the file cannot be written
    */
-  private String saveFile(MultipartFile file) throws InvalidFileException {
-    String fileExtension = getFileExtension(file)
-        .orElseThrow(() -> new InvalidFileException("File has no extension"));
+  private PipedOutputStream tee(InputStream inputStream, OutputStream outputStream, MessageDigest messageDigest,
+      PipedOutputStream pipe) throws IOException {
+    byte[] buffer = new byte[COPY_BUFFER_SIZE];
+    long total = 0;
+    int read;
+    while ((read = inputStream.read(buffer)) != -1) {
+      total += read;
+      if (total > maxUploadBytes) {
+        throw new InvalidFileException("File is too large");
+      }
+      messageDigest.update(buffer, 0, read);
+      outputStream.write(buffer, 0, read);
+      if (pipe != null) {
+        try {
+          pipe.write(buffer, 0, read);
+        } catch (IOException e) {
+          // The extraction failed or finished early, the stored file is processed the regular way
+          logger.debug("Audio extraction stopped reading the upload: {}", e.getMessage());
+          closePipe(pipe);
+          pipe = null;
+        }
+      }
+    }
+    return pipe;
+  }
 
+  private void closePipe(PipedOutputStream pipe) {
+    if (pipe == null) {
+      return;
+    }
+    try {
+      pipe.close();
+    } catch (IOException e) {
+      logger.debug("Failed to close ingest pipe: {}", e.getMessage());
+    }
+  }
+
+  private void deleteQuietly(Path file) {
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      logger.warn("Failed to delete file: {}", file.toAbsolutePath());
+    }
+  }
+
+  /**
+   * Stores a file that was assembled outside the upload directory, such as a completed
+   * chunked upload, like a regular upload.
+   * The file is hard-linked into the upload directory, or copied where the file system cannot link it,
+   * so the assembled file stays with the caller until the job for it has been queued.
+   * The signature in the first bytes is checked before the whole file is read for its digest,
+   * so a mislabeled file is rejected right away.
+   *
+   * @param assembledFile    The complete file
+   * @param originalFilename The name of the file on the client
+   * @return The stored upload, including the digest of its content
+   * @throws InvalidFileException    if the file is empty, has an unsupported
+   *                                 extension or is not a readable video
+   * @throws FileProcessingException if the file cannot be stored in the upload directory
+   */
+  public StoredUpload storeAssembledUpload(Path assembledFile, String originalFilename) {
+    String fileExtension = validateFilename(originalFilename);
     String randomFilename = UUID.randomUUID() + "." + fileExtension;
     Path filePath = Paths.get(uploadPath, randomFilename);
 
     try {
-      Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
-      logger.info("File saved successfully: {}", randomFilename);
-      return randomFilename;
+      long sizeBytes = Files.size(assembledFile);
+      if (sizeBytes == 0) {
+        throw new InvalidFileException("File is empty");
+      }
+      videoProbe.checkSignature(assembledFile);
+      String contentHash;
+      try (DigestInputStream inputStream = new DigestInputStream(Files.newInputStream(assembledFile), MessageDigest.getInstance(CONTENT_HASH_ALGORITHM))) {
+        inputStream.transferTo(OutputStream.nullOutputStream());
+        contentHash = HexFormat.of().formatHex(inputStream.getMessageDigest().digest());
+      }
+      MediaMetadata metadata = videoProbe.probe(assembledFile);
+      try {
+        Files.createLink(filePath, assembledFile);
+      } catch (UnsupportedOperationException | IOException e) {
+        Files.copy(assembledFile, filePath, StandardCopyOption.REPLACE_EXISTING);
+      }
+      logger.info("Assembled file stored successfully: {} ({})", randomFilename, contentHash);
+      return new StoredUpload(randomFilename, contentHash, sizeBytes, metadata);
     } catch (IOException e) {
-      logger.error("Error while saving file: {}", e.getMessage());
+      deleteQuietly(filePath);
+      logger.error("Error while storing assembled file: {}", e.getMessage());
       throw new FileProcessingException("Failed to save file", e);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(CONTENT_HASH_ALGORITHM + " is not available", e);
     }
   }
 
@@ -133,20 +361,31 @@ public class VideoService {
       throw new InvalidFileException("File is empty");
     }
 
-    getFileExtension(file)
+    validateFilename(file.getOriginalFilename());
+  }
+
+  /**
+   * Validates the name of an uploaded file.
+   *
+   * @param originalFilename The name of the file on the client
+   * @return The file extension
+   * @throws InvalidFileException if the file has an unsupported extension
+   */
+  public String validateFilename(String originalFilename) throws InvalidFileException {
+    return getFileExtension(originalFilename)
         .filter(SUPPORTED_FILE_EXTENSIONS::contains)
         .orElseThrow(() -> new InvalidFileException("File extension is not supported"));
   }
 
   /**
-   * Extracts the file extension from the MultipartFile.
+   * Extracts the file extension from a file name.
    *
-   * @param file The MultipartFile to extract the extension from
+   * @param filename The file name to extract the extension from
    * @return An Optional containing the file extension, or empty if no extension
    *         is found
    */
-  private Optional<String> getFileExtension(MultipartFile file) {
-    return Optional.ofNullable(file.getOriginalFilename())
+  private Optional<String> getFileExtension(String filename) {
+    return Optional.ofNullable(filename)
         .filter(f -> !f.isEmpty())
         .map(FilenameUtils::getExtension);
   }
@@ -154,14 +393,16 @@ public class VideoService {
   /**
    * Processes the video file to extract text from speech.
    *
-   * @param filename The name of the file to process
+   * @param upload   The stored upload to process
+   * @param deadline The deadline of the job processing the upload
    * @return The processed Video entity
    * @throws FileProcessingException if there's an error during video processing
    */
-  private Video processVideo(String filename) {
+  private Video processVideo(StoredUpload upload, Deadline deadline) {
+    String filename = upload.getFilename();
     Path filePath = Paths.get(uploadPath, filename);
     try {
-      Video video = videoProcessor.extractTextFromSpeech(filePath, filename)
+      Video video = videoProcessor.extractTextFromSpeech(filePath, filename, upload.getContentHash(), deadline)
           .exceptionally(ex -> {
             logger.error("Error processing video: {}", ex.getMessage());
             throw new FileProcessingException("Failed to process video", ex);
@@ -176,6 +417,20 @@ public class VideoService {
     }
   }
 
+  /**
+   * Deletes a stored upload that will not be processed.
+   *
+   * @param upload The stored upload
+   */
+  public void deleteUpload(StoredUpload upload) {
+    Path filePath = Paths.get(uploadPath, upload.getFilename());
+    try {
+      Files.deleteIfExists(filePath);
+    } catch (IOException e) {
+      logger.warn("Failed to delete upload: {}", filePath.toAbsolutePath());
+    }
+  }
+
   public List<Video> getAllVideos() {
     return videoRepository.findAll();
   }
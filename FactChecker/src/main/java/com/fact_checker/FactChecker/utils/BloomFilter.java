@@ -0,0 +1,90 @@
+package com.fact_checker.FactChecker.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A thread-safe Bloom filter over hex encoded SHA-256 digests.
+ * The digests are already uniformly distributed, so the bit positions are derived from them directly
+ * by double hashing instead of hashing the keys again.
+ * The filter never forgets a key: {@link #mightContain(String)} is false only for keys that were never put.
+ */
+public class BloomFilter {
+
+    private static final int MIN_DIGEST_LENGTH = 32;
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+
+    /**
+     * Creates a filter sized for the expected number of keys at the given false positive rate.
+     *
+     * @param expectedInsertions Number of keys the filter should hold before the rate degrades
+     * @param falsePositiveRate  Share of unseen keys that may be reported as possibly contained
+     */
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions <= 0) {
+            throw new IllegalArgumentException("Expected insertions must be positive");
+        }
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("False positive rate must be between 0 and 1");
+        }
+        long words = (long) Math.ceil(
+                -expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)) / Long.SIZE);
+        if (words > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Bloom filter of " + expectedInsertions + " keys is too large");
+        }
+        this.bits = new AtomicLongArray((int) words);
+        this.bitCount = words * Long.SIZE;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+    }
+
+    /**
+     * Adds a digest to the filter.
+     *
+     * @param digest Hex encoded digest of at least 128 bits
+     */
+    public void put(String digest) {
+        long hash1 = firstHash(digest);
+        long hash2 = secondHash(digest);
+        for (int i = 0; i < hashCount; i++) {
+            long index = Math.floorMod(hash1 + i * hash2, bitCount);
+            int word = (int) (index >>> 6);
+            long mask = 1L << index;
+            long current = bits.get(word);
+            while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask)) {
+                current = bits.get(word);
+            }
+        }
+    }
+
+    /**
+     * Checks whether a digest may have been added to the filter.
+     *
+     * @param digest Hex encoded digest of at least 128 bits
+     * @return false if the digest was definitely never added, true if it probably was
+     */
+    public boolean mightContain(String digest) {
+        long hash1 = firstHash(digest);
+        long hash2 = secondHash(digest);
+        for (int i = 0; i < hashCount; i++) {
+            long index = Math.floorMod(hash1 + i * hash2, bitCount);
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long firstHash(String digest) {
+        if (digest.length() < MIN_DIGEST_LENGTH) {
+            throw new IllegalArgumentException("Digest is shorter than 128 bits: " + digest);
+        }
+        return Long.parseUnsignedLong(digest, 0, 16, 16);
+    }
+
+    private static long secondHash(String digest) {
+        // Setting the lowest bit keeps the step from being zero, which would collapse all positions into one
+        return Long.parseUnsignedLong(digest, 16, 32, 16) | 1;
+    }
+}
@@ -0,0 +1,82 @@
+package com.fact_checker.FactChecker.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheConfigTest {
+
+    private final CacheConfig cacheConfig = new CacheConfig();
+
+    @Test
+    void buildMemoryTier_maxWeight_evictsByBytes() {
+        // Arrange
+        ArtifactCacheProperties.Policy policy = new ArtifactCacheProperties.Policy();
+        policy.setMaxWeight(DataSize.ofKilobytes(1));
+        Cache<String, byte[]> cache = cacheConfig.buildMemoryTier("embeddings", policy);
+
+        // Act
+        for (int i = 0; i < 10; i++) {
+            cache.put("key" + i, new byte[400]);
+        }
+        cache.cleanUp();
+
+        // Assert
+        long weight = cache.policy().eviction().orElseThrow().weightedSize().orElseThrow();
+        assertTrue(weight <= 1024, "Cached bytes should stay within the budget but were " + weight);
+        assertTrue(cache.stats().evictionCount() > 0);
+    }
+
+    @Test
+    void buildMemoryTier_maxEntries_evictsByCount() {
+        // Arrange
+        ArtifactCacheProperties.Policy policy = new ArtifactCacheProperties.Policy();
+        policy.setMaxEntries(2L);
+        Cache<String, byte[]> cache = cacheConfig.buildMemoryTier("transcripts", policy);
+
+        // Act
+        for (int i = 0; i < 5; i++) {
+            cache.put("key" + i, new byte[1]);
+        }
+        cache.cleanUp();
+
+        // Assert
+        assertTrue(cache.estimatedSize() <= 2);
+    }
+
+    @Test
+    void buildMemoryTier_withoutBound_throws() {
+        // Arrange
+        ArtifactCacheProperties.Policy policy = new ArtifactCacheProperties.Policy();
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> cacheConfig.buildMemoryTier("embeddings", policy));
+    }
+
+    @Test
+    void artifactCache_publishesPerCacheMetrics() {
+        // Arrange
+        ArtifactCacheProperties properties = new ArtifactCacheProperties();
+        properties.setDirectory(System.getProperty("java.io.tmpdir"));
+        for (String cacheName : new String[] {"transcripts", "embeddings", "claims"}) {
+            ArtifactCacheProperties.Policy policy = new ArtifactCacheProperties.Policy();
+            policy.setMaxEntries(10L);
+            properties.getPolicies().put(cacheName, policy);
+        }
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        // Act
+        cacheConfig.artifactCache(properties, meterRegistry);
+
+        // Assert
+        assertNull(meterRegistry.find("cache.size").tag("cache", "audio").gauge(), "Audio has no memory tier");
+        assertNotNull(meterRegistry.find("cache.size").tag("cache", "transcripts").gauge());
+        assertNotNull(meterRegistry.find("cache.weight").tag("cache", "transcripts").gauge());
+        assertNotNull(meterRegistry.find("cache.hit.ratio").tag("cache", "embeddings").gauge());
+        assertNotNull(meterRegistry.find("cache.evictions").tag("cache", "claims").functionCounter());
+        assertNotNull(meterRegistry.find("artifact.cache.disk.size").gauge());
+    }
+}
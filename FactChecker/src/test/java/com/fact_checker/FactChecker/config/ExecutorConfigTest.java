@@ -0,0 +1,95 @@
+package com.fact_checker.FactChecker.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExecutorConfigTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void boundedExecutor_queueFull_abortPolicyRejectsAndCounts() throws Exception {
+        // Arrange
+        ExecutorService executor = ExecutorConfig.boundedExecutor("jobs", 1, 1,
+                new ThreadPoolExecutor.AbortPolicy(), meterRegistry);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            executor.execute(() -> awaitQuietly(release));
+            executor.execute(() -> awaitQuietly(release));
+
+            // Act & Assert
+            assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> { }));
+            assertEquals(1.0, meterRegistry.get("executor.rejected").tag("name", "jobs").counter().count());
+            assertEquals(1.0, meterRegistry.get("executor.queued").tag("name", "jobs").gauge().value());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void boundedExecutor_queueFull_callerRunsPolicyRunsOnSubmittingThread() {
+        // Arrange
+        ExecutorService executor = ExecutorConfig.boundedExecutor("callers", 1, 1,
+                new ThreadPoolExecutor.CallerRunsPolicy(), meterRegistry);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicReference<Thread> runner = new AtomicReference<>();
+        try {
+            executor.execute(() -> awaitQuietly(release));
+            executor.execute(() -> awaitQuietly(release));
+
+            // Act
+            executor.execute(() -> runner.set(Thread.currentThread()));
+
+            // Assert
+            assertSame(Thread.currentThread(), runner.get());
+            assertEquals(1.0, meterRegistry.get("executor.rejected").tag("name", "callers").counter().count());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void virtualThreadExecutor_runsOnVirtualThreadsAndRejectsBeyondLimit() throws Exception {
+        // Arrange
+        ExecutorService executor = ExecutorConfig.virtualThreadExecutor("io", 1, meterRegistry);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicReference<Thread> first = new AtomicReference<>();
+        try {
+            // Act
+            executor.execute(() -> {
+                first.set(Thread.currentThread());
+                started.countDown();
+                awaitQuietly(release);
+            });
+            started.await();
+
+            // Assert
+            assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> { }));
+            assertTrue(first.get().isVirtual());
+            assertEquals(1.0, meterRegistry.get("executor.active").tag("name", "io").gauge().value());
+            assertEquals(1.0, meterRegistry.get("executor.rejected").tag("name", "io").counter().count());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    private void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
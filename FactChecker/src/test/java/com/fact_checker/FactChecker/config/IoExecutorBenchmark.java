@@ -0,0 +1,103 @@
+package com.fact_checker.FactChecker.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Load benchmark comparing the platform-thread I/O pool with the virtual-thread I/O executor.
+ * Every simulated job makes a number of blocking API calls in parallel, the way a video with several
+ * transcription chunks does, and waits for all of them. The benchmark reports how long a burst of
+ * concurrent jobs takes to drain, how many platform threads were alive at the peak and how far the heap
+ * grew above its level after a GC while the jobs ran. Run it with {@code ./gradlew benchmark}; it is
+ * excluded from the regular test run.
+ * Both executors reject tasks instead of running them on the caller, and are sized to take every call of
+ * the burst, so all calls run on the executor being measured; the benchmark fails if any call is rejected.
+ */
+@Tag("benchmark")
+class IoExecutorBenchmark {
+
+    private static final int JOBS = 200;
+    private static final int CALLS_PER_JOB = 8;
+    private static final long CALL_LATENCY_MILLIS = 100;
+    private static final int CALLS = JOBS * CALLS_PER_JOB;
+
+    @Test
+    void compareConcurrentJobCapacity() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        Result platform = run("platform", ExecutorConfig.boundedExecutor("io-platform", 32, CALLS,
+                new ThreadPoolExecutor.AbortPolicy(), meterRegistry));
+        Result virtual = run("virtual", ExecutorConfig.virtualThreadExecutor("io-virtual", CALLS, meterRegistry));
+
+        meterRegistry.find("executor.rejected").counters()
+                .forEach(rejected -> assertEquals(0, rejected.count(), "No call may run outside the executor"));
+        System.out.printf("%-10s %12s %14s %16s %14s%n", "mode", "elapsed ms", "jobs/second", "peak threads",
+                "peak heap MB");
+        for (Result result : List.of(platform, virtual)) {
+            System.out.printf("%-10s %12d %14.1f %16d %14.1f%n", result.mode, result.elapsedMillis,
+                    JOBS * 1000.0 / result.elapsedMillis, result.peakThreads, result.heapBytes / 1024.0 / 1024.0);
+        }
+    }
+
+    private Result run(String mode, ExecutorService ioExecutor) throws Exception {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .toList();
+        System.gc();
+        long baselineHeapBytes = heapPools.stream().mapToLong(pool -> pool.getUsage().getUsed()).sum();
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+        threadBean.resetPeakThreadCount();
+
+        // Jobs are driven from virtual threads so that the drivers themselves are never the bottleneck
+        long start = System.nanoTime();
+        List<CompletableFuture<Integer>> jobs = new ArrayList<>();
+        try (ExecutorService drivers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < JOBS; i++) {
+                jobs.add(CompletableFuture.supplyAsync(() -> runJob(ioExecutor), drivers));
+            }
+            CompletableFuture.allOf(jobs.toArray(new CompletableFuture[0])).join();
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        // The pools peak at slightly different times, so their sum is an upper bound of the peak heap
+        long heapBytes = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum() - baselineHeapBytes;
+        int peakThreads = threadBean.getPeakThreadCount();
+        ioExecutor.shutdown();
+
+        assertEquals(JOBS * CALLS_PER_JOB, jobs.stream().mapToInt(CompletableFuture::join).sum());
+        return new Result(mode, elapsedMillis, peakThreads, heapBytes);
+    }
+
+    private int runJob(ExecutorService ioExecutor) {
+        List<CompletableFuture<Integer>> calls = new ArrayList<>();
+        for (int i = 0; i < CALLS_PER_JOB; i++) {
+            calls.add(CompletableFuture.supplyAsync(this::blockingCall, ioExecutor));
+        }
+        return calls.stream().mapToInt(CompletableFuture::join).sum();
+    }
+
+    private int blockingCall() {
+        try {
+            Thread.sleep(CALL_LATENCY_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return 1;
+    }
+
+    private record Result(String mode, long elapsedMillis, int peakThreads, long heapBytes) {
+    }
+}
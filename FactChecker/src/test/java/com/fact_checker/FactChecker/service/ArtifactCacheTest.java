@@ -0,0 +1,116 @@
+package com.fact_checker.FactChecker.service;
+
+import com.fact_checker.FactChecker.service.ArtifactCache.ArtifactType;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArtifactCacheTest {
+
+    @TempDir
+    Path cacheDirectory;
+
+    private SimpleMeterRegistry meterRegistry;
+    private Map<ArtifactType, Cache<String, byte[]>> memoryTiers;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        memoryTiers = new EnumMap<>(ArtifactType.class);
+        for (ArtifactType type : ArtifactType.values()) {
+            if (type.isFileOnly()) {
+                continue;
+            }
+            memoryTiers.put(type, Caffeine.newBuilder().<String, byte[]>build());
+        }
+    }
+
+    @Test
+    void put_overDiskBudget_evictsLeastRecentlyUsedEntries() throws IOException {
+        // Arrange
+        ArtifactCache artifactCache = new ArtifactCache(cacheDirectory, memoryTiers, meterRegistry, 250, null);
+        artifactCache.put(ArtifactType.TRANSCRIPT, "aa-old", new byte[100]);
+        artifactCache.put(ArtifactType.TRANSCRIPT, "bb-older", new byte[100]);
+        setLastAccess(ArtifactType.TRANSCRIPT, "aa-old", Duration.ofHours(2));
+        setLastAccess(ArtifactType.TRANSCRIPT, "bb-older", Duration.ofHours(1));
+        memoryTiers.get(ArtifactType.TRANSCRIPT).invalidateAll();
+        artifactCache.get(ArtifactType.TRANSCRIPT, "aa-old");
+
+        // Act
+        artifactCache.put(ArtifactType.TRANSCRIPT, "cc-new", new byte[100]);
+
+        // Assert
+        assertTrue(Files.exists(entry(ArtifactType.TRANSCRIPT, "aa-old")), "A recently read entry should be kept");
+        assertFalse(Files.exists(entry(ArtifactType.TRANSCRIPT, "bb-older")));
+        assertTrue(Files.exists(entry(ArtifactType.TRANSCRIPT, "cc-new")));
+        assertEquals(200, meterRegistry.get("artifact.cache.disk.size").gauge().value());
+        assertEquals(1, meterRegistry.get("artifact.cache.disk.evictions").tag("cause", "size").counter().count());
+    }
+
+    @Test
+    void sweepDisk_unusedEntry_expires() throws IOException {
+        // Arrange
+        ArtifactCache artifactCache = new ArtifactCache(cacheDirectory, memoryTiers, meterRegistry,
+                Long.MAX_VALUE, Duration.ofDays(1));
+        artifactCache.putString(ArtifactType.CLAIMS, "aa-unused", "claims");
+        artifactCache.putString(ArtifactType.CLAIMS, "bb-used", "claims");
+        setLastAccess(ArtifactType.CLAIMS, "aa-unused", Duration.ofDays(2));
+
+        // Act
+        artifactCache.sweepDisk();
+
+        // Assert
+        assertFalse(Files.exists(entry(ArtifactType.CLAIMS, "aa-unused")));
+        assertTrue(Files.exists(entry(ArtifactType.CLAIMS, "bb-used")));
+        assertEquals(6, meterRegistry.get("artifact.cache.disk.size").gauge().value());
+        assertEquals(1, meterRegistry.get("artifact.cache.disk.evictions").tag("cause", "expired").counter().count());
+    }
+
+    @Test
+    void putFile_storesOnDiskOnly_andGetFileReturnsCopy() throws IOException {
+        // Arrange
+        ArtifactCache artifactCache = new ArtifactCache(cacheDirectory, memoryTiers, meterRegistry);
+        Path audioFile = Files.createTempFile("audio", ".ogg");
+        Files.write(audioFile, "OggS audio".getBytes());
+
+        // Act
+        artifactCache.putFile(ArtifactType.AUDIO, "aa-audio", audioFile);
+        Optional<Path> copy = artifactCache.getFile(ArtifactType.AUDIO, "aa-audio");
+        Optional<Path> missing = artifactCache.getFile(ArtifactType.AUDIO, "bb-missing");
+
+        // Assert
+        assertTrue(copy.isPresent());
+        assertArrayEquals("OggS audio".getBytes(), Files.readAllBytes(copy.get()));
+        assertNotEquals(entry(ArtifactType.AUDIO, "aa-audio"), copy.get());
+        assertTrue(missing.isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> artifactCache.get(ArtifactType.AUDIO, "aa-audio"));
+        assertEquals(0.5, meterRegistry.get("artifact.cache.hit.ratio").tag("cache", "audio").gauge().value());
+
+        // Clean up
+        Files.deleteIfExists(audioFile);
+        Files.deleteIfExists(copy.get());
+    }
+
+    private Path entry(ArtifactType type, String key) {
+        return cacheDirectory.resolve(type.getCacheName()).resolve(key.substring(0, 2)).resolve(key);
+    }
+
+    private void setLastAccess(ArtifactType type, String key, Duration age) throws IOException {
+        Files.setLastModifiedTime(entry(type, key), FileTime.from(Instant.now().minus(age)));
+    }
+}
@@ -0,0 +1,129 @@
+package com.fact_checker.FactChecker.service;
+
+import org.bytedeco.ffmpeg.global.avcodec;
+import org.bytedeco.javacv.FFmpegFrameRecorder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ShortBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AudioSegmenterTest {
+
+    private static final int SAMPLE_RATE = 16000;
+
+    private AudioSegmenter audioSegmenter;
+
+    @BeforeEach
+    void setUp() {
+        audioSegmenter = new AudioSegmenter(2, 5, -40);
+    }
+
+    @Test
+    void split_LongAudio_CutsAtSilencesAfterMinimumDuration() throws Exception {
+        // Arrange: speech 0-3s, pause 3-4s, speech 4-7s, pause 7-8s, speech 8-11s
+        Path audioFile = Files.createTempFile("speech", ".wav");
+        writeAudio(audioFile, new double[]{3, 1, 3, 1, 3});
+
+        List<AudioSegmenter.AudioChunk> chunks = List.of();
+        try {
+            // Act
+            chunks = audioSegmenter.split(audioFile);
+
+            // Assert
+            assertEquals(3, chunks.size());
+            assertEquals(0.0, chunks.get(0).getOffsetSeconds(), 0.001);
+            assertEquals(3.0, chunks.get(1).getOffsetSeconds(), 0.001);
+            assertEquals(7.0, chunks.get(2).getOffsetSeconds(), 0.001);
+            for (AudioSegmenter.AudioChunk chunk : chunks) {
+                assertTrue(chunk.isTemporary());
+                assertTrue(Files.size(chunk.getFile()) > 0);
+            }
+        } finally {
+            audioSegmenter.deleteTemporaryChunks(chunks);
+            Files.deleteIfExists(audioFile);
+        }
+
+        chunks.forEach(chunk -> assertFalse(Files.exists(chunk.getFile())));
+    }
+
+    @Test
+    void split_NoSilence_CutsAtMaximumDuration() throws Exception {
+        // Arrange
+        Path audioFile = Files.createTempFile("speech", ".wav");
+        writeAudio(audioFile, new double[]{12});
+
+        List<AudioSegmenter.AudioChunk> chunks = List.of();
+        try {
+            // Act
+            chunks = audioSegmenter.split(audioFile);
+
+            // Assert
+            assertEquals(3, chunks.size());
+            assertEquals(5.0, chunks.get(1).getOffsetSeconds(), 0.001);
+            assertEquals(10.0, chunks.get(2).getOffsetSeconds(), 0.001);
+        } finally {
+            audioSegmenter.deleteTemporaryChunks(chunks);
+            Files.deleteIfExists(audioFile);
+        }
+    }
+
+    @Test
+    void split_ShortAudio_ReturnsOriginalFile() throws Exception {
+        // Arrange
+        Path audioFile = Files.createTempFile("speech", ".wav");
+        writeAudio(audioFile, new double[]{2, 1, 1});
+
+        try {
+            // Act
+            List<AudioSegmenter.AudioChunk> chunks = audioSegmenter.split(audioFile);
+
+            // Assert
+            assertEquals(1, chunks.size());
+            assertEquals(audioFile, chunks.get(0).getFile());
+            assertFalse(chunks.get(0).isTemporary());
+        } finally {
+            Files.deleteIfExists(audioFile);
+        }
+    }
+
+    @Test
+    void isSilent_DistinguishesToneFromQuiet() {
+        short[] quiet = new short[800];
+        short[] tone = new short[800];
+        for (int i = 0; i < tone.length; i++) {
+            tone[i] = (short) (Math.sin(i * 0.1) * 8000);
+            quiet[i] = (short) (i % 2 == 0 ? 10 : -10);
+        }
+
+        assertTrue(audioSegmenter.isSilent(quiet, quiet.length));
+        assertFalse(audioSegmenter.isSilent(tone, tone.length));
+    }
+
+    /**
+     * Writes a 16 kHz mono WAV file made of alternating tone and silence sections.
+     */
+    private void writeAudio(Path path, double[] sectionSeconds) throws Exception {
+        try (FFmpegFrameRecorder recorder = new FFmpegFrameRecorder(path.toFile(), 1)) {
+            recorder.setFormat("wav");
+            recorder.setAudioCodec(avcodec.AV_CODEC_ID_PCM_S16LE);
+            recorder.setSampleRate(SAMPLE_RATE);
+            recorder.start();
+
+            for (int section = 0; section < sectionSeconds.length; section++) {
+                short[] samples = new short[(int) (sectionSeconds[section] * SAMPLE_RATE)];
+                if (section % 2 == 0) {
+                    for (int i = 0; i < samples.length; i++) {
+                        samples[i] = (short) (Math.sin(i * 0.1) * 8000);
+                    }
+                }
+                recorder.recordSamples(SAMPLE_RATE, 1, ShortBuffer.wrap(samples));
+            }
+            recorder.stop();
+        }
+    }
+}
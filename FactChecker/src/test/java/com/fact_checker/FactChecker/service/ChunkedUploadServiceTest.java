@@ -0,0 +1,302 @@
+package com.fact_checker.FactChecker.service;
+
+import com.fact_checker.FactChecker.exceptions.InvalidFileException;
+import com.fact_checker.FactChecker.exceptions.QuotaExceededException;
+import com.fact_checker.FactChecker.model.FactCheckJob;
+import com.fact_checker.FactChecker.model.StoredUpload;
+import com.fact_checker.FactChecker.model.UploadRange;
+import com.fact_checker.FactChecker.model.UploadSession;
+import com.fact_checker.FactChecker.model.User;
+import com.fact_checker.FactChecker.repository.UploadRangeRepository;
+import com.fact_checker.FactChecker.repository.UploadSessionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ChunkedUploadServiceTest {
+
+    @Mock
+    private VideoService videoService;
+
+    @Mock
+    private FactCheckJobService factCheckJobService;
+
+    @Mock
+    private UploadSessionRepository uploadSessionRepository;
+
+    @Mock
+    private UploadRangeRepository uploadRangeRepository;
+
+    @TempDir
+    Path uploadDirectory;
+
+    private ChunkedUploadService chunkedUploadService;
+
+    private final byte[] content = "0123456789abcdefghij".getBytes(StandardCharsets.UTF_8);
+
+    @BeforeEach
+    void setUp() {
+        chunkedUploadService = new ChunkedUploadService(videoService, factCheckJobService,
+                uploadSessionRepository, uploadRangeRepository, uploadDirectory.toString(), 1024, 8);
+    }
+
+    @Test
+    void writeChunk_outOfOrderChunks_assembleFile() throws Exception {
+        // Arrange
+        User user = createUser(1L);
+        UploadSession session = chunkedUploadService.create("test.mp4", content.length, user);
+
+        // Act
+        writeChunk(session, 16, 4);
+        writeChunk(session, 0, 8);
+        writeChunk(session, 8, 8);
+
+        // Assert
+        assertTrue(session.isComplete());
+        assertEquals(content.length, session.getReceivedBytes());
+        assertArrayEquals(content, Files.readAllBytes(session.getPartialFile()));
+        verify(uploadRangeRepository).save(argThat(range -> range.getStartOffset() == 16 && range.getEndOffset() == 20));
+        verify(uploadSessionRepository, times(3)).touch(eq(session.getId()), any());
+    }
+
+    @Test
+    void getSession_storedRanges_restoresReceivedBytes() {
+        // Arrange
+        User user = createUser(1L);
+        UploadSession stored = chunkedUploadService.create("test.mp4", content.length, user);
+        when(uploadSessionRepository.findById(stored.getId())).thenReturn(Optional.of(stored));
+        when(uploadRangeRepository.findByUploadId(stored.getId()))
+                .thenReturn(List.of(new UploadRange(stored.getId(), 0, 8), new UploadRange(stored.getId(), 12, 16)));
+
+        // Act
+        Optional<UploadSession> session = chunkedUploadService.getSession(stored.getId(), user);
+
+        // Assert
+        assertTrue(session.isPresent());
+        assertEquals(8, session.get().getNextOffset());
+        assertEquals(12, session.get().getReceivedBytes());
+    }
+
+    @Test
+    void writeChunk_interruptedChunk_resumesAtFirstMissingByte() {
+        // Arrange
+        User user = createUser(1L);
+        UploadSession session = chunkedUploadService.create("test.mp4", content.length, user);
+        writeChunk(session, 0, 8);
+        InputStream brokenStream = new InputStream() {
+            private int remaining = 3;
+
+            @Override
+            public int read() throws IOException {
+                if (remaining-- == 0) {
+                    throw new IOException("Connection reset");
+                }
+                return 'x';
+            }
+        };
+
+        // Act
+        assertThrows(RuntimeException.class, () -> chunkedUploadService.writeChunk(session, 8, 8, brokenStream));
+
+        // Assert
+        assertEquals(11, session.getNextOffset());
+        assertEquals(11, session.getReceivedBytes());
+        assertFalse(session.isComplete());
+    }
+
+    @Test
+    void writeChunk_chunkBeyondEndOfFile_throwsInvalidFileException() {
+        // Arrange
+        User user = createUser(1L);
+        UploadSession session = chunkedUploadService.create("test.mp4", content.length, user);
+
+        // Act & Assert
+        assertThrows(InvalidFileException.class,
+                () -> chunkedUploadService.writeChunk(session, 16, 8, new ByteArrayInputStream(new byte[8])));
+        assertEquals(0, session.getReceivedBytes());
+    }
+
+    @Test
+    void finalizeUpload_completeUpload_submitsJob() {
+        // Arrange
+        User user = createUser(1L);
+        UploadSession session = chunkedUploadService.create("test.mp4", content.length, user);
+        writeChunk(session, 0, 8);
+        writeChunk(session, 8, 8);
+        writeChunk(session, 16, 4);
+        StoredUpload upload = new StoredUpload("stored.mp4", "hash");
+        FactCheckJob job = new FactCheckJob("job", 1L, "test.mp4", upload);
+        AtomicReference<byte[]> assembled = new AtomicReference<>();
+        when(uploadSessionRepository.close(session.getId())).thenReturn(1);
+
+        when(videoService.storeAssembledUpload(eq(session.getPartialFile()), eq("test.mp4"))).thenAnswer(invocation -> {
+            assembled.set(Files.readAllBytes(invocation.getArgument(0)));
+            return upload;
+        });
+        when(factCheckJobService.submit(upload, "test.mp4", user)).thenReturn(job);
+
+        // Act
+        FactCheckJob result = chunkedUploadService.finalizeUpload(session, user);
+
+        // Assert
+        assertSame(job, result);
+        assertArrayEquals(content, assembled.get());
+        verify(uploadSessionRepository).deleteById(session.getId());
+        verify(uploadRangeRepository).deleteByUploadId(session.getId());
+        assertFalse(Files.exists(session.getPartialFile()));
+    }
+
+    @Test
+    void finalizeUpload_jobRejected_keepsUploadForAnotherAttempt() {
+        // Arrange
+        User user = createUser(1L);
+        UploadSession session = createCompleteUpload(user);
+        StoredUpload upload = new StoredUpload("stored.mp4", "hash");
+        when(uploadSessionRepository.close(session.getId())).thenReturn(1);
+        when(videoService.storeAssembledUpload(session.getPartialFile(), "test.mp4")).thenReturn(upload);
+        when(factCheckJobService.submit(upload, "test.mp4", user))
+                .thenThrow(new RejectedExecutionException("Job queue is full"));
+
+        // Act & Assert
+        assertThrows(RejectedExecutionException.class, () -> chunkedUploadService.finalizeUpload(session, user));
+        assertFalse(session.isClosed());
+        assertTrue(Files.exists(session.getPartialFile()));
+        verify(uploadSessionRepository).reopen(session.getId());
+        verify(uploadSessionRepository, never()).deleteById(any());
+    }
+
+    @Test
+    void finalizeUpload_alreadyClosedElsewhere_throwsInvalidFileException() {
+        // Arrange
+        User user = createUser(1L);
+        UploadSession session = createCompleteUpload(user);
+        when(uploadSessionRepository.close(session.getId())).thenReturn(0);
+
+        // Act & Assert
+        InvalidFileException exception = assertThrows(InvalidFileException.class,
+                () -> chunkedUploadService.finalizeUpload(session, user));
+        assertEquals("Upload is already closed", exception.getMessage());
+        verify(videoService, never()).storeAssembledUpload(any(), any());
+    }
+
+    @Test
+    void finalizeUpload_missingBytes_throwsInvalidFileException() {
+        // Arrange
+        User user = createUser(1L);
+        UploadSession session = chunkedUploadService.create("test.mp4", content.length, user);
+        writeChunk(session, 0, 8);
+
+        // Act & Assert
+        InvalidFileException exception = assertThrows(InvalidFileException.class,
+                () -> chunkedUploadService.finalizeUpload(session, user));
+        assertEquals("Upload is incomplete, next offset is 8", exception.getMessage());
+        verify(videoService, never()).storeAssembledUpload(any(), any());
+        verify(uploadSessionRepository, never()).close(any());
+        verify(factCheckJobService, never()).submit(any(StoredUpload.class), any(), any());
+    }
+
+    @Test
+    void getSession_otherUser_returnsEmpty() {
+        // Arrange
+        UploadSession session = chunkedUploadService.create("test.mp4", content.length, createUser(1L));
+
+        when(uploadSessionRepository.findById(session.getId())).thenReturn(Optional.of(session));
+
+        // Act & Assert
+        assertTrue(chunkedUploadService.getSession(session.getId(), createUser(2L)).isEmpty());
+    }
+
+    @Test
+    void create_quotaExceeded_createsNothing() {
+        // Arrange
+        User user = createUser(1L);
+        doThrow(new QuotaExceededException("Too many jobs queued")).when(factCheckJobService).checkQuota(user);
+
+        // Act & Assert
+        assertThrows(QuotaExceededException.class, () -> chunkedUploadService.create("test.mp4", content.length, user));
+        verify(uploadSessionRepository, never()).save(any());
+        assertFalse(Files.exists(uploadDirectory.resolve("partial")));
+    }
+
+    @Test
+    void cancel_openUpload_deletesSessionAndPartialFile() {
+        // Arrange
+        UploadSession session = chunkedUploadService.create("test.mp4", content.length, createUser(1L));
+        when(uploadSessionRepository.close(session.getId())).thenReturn(1);
+
+        // Act
+        chunkedUploadService.cancel(session);
+
+        // Assert
+        assertTrue(session.isClosed());
+        assertFalse(Files.exists(session.getPartialFile()));
+        verify(uploadSessionRepository).deleteById(session.getId());
+    }
+
+    @Test
+    void purgeExpiredSessions_deletesExpiredUploadsAndOrphanedPartialFiles() throws IOException {
+        // Arrange
+        UploadSession expired = chunkedUploadService.create("expired.mp4", content.length, createUser(1L));
+        UploadSession active = chunkedUploadService.create("active.mp4", content.length, createUser(1L));
+        Path orphan = Files.createFile(uploadDirectory.resolve("partial").resolve("orphan.part"));
+        when(uploadSessionRepository.findByUpdatedAtBefore(any())).thenReturn(List.of(expired));
+        when(uploadSessionRepository.existsById(active.getId())).thenReturn(true);
+
+        // Act
+        chunkedUploadService.purgeExpiredSessions();
+
+        // Assert
+        assertFalse(Files.exists(expired.getPartialFile()));
+        assertTrue(Files.exists(active.getPartialFile()));
+        assertFalse(Files.exists(orphan));
+        verify(uploadSessionRepository).deleteById(expired.getId());
+        verify(uploadRangeRepository).deleteByUploadId(expired.getId());
+    }
+
+    @Test
+    void create_fileTooLarge_throwsInvalidFileException() {
+        // Act & Assert
+        assertThrows(InvalidFileException.class,
+                () -> chunkedUploadService.create("test.mp4", 4096, createUser(1L)));
+    }
+
+    private UploadSession createCompleteUpload(User user) {
+        UploadSession session = chunkedUploadService.create("test.mp4", content.length, user);
+        writeChunk(session, 0, 8);
+        writeChunk(session, 8, 8);
+        writeChunk(session, 16, 4);
+        return session;
+    }
+
+    private void writeChunk(UploadSession session, int offset, int length) {
+        chunkedUploadService.writeChunk(session, offset, length,
+                new ByteArrayInputStream(content, offset, length));
+    }
+
+    private User createUser(Long id) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername("user" + id);
+        return user;
+    }
+}
@@ -0,0 +1,134 @@
+package com.fact_checker.FactChecker.service;
+
+import com.fact_checker.FactChecker.model.Claim;
+import com.fact_checker.FactChecker.repository.ClaimRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ClaimIndexTest {
+
+    @Mock
+    private ClaimRepository claimRepository;
+
+    private ClaimIndex claimIndex;
+
+    @BeforeEach
+    void setUp() {
+        claimIndex = new ClaimIndex(claimRepository, 1000, 0.01, 100, Duration.ofHours(1), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void hash_ignoresCaseAndWhitespace() {
+        assertEquals(ClaimIndex.hash("The Earth  is round"), ClaimIndex.hash(" the earth is round "));
+    }
+
+    @Test
+    void knownScores_beforeHashesLoaded_looksUpEveryClaim() {
+        // Arrange
+        when(claimRepository.findByHashIn(anyCollection())).thenReturn(List.of());
+
+        // Act
+        Map<String, Double> scores = claimIndex.knownScores(List.of("New claim"));
+
+        // Assert
+        assertTrue(scores.isEmpty());
+        verify(claimRepository).findByHashIn(Set.of(ClaimIndex.hash("New claim")));
+    }
+
+    @Test
+    void knownScores_claimNotInBloomFilter_skipsQuery() {
+        // Arrange
+        when(claimRepository.streamAllHashes()).thenReturn(Stream.of(ClaimIndex.hash("Known claim")));
+        claimIndex.loadKnownHashes();
+
+        // Act
+        Map<String, Double> scores = claimIndex.knownScores(List.of("New claim"));
+
+        // Assert
+        assertTrue(scores.isEmpty());
+        verify(claimRepository, never()).findByHashIn(anyCollection());
+    }
+
+    @Test
+    void knownScores_storedClaim_isAnsweredFromHotSetAfterwards() {
+        // Arrange
+        String hash = ClaimIndex.hash("Known claim");
+        when(claimRepository.streamAllHashes()).thenReturn(Stream.of(hash));
+        when(claimRepository.findByHashIn(Set.of(hash)))
+                .thenReturn(List.of(new Claim(1L, hash, "known claim", 80.0, LocalDateTime.now())));
+        claimIndex.loadKnownHashes();
+
+        // Act
+        Map<String, Double> scores = claimIndex.knownScores(List.of(" Known  claim "));
+        Optional<Double> hotScore = claimIndex.hotScore("known claim");
+
+        // Assert
+        assertEquals(Map.of("Known  claim", 80.0), scores);
+        assertEquals(Optional.of(80.0), hotScore);
+        verify(claimRepository, times(1)).findByHashIn(anyCollection());
+    }
+
+    @Test
+    void record_storesOnlyNewClaimsAndRemembersThem() {
+        // Arrange
+        String storedHash = ClaimIndex.hash("Stored claim");
+        when(claimRepository.findByHashIn(anyCollection()))
+                .thenReturn(List.of(new Claim(1L, storedHash, "stored claim", 70.0, LocalDateTime.now())));
+
+        // Act
+        claimIndex.record(Map.of("Stored claim", 10.0, "New  Claim", 20.0));
+
+        // Assert
+        ArgumentCaptor<Claim> saved = ArgumentCaptor.forClass(Claim.class);
+        verify(claimRepository).save(saved.capture());
+        assertEquals("new claim", saved.getValue().getNormalizedText());
+        assertEquals(ClaimIndex.hash("new claim"), saved.getValue().getHash());
+        assertEquals(Optional.of(20.0), claimIndex.hotScore("new claim"));
+        assertEquals(Optional.empty(), claimIndex.hotScore("Stored claim"));
+    }
+
+    @Test
+    void record_claimStoredConcurrently_stillStoresTheOthers() {
+        // Arrange
+        when(claimRepository.findByHashIn(anyCollection())).thenReturn(List.of());
+        when(claimRepository.save(any(Claim.class))).thenAnswer(invocation -> {
+            Claim claim = invocation.getArgument(0);
+            if (claim.getNormalizedText().equals("raced claim")) {
+                throw new DataIntegrityViolationException("Duplicate entry for key 'idx_claims_hash'");
+            }
+            return claim;
+        });
+        Map<String, Double> scores = new LinkedHashMap<>();
+        scores.put("Raced claim", 10.0);
+        scores.put("Other claim", 20.0);
+
+        // Act
+        claimIndex.record(scores);
+
+        // Assert
+        verify(claimRepository, times(2)).save(any(Claim.class));
+        assertEquals(Optional.empty(), claimIndex.hotScore("Raced claim"));
+        assertEquals(Optional.of(20.0), claimIndex.hotScore("Other claim"));
+    }
+}
@@ -0,0 +1,68 @@
+package com.fact_checker.FactChecker.service;
+
+import com.fact_checker.FactChecker.exceptions.DeadlineExceededException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeadlineTest {
+
+    @Test
+    void after_passedDeadline_isExpired() {
+        // Arrange
+        Deadline deadline = Deadline.after(Duration.ZERO);
+
+        // Act & Assert
+        assertTrue(deadline.isExpired());
+        assertEquals(Duration.ZERO, deadline.remaining());
+        assertThrows(DeadlineExceededException.class, deadline::check);
+    }
+
+    @Test
+    void none_neverExpires() {
+        // Arrange
+        Deadline deadline = Deadline.none();
+
+        // Act & Assert
+        assertFalse(deadline.isBounded());
+        assertFalse(deadline.isExpired());
+        assertDoesNotThrow(deadline::check);
+    }
+
+    @Test
+    void cancel_runsRegisteredCallbacksOnce() {
+        // Arrange
+        Deadline deadline = Deadline.after(Duration.ofMinutes(1));
+        AtomicInteger aborted = new AtomicInteger();
+        AtomicInteger finished = new AtomicInteger();
+        deadline.onCancel(aborted::incrementAndGet);
+        deadline.onCancel(finished::incrementAndGet).close();
+
+        // Act
+        deadline.cancel();
+        deadline.cancel();
+
+        // Assert
+        assertEquals(1, aborted.get());
+        assertEquals(0, finished.get());
+        assertThrows(CancellationException.class, deadline::check);
+    }
+
+    @Test
+    void onCancel_alreadyCancelled_runsCallbackRightAway() {
+        // Arrange
+        Deadline deadline = Deadline.none();
+        AtomicInteger aborted = new AtomicInteger();
+        deadline.cancel();
+
+        // Act
+        deadline.onCancel(aborted::incrementAndGet);
+
+        // Assert
+        assertEquals(1, aborted.get());
+    }
+}
@@ -0,0 +1,482 @@
+package com.fact_checker.FactChecker.service;
+
+import com.fact_checker.FactChecker.config.ExecutorConfig;
+import com.fact_checker.FactChecker.config.SchedulerProperties;
+import com.fact_checker.FactChecker.exceptions.FileProcessingException;
+import com.fact_checker.FactChecker.exceptions.InvalidFileException;
+import com.fact_checker.FactChecker.exceptions.QuotaExceededException;
+import com.fact_checker.FactChecker.model.FactCheckJob;
+import com.fact_checker.FactChecker.model.JobStage;
+import com.fact_checker.FactChecker.model.StoredUpload;
+import com.fact_checker.FactChecker.model.User;
+import com.fact_checker.FactChecker.model.Video;
+import com.fact_checker.FactChecker.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FactCheckJobServiceTest {
+
+    @Mock
+    private VideoService videoService;
+
+    @Mock
+    private TextAnalysisService textAnalysisService;
+
+    @Mock
+    private JobQueueService jobQueue;
+
+    @Mock
+    private UserRepository userRepository;
+
+    private FactCheckJobService factCheckJobService;
+
+    private ExecutorService executorService;
+
+    private final Map<String, FactCheckJob> storedJobs = new ConcurrentHashMap<>();
+    private final Queue<FactCheckJob> claimableJobs = new ConcurrentLinkedQueue<>();
+
+    private final MultipartFile file = new MockMultipartFile("file", "test.mp4", "video/mp4", "test data".getBytes());
+    private final StoredUpload upload = new StoredUpload("stored.mp4", "hash");
+
+    @BeforeEach
+    void setUp() {
+        executorService = ExecutorConfig.boundedExecutor("test-job", 1, 1, new ThreadPoolExecutor.AbortPolicy(),
+                new SimpleMeterRegistry());
+        factCheckJobService = new FactCheckJobService(videoService, textAnalysisService, executorService,
+                new JobScheduler(new SchedulerProperties(), new SimpleMeterRegistry()), jobQueue, userRepository,
+                1, 0, 50, 1800);
+
+        // In-memory stand-in for the jobs table
+        lenient().when(jobQueue.add(any())).thenAnswer(invocation -> {
+            FactCheckJob job = invocation.getArgument(0);
+            storedJobs.put(job.getId(), job);
+            claimableJobs.add(job);
+            return job;
+        });
+        lenient().when(jobQueue.claim(anyInt())).thenAnswer(invocation -> {
+            List<FactCheckJob> claimed = new ArrayList<>();
+            FactCheckJob job;
+            while (claimed.size() < invocation.<Integer>getArgument(0) && (job = claimableJobs.poll()) != null) {
+                if (!job.getStage().isTerminal()) {
+                    claimed.add(job);
+                }
+            }
+            return claimed;
+        });
+        lenient().when(jobQueue.find(anyString()))
+                .thenAnswer(invocation -> Optional.ofNullable(storedJobs.get(invocation.<String>getArgument(0))));
+        lenient().when(userRepository.findById(anyLong()))
+                .thenAnswer(invocation -> Optional.of(createUser(invocation.getArgument(0))));
+    }
+
+    @AfterEach
+    void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    void submit_returnsQueuedJobAndCompletesWithVideo() throws Exception {
+        // Arrange
+        User user = createUser(1L);
+        Video video = new Video();
+        video.setId(42L);
+        video.setTranscriptionText("Transcribed text");
+
+        when(videoService.storeUpload(file)).thenReturn(upload);
+        when(videoService.processStoredVideo(eq(upload), eq(user), any(Deadline.class))).thenReturn(video);
+        when(textAnalysisService.analyzeText(eq(video), any(Deadline.class))).thenAnswer(invocation -> {
+            video.setFactPercentage(70.0);
+            return 70.0;
+        });
+
+        // Act
+        FactCheckJob job = factCheckJobService.submit(file, user);
+        awaitTerminal(job);
+
+        // Assert
+        assertEquals(JobStage.COMPLETED, job.getStage());
+        assertEquals(42L, job.getVideoId());
+        assertEquals("stored.mp4", job.getUpload().getFilename());
+        verify(textAnalysisService).analyzeText(eq(video), any(Deadline.class));
+    }
+
+    @Test
+    void submit_knownContent_skipsClaimAnalysis() throws Exception {
+        // Arrange
+        User user = createUser(1L);
+        Video video = new Video();
+        video.setId(43L);
+        video.setTranscriptionText("Transcribed text");
+        video.setFactPercentage(70.0);
+
+        when(videoService.storeUpload(file)).thenReturn(upload);
+        when(videoService.processStoredVideo(eq(upload), eq(user), any(Deadline.class))).thenReturn(video);
+
+        // Act
+        FactCheckJob job = factCheckJobService.submit(file, user);
+        awaitTerminal(job);
+
+        // Assert
+        assertEquals(JobStage.COMPLETED, job.getStage());
+        assertEquals(43L, job.getVideoId());
+        verify(textAnalysisService, never()).analyzeText(any(), any());
+    }
+
+    @Test
+    void submit_invalidFile_throwsBeforeQueueing() {
+        // Arrange
+        User user = createUser(1L);
+        when(videoService.storeUpload(file)).thenThrow(new InvalidFileException("File extension is not supported"));
+
+        // Act & Assert
+        assertThrows(InvalidFileException.class, () -> factCheckJobService.submit(file, user));
+        verify(videoService, never()).processStoredVideo(any(), any(), any());
+    }
+
+    @Test
+    void submit_processingFails_marksJobFailed() throws Exception {
+        // Arrange
+        User user = createUser(1L);
+        when(videoService.storeUpload(file)).thenReturn(upload);
+        when(videoService.processStoredVideo(eq(upload), any(User.class), any(Deadline.class)))
+                .thenThrow(new FileProcessingException("Failed to process video"));
+
+        // Act
+        FactCheckJob job = factCheckJobService.submit(file, user);
+        awaitTerminal(job);
+
+        // Assert
+        assertEquals(JobStage.FAILED, job.getStage());
+        assertEquals("Failed to process video", job.getErrorMessage());
+        verify(textAnalysisService, never()).analyzeText(any(), any());
+    }
+
+    @Test
+    void submit_queueFull_rejectsAndDeletesUpload() {
+        // Arrange
+        User user = createUser(1L);
+        when(videoService.storeUpload(file)).thenReturn(upload);
+        when(jobQueue.countQueued()).thenReturn(50L);
+
+        // Act & Assert
+        assertThrows(RejectedExecutionException.class, () -> factCheckJobService.submit(file, user));
+        verify(videoService).deleteUpload(upload);
+        verify(jobQueue, never()).add(any());
+    }
+
+    @Test
+    void submit_moreJobsThanWorkers_claimsOneJobPerFreeWorker() throws Exception {
+        // Arrange
+        User user = createUser(1L);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(videoService.storeUpload(file)).thenReturn(upload);
+        when(videoService.processStoredVideo(any(), any(), any())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return new Video();
+        });
+
+        // Act
+        FactCheckJob running = factCheckJobService.submit(file, user);
+        started.await();
+        FactCheckJob waiting = factCheckJobService.submit(file, user);
+
+        // Assert
+        assertEquals(JobStage.PROCESSING_VIDEO, running.getStage());
+        assertEquals(1, running.getAttempts());
+        assertEquals(JobStage.QUEUED, waiting.getStage());
+        assertTrue(claimableJobs.contains(waiting));
+        release.countDown();
+        awaitTerminal(waiting);
+        assertTrue(waiting.getStage().isTerminal());
+        verify(videoService, times(2)).processStoredVideo(any(), any(), any());
+    }
+
+    @Test
+    void submit_userQuotaExceeded_rejectsBeforeStoring() {
+        // Arrange
+        User user = createUser(1L);
+        when(jobQueue.countQueued(1L)).thenReturn(10L);
+
+        // Act & Assert
+        assertThrows(QuotaExceededException.class, () -> factCheckJobService.submit(file, user));
+        verify(videoService, never()).storeUpload(any());
+    }
+
+    @Test
+    void run_leaseTakenOver_stopsWithoutFailingJob() {
+        // Arrange
+        User user = createUser(1L);
+        FactCheckJob job = new FactCheckJob("job", 1L, "test.mp4", upload);
+        doThrow(new OptimisticLockingFailureException("stale")).when(jobQueue).update(job);
+
+        // Act
+        factCheckJobService.run(job, user);
+
+        // Assert
+        verify(jobQueue).update(job);
+        verifyNoInteractions(videoService);
+    }
+
+    @Test
+    void run_ratingFails_retriesLaterFromAnalysisStage() {
+        // Arrange
+        User user = createUser(1L);
+        FactCheckJob job = new FactCheckJob("job", 1L, "test.mp4", upload);
+        Video video = new Video();
+        video.setId(42L);
+        video.setTranscriptionText("Transcribed text");
+        when(jobQueue.getMaxAttempts()).thenReturn(3);
+        when(videoService.processStoredVideo(eq(upload), eq(user), any(Deadline.class))).thenReturn(video);
+
+        // Act
+        factCheckJobService.run(job, user);
+
+        // Assert
+        assertEquals(JobStage.ANALYZING_CLAIMS, job.getStage());
+        assertEquals(42L, job.getVideoId());
+        assertEquals("Could not rate the claims of the video.", job.getErrorMessage());
+        verify(jobQueue).retryLater(job, Duration.ofSeconds(30));
+    }
+
+    @Test
+    void run_transcriptWithoutClaims_completesWithoutRetry() {
+        // Arrange
+        User user = createUser(1L);
+        FactCheckJob job = new FactCheckJob("job", 1L, "test.mp4", upload);
+        Video video = new Video();
+        video.setId(42L);
+        video.setTranscriptionText("Hello and welcome to my channel");
+        // The pipeline rated the transcript and found no claims
+        video.setFactPercentage(0.0);
+        video.setFalseStatements(List.of());
+        when(videoService.processStoredVideo(eq(upload), eq(user), any(Deadline.class))).thenReturn(video);
+
+        // Act
+        factCheckJobService.run(job, user);
+
+        // Assert
+        assertEquals(JobStage.COMPLETED, job.getStage());
+        assertNull(job.getErrorMessage());
+        verify(textAnalysisService, never()).analyzeText(any(), any());
+        verify(jobQueue, never()).retryLater(any(), any());
+    }
+
+    @Test
+    void run_retriedJob_resumesWithPersistedVideo() {
+        // Arrange
+        User user = createUser(1L);
+        FactCheckJob job = new FactCheckJob("job", 1L, "test.mp4", upload);
+        job.start();
+        job.setVideoId(42L);
+        job.advanceTo(JobStage.ANALYZING_CLAIMS);
+        Video video = new Video();
+        video.setId(42L);
+        video.setTranscriptionText("Transcribed text");
+        when(videoService.getVideo(42L)).thenReturn(video);
+        when(textAnalysisService.analyzeText(eq(video), any(Deadline.class))).thenAnswer(invocation -> {
+            video.setFactPercentage(70.0);
+            return 70.0;
+        });
+
+        // Act
+        factCheckJobService.run(job, user);
+
+        // Assert
+        assertEquals(JobStage.COMPLETED, job.getStage());
+        assertEquals(2, job.getAttempts());
+        verify(videoService, never()).processStoredVideo(any(), any(), any());
+    }
+
+    @Test
+    void run_deadlinePasses_retriesJob() {
+        // Arrange
+        FactCheckJobService impatientService = new FactCheckJobService(videoService, textAnalysisService,
+                executorService, new JobScheduler(new SchedulerProperties(), new SimpleMeterRegistry()), jobQueue,
+                userRepository, 1, 0, 50, 0);
+        User user = createUser(1L);
+        FactCheckJob job = new FactCheckJob("job", 1L, "test.mp4", upload);
+        when(jobQueue.getMaxAttempts()).thenReturn(3);
+        when(videoService.processStoredVideo(eq(upload), eq(user), any(Deadline.class))).thenAnswer(invocation -> {
+            invocation.<Deadline>getArgument(2).check();
+            return new Video();
+        });
+
+        // Act
+        impatientService.run(job, user);
+
+        // Assert
+        assertEquals(JobStage.PROCESSING_VIDEO, job.getStage());
+        assertEquals("The job did not finish within 0 minutes.", job.getErrorMessage());
+        verify(jobQueue).retryLater(job, Duration.ofSeconds(30));
+    }
+
+    @Test
+    void cancel_runningJob_abortsProcessing() throws Exception {
+        // Arrange
+        User user = createUser(1L);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch aborted = new CountDownLatch(1);
+        when(videoService.storeUpload(file)).thenReturn(upload);
+        when(videoService.processStoredVideo(eq(upload), eq(user), any(Deadline.class))).thenAnswer(invocation -> {
+            Deadline deadline = invocation.getArgument(2);
+            try (Deadline.Registration ignored = deadline.onCancel(aborted::countDown)) {
+                started.countDown();
+                aborted.await();
+            }
+            throw new FileProcessingException("Failed to process video");
+        });
+        FactCheckJob job = factCheckJobService.submit(file, user);
+        started.await();
+
+        // Act
+        Optional<FactCheckJob> cancelled = factCheckJobService.cancel(job.getId(), user);
+
+        // Assert
+        assertEquals(JobStage.CANCELLED, cancelled.orElseThrow().getStage());
+        assertTrue(aborted.await(5, TimeUnit.SECONDS), "The running job should be aborted");
+        awaitTerminal(job);
+        assertEquals(JobStage.CANCELLED, job.getStage());
+        assertEquals("The job was cancelled.", job.getErrorMessage());
+        verify(jobQueue, never()).retryLater(any(), any());
+        verify(textAnalysisService, never()).analyzeText(any(), any());
+    }
+
+    @Test
+    void cancel_queuedJob_isNeverStarted() throws Exception {
+        // Arrange
+        User user = createUser(1L);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(videoService.storeUpload(file)).thenReturn(upload);
+        when(videoService.processStoredVideo(any(), any(), any())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            Video video = new Video();
+            video.setTranscriptionText("Transcribed text");
+            video.setFactPercentage(70.0);
+            return video;
+        });
+        FactCheckJob running = factCheckJobService.submit(file, user);
+        started.await();
+        FactCheckJob waiting = factCheckJobService.submit(file, user);
+
+        // Act
+        factCheckJobService.cancel(waiting.getId(), user);
+        release.countDown();
+        awaitTerminal(running);
+
+        // Assert
+        assertEquals(JobStage.COMPLETED, running.getStage());
+        assertEquals(JobStage.CANCELLED, waiting.getStage());
+        assertEquals(0, waiting.getAttempts());
+        verify(videoService, times(1)).processStoredVideo(any(), any(), any());
+    }
+
+    @Test
+    void cancel_finishedJob_isLeftUnchanged() {
+        // Arrange
+        User user = createUser(1L);
+        FactCheckJob job = new FactCheckJob("job", 1L, "test.mp4", upload);
+        job.advanceTo(JobStage.COMPLETED);
+        storedJobs.put(job.getId(), job);
+
+        // Act
+        Optional<FactCheckJob> result = factCheckJobService.cancel("job", user);
+
+        // Assert
+        assertEquals(JobStage.COMPLETED, result.orElseThrow().getStage());
+        assertTrue(factCheckJobService.cancel("job", createUser(2L)).isEmpty());
+        verify(jobQueue, never()).update(any());
+    }
+
+    @Test
+    void renewLeases_jobCancelledOnAnotherInstance_abortsIt() throws Exception {
+        // Arrange
+        User user = createUser(1L);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch aborted = new CountDownLatch(1);
+        when(videoService.storeUpload(file)).thenReturn(upload);
+        when(videoService.processStoredVideo(eq(upload), eq(user), any(Deadline.class))).thenAnswer(invocation -> {
+            Deadline deadline = invocation.getArgument(2);
+            try (Deadline.Registration ignored = deadline.onCancel(aborted::countDown)) {
+                started.countDown();
+                aborted.await();
+            }
+            throw new FileProcessingException("Failed to process video");
+        });
+        FactCheckJob job = factCheckJobService.submit(file, user);
+        started.await();
+        when(jobQueue.findCancelled(any())).thenReturn(List.of(job.getId()));
+
+        // Act
+        factCheckJobService.renewLeases();
+
+        // Assert
+        assertTrue(aborted.await(5, TimeUnit.SECONDS), "The running job should be aborted");
+        verify(jobQueue).renewLeases(any());
+    }
+
+    @Test
+    void getJob_onlyVisibleToOwner() {
+        // Arrange
+        User owner = createUser(1L);
+        User other = createUser(2L);
+        when(videoService.storeUpload(file)).thenReturn(upload);
+        lenient().when(videoService.processStoredVideo(any(), any(), any())).thenReturn(new Video());
+
+        // Act
+        FactCheckJob job = factCheckJobService.submit(file, owner);
+
+        // Assert
+        assertTrue(factCheckJobService.getJob(job.getId(), owner).isPresent());
+        assertTrue(factCheckJobService.getJob(job.getId(), other).isEmpty());
+        assertTrue(factCheckJobService.getJob("unknown", owner).isEmpty());
+    }
+
+    private User createUser(Long id) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername("user" + id);
+        return user;
+    }
+
+    private void awaitTerminal(FactCheckJob job) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!job.getStage().isTerminal() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.fact_checker.FactChecker.service;
+
+import io.reactivex.rxjava3.core.Flowable;
+import org.junit.jupiter.api.Test;
+
+import javax.json.JsonObject;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GroqApiClientImplTest {
+
+    @Test
+    void lines_splitsBuffersIntoLines() {
+        // Arrange
+        byte[] body = "data: {\"a\":\"é\"}\r\n\r\ndata: [DONE]".getBytes(StandardCharsets.UTF_8);
+        // Cut the body in the middle of the two bytes of the accented character
+        int cut = "data: {\"a\":\"".length() + 1;
+        Flowable<List<ByteBuffer>> buffers = Flowable.just(
+                List.of(ByteBuffer.wrap(Arrays.copyOfRange(body, 0, cut))),
+                List.of(ByteBuffer.wrap(Arrays.copyOfRange(body, cut, body.length))));
+
+        // Act
+        List<String> lines = GroqApiClientImpl.lines(buffers).toList().blockingGet();
+
+        // Assert
+        assertEquals(List.of("data: {\"a\":\"é\"}", "", "data: [DONE]"), lines);
+    }
+
+    @Test
+    void lines_emitsLinesBeforeBodyEnds() {
+        // Arrange
+        Flowable<List<ByteBuffer>> buffers = Flowable.concat(
+                Flowable.just(List.of(ByteBuffer.wrap("data: {}\n".getBytes(StandardCharsets.UTF_8)))),
+                Flowable.never());
+
+        // Act & Assert
+        GroqApiClientImpl.lines(buffers).test().assertValues("data: {}").assertNotComplete();
+    }
+
+    @Test
+    void events_parsesDataLinesUntilDone() {
+        // Arrange
+        Flowable<String> lines = Flowable.just(
+                ": keep-alive",
+                "data: {\"choices\":[{\"delta\":{\"content\":\"Claim 1*\"}}]}",
+                "",
+                "data: [DONE]",
+                "data: {\"ignored\":true}");
+
+        // Act
+        List<JsonObject> events = GroqApiClientImpl.events(lines).toList().blockingGet();
+
+        // Assert
+        assertEquals(1, events.size());
+        assertEquals("Claim 1*", IGroqApiClient.deltaContent(events.get(0)));
+    }
+}
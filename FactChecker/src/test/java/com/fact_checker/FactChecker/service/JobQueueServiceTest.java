@@ -0,0 +1,232 @@
+package com.fact_checker.FactChecker.service;
+
+import com.fact_checker.FactChecker.model.FactCheckJob;
+import com.fact_checker.FactChecker.model.JobStage;
+import com.fact_checker.FactChecker.model.StoredUpload;
+import com.fact_checker.FactChecker.repository.FactCheckJobRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the durable job queue against an embedded H2 database. Every call commits on its own, like
+ * it does in production, so that locks and leases are visible across transactions.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Import(JobQueueServiceTest.Config.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class JobQueueServiceTest {
+
+    private static final Duration LEASE = Duration.ofSeconds(60);
+    private static final int MAX_LEASED_PER_USER = 3;
+    private static final JobSchedulerTest.MutableClock clock = new JobSchedulerTest.MutableClock();
+
+    @Autowired
+    @Qualifier("nodeA")
+    private JobQueueService nodeA;
+
+    @Autowired
+    @Qualifier("nodeB")
+    private JobQueueService nodeB;
+
+    @Autowired
+    private FactCheckJobRepository jobRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        jobRepository.deleteAll();
+        clock.set(Instant.parse("2024-01-01T12:00:00Z"));
+    }
+
+    @Test
+    void claim_leasesJobsInDeadlineOrder() {
+        // Arrange
+        nodeA.add(job("late", 300));
+        nodeA.add(job("early", 100));
+        nodeA.add(job("middle", 200));
+
+        // Act
+        List<FactCheckJob> first = nodeA.claim(2);
+        List<FactCheckJob> second = nodeA.claim(2);
+
+        // Assert
+        assertEquals(List.of("early", "middle"), first.stream().map(FactCheckJob::getId).toList());
+        assertEquals(List.of("late"), second.stream().map(FactCheckJob::getId).toList());
+        FactCheckJob stored = jobRepository.findById("early").orElseThrow();
+        assertEquals("node-a", stored.getLeaseOwner());
+        assertEquals(now().plus(LEASE), stored.getLeaseExpiresAt());
+        assertTrue(nodeB.claim(10).isEmpty());
+    }
+
+    @Test
+    void claim_userAtLeaseLimit_leavesJobsToOtherUsersOnEveryInstance() {
+        // Arrange
+        for (int i = 0; i < 5; i++) {
+            nodeA.add(job("busy-" + i, 100 + i));
+        }
+        FactCheckJob other = job("other", 1000);
+        other.setUserId(2L);
+        nodeA.add(other);
+
+        // Act
+        List<FactCheckJob> claimedByA = nodeA.claim(2);
+        List<FactCheckJob> claimedByB = nodeB.claim(10);
+
+        // Assert
+        assertEquals(List.of("busy-0", "busy-1"), claimedByA.stream().map(FactCheckJob::getId).toList());
+        assertEquals(List.of("busy-2", "other"), claimedByB.stream().map(FactCheckJob::getId).toList());
+        assertEquals(3, jobRepository.countLeased(1L, now()));
+    }
+
+    @Test
+    void claim_expiredLease_isTakenOverByOtherInstance() {
+        // Arrange
+        nodeA.add(job("job", 100));
+        FactCheckJob heldByA = nodeA.claim(1).get(0);
+        heldByA.start();
+        nodeA.update(heldByA);
+        clock.advance(LEASE.plusSeconds(1));
+
+        // Act
+        List<FactCheckJob> claimedByB = nodeB.claim(1);
+
+        // Assert
+        assertEquals(1, claimedByB.size());
+        assertEquals("node-b", jobRepository.findById("job").orElseThrow().getLeaseOwner());
+        assertEquals(1, claimedByB.get(0).getAttempts());
+        heldByA.advanceTo(JobStage.COMPLETED);
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> nodeA.update(heldByA));
+    }
+
+    @Test
+    void renewLeases_keepsJobsAwayFromOtherInstances() {
+        // Arrange
+        nodeA.add(job("job", 100));
+        FactCheckJob heldByA = nodeA.claim(1).get(0);
+
+        // Act
+        clock.advance(LEASE.dividedBy(2));
+        nodeA.renewLeases(List.of(heldByA.getId()));
+        clock.advance(LEASE.dividedBy(2).plusSeconds(1));
+
+        // Assert
+        assertTrue(nodeB.claim(1).isEmpty());
+        heldByA.advanceTo(JobStage.COMPLETED);
+        nodeA.update(heldByA);
+    }
+
+    @Test
+    void claim_jobStartedTooOften_failsIt() {
+        // Arrange
+        FactCheckJob job = job("job", 100);
+        job.setAttempts(3);
+        job.advanceTo(JobStage.PROCESSING_VIDEO);
+        nodeA.add(job);
+
+        // Act
+        List<FactCheckJob> claimed = nodeA.claim(1);
+
+        // Assert
+        assertTrue(claimed.isEmpty());
+        FactCheckJob stored = jobRepository.findById("job").orElseThrow();
+        assertEquals(JobStage.FAILED, stored.getStage());
+        assertNull(stored.getLeaseOwner());
+    }
+
+    @Test
+    void update_finishedJob_dropsLease() {
+        // Arrange
+        nodeA.add(job("job", 100));
+        FactCheckJob job = nodeA.claim(1).get(0);
+
+        // Act
+        job.start();
+        nodeA.update(job);
+        job.advanceTo(JobStage.COMPLETED);
+        nodeA.update(job);
+
+        // Assert
+        FactCheckJob stored = jobRepository.findById("job").orElseThrow();
+        assertEquals(JobStage.COMPLETED, stored.getStage());
+        assertNull(stored.getLeaseOwner());
+        assertNull(stored.getLeaseExpiresAt());
+        assertEquals(0, nodeA.countQueued());
+    }
+
+    @Test
+    void claim_rowLockedByConcurrentClaim_isSkipped() throws Exception {
+        // Arrange
+        nodeA.add(job("first", 100));
+        nodeA.add(job("second", 200));
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        CompletableFuture<List<FactCheckJob>> concurrentClaim = CompletableFuture.supplyAsync(() ->
+                transaction.execute(status -> {
+                    List<FactCheckJob> lockedJobs = jobRepository.lockClaimable(now(), MAX_LEASED_PER_USER, 1);
+                    locked.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return lockedJobs;
+                }));
+        locked.await();
+
+        // Act
+        List<FactCheckJob> claimed = nodeB.claim(2);
+        release.countDown();
+
+        // Assert
+        assertEquals(List.of("first"), concurrentClaim.get().stream().map(FactCheckJob::getId).toList());
+        assertEquals(List.of("second"), claimed.stream().map(FactCheckJob::getId).toList());
+    }
+
+    private static FactCheckJob job(String id, long virtualDeadlineMillis) {
+        FactCheckJob job = new FactCheckJob(id, 1L, "video.mp4", new StoredUpload("video.mp4", "hash", 1000, null));
+        job.setVirtualDeadlineMillis(virtualDeadlineMillis);
+        return job;
+    }
+
+    private static LocalDateTime now() {
+        return LocalDateTime.ofInstant(clock.instant(), ZoneOffset.UTC);
+    }
+
+    @TestConfiguration
+    static class Config {
+
+        @Bean
+        JobQueueService nodeA(FactCheckJobRepository jobRepository) {
+            return new JobQueueService(jobRepository, "node-a", LEASE, 3, MAX_LEASED_PER_USER, clock);
+        }
+
+        @Bean
+        JobQueueService nodeB(FactCheckJobRepository jobRepository) {
+            return new JobQueueService(jobRepository, "node-b", LEASE, 3, MAX_LEASED_PER_USER, clock);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.fact_checker.FactChecker.service;
+
+import com.fact_checker.FactChecker.model.FactCheckJob;
+import com.fact_checker.FactChecker.model.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Discrete-event simulation of the job pool under a mixed workload: mostly short clips with an
+ * occasional one to two hour video, arriving at random at close to full utilization of four workers.
+ * The same workload is run through the scheduler in FIFO mode (aging factor 0, long jobs may take every
+ * worker) and with shortest job first, aging and one worker kept free of long jobs, and the
+ * time-to-result of both groups is compared.
+ */
+class JobSchedulerSimulationTest {
+
+    private static final int WORKERS = 4;
+    private static final int JOBS = 300;
+    private static final double MEAN_INTERARRIVAL_SECONDS = 75;
+    private static final double LONG_JOB_SHARE = 0.1;
+
+    @Test
+    void shortestJobFirst_lowersShortJobLatencyWithoutStarvingLongJobs() {
+        // Arrange
+        List<Arrival> workload = workload(new Random(42));
+
+        // Act
+        Result fifo = simulate(workload, 0, WORKERS);
+        Result shortestFirst = simulate(workload, 1.0, WORKERS - 1);
+
+        // Assert
+        assertEquals(JOBS, fifo.shortJobs.size() + fifo.longJobs.size());
+        assertEquals(JOBS, shortestFirst.shortJobs.size() + shortestFirst.longJobs.size());
+        assertTrue(mean(shortestFirst.shortJobs) < 0.5 * mean(fifo.shortJobs));
+        assertTrue(percentile(shortestFirst.shortJobs, 0.95) < 0.5 * percentile(fifo.shortJobs, 0.95));
+        // Aging bounds how long the long videos are held back
+        assertTrue(percentile(shortestFirst.longJobs, 1.0) < 2 * percentile(fifo.longJobs, 1.0));
+    }
+
+    private List<Arrival> workload(Random random) {
+        List<Arrival> arrivals = new ArrayList<>();
+        double time = 0;
+        for (int i = 0; i < JOBS; i++) {
+            time += -Math.log(1 - random.nextDouble()) * MEAN_INTERARRIVAL_SECONDS;
+            boolean longJob = random.nextDouble() < LONG_JOB_SHARE;
+            double duration = longJob ? 3600 + random.nextDouble() * 3600 : 30 + random.nextDouble() * 150;
+            arrivals.add(new Arrival(time, duration, longJob));
+        }
+        return arrivals;
+    }
+
+    private Result simulate(List<Arrival> workload, double agingFactor, int longJobSlots) {
+        JobSchedulerTest.MutableClock clock = new JobSchedulerTest.MutableClock();
+        JobScheduler scheduler = new JobScheduler(JobSchedulerTest.properties(agingFactor, longJobSlots), clock,
+                new SimpleMeterRegistry());
+        Map<FactCheckJob, Arrival> arrivals = new HashMap<>();
+        PriorityQueue<Running> running = new PriorityQueue<>(Comparator.comparingDouble(Running::completion));
+        Result result = new Result();
+
+        int next = 0;
+        while (next < workload.size() || scheduler.size() > 0 || !running.isEmpty()) {
+            double nextArrival = next < workload.size() ? workload.get(next).time : Double.MAX_VALUE;
+            double nextCompletion = running.isEmpty() ? Double.MAX_VALUE : running.peek().completion;
+            double now;
+            if (nextArrival <= nextCompletion) {
+                now = nextArrival;
+                Arrival arrival = workload.get(next++);
+                clock.set(Instant.ofEpochMilli(Math.round(now * 1000)));
+                FactCheckJob job = JobSchedulerTest.job(arrival.duration);
+                arrivals.put(job, arrival);
+                scheduler.enqueue(job, new User());
+            } else {
+                now = nextCompletion;
+                scheduler.complete(running.poll().scheduledJob);
+                clock.set(Instant.ofEpochMilli(Math.round(now * 1000)));
+            }
+
+            Optional<JobScheduler.ScheduledJob> started;
+            while (running.size() < WORKERS && (started = scheduler.poll()).isPresent()) {
+                Arrival arrival = arrivals.get(started.get().getJob());
+                double completion = now + serviceSeconds(arrival.duration);
+                running.add(new Running(completion, started.get()));
+                (arrival.longJob ? result.longJobs : result.shortJobs).add(completion - arrival.time);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Processing time of a video: extraction and transcription run at about twice real time,
+     * plus the API round trips every job makes.
+     */
+    private static double serviceSeconds(double durationSeconds) {
+        return 0.5 * durationSeconds + 20;
+    }
+
+    private static double mean(List<Double> values) {
+        return values.stream().mapToDouble(Double::doubleValue).average().orElse(0);
+    }
+
+    private static double percentile(List<Double> values, double percentile) {
+        List<Double> sorted = values.stream().sorted().toList();
+        return sorted.get((int) Math.ceil(percentile * sorted.size()) - 1);
+    }
+
+    private record Arrival(double time, double duration, boolean longJob) {
+    }
+
+    private record Running(double completion, JobScheduler.ScheduledJob scheduledJob) {
+    }
+
+    private static class Result {
+        private final List<Double> shortJobs = new ArrayList<>();
+        private final List<Double> longJobs = new ArrayList<>();
+    }
+}
@@ -0,0 +1,279 @@
+package com.fact_checker.FactChecker.service;
+
+import com.fact_checker.FactChecker.config.SchedulerProperties;
+import com.fact_checker.FactChecker.exceptions.QuotaExceededException;
+import com.fact_checker.FactChecker.model.FactCheckJob;
+import com.fact_checker.FactChecker.model.MediaMetadata;
+import com.fact_checker.FactChecker.model.StoredUpload;
+import com.fact_checker.FactChecker.model.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JobSchedulerTest {
+
+    private final User user = new User();
+
+    @Test
+    void poll_shortJobOvertakesEarlierLongJob() {
+        // Arrange
+        MutableClock clock = new MutableClock();
+        JobScheduler scheduler = new JobScheduler(properties(1.0, 3), clock, new SimpleMeterRegistry());
+        FactCheckJob longJob = job(7200);
+        FactCheckJob shortJob = job(30);
+        scheduler.enqueue(longJob, user);
+        clock.advance(Duration.ofMinutes(5));
+        scheduler.enqueue(shortJob, user);
+
+        // Act & Assert
+        assertSame(shortJob, scheduler.poll().orElseThrow().getJob());
+        assertSame(longJob, scheduler.poll().orElseThrow().getJob());
+        assertTrue(scheduler.poll().isEmpty());
+    }
+
+    @Test
+    void poll_longJobIsNotOvertakenOnceItHasAged() {
+        // Arrange
+        MutableClock clock = new MutableClock();
+        JobScheduler scheduler = new JobScheduler(properties(1.0, 3), clock, new SimpleMeterRegistry());
+        FactCheckJob longJob = job(600);
+        FactCheckJob shortJob = job(30);
+        scheduler.enqueue(longJob, user);
+        clock.advance(Duration.ofMinutes(20));
+        scheduler.enqueue(shortJob, user);
+
+        // Act & Assert
+        assertSame(longJob, scheduler.poll().orElseThrow().getJob());
+    }
+
+    @Test
+    void poll_agingFactorZero_runsInSubmissionOrder() {
+        // Arrange
+        JobScheduler scheduler = new JobScheduler(properties(0, 3), new MutableClock(), new SimpleMeterRegistry());
+        FactCheckJob longJob = job(7200);
+        FactCheckJob shortJob = job(30);
+        scheduler.enqueue(longJob, user);
+        scheduler.enqueue(shortJob, user);
+
+        // Act & Assert
+        assertSame(longJob, scheduler.poll().orElseThrow().getJob());
+        assertSame(shortJob, scheduler.poll().orElseThrow().getJob());
+    }
+
+    @Test
+    void poll_longJobSlotsTaken_startsShortJobsOnly() {
+        // Arrange
+        JobScheduler scheduler = new JobScheduler(properties(1.0, 1), new MutableClock(), new SimpleMeterRegistry());
+        scheduler.enqueue(job(3600), user);
+        scheduler.enqueue(job(3600), user);
+        JobScheduler.ScheduledJob runningLongJob = scheduler.poll().orElseThrow();
+
+        // Act & Assert
+        assertTrue(scheduler.poll().isEmpty());
+        FactCheckJob shortJob = job(60);
+        scheduler.enqueue(shortJob, user);
+        assertSame(shortJob, scheduler.poll().orElseThrow().getJob());
+
+        scheduler.complete(runningLongJob);
+        assertTrue(scheduler.poll().isPresent());
+    }
+
+    @Test
+    void remove_onlyRemovesQueuedJobs() {
+        // Arrange
+        JobScheduler scheduler = new JobScheduler(properties(1.0, 3), new MutableClock(), new SimpleMeterRegistry());
+        FactCheckJob job = job(30);
+        scheduler.enqueue(job, user);
+
+        // Act & Assert
+        assertTrue(scheduler.remove(job));
+        assertFalse(scheduler.remove(job));
+        assertEquals(0, scheduler.size());
+    }
+
+    @Test
+    void poll_lightUserOvertakesQueueOfHeavyUser() {
+        // Arrange
+        JobScheduler scheduler = new JobScheduler(properties(1.0, 3), new MutableClock(), new SimpleMeterRegistry());
+        User heavyUser = user(1L);
+        User lightUser = user(2L);
+        for (int i = 0; i < 5; i++) {
+            scheduler.enqueue(job(60), heavyUser);
+        }
+        FactCheckJob lightJob = job(60);
+        scheduler.enqueue(lightJob, lightUser);
+
+        // Act & Assert
+        assertSame(heavyUser, scheduler.poll().orElseThrow().getUser());
+        assertSame(lightJob, scheduler.poll().orElseThrow().getJob());
+        assertSame(heavyUser, scheduler.poll().orElseThrow().getUser());
+    }
+
+    @Test
+    void poll_weightedUserGetsLargerShare() {
+        // Arrange
+        SchedulerProperties properties = properties(1.0, 3);
+        properties.getRoleWeights().put("ROLE_PREMIUM", 2.0);
+        JobScheduler scheduler = new JobScheduler(properties, new MutableClock(), new SimpleMeterRegistry());
+        User premiumUser = user(1L);
+        premiumUser.getRoles().add("ROLE_PREMIUM");
+        User regularUser = user(2L);
+        for (int i = 0; i < 4; i++) {
+            scheduler.enqueue(job(60), premiumUser);
+            scheduler.enqueue(job(60), regularUser);
+        }
+
+        // Act
+        List<User> order = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            order.add(scheduler.poll().orElseThrow().getUser());
+        }
+
+        // Assert
+        assertEquals(List.of(premiumUser, regularUser, premiumUser, regularUser, premiumUser, premiumUser), order);
+    }
+
+    @Test
+    void poll_userAtRunningLimit_startsOtherUsersJobs() {
+        // Arrange
+        SchedulerProperties properties = properties(1.0, 3);
+        properties.setMaxRunningJobsPerUser(1);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        JobScheduler scheduler = new JobScheduler(properties, new MutableClock(), meterRegistry);
+        User busyUser = user(1L);
+        scheduler.enqueue(job(30), busyUser);
+        scheduler.enqueue(job(30), busyUser);
+        JobScheduler.ScheduledJob runningJob = scheduler.poll().orElseThrow();
+
+        // Act & Assert
+        assertTrue(scheduler.poll().isEmpty());
+        assertEquals(1, meterRegistry.get("fact-check.jobs.user.running").tag("user", "1").gauge().value());
+        assertEquals(1, meterRegistry.get("fact-check.jobs.user.queued").tag("user", "1").gauge().value());
+        FactCheckJob otherJob = job(600);
+        scheduler.enqueue(otherJob, user(2L));
+        assertSame(otherJob, scheduler.poll().orElseThrow().getJob());
+
+        scheduler.complete(runningJob);
+        assertSame(busyUser, scheduler.poll().orElseThrow().getUser());
+    }
+
+    @Test
+    void complete_lastJobOfUser_removesUserGauges() {
+        // Arrange
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        JobScheduler scheduler = new JobScheduler(properties(1.0, 3), new MutableClock(), meterRegistry);
+        scheduler.enqueue(job(30), user(1L));
+        JobScheduler.ScheduledJob runningJob = scheduler.poll().orElseThrow();
+
+        // Act
+        scheduler.complete(runningJob);
+
+        // Assert
+        assertNull(meterRegistry.find("fact-check.jobs.user.queued").tag("user", "1").gauge());
+        assertNull(meterRegistry.find("fact-check.jobs.user.running").tag("user", "1").gauge());
+        scheduler.enqueue(job(30), user(1L));
+        assertEquals(1, meterRegistry.get("fact-check.jobs.user.queued").tag("user", "1").gauge().value());
+    }
+
+    @Test
+    void checkQuota_userAtQueuedLimit_throwsQuotaExceededException() {
+        // Arrange
+        SchedulerProperties properties = properties(1.0, 3);
+        properties.setMaxQueuedJobsPerUser(2);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        JobScheduler scheduler = new JobScheduler(properties, new MutableClock(), meterRegistry);
+
+        // Act & Assert
+        assertDoesNotThrow(() -> scheduler.checkQuota(user(1L), 1));
+        assertThrows(QuotaExceededException.class, () -> scheduler.checkQuota(user(1L), 2));
+        assertEquals(1, meterRegistry.get("fact-check.jobs.user.rejected").tag("user", "1").counter().count());
+    }
+
+    @Test
+    void enqueue_keepsDeadlineOfReclaimedJob() {
+        // Arrange
+        MutableClock clock = new MutableClock();
+        JobScheduler scheduler = new JobScheduler(properties(1.0, 3), clock, new SimpleMeterRegistry());
+        FactCheckJob reclaimedJob = job(3600);
+        scheduler.assignDeadline(reclaimedJob);
+        clock.advance(Duration.ofHours(2));
+        FactCheckJob shortJob = job(30);
+
+        // Act
+        scheduler.enqueue(shortJob, user);
+        scheduler.enqueue(reclaimedJob, user);
+
+        // Assert
+        assertSame(reclaimedJob, scheduler.poll().orElseThrow().getJob());
+    }
+
+    @Test
+    void estimateCost_prefersProbedDurationOverFileSize() {
+        // Arrange
+        MediaMetadata metadata = new MediaMetadata("mp4", 120.0, "h264", "aac", 2, 640, 480);
+
+        // Act & Assert
+        assertEquals(150, JobScheduler.estimateCost(new StoredUpload("a.mp4", "hash", 1_000_000_000, metadata)));
+        assertEquals(70, JobScheduler.estimateCost(new StoredUpload("b.mp4", "hash", 10_000_000, null)));
+        assertEquals(JobScheduler.DEFAULT_COST_SECONDS, JobScheduler.estimateCost(new StoredUpload("c.mp4", "hash")));
+    }
+
+    static SchedulerProperties properties(double agingFactor, int longJobSlots) {
+        SchedulerProperties properties = new SchedulerProperties();
+        properties.setAgingFactor(agingFactor);
+        properties.setLongJobSeconds(600);
+        properties.setLongJobSlots(longJobSlots);
+        properties.setMaxRunningJobsPerUser(Integer.MAX_VALUE);
+        properties.setMaxQueuedJobsPerUser(Integer.MAX_VALUE);
+        return properties;
+    }
+
+    private static User user(Long id) {
+        User user = new User();
+        user.setId(id);
+        return user;
+    }
+
+    static FactCheckJob job(double durationSeconds) {
+        MediaMetadata metadata = new MediaMetadata("mp4", durationSeconds, "h264", "aac", 2, 640, 480);
+        return new FactCheckJob("job", 1L, "video.mp4", new StoredUpload("video.mp4", "hash", 0, metadata));
+    }
+
+    /**
+     * Clock that only moves when told to.
+     */
+    static class MutableClock extends Clock {
+        private Instant instant = Instant.EPOCH;
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        void set(Instant instant) {
+            this.instant = instant;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.of("UTC");
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
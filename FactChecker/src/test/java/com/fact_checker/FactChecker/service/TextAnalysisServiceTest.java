@@ -1,22 +1,37 @@
 package com.fact_checker.FactChecker.service;
 
+import com.fact_checker.FactChecker.exceptions.DeadlineExceededException;
 import com.fact_checker.FactChecker.model.Video;
 import com.fact_checker.FactChecker.repository.VideoRepository;
+import com.knuddels.jtokkit.api.Encoding;
+import io.reactivex.rxjava3.core.Flowable;
 import io.reactivex.rxjava3.core.Single;
+import io.reactivex.rxjava3.processors.PublishProcessor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import javax.json.*;
 import java.io.StringReader;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -30,9 +45,24 @@ class TextAnalysisServiceTest {
     @Mock
     private VideoRepository videoRepository;
 
+    @Mock
+    private ArtifactCache artifactCache;
+
+    @Mock
+    private ClaimIndex claimIndex;
+
+    @Mock
+    private Encoding encoding;
+
+    private TranscriptWindower transcriptWindower;
+
     @BeforeEach
     void setUp() {
-        textAnalysisService = new TextAnalysisService(apiClient, "test-api-key", videoRepository);
+        // One token per character keeps the batch sizes predictable
+        lenient().when(encoding.countTokens(anyString())).thenAnswer(invocation -> invocation.<String>getArgument(0).length());
+        transcriptWindower = new TranscriptWindower(encoding, 1000, 50);
+        textAnalysisService = new TextAnalysisService(apiClient, "test-api-key", videoRepository, artifactCache,
+                claimIndex, encoding, transcriptWindower, 1000, 4, 4);
     }
 
     @Test
@@ -73,21 +103,145 @@ class TextAnalysisServiceTest {
         assertTrue(video.getFalseStatements().contains("Claim 3"));
     }
 
+    @Test
+    void analyzeText_shouldRecordFreshScores() {
+        // Arrange
+        Video video = new Video();
+        video.setTranscriptionText("Test transcription");
+
+        mockApiResponses("Claim 1*Claim 2",
+                "{\"Claim 1\": 80, \"Claim 2\": 60}");
+
+        // Act
+        textAnalysisService.analyzeText(video);
+
+        // Assert
+        verify(claimIndex).record(Map.of("Claim 1", 80.0, "Claim 2", 60.0));
+        verify(claimIndex).find(Set.of("Claim 1", "Claim 2"));
+    }
+
+    @Test
+    void analyzeText_rewordedResponse_recordsScoresUnderSubmittedClaims() {
+        // Arrange
+        Video video = new Video();
+        video.setTranscriptionText("Test transcription");
+
+        mockApiResponses("Claim 1*Claim 2",
+                "{\"CLAIM  1\": 80, \"The second claim\": 40}");
+
+        // Act
+        double result = textAnalysisService.analyzeText(video);
+
+        // Assert
+        assertEquals(60.0, result, 0.01);
+        assertEquals(List.of("Claim 2"), video.getFalseStatements());
+        verify(claimIndex).record(Map.of("Claim 1", 80.0, "Claim 2", 40.0));
+    }
+
+    @Test
+    void matchScores_missingStatement_failsAttempt() {
+        // Act & Assert
+        assertThrows(RuntimeException.class, () -> TextAnalysisService.matchScores(
+                List.of("Claim 1", "Claim 2", "Claim 3"), Map.of("Claim 1", 80.0, "Something else", 40.0)));
+    }
+
+    @Test
+    void analyzeText_shouldOnlyScoreUnseenClaims() {
+        // Arrange
+        Video video = new Video();
+        video.setTranscriptionText("Test transcription");
+
+        when(claimIndex.knownScores(List.of("Claim 1", "Claim 2"))).thenReturn(Map.of("Claim 1", 80.0));
+        mockApiResponses("Claim 1*Claim 2",
+                "{\"Claim 2\": 40}");
+
+        // Act
+        double result = textAnalysisService.analyzeText(video);
+
+        // Assert
+        assertEquals(60.0, result, 0.01);
+        assertEquals(List.of("Claim 2"), video.getFalseStatements());
+        ArgumentCaptor<JsonObject> requests = ArgumentCaptor.forClass(JsonObject.class);
+        verify(apiClient, times(1)).createChatCompletionAsync(requests.capture());
+        String scoredContent = requests.getValue().getJsonArray("messages").getJsonObject(1).getString("content");
+        assertEquals("[Claim 2]", scoredContent);
+        verify(claimIndex).record(Map.of("Claim 2", 40.0));
+    }
+
+    @Test
+    void analyzeText_allClaimsHot_skipsLookupAndScoringRequest() {
+        // Arrange
+        Video video = new Video();
+        video.setTranscriptionText("Test transcription");
+
+        when(claimIndex.hotScore(anyString())).thenReturn(Optional.of(90.0));
+        mockClaimStream("Claim 1 *  claim 2");
+
+        // Act
+        double result = textAnalysisService.analyzeText(video);
+
+        // Assert
+        assertEquals(90.0, result, 0.01);
+        verify(apiClient, times(1)).createChatCompletionStreamAsync(any(JsonObject.class));
+        verify(apiClient, never()).createChatCompletionAsync(any(JsonObject.class));
+        verify(claimIndex, never()).knownScores(anyCollection());
+    }
+
+    @Test
+    void analyzeText_claimsExtractedBefore_skipsExtractionRequest() {
+        // Arrange
+        Video video = new Video();
+        video.setTranscriptionText("Test transcription");
+
+        when(artifactCache.getString(ArtifactCache.ArtifactType.CLAIMS, ArtifactCache.digest("Test transcription")))
+                .thenReturn(Optional.of("[\"Claim 1\",\"Claim 2\"]"));
+        when(apiClient.createChatCompletionAsync(any()))
+                .thenReturn(Single.just(createMockJsonResponse("{\"Claim 1\": 80, \"Claim 2\": 60}")));
+
+        // Act
+        double result = textAnalysisService.analyzeText(video);
+
+        // Assert
+        assertEquals(70.0, result, 0.01);
+        verify(apiClient, times(1)).createChatCompletionAsync(any(JsonObject.class));
+        verify(apiClient, never()).createChatCompletionStreamAsync(any(JsonObject.class));
+        verify(artifactCache, never()).putString(eq(ArtifactCache.ArtifactType.CLAIMS), anyString(), anyString());
+    }
+
+    @Test
+    void analyzeText_shouldCacheExtractedClaims() {
+        // Arrange
+        Video video = new Video();
+        video.setTranscriptionText("Test transcription");
+
+        mockApiResponses("Claim 1*Claim 2",
+                "{\"Claim 1\": 80, \"Claim 2\": 60}");
+
+        // Act
+        textAnalysisService.analyzeText(video);
+
+        // Assert
+        verify(artifactCache).putString(ArtifactCache.ArtifactType.CLAIMS, ArtifactCache.digest("Test transcription"),
+                "[\"Claim 1\",\"Claim 2\"]");
+    }
+
     @Test
     void analyzeText_shouldHandleEmptyTranscription() {
         // Arrange
         Video video = new Video();
         video.setTranscriptionText("");
 
-        mockApiResponses("", "{}");
+        mockClaimStream("");
 
         // Act
         double result = textAnalysisService.analyzeText(video);
 
         // Assert
         assertEquals(0.0, result, 0.01);
-        assertNull(video.getFactPercentage());
-        assertNull(video.getFalseStatements());
+        assertEquals(0.0, video.getFactPercentage(), 0.01, "A video without claims is rated, not failed");
+        assertTrue(video.getFalseStatements().isEmpty());
+        verify(apiClient, never()).createChatCompletionAsync(any(JsonObject.class));
+        verify(videoRepository).save(video);
     }
 
     @Test
@@ -97,8 +251,8 @@ class TextAnalysisServiceTest {
         video.setTranscriptionText("Test transcription");
 
         // Mock the API client to simulate an error
-        when(apiClient.createChatCompletionAsync(any(JsonObject.class)))
-                .thenReturn(Single.error(new RuntimeException("API Error")));
+        when(apiClient.createChatCompletionStreamAsync(any(JsonObject.class)))
+                .thenReturn(Flowable.error(new RuntimeException("API Error")));
 
         // Act
         double result = textAnalysisService.analyzeText(video);
@@ -108,9 +262,192 @@ class TextAnalysisServiceTest {
         assertNull(video.getFactPercentage());
         assertNull(video.getFalseStatements());
 
-        // Verify that the API was called
-        verify(apiClient, times(6)).createChatCompletionAsync(any(JsonObject.class));
+        // Verify that the extraction was retried and nothing was scored without claims
+        verify(apiClient, times(3)).createChatCompletionStreamAsync(any(JsonObject.class));
+        verify(apiClient, never()).createChatCompletionAsync(any(JsonObject.class));
     }
+
+    @Test
+    void analyzeText_extractionFailsHalfway_retriesWithoutScoringClaimsTwice() {
+        // Arrange
+        Video video = new Video();
+        video.setTranscriptionText("Test transcription");
+
+        when(apiClient.createChatCompletionStreamAsync(any()))
+                .thenReturn(Flowable.just(createMockChunk("Claim 1*Cla"))
+                        .concatWith(Flowable.error(new RuntimeException("Connection reset"))))
+                .thenReturn(claimStream("Claim 1*Claim 2"));
+        when(apiClient.createChatCompletionAsync(any()))
+                .thenReturn(Single.just(createMockJsonResponse("{\"Claim 1\": 80, \"Claim 2\": 60}")));
+
+        // Act
+        double result = textAnalysisService.analyzeText(video);
+
+        // Assert
+        assertEquals(70.0, result, 0.01);
+        ArgumentCaptor<JsonObject> requests = ArgumentCaptor.forClass(JsonObject.class);
+        verify(apiClient, times(1)).createChatCompletionAsync(requests.capture());
+        assertEquals("[Claim 1, Claim 2]", requests.getValue().getJsonArray("messages").getJsonObject(1).getString("content"));
+    }
+
+    @Test
+    void scoreClaimsAsync_scoresFullBatchBeforeExtractionEnds() {
+        // Arrange
+        TextAnalysisService batchingService = new TextAnalysisService(apiClient, "test-api-key", videoRepository,
+                artifactCache, claimIndex, encoding, transcriptWindower, 10, 4, 4);
+        PublishProcessor<JsonObject> stream = PublishProcessor.create();
+        when(apiClient.createChatCompletionStreamAsync(any())).thenReturn(stream);
+        when(apiClient.createChatCompletionAsync(any()))
+                .thenReturn(Single.just(createMockJsonResponse("{\"Claim 1\": 80}")))
+                .thenReturn(Single.just(createMockJsonResponse("{\"Claim 2\": 40}")));
+
+        // Act
+        CompletableFuture<Map<String, Double>> scores = batchingService.scoreClaimsAsync("Test transcription", Deadline.none());
+        stream.onNext(createMockChunk("Claim 1*Cl"));
+
+        // Assert
+        verify(apiClient, times(1)).createChatCompletionAsync(any(JsonObject.class));
+        assertFalse(scores.isDone());
+
+        stream.onNext(createMockChunk("aim 2"));
+        stream.onComplete();
+        assertEquals(Map.of("Claim 1", 80.0, "Claim 2", 40.0), scores.join());
+    }
+
+    @Test
+    void analyzeText_longTranscription_extractsClaimsPerWindowAndMergesThem() {
+        // Arrange
+        TextAnalysisService windowingService = new TextAnalysisService(apiClient, "test-api-key", videoRepository,
+                artifactCache, claimIndex, encoding, new TranscriptWindower(encoding, 40, 20), 1000, 4, 4);
+        Video video = new Video();
+        video.setTranscriptionText("The sky is blue. Grass is green. Snow is white.");
+        when(apiClient.createChatCompletionStreamAsync(any())).thenAnswer(invocation -> {
+            String prompt = invocation.<JsonObject>getArgument(0).getJsonArray("messages").getJsonObject(0).getString("content");
+            return prompt.contains("The sky is blue.") ? claimStream("The sky is blue.*Grass is green.")
+                    : claimStream("Grass is green. *Snow is white.");
+        });
+        when(apiClient.createChatCompletionAsync(any()))
+                .thenReturn(Single.just(createMockJsonResponse(
+                        "{\"The sky is blue.\": 90, \"Grass is green.\": 80, \"Snow is white.\": 70}")));
+
+        // Act
+        double result = windowingService.analyzeText(video);
+
+        // Assert
+        assertEquals(80.0, result, 0.01);
+        verify(apiClient, times(2)).createChatCompletionStreamAsync(any(JsonObject.class));
+        ArgumentCaptor<JsonObject> requests = ArgumentCaptor.forClass(JsonObject.class);
+        verify(apiClient).createChatCompletionAsync(requests.capture());
+        assertEquals("[The sky is blue., Grass is green., Snow is white.]",
+                requests.getValue().getJsonArray("messages").getJsonObject(1).getString("content"));
+    }
+
+    @Test
+    void splitClaims_emitsClaimsAcrossChunks() {
+        // Act
+        List<String> claims = TextAnalysisService.splitClaims(Flowable.just("Claim", " 1*Cl", "aim 2**", " Claim 3 "))
+                .toList()
+                .blockingGet();
+
+        // Assert
+        assertEquals(List.of("Claim 1", "Claim 2", " Claim 3 "), claims);
+    }
+    @Test
+    void claimBatcher_packsClaimsUpToTokenBudget() {
+        // Arrange
+        TextAnalysisService.ClaimBatcher batcher = new TextAnalysisService.ClaimBatcher(encoding, 25);
+        List<List<String>> batches = new ArrayList<>();
+
+        // Act
+        for (String claim : List.of("Claim 1", "Claim 2", "A much longer claim 3", "Claim 4")) {
+            batches.addAll(batcher.add(claim));
+        }
+        batches.addAll(batcher.flush());
+
+        // Assert
+        assertEquals(List.of(List.of("Claim 1", "Claim 2"), List.of("A much longer claim 3"), List.of("Claim 4")), batches);
+    }
+
+    @Test
+    void analyzeText_failedBatch_onlyRetriesThatBatch() {
+        // Arrange
+        TextAnalysisService batchingService = new TextAnalysisService(apiClient, "test-api-key", videoRepository,
+                artifactCache, claimIndex, encoding, transcriptWindower, 20, 4, 4);
+        Video video = new Video();
+        video.setTranscriptionText("Test transcription");
+        AtomicInteger failures = new AtomicInteger();
+        mockClaimStream("Claim 1*Claim 2");
+        when(apiClient.createChatCompletionAsync(any())).thenAnswer(invocation -> {
+            String batch = invocation.<JsonObject>getArgument(0).getJsonArray("messages").getJsonObject(1).getString("content");
+            if (batch.equals("[Claim 2]") && failures.getAndIncrement() == 0) {
+                return Single.error(new RuntimeException("API Error"));
+            }
+            return Single.just(createMockJsonResponse(batch.equals("[Claim 1]") ? "{\"Claim 1\": 80}" : "{\"Claim 2\": 40}"));
+        });
+
+        // Act
+        double result = batchingService.analyzeText(video);
+
+        // Assert
+        assertEquals(60.0, result, 0.01);
+        assertEquals(List.of("Claim 2"), video.getFalseStatements());
+        verify(apiClient, times(3)).createChatCompletionAsync(any(JsonObject.class));
+    }
+
+    @Test
+    void analyzeText_batchFailsForGood_failsAnalysisButKeepsOtherScores() {
+        // Arrange
+        TextAnalysisService batchingService = new TextAnalysisService(apiClient, "test-api-key", videoRepository,
+                artifactCache, claimIndex, encoding, transcriptWindower, 20, 4, 4);
+        Video video = new Video();
+        video.setTranscriptionText("Test transcription");
+        mockClaimStream("Claim 1*Claim 2");
+        when(apiClient.createChatCompletionAsync(any())).thenAnswer(invocation -> {
+            String batch = invocation.<JsonObject>getArgument(0).getJsonArray("messages").getJsonObject(1).getString("content");
+            return batch.equals("[Claim 1]")
+                    ? Single.just(createMockJsonResponse("{\"Claim 1\": 80}"))
+                    : Single.error(new RuntimeException("API Error"));
+        });
+
+        // Act
+        double result = batchingService.analyzeText(video);
+
+        // Assert
+        assertEquals(0.0, result, 0.01);
+        assertNull(video.getFactPercentage());
+        verify(videoRepository, never()).save(any());
+        verify(claimIndex).record(Map.of("Claim 1", 80.0));
+        verify(apiClient, times(4)).createChatCompletionAsync(any(JsonObject.class));
+    }
+
+    @Test
+    void scoreClaimsAsync_cancelledWhileWaiting_disposesCall() {
+        // Arrange
+        Deadline deadline = Deadline.none();
+        AtomicBoolean disposed = new AtomicBoolean();
+        when(apiClient.createChatCompletionStreamAsync(any()))
+                .thenReturn(Flowable.<JsonObject>never().doOnCancel(() -> disposed.set(true)));
+
+        // Act
+        CompletableFuture<Map<String, Double>> scores = textAnalysisService.scoreClaimsAsync("Test transcription", deadline);
+        boolean doneBeforeCancel = scores.isDone();
+        deadline.cancel();
+
+        // Assert
+        assertFalse(doneBeforeCancel);
+        assertTrue(scores.isCancelled());
+        assertTrue(disposed.get());
+        verify(apiClient, times(1)).createChatCompletionStreamAsync(any(JsonObject.class));
+    }
+
+    @Test
+    void scoreClaims_deadlinePassed_failsWithoutCallingApi() {
+        // Act & Assert
+        assertThrows(DeadlineExceededException.class,
+                () -> textAnalysisService.scoreClaims("Test transcription", Deadline.after(Duration.ZERO)));
+        verifyNoInteractions(apiClient);
+    }
+
     @Test
     void getFalseClaims_shouldReturnCorrectClaims() {
         // Arrange
@@ -161,12 +498,45 @@ class TextAnalysisServiceTest {
     }
 
     private void mockApiResponses(String claimsResponse, String scoresResponse) {
-        JsonObject claimsResult = createMockJsonResponse(claimsResponse);
-        JsonObject scoresResult = createMockJsonResponse(scoresResponse);
-
+        mockClaimStream(claimsResponse);
         when(apiClient.createChatCompletionAsync(any()))
-                .thenReturn(Single.just(claimsResult))
-                .thenReturn(Single.just(scoresResult));
+                .thenReturn(Single.just(createMockJsonResponse(scoresResponse)));
+    }
+
+    private void mockClaimStream(String claimsResponse) {
+        when(apiClient.createChatCompletionStreamAsync(any())).thenReturn(claimStream(claimsResponse));
+    }
+
+    /**
+     * Streams a response the way Groq does: a chunk with the role, the content a few characters at a time,
+     * and a final chunk without content.
+     */
+    private Flowable<JsonObject> claimStream(String content) {
+        List<JsonObject> chunks = new ArrayList<>();
+        chunks.add(Json.createObjectBuilder()
+                .add("choices", Json.createArrayBuilder()
+                        .add(Json.createObjectBuilder()
+                                .add("delta", Json.createObjectBuilder().add("role", "assistant"))))
+                .build());
+        for (int start = 0; start < content.length(); start += 4) {
+            chunks.add(createMockChunk(content.substring(start, Math.min(content.length(), start + 4))));
+        }
+        chunks.add(Json.createObjectBuilder()
+                .add("choices", Json.createArrayBuilder()
+                        .add(Json.createObjectBuilder()
+                                .add("delta", Json.createObjectBuilder())
+                                .add("finish_reason", "stop")))
+                .build());
+        return Flowable.fromIterable(chunks);
+    }
+
+    private JsonObject createMockChunk(String content) {
+        return Json.createObjectBuilder()
+                .add("choices", Json.createArrayBuilder()
+                        .add(Json.createObjectBuilder()
+                                .add("delta", Json.createObjectBuilder()
+                                        .add("content", content))))
+                .build();
     }
 
     private JsonObject createMockJsonResponse(String content) {
@@ -0,0 +1,70 @@
+package com.fact_checker.FactChecker.service;
+
+import com.knuddels.jtokkit.api.Encoding;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+
+@ExtendWith(MockitoExtension.class)
+class TranscriptWindowerTest {
+
+    @Mock
+    private Encoding encoding;
+
+    @BeforeEach
+    void setUp() {
+        // One token per character keeps the window sizes predictable
+        lenient().when(encoding.countTokens(anyString())).thenAnswer(invocation -> invocation.<String>getArgument(0).length());
+    }
+
+    @Test
+    void split_ShortTranscript_ReturnsSingleWindow() {
+        // Arrange
+        TranscriptWindower windower = new TranscriptWindower(encoding, 100, 20);
+
+        // Act
+        List<String> windows = windower.split("The sky is blue. Grass is green.");
+
+        // Assert
+        assertEquals(List.of("The sky is blue. Grass is green."), windows);
+    }
+
+    @Test
+    void split_LongTranscript_CutsOverlappingWindowsAtSentences() {
+        // Arrange
+        TranscriptWindower windower = new TranscriptWindower(encoding, 40, 20);
+
+        // Act
+        List<String> windows = windower.split("The sky is blue. Grass is green. Snow is white. Coal is black.");
+
+        // Assert
+        assertEquals(List.of("The sky is blue. Grass is green.", "Grass is green. Snow is white.",
+                "Snow is white. Coal is black."), windows);
+    }
+
+    @Test
+    void split_SentenceLongerThanWindow_CutsBetweenWords() {
+        // Arrange
+        TranscriptWindower windower = new TranscriptWindower(encoding, 12, 0);
+
+        // Act
+        List<String> windows = windower.split("one two three four five six");
+
+        // Assert
+        assertEquals(List.of("one two", "three four", "five six"), windows);
+        windows.forEach(window -> assertTrue(window.length() <= 12));
+    }
+
+    @Test
+    void constructor_OverlapNotSmallerThanWindow_Throws() {
+        assertThrows(IllegalArgumentException.class, () -> new TranscriptWindower(encoding, 10, 10));
+    }
+}
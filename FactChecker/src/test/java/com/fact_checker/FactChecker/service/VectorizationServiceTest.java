@@ -7,12 +7,17 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.knuddels.jtokkit.api.Encoding;
 import com.knuddels.jtokkit.api.IntArrayList;
 import okhttp3.*;
+import okio.Timeout;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -68,7 +73,7 @@ class VectorizationServiceTest {
         when(openAiConfig.getApiUrl()).thenReturn("https://test.com");
         when(openAiConfig.getApiKey()).thenReturn("test-key");
         when(client.newCall(any())).thenReturn(call);
-        when(call.execute()).thenReturn(response);
+        respondWith(response);
         when(response.isSuccessful()).thenReturn(true);
         when(response.body()).thenReturn(responseBody);
         when(responseBody.string()).thenReturn(responseJson);
@@ -129,7 +134,7 @@ class VectorizationServiceTest {
         when(openAiConfig.getApiUrl()).thenReturn("https://test.com");
         when(openAiConfig.getApiKey()).thenReturn("test-key");
         when(client.newCall(any())).thenReturn(call);
-        when(call.execute()).thenReturn(response);
+        respondWith(response);
         when(response.isSuccessful()).thenReturn(false);
         when(response.code()).thenReturn(400);
 
@@ -155,7 +160,7 @@ class VectorizationServiceTest {
         when(openAiConfig.getApiUrl()).thenReturn("https://test.com");
         when(openAiConfig.getApiKey()).thenReturn("test-key");
         when(client.newCall(any())).thenReturn(call);
-        when(call.execute()).thenReturn(response);
+        respondWith(response);
         when(response.isSuccessful()).thenReturn(true);
         when(response.body()).thenReturn(null);
 
@@ -182,7 +187,7 @@ class VectorizationServiceTest {
         when(openAiConfig.getApiUrl()).thenReturn("https://test.com");
         when(openAiConfig.getApiKey()).thenReturn("test-key");
         when(client.newCall(any())).thenReturn(call);
-        when(call.execute()).thenReturn(response);
+        respondWith(response);
         when(response.isSuccessful()).thenReturn(true);
         when(response.body()).thenReturn(responseBody);
         when(responseBody.string()).thenReturn(responseJson);
@@ -199,4 +204,61 @@ class VectorizationServiceTest {
         // Act & Assert
         assertThrows(EmbeddingException.class, () -> vectorizationService.getEmbedding(inputText, 3));
     }
+
+    @Test
+    void getEmbedding_Interrupted_CancelsCall() throws Exception {
+        // Arrange
+        String inputText = "Test text";
+        IntArrayList tokenList = new IntArrayList(1);
+        tokenList.add(1);
+
+        when(encoding.encode(inputText)).thenReturn(tokenList);
+        when(encoding.decode(tokenList)).thenReturn("Decoded tokens");
+        when(objectMapper.writeValueAsString(any())).thenReturn("{}");
+        when(openAiConfig.getApiUrl()).thenReturn("https://test.com");
+        when(openAiConfig.getApiKey()).thenReturn("test-key");
+        when(client.newCall(any())).thenReturn(call);
+
+        // Act
+        Thread.currentThread().interrupt();
+        EmbeddingException exception = assertThrows(EmbeddingException.class,
+                () -> vectorizationService.getEmbedding(inputText, 3));
+
+        // Assert
+        assertTrue(Thread.interrupted(), "The interrupt should be kept");
+        assertInstanceOf(InterruptedIOException.class, exception.getCause());
+        verify(call).cancel();
+    }
+
+    @Test
+    void getEmbedding_DeadlineCancelled_CancelsCallInFlight() throws Exception {
+        // Arrange
+        String inputText = "Test text";
+        IntArrayList tokenList = new IntArrayList(1);
+        tokenList.add(1);
+        Deadline deadline = Deadline.after(Duration.ofMinutes(1));
+        Timeout timeout = new Timeout();
+
+        when(encoding.encode(inputText)).thenReturn(tokenList);
+        when(encoding.decode(tokenList)).thenReturn("Decoded tokens");
+        when(objectMapper.writeValueAsString(any())).thenReturn("{}");
+        when(openAiConfig.getApiUrl()).thenReturn("https://test.com");
+        when(openAiConfig.getApiKey()).thenReturn("test-key");
+        when(client.newCall(any())).thenReturn(call);
+        when(call.timeout()).thenReturn(timeout);
+        when(call.execute()).thenAnswer(invocation -> {
+            deadline.cancel();
+            throw new IOException("Canceled");
+        });
+
+        // Act & Assert
+        assertThrows(CancellationException.class, () -> vectorizationService.getEmbedding(inputText, 3, deadline));
+        verify(call).cancel();
+        assertTrue(timeout.timeoutNanos() > 0 && timeout.timeoutNanos() <= Duration.ofMinutes(1).toNanos(),
+                "The call should not outlive the job");
+    }
+
+    private void respondWith(Response response) throws IOException {
+        when(call.execute()).thenReturn(response);
+    }
 }
@@ -0,0 +1,130 @@
+package com.fact_checker.FactChecker.service;
+
+import com.fact_checker.FactChecker.exceptions.InvalidFileException;
+import com.fact_checker.FactChecker.model.MediaMetadata;
+import org.bytedeco.ffmpeg.global.avcodec;
+import org.bytedeco.ffmpeg.global.avutil;
+import org.bytedeco.javacv.FFmpegFrameRecorder;
+import org.bytedeco.javacv.Frame;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ShortBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VideoProbeTest {
+
+    private final VideoProbe videoProbe = new VideoProbe(60);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void checkSignature_recognizesSupportedContainers() {
+        // Arrange
+        byte[] mp4 = "\u0000\u0000\u0000\u0018ftypisom".getBytes();
+        byte[] avi = "RIFF\u0000\u0000\u0000\u0000AVI LIST".getBytes();
+        byte[] flv = "FLV\u0001\u0005".getBytes();
+
+        // Act & Assert
+        assertEquals("mp4", videoProbe.checkSignature(mp4, mp4.length));
+        assertEquals("avi", videoProbe.checkSignature(avi, avi.length));
+        assertEquals("flv", videoProbe.checkSignature(flv, flv.length));
+    }
+
+    @Test
+    void checkSignature_mislabeledFile_throwsInvalidFileException() {
+        // Arrange
+        byte[] text = "This is not a video at all".getBytes();
+
+        // Act & Assert
+        InvalidFileException exception = assertThrows(InvalidFileException.class,
+                () -> videoProbe.checkSignature(text, text.length));
+        assertEquals("File is not a supported video", exception.getMessage());
+    }
+
+    @Test
+    void probe_validVideo_readsMetadata() throws Exception {
+        // Arrange
+        Path video = directory.resolve("video.avi");
+        createSyntheticVideo(video, 50, true);
+
+        // Act
+        MediaMetadata metadata = videoProbe.probe(video);
+
+        // Assert
+        assertEquals("avi", videoProbe.checkSignature(video));
+        assertEquals(2.0, metadata.getDurationSeconds(), 0.1);
+        assertEquals(320, metadata.getWidth());
+        assertEquals(240, metadata.getHeight());
+        assertEquals(1, metadata.getAudioChannels());
+        assertNotNull(metadata.getVideoCodec());
+        assertNotNull(metadata.getAudioCodec());
+    }
+
+    @Test
+    void probe_videoWithoutAudio_throwsInvalidFileException() throws Exception {
+        // Arrange
+        Path video = directory.resolve("silent.avi");
+        createSyntheticVideo(video, 25, false);
+
+        // Act & Assert
+        InvalidFileException exception = assertThrows(InvalidFileException.class, () -> videoProbe.probe(video));
+        assertEquals("Video has no audio track", exception.getMessage());
+    }
+
+    @Test
+    void probe_tooLong_throwsInvalidFileException() throws Exception {
+        // Arrange
+        Path video = directory.resolve("long.avi");
+        createSyntheticVideo(video, 50, true);
+        VideoProbe strictProbe = new VideoProbe(1);
+
+        // Act & Assert
+        assertThrows(InvalidFileException.class, () -> strictProbe.probe(video));
+    }
+
+    @Test
+    void probe_corruptFile_throwsInvalidFileException() throws Exception {
+        // Arrange
+        Path video = directory.resolve("corrupt.mp4");
+        Files.write(video, "\u0000\u0000\u0000\u0018ftypisom garbage".getBytes());
+
+        // Act & Assert
+        InvalidFileException exception = assertThrows(InvalidFileException.class, () -> videoProbe.probe(video));
+        assertEquals("File is not a readable video", exception.getMessage());
+    }
+
+    private void createSyntheticVideo(Path path, int frameCount, boolean withAudio) throws Exception {
+        int width = 320;
+        int height = 240;
+        int frameRate = 25;
+        int sampleRate = 16000;
+        try (FFmpegFrameRecorder recorder = new FFmpegFrameRecorder(path.toFile(), width, height, withAudio ? 1 : 0)) {
+            recorder.setFormat("avi");
+            recorder.setVideoCodec(avcodec.AV_CODEC_ID_RAWVIDEO);
+            recorder.setPixelFormat(avutil.AV_PIX_FMT_BGR24);
+            recorder.setFrameRate(frameRate);
+            if (withAudio) {
+                recorder.setAudioCodec(avcodec.AV_CODEC_ID_PCM_S16LE);
+                recorder.setSampleRate(sampleRate);
+            }
+            recorder.start();
+
+            Frame image = new Frame(width, height, Frame.DEPTH_UBYTE, 3);
+            ShortBuffer samples = ShortBuffer.allocate(sampleRate / frameRate);
+            for (int i = 0; i < frameCount; i++) {
+                recorder.record(image);
+                if (withAudio) {
+                    samples.clear();
+                    samples.limit(samples.capacity());
+                    recorder.recordSamples(sampleRate, 1, samples);
+                }
+            }
+            recorder.stop();
+        }
+    }
+}
@@ -1,10 +1,12 @@
 package com.fact_checker.FactChecker.service;
 
 import com.fact_checker.FactChecker.config.OpenAIConfig;
+import com.fact_checker.FactChecker.exceptions.EmbeddingException;
 import com.fact_checker.FactChecker.exceptions.OpenAiException;
 import com.fact_checker.FactChecker.exceptions.VideoProcessingException;
 import com.fact_checker.FactChecker.model.Video;
 
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -15,15 +17,40 @@ import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
 import java.io.IOException;
+import java.io.PipedOutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
-import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.util.MultiValueMap;
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+import org.bytedeco.ffmpeg.global.avcodec;
+import org.bytedeco.ffmpeg.global.avutil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.io.TempDir;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+import org.bytedeco.javacv.FFmpegFrameRecorder;
+import org.bytedeco.javacv.Frame;
 
 @ExtendWith(MockitoExtension.class)
 class VideoProcessorTest {
@@ -37,11 +64,45 @@ class VideoProcessorTest {
   @Mock
   private VectorizationService vectorizationService;
 
+  @Mock
+  private AudioSegmenter audioSegmenter;
+
+  @Mock
+  private TextAnalysisService textAnalysisService;
+
   private VideoProcessor videoProcessor;
 
+  private SimpleMeterRegistry meterRegistry;
+
+  @TempDir
+  Path cacheDirectory;
+
+  private ExecutorService mediaExecutor;
+
+  private ExecutorService ioExecutor;
+
   @BeforeEach
   void setUp() {
-    videoProcessor = new VideoProcessor(restTemplate, openAIConfig, "test-upload-path", vectorizationService );
+    meterRegistry = new SimpleMeterRegistry();
+    mediaExecutor = Executors.newFixedThreadPool(2);
+    ioExecutor = Executors.newFixedThreadPool(4);
+    videoProcessor = new VideoProcessor(restTemplate, openAIConfig, "test-upload-path", vectorizationService,
+        meterRegistry, VideoProcessor.AudioProfile.SPEECH_16K_MONO, audioSegmenter, newArtifactCache(),
+        textAnalysisService, mediaExecutor, ioExecutor, 1);
+  }
+
+  @AfterEach
+  void tearDown() {
+    mediaExecutor.shutdownNow();
+    ioExecutor.shutdownNow();
+  }
+
+  private ArtifactCache newArtifactCache() {
+    Map<ArtifactCache.ArtifactType, Cache<String, byte[]>> memoryTiers = new EnumMap<>(ArtifactCache.ArtifactType.class);
+    for (ArtifactCache.ArtifactType type : ArtifactCache.ArtifactType.values()) {
+      memoryTiers.put(type, Caffeine.newBuilder().<String, byte[]>build());
+    }
+    return new ArtifactCache(cacheDirectory, memoryTiers, meterRegistry);
   }
 
   @Test
@@ -51,12 +112,16 @@ class VideoProcessorTest {
     String filename = "test.mp4";
     VideoProcessor spyVideoProcessor = spy(videoProcessor);
 
-    doReturn("dummy audio data".getBytes()).when(spyVideoProcessor).extractAudioFromVideo(any());
-    doReturn("Transcribed text").when(spyVideoProcessor).performSpeechRecognition(any(byte[].class));
-    doReturn("thumbnail.png").when(spyVideoProcessor).extractThumbnail(any(InputStream.class), anyString());
+    Path audioFile = Files.createTempFile("audio", ".mp3");
+    doReturn(new VideoProcessor.DemuxResult(audioFile, "thumbnail.png", false))
+        .when(spyVideoProcessor).demux(any(Path.class), anyBoolean(), anyBoolean());
+    VideoProcessor.TranscriptionResponse transcription = new VideoProcessor.TranscriptionResponse();
+    transcription.setText("Transcribed text");
+    doReturn(transcription).when(spyVideoProcessor).transcribe(any(Path.class));
+    when(vectorizationService.getEmbedding(eq("Transcribed text"), eq(768), any(Deadline.class))).thenReturn(new double[768]);
 
     // Act
-    CompletableFuture<Video> future = spyVideoProcessor.extractTextFromSpeech(tempFile, filename);
+    CompletableFuture<Video> future = spyVideoProcessor.extractTextFromSpeech(tempFile, filename, "hash");
     Video result = future.get();
 
     // Assert
@@ -66,9 +131,9 @@ class VideoProcessorTest {
     assertEquals("thumbnail.png", result.getThumbnailPath());
     assertNotNull(result.getProcessedAt());
 
-    verify(spyVideoProcessor).extractAudioFromVideo(any());
-    verify(spyVideoProcessor).performSpeechRecognition(any(byte[].class));
-    verify(spyVideoProcessor).extractThumbnail(any(InputStream.class), anyString());
+    verify(spyVideoProcessor).demux(tempFile, true, true);
+    verify(spyVideoProcessor).transcribe(audioFile);
+    assertFalse(Files.exists(audioFile), "Temporary audio file should be deleted after transcription");
 
     // Clean up
     Files.deleteIfExists(tempFile);
@@ -81,16 +146,255 @@ class VideoProcessorTest {
     String filename = "test.mp4";
     VideoProcessor spyVideoProcessor = spy(videoProcessor);
 
-    doThrow(new IOException("Test exception")).when(spyVideoProcessor).extractAudioFromVideo(any());
+    doThrow(new IOException("Test exception")).when(spyVideoProcessor).demux(any(Path.class), anyBoolean(), anyBoolean());
 
     // Act & Assert
-    CompletableFuture<Video> future = spyVideoProcessor.extractTextFromSpeech(tempFile, filename);
+    CompletableFuture<Video> future = spyVideoProcessor.extractTextFromSpeech(tempFile, filename, "hash");
     ExecutionException exception = assertThrows(ExecutionException.class, future::get);
     assertInstanceOf(VideoProcessingException.class, exception.getCause());
     assertEquals("Error processing video: test.mp4", exception.getCause().getMessage());
 
   }
 
+  @Test
+  void extractTextFromSpeech_SameContent_ReusesCachedArtifacts() throws Exception {
+    // Arrange
+    Path tempFile = Files.createTempFile("test", ".mp4");
+    VideoProcessor spyVideoProcessor = spy(videoProcessor);
+
+    doAnswer(invocation -> {
+      Path audioFile = null;
+      if (invocation.<Boolean>getArgument(1)) {
+        audioFile = Files.createTempFile("audio", ".ogg");
+        Files.write(audioFile, "OggS audio".getBytes());
+      }
+      return new VideoProcessor.DemuxResult(audioFile, "thumbnail.png", false);
+    }).when(spyVideoProcessor).demux(any(Path.class), anyBoolean(), anyBoolean());
+    VideoProcessor.TranscriptionResponse transcription = new VideoProcessor.TranscriptionResponse();
+    transcription.setText("Transcribed text");
+    doReturn(transcription).when(spyVideoProcessor).transcribe(any(Path.class));
+    when(vectorizationService.getEmbedding(eq("Transcribed text"), eq(768), any(Deadline.class))).thenReturn(new double[] {0.5, 0.25});
+
+    // Act
+    Video first = spyVideoProcessor.extractTextFromSpeech(tempFile, "first.mp4", "hash").get();
+    Video second = spyVideoProcessor.extractTextFromSpeech(tempFile, "second.mp4", "hash").get();
+
+    // Assert
+    assertEquals("Transcribed text", second.getTranscriptionText());
+    assertArrayEquals(first.getTranscriptionsEmbeddings(), second.getTranscriptionsEmbeddings());
+    verify(spyVideoProcessor, times(1)).demux(tempFile, true, true);
+    verify(spyVideoProcessor, times(1)).demux(tempFile, false, true);
+    verify(spyVideoProcessor, times(1)).transcribe(any(Path.class));
+    verify(vectorizationService, times(1)).getEmbedding(anyString(), anyInt(), any(Deadline.class));
+    assertEquals(0.5, meterRegistry.get("artifact.cache.hit.ratio").tag("cache", "transcripts").gauge().value());
+
+    // Clean up
+    Files.deleteIfExists(tempFile);
+  }
+
+  @Test
+  void completePipelinedIngest_CachesAudioAndLeavesTranscriptionToTheJob() throws Exception {
+    // Arrange
+    Path tempFile = Files.createTempFile("test", ".mp4");
+    Path streamedAudio = Files.createTempFile("audio", ".ogg");
+    Files.write(streamedAudio, "OggS audio".getBytes());
+    VideoProcessor spyVideoProcessor = spy(videoProcessor);
+
+    doReturn(new VideoProcessor.DemuxResult(null, "thumbnail.png", false))
+        .when(spyVideoProcessor).demux(any(Path.class), anyBoolean(), anyBoolean());
+    VideoProcessor.TranscriptionResponse transcription = new VideoProcessor.TranscriptionResponse();
+    transcription.setText("Transcribed text");
+    doReturn(transcription).when(spyVideoProcessor).transcribe(any(Path.class));
+    when(vectorizationService.getEmbedding(eq("Transcribed text"), eq(768), any(Deadline.class))).thenReturn(new double[768]);
+
+    // Act
+    spyVideoProcessor.completePipelinedIngest("hash", CompletableFuture.completedFuture(streamedAudio));
+    verify(spyVideoProcessor, after(200).never()).transcribe(any(Path.class));
+    Video video = spyVideoProcessor.extractTextFromSpeech(tempFile, "test.mp4", "hash").get();
+
+    // Assert
+    assertEquals("Transcribed text", video.getTranscriptionText());
+    verify(spyVideoProcessor, never()).demux(tempFile, true, true);
+    verify(spyVideoProcessor).demux(tempFile, false, true);
+    verify(spyVideoProcessor, times(1)).transcribe(any(Path.class));
+    assertFalse(Files.exists(streamedAudio), "Streamed audio should be deleted once it is cached");
+
+    // Clean up
+    Files.deleteIfExists(tempFile);
+  }
+
+  @Test
+  void extractTextFromSpeech_RatesClaimsWhileEmbedding() throws Exception {
+    // Arrange
+    Path tempFile = Files.createTempFile("test", ".mp4");
+    VideoProcessor spyVideoProcessor = spy(videoProcessor);
+
+    doReturn(new VideoProcessor.DemuxResult(Files.createTempFile("audio", ".ogg"), "thumbnail.png", false))
+        .when(spyVideoProcessor).demux(any(Path.class), anyBoolean(), anyBoolean());
+    VideoProcessor.TranscriptionResponse transcription = new VideoProcessor.TranscriptionResponse();
+    transcription.setText("Transcribed text");
+    doReturn(transcription).when(spyVideoProcessor).transcribe(any(Path.class));
+    // Each branch only finishes once the other one has started
+    CountDownLatch branchesStarted = new CountDownLatch(2);
+    when(vectorizationService.getEmbedding(eq("Transcribed text"), eq(768), any(Deadline.class))).thenAnswer(invocation -> {
+      branchesStarted.countDown();
+      assertTrue(branchesStarted.await(5, TimeUnit.SECONDS));
+      return new double[768];
+    });
+    Map<String, Double> scores = Map.of("The sky is blue.", 95.0);
+    when(textAnalysisService.scoreClaims(eq("Transcribed text"), any(Deadline.class))).thenAnswer(invocation -> {
+      branchesStarted.countDown();
+      assertTrue(branchesStarted.await(5, TimeUnit.SECONDS));
+      return scores;
+    });
+
+    // Act
+    Video result = spyVideoProcessor.extractTextFromSpeech(tempFile, "test.mp4", "hash").get(10, TimeUnit.SECONDS);
+
+    // Assert
+    assertEquals("thumbnail.png", result.getThumbnailPath());
+    assertEquals(768, result.getTranscriptionsEmbeddings().length);
+    verify(textAnalysisService).applyScores(result, scores);
+
+    // Clean up
+    Files.deleteIfExists(tempFile);
+  }
+
+  @Test
+  void extractTextFromSpeech_NoClaims_AppliesEmptyScores() throws Exception {
+    // Arrange
+    Path tempFile = Files.createTempFile("test", ".mp4");
+    VideoProcessor spyVideoProcessor = spy(videoProcessor);
+
+    doReturn(new VideoProcessor.DemuxResult(Files.createTempFile("audio", ".ogg"), "thumbnail.png", false))
+        .when(spyVideoProcessor).demux(any(Path.class), anyBoolean(), anyBoolean());
+    VideoProcessor.TranscriptionResponse transcription = new VideoProcessor.TranscriptionResponse();
+    transcription.setText("Transcribed text");
+    doReturn(transcription).when(spyVideoProcessor).transcribe(any(Path.class));
+    when(vectorizationService.getEmbedding(eq("Transcribed text"), eq(768), any(Deadline.class))).thenReturn(new double[768]);
+    when(textAnalysisService.scoreClaims(eq("Transcribed text"), any(Deadline.class))).thenReturn(Map.of());
+
+    // Act
+    Video result = spyVideoProcessor.extractTextFromSpeech(tempFile, "test.mp4", "hash").get(10, TimeUnit.SECONDS);
+
+    // Assert
+    verify(textAnalysisService).applyScores(result, Map.of());
+
+    // Clean up
+    Files.deleteIfExists(tempFile);
+  }
+
+  @Test
+  void extractTextFromSpeech_FailedEmbedding_CancelsClaimAnalysis() throws Exception {
+    // Arrange
+    Path tempFile = Files.createTempFile("test", ".mp4");
+    VideoProcessor spyVideoProcessor = spy(videoProcessor);
+
+    doReturn(new VideoProcessor.DemuxResult(Files.createTempFile("audio", ".ogg"), "thumbnail.png", false))
+        .when(spyVideoProcessor).demux(any(Path.class), anyBoolean(), anyBoolean());
+    VideoProcessor.TranscriptionResponse transcription = new VideoProcessor.TranscriptionResponse();
+    transcription.setText("Transcribed text");
+    doReturn(transcription).when(spyVideoProcessor).transcribe(any(Path.class));
+    CountDownLatch analysisStarted = new CountDownLatch(1);
+    CountDownLatch analysisInterrupted = new CountDownLatch(1);
+    when(textAnalysisService.scoreClaims(eq("Transcribed text"), any(Deadline.class))).thenAnswer(invocation -> {
+      analysisStarted.countDown();
+      try {
+        Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+      } catch (InterruptedException e) {
+        analysisInterrupted.countDown();
+      }
+      return null;
+    });
+    when(vectorizationService.getEmbedding(eq("Transcribed text"), eq(768), any(Deadline.class))).thenAnswer(invocation -> {
+      assertTrue(analysisStarted.await(5, TimeUnit.SECONDS));
+      throw new EmbeddingException("Embedding failed");
+    });
+
+    // Act
+    CompletableFuture<Video> future = spyVideoProcessor.extractTextFromSpeech(tempFile, "test.mp4", "hash");
+
+    // Assert
+    ExecutionException exception = assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+    assertInstanceOf(VideoProcessingException.class, exception.getCause());
+    assertTrue(analysisInterrupted.await(5, TimeUnit.SECONDS), "Claim analysis should be cancelled");
+    verify(textAnalysisService, never()).applyScores(any(), any());
+
+    // Clean up
+    Files.deleteIfExists(tempFile);
+  }
+
+  @Test
+  void extractTextFromSpeech_JobCancelledDuringPipelinedIngest_CancelsIngest() throws Exception {
+    // Arrange
+    Path tempFile = Files.createTempFile("test", ".mp4");
+    CompletableFuture<Path> streamedAudio = new CompletableFuture<>();
+    Deadline deadline = Deadline.after(Duration.ofMinutes(1));
+    videoProcessor.completePipelinedIngest("hash", streamedAudio);
+
+    // Act
+    CompletableFuture<Video> future = videoProcessor.extractTextFromSpeech(tempFile, "test.mp4", "hash", deadline);
+    Thread.sleep(100);
+    deadline.cancel();
+
+    // Assert
+    ExecutionException exception = assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+    assertInstanceOf(CancellationException.class, exception.getCause().getCause());
+    assertTrue(streamedAudio.isCancelled(), "The audio extraction of the ingest should be cancelled");
+
+    // Clean up
+    Files.deleteIfExists(tempFile);
+  }
+
+  @Test
+  void audioExtension_DetectsContainerFromMagicBytes() {
+    assertEquals(".ogg", VideoProcessor.audioExtension("OggS....".getBytes()));
+    assertEquals(".flac", VideoProcessor.audioExtension("fLaC....".getBytes()));
+    assertEquals(".mp3", VideoProcessor.audioExtension("ID3.....".getBytes()));
+    assertEquals(".m4a", VideoProcessor.audioExtension("....ftypM4A ".getBytes()));
+  }
+
+  @Test
+  void isStreamable_RequiresMoovBeforeMdatForIsoBaseMedia() {
+    byte[] fastStart = isoBoxes("ftyp", "moov", "mdat");
+    byte[] moovAtEnd = isoBoxes("ftyp", "mdat", "moov");
+    byte[] flv = "FLV\u0001\u0005\u0000\u0000\u0000\u0009".getBytes();
+
+    assertTrue(VideoProcessor.isStreamable(fastStart, fastStart.length));
+    assertFalse(VideoProcessor.isStreamable(moovAtEnd, moovAtEnd.length));
+    assertFalse(VideoProcessor.isStreamable(fastStart, 16));
+    assertTrue(VideoProcessor.isStreamable(flv, flv.length));
+  }
+
+  @Test
+  void extractAudioFromStream_AllStreamIngestsTaken_LeavesUploadToStoredFile() throws Exception {
+    // Arrange
+    PipedOutputStream firstUpload = new PipedOutputStream();
+    Optional<CompletableFuture<Path>> first = videoProcessor.extractAudioFromStream(firstUpload, 1024);
+
+    // Act
+    Optional<CompletableFuture<Path>> second = videoProcessor.extractAudioFromStream(new PipedOutputStream(), 1024);
+    firstUpload.close();
+    ExecutionException failure = assertThrows(ExecutionException.class, () -> first.get().get(10, TimeUnit.SECONDS));
+    PipedOutputStream thirdUpload = new PipedOutputStream();
+    Optional<CompletableFuture<Path>> third = videoProcessor.extractAudioFromStream(thirdUpload, 1024);
+    thirdUpload.close();
+
+    // Assert
+    assertTrue(first.isPresent());
+    assertInstanceOf(VideoProcessingException.class, failure.getCause());
+    assertTrue(second.isEmpty());
+    assertTrue(third.isPresent());
+  }
+
+  private static byte[] isoBoxes(String... types) {
+    ByteBuffer buffer = ByteBuffer.allocate(types.length * 16);
+    for (String type : types) {
+      buffer.putInt(16).put(type.getBytes()).putLong(0);
+    }
+    return buffer.array();
+  }
+
   @Test
   void performSpeechRecognition_Success() {
     // Arrange
@@ -138,4 +442,281 @@ class VideoProcessorTest {
         () -> videoProcessor.performSpeechRecognition(dummyAudioData));
     assertTrue(exception.getMessage().contains("Error performing speech recognition"));
   }
+
+  @Test
+  void transcribe_MultipleChunks_StitchesInOrderWithOffsets() throws Exception {
+    // Arrange
+    List<AudioSegmenter.AudioChunk> chunks = List.of(
+        new AudioSegmenter.AudioChunk(Path.of("chunk0.ogg"), 0, true),
+        new AudioSegmenter.AudioChunk(Path.of("chunk1.ogg"), 150, true),
+        new AudioSegmenter.AudioChunk(Path.of("chunk2.ogg"), 300, true));
+    Path audioFile = Path.of("audio.ogg");
+    when(audioSegmenter.split(audioFile)).thenReturn(chunks);
+    when(openAIConfig.getTranscriptionParallelism()).thenReturn(2);
+    when(openAIConfig.getApiUrl()).thenReturn("https://api.openai.com/v1/");
+    when(openAIConfig.getApiKey()).thenReturn("test-api-key");
+    when(restTemplate.exchange(
+        anyString(),
+        eq(HttpMethod.POST),
+        any(HttpEntity.class),
+        eq(VideoProcessor.TranscriptionResponse.class))).thenAnswer(invocation -> {
+          HttpEntity<MultiValueMap<String, Object>> entity = invocation.getArgument(2);
+          String chunkName = ((FileSystemResource) entity.getBody().getFirst("file")).getFilename();
+          VideoProcessor.TranscriptionResponse response = new VideoProcessor.TranscriptionResponse();
+          response.setText("text of " + chunkName);
+          response.setSegments(List.of(new VideoProcessor.TranscriptionSegment(1.0, 2.5, "text of " + chunkName)));
+          return new ResponseEntity<>(response, HttpStatus.OK);
+        });
+
+    // Act
+    VideoProcessor.TranscriptionResponse result = videoProcessor.transcribe(audioFile);
+
+    // Assert
+    assertEquals("text of chunk0.ogg text of chunk1.ogg text of chunk2.ogg", result.getText());
+    assertEquals(3, result.getSegments().size());
+    assertEquals(1.0, result.getSegments().get(0).getStart(), 0.001);
+    assertEquals(151.0, result.getSegments().get(1).getStart(), 0.001);
+    assertEquals(302.5, result.getSegments().get(2).getEnd(), 0.001);
+    verify(audioSegmenter).deleteTemporaryChunks(chunks);
+  }
+
+  @Test
+  void transcribe_ChunkFails_ThrowsOpenAiException() throws Exception {
+    // Arrange
+    List<AudioSegmenter.AudioChunk> chunks = List.of(
+        new AudioSegmenter.AudioChunk(Path.of("chunk0.ogg"), 0, true),
+        new AudioSegmenter.AudioChunk(Path.of("chunk1.ogg"), 150, true));
+    Path audioFile = Path.of("audio.ogg");
+    when(audioSegmenter.split(audioFile)).thenReturn(chunks);
+    when(openAIConfig.getTranscriptionParallelism()).thenReturn(2);
+    when(openAIConfig.getApiUrl()).thenReturn("https://api.openai.com/v1/");
+    when(openAIConfig.getApiKey()).thenReturn("test-api-key");
+    when(restTemplate.exchange(
+        anyString(),
+        eq(HttpMethod.POST),
+        any(HttpEntity.class),
+        eq(VideoProcessor.TranscriptionResponse.class)))
+        .thenThrow(new HttpClientErrorException(HttpStatus.BAD_REQUEST));
+
+    // Act & Assert
+    assertThrows(OpenAiException.class, () -> videoProcessor.transcribe(audioFile));
+    verify(audioSegmenter).deleteTemporaryChunks(chunks);
+  }
+
+  @Test
+  void transcribe_MoreChunksThanParallelism_LimitsConcurrentRequests() throws Exception {
+    // Arrange
+    List<AudioSegmenter.AudioChunk> chunks = List.of(
+        new AudioSegmenter.AudioChunk(Path.of("chunk0.ogg"), 0, true),
+        new AudioSegmenter.AudioChunk(Path.of("chunk1.ogg"), 150, true),
+        new AudioSegmenter.AudioChunk(Path.of("chunk2.ogg"), 300, true),
+        new AudioSegmenter.AudioChunk(Path.of("chunk3.ogg"), 450, true),
+        new AudioSegmenter.AudioChunk(Path.of("chunk4.ogg"), 600, true));
+    Path audioFile = Path.of("audio.ogg");
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    when(audioSegmenter.split(audioFile)).thenReturn(chunks);
+    when(openAIConfig.getTranscriptionParallelism()).thenReturn(2);
+    when(openAIConfig.getApiUrl()).thenReturn("https://api.openai.com/v1/");
+    when(openAIConfig.getApiKey()).thenReturn("test-api-key");
+    when(restTemplate.exchange(
+        anyString(),
+        eq(HttpMethod.POST),
+        any(HttpEntity.class),
+        eq(VideoProcessor.TranscriptionResponse.class))).thenAnswer(invocation -> {
+          maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+          Thread.sleep(50);
+          running.decrementAndGet();
+          VideoProcessor.TranscriptionResponse response = new VideoProcessor.TranscriptionResponse();
+          response.setText("text");
+          return new ResponseEntity<>(response, HttpStatus.OK);
+        });
+
+    // Act
+    VideoProcessor.TranscriptionResponse result = videoProcessor.transcribe(audioFile);
+
+    // Assert
+    assertEquals("text text text text text", result.getText());
+    assertTrue(maxRunning.get() <= 2, "At most two chunks of the recording should be transcribed at once");
+  }
+
+  @Test
+  void extractTextFromSpeech_SingleIoThread_TranscribesChunksWithoutBlockingThePool() throws Exception {
+    // Arrange
+    ExecutorService singleIoThread = Executors.newSingleThreadExecutor();
+    VideoProcessor spyVideoProcessor = spy(new VideoProcessor(restTemplate, openAIConfig, "test-upload-path",
+        vectorizationService, meterRegistry, VideoProcessor.AudioProfile.SPEECH_16K_MONO, audioSegmenter,
+        newArtifactCache(), textAnalysisService, mediaExecutor, singleIoThread, 1));
+    Path tempFile = Files.createTempFile("test", ".mp4");
+    Path audioFile = Files.createTempFile("audio", ".ogg");
+    List<AudioSegmenter.AudioChunk> chunks = List.of(
+        new AudioSegmenter.AudioChunk(Path.of("chunk0.ogg"), 0, true),
+        new AudioSegmenter.AudioChunk(Path.of("chunk1.ogg"), 150, true));
+    doReturn(new VideoProcessor.DemuxResult(audioFile, "thumbnail.png", false))
+        .when(spyVideoProcessor).demux(any(Path.class), anyBoolean(), anyBoolean());
+    when(audioSegmenter.split(audioFile)).thenReturn(chunks);
+    when(openAIConfig.getTranscriptionParallelism()).thenReturn(2);
+    when(openAIConfig.getApiUrl()).thenReturn("https://api.openai.com/v1/");
+    when(openAIConfig.getApiKey()).thenReturn("test-api-key");
+    VideoProcessor.TranscriptionResponse transcription = new VideoProcessor.TranscriptionResponse();
+    transcription.setText("chunk");
+    when(restTemplate.exchange(
+        anyString(),
+        eq(HttpMethod.POST),
+        any(HttpEntity.class),
+        eq(VideoProcessor.TranscriptionResponse.class))).thenReturn(new ResponseEntity<>(transcription, HttpStatus.OK));
+    when(vectorizationService.getEmbedding(eq("chunk chunk"), eq(768), any(Deadline.class))).thenReturn(new double[768]);
+
+    try {
+      // Act
+      Video video = spyVideoProcessor.extractTextFromSpeech(tempFile, "test.mp4", "hash").get(10, TimeUnit.SECONDS);
+
+      // Assert
+      assertEquals("chunk chunk", video.getTranscriptionText());
+    } finally {
+      singleIoThread.shutdownNow();
+      Files.deleteIfExists(tempFile);
+    }
+  }
+
+  @Test
+  void extractAudioFromVideo_LargeFile_HeapAllocationIndependentOfFileSize() throws Exception {
+    // Arrange: ~110 MB of uncompressed video with a short audio track
+    Path largeVideo = Files.createTempFile("large", ".avi");
+    createSyntheticVideo(largeVideo, 120);
+    long fileSize = Files.size(largeVideo);
+    com.sun.management.ThreadMXBean threadMXBean =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long threadId = Thread.currentThread().getId();
+    Path audioFile = null;
+
+    try {
+      // Act
+      long allocatedBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+      audioFile = videoProcessor.extractAudioFromVideo(largeVideo);
+      long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+      // Assert: the video is decoded from disk, so the heap never sees a copy of it
+      assertTrue(Files.size(audioFile) > 0);
+      assertTrue(allocated < fileSize / 4,
+          "Allocated " + allocated + " bytes on the heap for a " + fileSize + " byte video");
+    } finally {
+      Files.deleteIfExists(largeVideo);
+      if (audioFile != null) {
+        Files.deleteIfExists(audioFile);
+      }
+    }
+  }
+
+  @Test
+  void demux_SinglePass_ExtractsAudioAndThumbnail() throws Exception {
+    // Arrange
+    Path video = Files.createTempFile("small", ".avi");
+    createSyntheticVideo(video, 50);
+    Path audioFile = null;
+
+    try {
+      // Act
+      VideoProcessor.DemuxResult result = videoProcessor.demux(video, true, true);
+      audioFile = result.getAudioFile();
+
+      // Assert
+      assertTrue(Files.size(audioFile) > 0);
+      assertNotNull(result.getThumbnailFileName());
+      assertTrue(Files.exists(Path.of("test-upload-path", result.getThumbnailFileName())));
+      Files.deleteIfExists(Path.of("test-upload-path", result.getThumbnailFileName()));
+    } finally {
+      Files.deleteIfExists(video);
+      if (audioFile != null) {
+        Files.deleteIfExists(audioFile);
+      }
+    }
+  }
+
+  @Test
+  void demux_SpeechProfile_ResamplesToOpus() throws Exception {
+    // Arrange
+    Path video = Files.createTempFile("small", ".avi");
+    createSyntheticVideo(video, 50);
+    Path audioFile = null;
+
+    try {
+      // Act
+      VideoProcessor.DemuxResult result = videoProcessor.demux(video, true, false);
+      audioFile = result.getAudioFile();
+
+      // Assert
+      assertFalse(result.isStreamCopied());
+      assertTrue(audioFile.toString().endsWith(".ogg"));
+      try (FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(audioFile.toFile())) {
+        grabber.start();
+        assertEquals(avcodec.AV_CODEC_ID_OPUS, grabber.getAudioCodec());
+        assertEquals(1, grabber.getAudioChannels());
+        grabber.stop();
+      }
+      assertEquals(1, meterRegistry.get("video.audio.encode").tag("mode", "encode").timer().count());
+    } finally {
+      Files.deleteIfExists(video);
+      if (audioFile != null) {
+        Files.deleteIfExists(audioFile);
+      }
+    }
+  }
+
+  @Test
+  void demux_CompatibleSourceAudio_IsStreamCopied() throws Exception {
+    // Arrange: a mono 16 kHz MP3 track is already acceptable to Whisper
+    Path video = Files.createTempFile("speech", ".avi");
+    createSyntheticVideo(video, 50, avcodec.AV_CODEC_ID_MP3, 16000);
+    Path audioFile = null;
+
+    try {
+      // Act
+      VideoProcessor.DemuxResult result = videoProcessor.demux(video, true, false);
+      audioFile = result.getAudioFile();
+
+      // Assert
+      assertTrue(result.isStreamCopied());
+      assertTrue(audioFile.toString().endsWith(".mp3"));
+      assertTrue(Files.size(audioFile) > 0);
+      assertEquals(1, meterRegistry.get("video.audio.encode").tag("mode", "copy").timer().count());
+    } finally {
+      Files.deleteIfExists(video);
+      if (audioFile != null) {
+        Files.deleteIfExists(audioFile);
+      }
+    }
+  }
+
+  private void createSyntheticVideo(Path path, int frameCount) throws Exception {
+    createSyntheticVideo(path, frameCount, avcodec.AV_CODEC_ID_PCM_S16LE, 44100);
+  }
+
+  private void createSyntheticVideo(Path path, int frameCount, int audioCodec, int sampleRate) throws Exception {
+    int width = 640;
+    int height = 480;
+    int frameRate = 25;
+    try (FFmpegFrameRecorder recorder = new FFmpegFrameRecorder(path.toFile(), width, height, 1)) {
+      recorder.setFormat("avi");
+      recorder.setVideoCodec(avcodec.AV_CODEC_ID_RAWVIDEO);
+      recorder.setPixelFormat(avutil.AV_PIX_FMT_BGR24);
+      recorder.setFrameRate(frameRate);
+      recorder.setAudioCodec(audioCodec);
+      recorder.setSampleRate(sampleRate);
+      recorder.start();
+
+      Frame image = new Frame(width, height, Frame.DEPTH_UBYTE, 3);
+      ShortBuffer samples = ShortBuffer.allocate(sampleRate / frameRate);
+      for (int i = 0; i < frameCount; i++) {
+        recorder.record(image);
+        samples.clear();
+        for (int s = 0; s < samples.capacity(); s++) {
+          samples.put((short) (Math.sin((i * samples.capacity() + s) * 0.05) * 8000));
+        }
+        samples.flip();
+        recorder.recordSamples(sampleRate, 1, samples);
+      }
+      recorder.stop();
+    }
+  }
 }
@@ -2,9 +2,12 @@ package com.fact_checker.FactChecker.service;
 
 import com.fact_checker.FactChecker.exceptions.FileProcessingException;
 import com.fact_checker.FactChecker.exceptions.InvalidFileException;
+import com.fact_checker.FactChecker.model.MediaMetadata;
+import com.fact_checker.FactChecker.model.StoredUpload;
 import com.fact_checker.FactChecker.model.User;
 import com.fact_checker.FactChecker.model.Video;
 import com.fact_checker.FactChecker.repository.VideoRepository;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -14,10 +17,18 @@ import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -34,98 +45,259 @@ class VideoServiceTest {
   @Mock
   private VideoProcessor videoProcessor;
 
+  @Mock
+  private VideoProbe videoProbe;
+
   private VideoService videoService;
 
+  private ExecutorService readerExecutor;
+
   private static final String UPLOAD_PATH = "test-upload-path";
 
   @BeforeEach
   void setUp() {
-    videoService = new VideoService(videoRepository, videoProcessor, UPLOAD_PATH);
+    readerExecutor = Executors.newSingleThreadExecutor();
+    videoService = new VideoService(videoRepository, videoProcessor, videoProbe, UPLOAD_PATH, false, 1024, 1024);
+  }
+
+  @AfterEach
+  void tearDown() {
+    readerExecutor.shutdownNow();
   }
 
   @Test
-  void processAndSaveVideo_validFile_success() throws Exception {
+  void processStoredVideo_validFile_success() throws Exception {
     MultipartFile file = new MockMultipartFile("file", "test.mp4", "video/mp4", "test data".getBytes());
     Video processedVideo = new Video();
     User user = new User();
     processedVideo.setId(1L);
 
-    when(videoProcessor.extractTextFromSpeech(any(Path.class), anyString()))
+    when(videoProcessor.extractTextFromSpeech(any(Path.class), anyString(), anyString(), any(Deadline.class)))
         .thenReturn(CompletableFuture.completedFuture(processedVideo));
     when(videoRepository.save(any(Video.class))).thenReturn(processedVideo);
 
     Files.createDirectories(Paths.get(UPLOAD_PATH));
 
-    Video result = videoService.processAndSaveVideo(file, user).get();
+    Video result = videoService.processStoredVideo(videoService.storeUpload(file), user);
 
     assertThat(result).isEqualTo(processedVideo);
     verify(videoRepository).save(any(Video.class));
-    verify(videoProcessor).extractTextFromSpeech(any(Path.class), anyString());
+    verify(videoProcessor).extractTextFromSpeech(any(Path.class), anyString(), anyString(), any(Deadline.class));
   }
 
   @Test
-  void processAndSaveVideo_emptyFile_throwsInvalidFileException() {
+  void storeUpload_emptyFile_throwsInvalidFileException() {
     MultipartFile emptyFile = new MockMultipartFile("file", "empty.mp4", "video/mp4", new byte[0]);
+
+    assertThatThrownBy(() -> videoService.storeUpload(emptyFile))
+        .isInstanceOf(InvalidFileException.class)
+        .hasMessage("File is empty");
+  }
+
+  @Test
+  void storeUpload_unsupportedFileExtension_throwsInvalidFileException() {
+    MultipartFile unsupportedFile = new MockMultipartFile("file", "test.txt", "text/plain", "test data".getBytes());
+
+    assertThatThrownBy(() -> videoService.storeUpload(unsupportedFile))
+        .isInstanceOf(InvalidFileException.class)
+        .hasMessage("File extension is not supported");
+  }
+
+  @Test
+  void processStoredVideo_ioExceptionDuringProcessing_throwsFileProcessingException() throws Exception {
+    StoredUpload upload = new StoredUpload("test.mp4", "hash");
     User user = new User();
 
+    when(videoProcessor.extractTextFromSpeech(any(Path.class), anyString(), anyString(), any(Deadline.class)))
+        .thenReturn(CompletableFuture.failedFuture(new IOException("Simulated IO error")));
 
-    assertThatThrownBy(() -> videoService.processAndSaveVideo(emptyFile, user).get())
-        .isInstanceOf(ExecutionException.class)
-        .hasCauseInstanceOf(InvalidFileException.class)
-        .hasRootCauseMessage("File is empty");
+    assertThatThrownBy(() -> videoService.processStoredVideo(upload, user))
+        .isInstanceOf(FileProcessingException.class)
+        .hasRootCauseMessage("Simulated IO error");
   }
 
   @Test
-  void processAndSaveVideo_unsupportedFileExtension_throwsInvalidFileException() {
-    MultipartFile unsupportedFile = new MockMultipartFile("file", "test.txt", "text/plain", "test data".getBytes());
+  void processStoredVideo_exceptionDuringProcessing_throwsFileProcessingException() throws Exception {
+    StoredUpload upload = new StoredUpload("test.mp4", "hash");
     User user = new User();
 
-    assertThatThrownBy(() -> videoService.processAndSaveVideo(unsupportedFile, user).get())
-        .isInstanceOf(ExecutionException.class)
-        .hasCauseInstanceOf(InvalidFileException.class)
-        .hasRootCauseMessage("File extension is not supported");
+    when(videoProcessor.extractTextFromSpeech(any(Path.class), anyString(), anyString(), any(Deadline.class)))
+        .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Processing error")));
+
+    assertThatThrownBy(() -> videoService.processStoredVideo(upload, user))
+        .isInstanceOf(FileProcessingException.class)
+        .hasRootCauseMessage("Processing error");
   }
 
   @Test
-  void processAndSaveVideo_ioExceptionDuringSave_throwsFileProcessingException() throws Exception {
+  void storeUpload_nullFilename_throwsInvalidFileException() {
+    MultipartFile fileWithNullName = new MockMultipartFile("file", null, "video/mp4", "test data".getBytes());
+
+    assertThatThrownBy(() -> videoService.storeUpload(fileWithNullName))
+        .isInstanceOf(InvalidFileException.class)
+        .hasMessage("File extension is not supported");
+  }
+
+  @Test
+  void storeUpload_computesSha256OfContent() throws Exception {
     MultipartFile file = new MockMultipartFile("file", "test.mp4", "video/mp4", "test data".getBytes());
-    User user = new User();
+    Files.createDirectories(Paths.get(UPLOAD_PATH));
 
-    when(videoProcessor.extractTextFromSpeech(any(Path.class), anyString()))
-        .thenReturn(CompletableFuture.failedFuture(new IOException("Simulated IO error")));
+    StoredUpload upload = videoService.storeUpload(file);
+
+    assertThat(upload.getContentHash())
+        .isEqualTo("916f0027a575074ce72a331777c3478d6513f786a591bd892da1a577bf2335f9");
+    assertThat(Paths.get(UPLOAD_PATH, upload.getFilename())).exists();
+  }
 
+  @Test
+  void storeUpload_pipelinedIngest_teesContentIntoAudioExtraction() throws Exception {
+    videoService = new VideoService(videoRepository, videoProcessor, videoProbe, UPLOAD_PATH, true, 16, 1024);
+    byte[] content = new byte[200];
+    Arrays.fill(content, (byte) 'x');
+    MultipartFile file = new MockMultipartFile("file", "test.flv", "video/x-flv", content);
+    CompletableFuture<Path> audio = new CompletableFuture<>();
+    CompletableFuture<byte[]> streamed = new CompletableFuture<>();
     Files.createDirectories(Paths.get(UPLOAD_PATH));
 
-    assertThatThrownBy(() -> videoService.processAndSaveVideo(file, user).get())
-        .isInstanceOf(ExecutionException.class)
-        .hasCauseInstanceOf(FileProcessingException.class)
-        .hasRootCauseMessage("Simulated IO error");
+    when(videoProcessor.extractAudioFromStream(any(PipedOutputStream.class), eq(16))).thenAnswer(invocation -> {
+      InputStream stream = new PipedInputStream(invocation.<PipedOutputStream>getArgument(0), 16);
+      readerExecutor.execute(() -> {
+        try (stream) {
+          streamed.complete(stream.readAllBytes());
+        } catch (IOException e) {
+          streamed.completeExceptionally(e);
+        }
+      });
+      return Optional.of(audio);
+    });
+
+    StoredUpload upload = videoService.storeUpload(file);
+
+    assertThat(streamed.get()).isEqualTo(content);
+    assertThat(Paths.get(UPLOAD_PATH, upload.getFilename())).hasBinaryContent(content);
+    verify(videoProcessor).completePipelinedIngest(upload.getContentHash(), audio);
   }
 
   @Test
-  void processAndSaveVideo_exceptionDuringProcessing_throwsFileProcessingException() throws Exception {
+  void storeUpload_noStreamIngestFree_storesFileWithoutTee() throws Exception {
+    videoService = new VideoService(videoRepository, videoProcessor, videoProbe, UPLOAD_PATH, true, 16, 1024);
+    byte[] content = new byte[200];
+    Arrays.fill(content, (byte) 'x');
+    MultipartFile file = new MockMultipartFile("file", "test.flv", "video/x-flv", content);
+    Files.createDirectories(Paths.get(UPLOAD_PATH));
+
+    when(videoProcessor.extractAudioFromStream(any(PipedOutputStream.class), anyInt())).thenReturn(Optional.empty());
+
+    StoredUpload upload = videoService.storeUpload(file);
+
+    assertThat(Paths.get(UPLOAD_PATH, upload.getFilename())).hasBinaryContent(content);
+    verify(videoProcessor, never()).completePipelinedIngest(anyString(), any());
+  }
+
+  @Test
+  void storeUpload_probedMetadata_isAttachedToUpload() throws Exception {
     MultipartFile file = new MockMultipartFile("file", "test.mp4", "video/mp4", "test data".getBytes());
-    User user = new User();
+    MediaMetadata metadata = new MediaMetadata("mp4", 12.5, "h264", "aac", 2, 640, 480);
+    Files.createDirectories(Paths.get(UPLOAD_PATH));
 
-    when(videoProcessor.extractTextFromSpeech(any(Path.class), anyString()))
-        .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Processing error")));
+    when(videoProbe.probe(any(Path.class))).thenReturn(metadata);
+
+    StoredUpload upload = videoService.storeUpload(file);
 
+    assertThat(upload.getMetadata()).isSameAs(metadata);
+    verify(videoProbe).checkSignature(any(byte[].class), eq(9));
+  }
+
+  @Test
+  void storeUpload_unreadableVideo_rejectsAndDeletesStoredFile() throws Exception {
+    MultipartFile file = new MockMultipartFile("file", "test.mp4", "video/mp4", "test data".getBytes());
     Files.createDirectories(Paths.get(UPLOAD_PATH));
+    List<Path> storedFiles = new ArrayList<>();
 
-    assertThatThrownBy(() -> videoService.processAndSaveVideo(file, user).get())
-        .isInstanceOf(ExecutionException.class)
-        .hasCauseInstanceOf(FileProcessingException.class)
-        .hasRootCauseMessage("Processing error");
+    when(videoProbe.probe(any(Path.class))).thenAnswer(invocation -> {
+      storedFiles.add(invocation.getArgument(0));
+      throw new InvalidFileException("Video has no audio track");
+    });
+
+    assertThatThrownBy(() -> videoService.storeUpload(file))
+        .isInstanceOf(InvalidFileException.class)
+        .hasMessage("Video has no audio track");
+    assertThat(storedFiles).hasSize(1);
+    assertThat(storedFiles.get(0)).doesNotExist();
   }
 
   @Test
-  void processAndSaveVideo_nullFilename_throwsInvalidFileException() {
-    MultipartFile fileWithNullName = new MockMultipartFile("file", null, "video/mp4", "test data".getBytes());
+  void storeUpload_exceedsMaximumSize_throwsInvalidFileException() throws Exception {
+    MultipartFile file = new MockMultipartFile("file", "test.mp4", "video/mp4", new byte[2048]);
+    Files.createDirectories(Paths.get(UPLOAD_PATH));
+
+    assertThatThrownBy(() -> videoService.storeUpload(file))
+        .isInstanceOf(InvalidFileException.class)
+        .hasMessage("File is too large");
+  }
+
+  @Test
+  void storeAssembledUpload_storesFileAndLeavesAssembledFileToCaller() throws Exception {
+    Files.createDirectories(Paths.get(UPLOAD_PATH));
+    Path assembled = Files.createTempFile("assembled", ".part");
+    Files.writeString(assembled, "test data");
+
+    StoredUpload upload = videoService.storeAssembledUpload(assembled, "test.mp4");
+
+    assertThat(upload.getContentHash())
+        .isEqualTo("916f0027a575074ce72a331777c3478d6513f786a591bd892da1a577bf2335f9");
+    assertThat(upload.getFilename()).endsWith(".mp4");
+    assertThat(Paths.get(UPLOAD_PATH, upload.getFilename())).hasContent("test data");
+    assertThat(assembled).hasContent("test data");
+    Files.deleteIfExists(assembled);
+  }
+
+  @Test
+  void storeAssembledUpload_mislabeledFile_rejectsBeforeProbing() throws Exception {
+    Files.createDirectories(Paths.get(UPLOAD_PATH));
+    Path assembled = Files.createTempFile("assembled", ".part");
+    Files.writeString(assembled, "not a video");
+    long storedBefore;
+    try (var storedFiles = Files.list(Paths.get(UPLOAD_PATH))) {
+      storedBefore = storedFiles.count();
+    }
+
+    doThrow(new InvalidFileException("File content does not match a supported video format"))
+        .when(videoProbe).checkSignature(assembled);
+
+    assertThatThrownBy(() -> videoService.storeAssembledUpload(assembled, "test.mp4"))
+        .isInstanceOf(InvalidFileException.class);
+    verify(videoProbe, never()).probe(any(Path.class));
+    try (var storedFiles = Files.list(Paths.get(UPLOAD_PATH))) {
+      assertThat(storedFiles.count()).isEqualTo(storedBefore);
+    }
+    Files.deleteIfExists(assembled);
+  }
+
+  @Test
+  void processStoredVideo_knownContent_reusesResultsWithoutProcessing() {
+    StoredUpload upload = new StoredUpload("new.mp4", "hash");
     User user = new User();
+    Video existing = new Video();
+    existing.setId(7L);
+    existing.setTranscriptionText("Transcribed text");
+    existing.setThumbnailPath("thumb.jpg");
+    existing.setFactPercentage(80.0);
+    existing.setFalseStatements(new ArrayList<>(List.of("The earth is flat")));
+
+    when(videoRepository.findFirstByContentHashOrderByProcessedAtDesc("hash")).thenReturn(Optional.of(existing));
+    when(videoRepository.save(any(Video.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+    Video result = videoService.processStoredVideo(upload, user);
 
-    assertThatThrownBy(() -> videoService.processAndSaveVideo(fileWithNullName, user).get())
-        .isInstanceOf(ExecutionException.class)
-        .hasCauseInstanceOf(InvalidFileException.class)
-        .hasRootCauseMessage("File extension is not supported");
+    assertThat(result).isNotSameAs(existing);
+    assertThat(result.getFileName()).isEqualTo("new.mp4");
+    assertThat(result.getContentHash()).isEqualTo("hash");
+    assertThat(result.getTranscriptionText()).isEqualTo("Transcribed text");
+    assertThat(result.getFactPercentage()).isEqualTo(80.0);
+    assertThat(result.getFalseStatements()).containsExactly("The earth is flat");
+    assertThat(result.getUser()).isSameAs(user);
+    verifyNoInteractions(videoProcessor);
   }
 }